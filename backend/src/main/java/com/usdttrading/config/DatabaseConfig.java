@@ -3,9 +3,13 @@ package com.usdttrading.config;
 import com.alibaba.druid.pool.DruidDataSource;
 import com.baomidou.mybatisplus.annotation.DbType;
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.InnerInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.OptimisticLockerInnerInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.actuate.health.Health;
 import org.springframework.boot.actuate.health.HealthIndicator;
@@ -62,6 +66,14 @@ public class DatabaseConfig {
         // 乐观锁插件
         interceptor.addInnerInterceptor(new OptimisticLockerInnerInterceptor());
         
+        // 读写分离：请求内执行过写语句后，后续读取固定走主库
+        interceptor.addInnerInterceptor(new InnerInterceptor() {
+            @Override
+            public void beforeUpdate(Executor executor, MappedStatement ms, Object parameter) {
+                ReadWriteRoutingDataSource.markWritten();
+            }
+        });
+        
         return interceptor;
     }
 
@@ -73,9 +85,12 @@ public class DatabaseConfig {
     public static class DatabaseHealthIndicator implements HealthIndicator {
         
         private final DataSource dataSource;
+        private final ObjectProvider<ReadWriteRoutingDataSource> routingProvider;
         
-        public DatabaseHealthIndicator(@Qualifier("dataSource") DataSource dataSource) {
+        public DatabaseHealthIndicator(@Qualifier("dataSource") DataSource dataSource,
+                                       ObjectProvider<ReadWriteRoutingDataSource> routingProvider) {
             this.dataSource = dataSource;
+            this.routingProvider = routingProvider;
         }
         
         @Override
@@ -95,14 +110,19 @@ public class DatabaseConfig {
         private Health checkDatabaseHealth() throws SQLException {
             try (Connection connection = dataSource.getConnection()) {
                 if (connection.isValid(5)) {
-                    DruidDataSource druidDataSource = (DruidDataSource) dataSource;
-                    return Health.up()
+                    // 启用读写分离时数据源为路由代理，连接池指标取主库
+                    DruidDataSource druidDataSource = dataSource.unwrap(DruidDataSource.class);
+                    Health.Builder builder = Health.up()
                         .withDetail("database", "MySQL")
                         .withDetail("activeConnections", druidDataSource.getActiveCount())
                         .withDetail("poolingConnections", druidDataSource.getPoolingCount())
                         .withDetail("maxActive", druidDataSource.getMaxActive())
-                        .withDetail("connectionURL", connection.getMetaData().getURL())
-                        .build();
+                        .withDetail("connectionURL", connection.getMetaData().getURL());
+                    ReadWriteRoutingDataSource routing = routingProvider.getIfAvailable();
+                    if (routing != null) {
+                        builder.withDetail("readWriteSplit", routing.getStatus());
+                    }
+                    return builder.build();
                 } else {
                     throw new SQLException("数据库连接验证失败");
                 }
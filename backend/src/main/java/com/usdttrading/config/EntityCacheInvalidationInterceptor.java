@@ -0,0 +1,42 @@
+package com.usdttrading.config;
+
+import com.usdttrading.service.EntityCache;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * 實體緩存失效攔截器
+ * 在寫語句（insert、update、delete）執行成功後通知實體緩存，由其在事務完成後失效對應鍵。
+ * 實體緩存依賴Mapper，這裡延遲獲取以避免與SqlSessionFactory循環依賴
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Component
+@Intercepts(@Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}))
+public class EntityCacheInvalidationInterceptor implements Interceptor {
+
+    private final ObjectProvider<EntityCache> entityCacheProvider;
+
+    public EntityCacheInvalidationInterceptor(ObjectProvider<EntityCache> entityCacheProvider) {
+        this.entityCacheProvider = entityCacheProvider;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        EntityCache entityCache = entityCacheProvider.getIfAvailable();
+        if (entityCache != null) {
+            MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+            entityCache.onMapperUpdate(ms.getId(), invocation.getArgs()[1]);
+        }
+        return result;
+    }
+}
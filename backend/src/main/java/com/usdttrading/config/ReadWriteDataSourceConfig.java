@@ -0,0 +1,111 @@
+package com.usdttrading.config;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.alibaba.druid.spring.boot.autoconfigure.DruidDataSourceBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 讀寫分離數據源配置
+ * 配置 app.datasource.replica-urls（逗號分隔的從庫JDBC地址）後啟用：
+ * 主庫連接池仍按 spring.datasource 配置構建，從庫連接池複製主庫的池參數，僅替換地址及賬號；
+ * 未配置時不創建任何Bean，沿用Druid自動配置的單一數據源
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Configuration
+@ConditionalOnExpression("!'${app.datasource.replica-urls:}'.trim().isEmpty()")
+public class ReadWriteDataSourceConfig {
+
+    private final ObjectProvider<ReadWriteRoutingDataSource> routingProvider;
+
+    @Value("${app.datasource.replica-urls:}")
+    private String replicaUrls;
+
+    @Value("${app.datasource.replica-username:}")
+    private String replicaUsername;
+
+    @Value("${app.datasource.replica-password:}")
+    private String replicaPassword;
+
+    @Value("${app.datasource.replica-max-lag-seconds:5}")
+    private long maxLagSeconds;
+
+    public ReadWriteDataSourceConfig(ObjectProvider<ReadWriteRoutingDataSource> routingProvider) {
+        this.routingProvider = routingProvider;
+    }
+
+    /**
+     * 主庫連接池，綁定 spring.datasource 及 spring.datasource.druid 配置
+     */
+    @Bean(initMethod = "init", destroyMethod = "close")
+    @ConfigurationProperties("spring.datasource.druid")
+    public DruidDataSource primaryDataSource() {
+        return DruidDataSourceBuilder.create().build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(
+            @Qualifier("primaryDataSource") DruidDataSource primaryDataSource) throws SQLException {
+        List<DruidDataSource> replicas = new ArrayList<>();
+        int index = 0;
+        for (String url : replicaUrls.split(",")) {
+            if (url.isBlank()) {
+                continue;
+            }
+            DruidDataSource replica = primaryDataSource.cloneDruidDataSource();
+            replica.setName("replica-" + index++);
+            replica.setUrl(url.trim());
+            if (!replicaUsername.isEmpty()) {
+                replica.setUsername(replicaUsername);
+                replica.setPassword(replicaPassword);
+            }
+            // 從庫不可用時不阻塞啟動，由定時檢查決定是否參與路由
+            replica.setInitExceptionThrow(false);
+            replica.init();
+            replicas.add(replica);
+        }
+        log.info("讀寫分離已啟用: replicas={}, maxLagSeconds={}", replicas.size(), maxLagSeconds);
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primaryDataSource, replicas, maxLagSeconds);
+        routing.checkReplicas();
+        return routing;
+    }
+
+    /**
+     * 應用使用的數據源：延遲到首條語句才取連接，使只讀事務標記參與路由
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+
+    /**
+     * 定時檢查從庫健康及複製延遲
+     */
+    @Scheduled(fixedDelayString = "${app.datasource.replica-check-interval-ms:5000}")
+    public void checkReplicas() {
+        try {
+            routingProvider.getObject().checkReplicas();
+        } catch (Exception e) {
+            log.error("從庫檢查失敗: error={}", e.getMessage());
+        }
+    }
+}
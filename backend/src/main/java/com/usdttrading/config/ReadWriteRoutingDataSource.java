@@ -0,0 +1,231 @@
+package com.usdttrading.config;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 讀寫分離路由數據源
+ * 只讀事務（@Transactional(readOnly = true)）輪詢分配到健康的從庫，其餘訪問一律走主庫。
+ * 需包在 LazyConnectionDataSourceProxy 內使用，使路由在事務的只讀標記設置之後、首條語句執行時才決定。
+ * <ul>
+ *     <li>從庫由定時檢查維護：連接失敗、複製中斷或延遲超過閾值的從庫移出輪詢，恢復後重新加入</li>
+ *     <li>請求內發生寫入（讀寫事務或MyBatis更新語句）後，同一請求的後續讀取固定走主庫，保證讀到自己的寫入</li>
+ *     <li>沒有健康從庫或從庫取連接失敗時回退主庫</li>
+ * </ul>
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    /**
+     * 請求屬性：本請求已寫入主庫
+     */
+    private static final String WRITTEN_ATTRIBUTE = ReadWriteRoutingDataSource.class.getName() + ".WRITTEN";
+    private static final int CHECK_CONNECT_TIMEOUT_MS = 2000;
+
+    private final DruidDataSource primary;
+    private final List<DruidDataSource> replicas;
+    private final long maxLagSeconds;
+
+    /**
+     * 當前可用的從庫，整體替換
+     */
+    private volatile List<DruidDataSource> healthyReplicas = List.of();
+    private final Map<String, Map<String, Object>> replicaStates = new ConcurrentHashMap<>();
+    private final AtomicInteger cursor = new AtomicInteger();
+
+    private final AtomicLong primaryRoutes = new AtomicLong();
+    private final AtomicLong replicaRoutes = new AtomicLong();
+    private final AtomicLong stickyRoutes = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    public ReadWriteRoutingDataSource(DruidDataSource primary, List<DruidDataSource> replicas, long maxLagSeconds) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    /**
+     * 標記當前請求已寫入，後續讀取走主庫；請求外（定時任務、異步線程）調用無效果
+     */
+    public static void markWritten() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(WRITTEN_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    private static boolean isWritten() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null && attributes.getAttribute(WRITTEN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                markWritten();
+            }
+            primaryRoutes.incrementAndGet();
+            return primary.getConnection();
+        }
+        if (isWritten()) {
+            stickyRoutes.incrementAndGet();
+            return primary.getConnection();
+        }
+        List<DruidDataSource> candidates = healthyReplicas;
+        if (candidates.isEmpty()) {
+            fallbacks.incrementAndGet();
+            return primary.getConnection();
+        }
+        DruidDataSource replica = candidates.get(Math.floorMod(cursor.getAndIncrement(), candidates.size()));
+        try {
+            Connection connection = replica.getConnection();
+            replicaRoutes.incrementAndGet();
+            return connection;
+        } catch (SQLException e) {
+            log.warn("從庫取連接失敗，回退主庫並移出輪詢: replica={}, error={}", replica.getName(), e.getMessage());
+            markUnhealthy(replica, "連接失敗: " + e.getMessage());
+            fallbacks.incrementAndGet();
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    /**
+     * 檢查所有從庫的連通性及複製延遲，重建可用列表
+     */
+    public void checkReplicas() {
+        List<DruidDataSource> healthy = new ArrayList<>();
+        for (DruidDataSource replica : replicas) {
+            Map<String, Object> state = new LinkedHashMap<>();
+            state.put("checkedAt", System.currentTimeMillis());
+            try {
+                Long lag = readLagSeconds(replica);
+                state.put("lagSeconds", lag);
+                if (lag == null) {
+                    state.put("healthy", false);
+                    state.put("reason", "複製未運行");
+                } else if (lag > maxLagSeconds) {
+                    state.put("healthy", false);
+                    state.put("reason", "複製延遲超過" + maxLagSeconds + "秒");
+                } else {
+                    state.put("healthy", true);
+                    healthy.add(replica);
+                }
+            } catch (SQLException e) {
+                state.put("healthy", false);
+                state.put("reason", "連接失敗: " + e.getMessage());
+            }
+            Map<String, Object> previous = replicaStates.put(replica.getName(), state);
+            boolean wasHealthy = previous != null && Boolean.TRUE.equals(previous.get("healthy"));
+            if (wasHealthy != Boolean.TRUE.equals(state.get("healthy"))) {
+                log.info("從庫狀態變化: replica={}, healthy={}, lagSeconds={}, reason={}", replica.getName(),
+                        state.get("healthy"), state.get("lagSeconds"), state.get("reason"));
+            }
+        }
+        healthyReplicas = List.copyOf(healthy);
+    }
+
+    /**
+     * 讀取從庫延遲秒數，未在複製（無複製狀態或SQL線程停止）返回null
+     */
+    private static Long readLagSeconds(DruidDataSource replica) throws SQLException {
+        try (Connection connection = replica.getConnection(CHECK_CONNECT_TIMEOUT_MS);
+             Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("SHOW REPLICA STATUS")) {
+                return rs.next() ? lagOf(rs, "Seconds_Behind_Source") : null;
+            } catch (SQLException e) {
+                // MySQL 8.0.22 之前的版本
+                try (ResultSet rs = statement.executeQuery("SHOW SLAVE STATUS")) {
+                    return rs.next() ? lagOf(rs, "Seconds_Behind_Master") : null;
+                }
+            }
+        }
+    }
+
+    private static Long lagOf(ResultSet rs, String column) throws SQLException {
+        long lag = rs.getLong(column);
+        return rs.wasNull() ? null : lag;
+    }
+
+    private synchronized void markUnhealthy(DruidDataSource replica, String reason) {
+        List<DruidDataSource> remaining = new ArrayList<>(healthyReplicas);
+        if (remaining.remove(replica)) {
+            healthyReplicas = List.copyOf(remaining);
+        }
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("checkedAt", System.currentTimeMillis());
+        state.put("healthy", false);
+        state.put("reason", reason);
+        replicaStates.put(replica.getName(), state);
+    }
+
+    /**
+     * 獲取路由狀態
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("replicas", replicas.size());
+        status.put("healthyReplicas", healthyReplicas.size());
+        status.put("maxLagSeconds", maxLagSeconds);
+        Map<String, Object> states = new LinkedHashMap<>();
+        for (DruidDataSource replica : replicas) {
+            Map<String, Object> state = new LinkedHashMap<>(replicaStates.getOrDefault(replica.getName(), Map.of()));
+            state.put("activeConnections", replica.getActiveCount());
+            states.put(replica.getName(), state);
+        }
+        status.put("replicaStates", states);
+        status.put("primaryRoutes", primaryRoutes.get());
+        status.put("replicaRoutes", replicaRoutes.get());
+        status.put("stickyRoutes", stickyRoutes.get());
+        status.put("fallbacks", fallbacks.get());
+        return status;
+    }
+
+    /**
+     * 關閉從庫連接池；主庫連接池由容器管理
+     */
+    public void close() {
+        healthyReplicas = List.of();
+        replicas.forEach(DruidDataSource::close);
+    }
+}
@@ -0,0 +1,30 @@
+package com.usdttrading.config;
+
+import com.usdttrading.utils.TronMockNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+
+/**
+ * 本地TRON回放節點配置
+ * 開啟後同時將 app.tron.node-url 指向 http://127.0.0.1:{port}，掃描服務即從錄製的區塊讀取數據
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.tron.mock-node.enabled", havingValue = "true")
+public class TronMockNodeConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public TronMockNode tronMockNode(@Value("${app.tron.mock-node.port:18090}") int port,
+                                     @Value("${app.tron.mock-node.recording:data/tron/recorded-blocks.json}") String recording,
+                                     @Value("${app.tron.mock-node.block-interval-ms:3000}") long blockIntervalMs,
+                                     @Value("${app.tron.mock-node.initial-blocks:1}") int initialBlocks) {
+        return new TronMockNode(port, Paths.get(recording), blockIntervalMs, initialBlocks);
+    }
+}
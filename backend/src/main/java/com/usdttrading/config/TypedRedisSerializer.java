@@ -0,0 +1,195 @@
+package com.usdttrading.config;
+
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONB;
+import com.alibaba.fastjson2.JSONReader;
+import com.alibaba.fastjson2.JSONWriter;
+import com.alibaba.fastjson2.SymbolTable;
+import com.alibaba.fastjson2.filter.Filter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/**
+ * Redis值類型化序列化器
+ * 按值類型選擇編碼：
+ * <ul>
+ *     <li>Integer、Long等整數寫為十進制文本，與INCR/INCRBY兼容，計數器讀回仍為Integer/Long</li>
+ *     <li>字符串寫為JSON字符串文本，與舊版Jackson寫入的字節一致（驗證碼、刷新令牌等按字節比較的值不受發布影響）</li>
+ *     <li>註冊的實體類寫為 0x00 + 2字節符號表指紋 + fastjson2 JSONB，類名、字段名預置在符號表中按序號編碼</li>
+ *     <li>其他值（布爾、Map、BigDecimal等）寫為 0x01 + fastjson2 JSONB，不使用符號表，
+ *     BigDecimal、LocalDateTime、Long按原類型往返</li>
+ *     <li>讀取時兼容舊版Jackson寫入的JSON文本，新舊版本滾動發布期間緩存無需清空</li>
+ * </ul>
+ * 符號表由註冊類的類名、字段名排序生成，各節點一致；只有實體緩存依賴指紋，
+ * 實體字段變化後指紋不同的實體值按緩存未命中處理，其他值在各版本間保持可讀
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+public class TypedRedisSerializer implements RedisSerializer<Object> {
+
+    private static final byte ENTITY_MARKER = 0x00;
+    private static final byte JSONB_MARKER = 0x01;
+    private static final int ENTITY_HEADER_LENGTH = 3;
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final JSONWriter.Feature[] WRITER_FEATURES = {
+            JSONWriter.Feature.FieldBased,
+            JSONWriter.Feature.WriteClassName,
+            JSONWriter.Feature.NotWriteHashMapArrayListClassName
+    };
+
+    private static final JSONReader.Feature[] READER_FEATURES = {
+            JSONReader.Feature.FieldBased,
+            JSONReader.Feature.UseNativeObject,
+            JSONReader.Feature.UseDefaultConstructorAsPossible
+    };
+
+    private final Set<Class<?>> entityClasses;
+    private final SymbolTable symbolTable;
+    private final Filter autoTypeFilter;
+    private final Filter[] entityFilters;
+    private final byte fingerprintHigh;
+    private final byte fingerprintLow;
+
+    /**
+     * @param registeredClasses 允許按類型還原的實體類，類名及字段名預置進符號表
+     */
+    public TypedRedisSerializer(Collection<Class<?>> registeredClasses) {
+        this.entityClasses = Set.copyOf(registeredClasses);
+        Set<String> symbols = new TreeSet<>();
+        Set<String> acceptNames = new LinkedHashSet<>();
+        acceptNames.add("java.util.");
+        acceptNames.add("java.math.");
+        acceptNames.add("java.time.");
+        for (Class<?> type : registeredClasses) {
+            symbols.add(type.getName());
+            acceptNames.add(type.getName());
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+                        symbols.add(field.getName());
+                    }
+                }
+            }
+        }
+        String[] names = symbols.toArray(new String[0]);
+        this.symbolTable = JSONB.symbolTable(names);
+        this.autoTypeFilter = JSONReader.autoTypeFilter(acceptNames.toArray(new String[0]));
+        this.entityFilters = new Filter[]{autoTypeFilter};
+
+        CRC32 crc = new CRC32();
+        crc.update(String.join("\n", names).getBytes(StandardCharsets.UTF_8));
+        long fingerprint = crc.getValue();
+        this.fingerprintHigh = (byte) (fingerprint >>> 8);
+        this.fingerprintLow = (byte) fingerprint;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return EMPTY;
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return value.toString().getBytes(StandardCharsets.US_ASCII);
+        }
+        try {
+            if (value instanceof String) {
+                return JSON.toJSONBytes(value);
+            }
+            if (entityClasses.contains(value.getClass())) {
+                byte[] body = JSONB.toBytes(value, symbolTable, WRITER_FEATURES);
+                byte[] out = new byte[ENTITY_HEADER_LENGTH + body.length];
+                out[0] = ENTITY_MARKER;
+                out[1] = fingerprintHigh;
+                out[2] = fingerprintLow;
+                System.arraycopy(body, 0, out, ENTITY_HEADER_LENGTH, body.length);
+                return out;
+            }
+            byte[] body = JSONB.toBytes(value, WRITER_FEATURES);
+            byte[] out = new byte[1 + body.length];
+            out[0] = JSONB_MARKER;
+            System.arraycopy(body, 0, out, 1, body.length);
+            return out;
+        } catch (Exception e) {
+            throw new SerializationException("Redis值序列化失敗: " + value.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] == ENTITY_MARKER) {
+            if (bytes.length < ENTITY_HEADER_LENGTH || bytes[1] != fingerprintHigh || bytes[2] != fingerprintLow) {
+                log.debug("Redis實體值符號表指紋不一致，按未命中處理");
+                return null;
+            }
+            try {
+                return JSONB.parseObject(Arrays.copyOfRange(bytes, ENTITY_HEADER_LENGTH, bytes.length), Object.class,
+                        symbolTable, entityFilters, READER_FEATURES);
+            } catch (Exception e) {
+                throw new SerializationException("Redis值反序列化失敗", e);
+            }
+        }
+        if (bytes[0] == JSONB_MARKER) {
+            try {
+                return JSONB.parseObject(Arrays.copyOfRange(bytes, 1, bytes.length), Object.class,
+                        autoTypeFilter, READER_FEATURES);
+            } catch (Exception e) {
+                throw new SerializationException("Redis值反序列化失敗", e);
+            }
+        }
+        Object integer = parseInteger(bytes);
+        if (integer != null) {
+            return integer;
+        }
+        try {
+            // 字符串及舊版Jackson寫入的JSON文本
+            return JSON.parse(new String(bytes, StandardCharsets.UTF_8),
+                    JSONReader.Feature.UseNativeObject, JSONReader.Feature.UseBigDecimalForDoubles);
+        } catch (Exception e) {
+            throw new SerializationException("Redis值反序列化失敗", e);
+        }
+    }
+
+    /**
+     * 解析十進制整數文本，非整數返回null；在int範圍內返回Integer，與舊版讀取結果一致
+     */
+    private static Object parseInteger(byte[] bytes) {
+        int start = bytes[0] == '-' ? 1 : 0;
+        if (start == bytes.length || bytes.length - start > 19) {
+            return null;
+        }
+        long value = 0;
+        for (int i = start; i < bytes.length; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return null;
+            }
+            value = value * 10 + digit;
+            if (value < 0) {
+                return null;
+            }
+        }
+        value = start == 1 ? -value : value;
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            return (int) value;
+        }
+        return value;
+    }
+}
@@ -4,6 +4,7 @@ import com.usdttrading.interceptor.LoggingInterceptor;
 import com.usdttrading.interceptor.RequestTraceInterceptor;
 import com.usdttrading.interceptor.RateLimitInterceptor;
 import com.usdttrading.interceptor.SecurityInterceptor;
+import com.usdttrading.interceptor.SessionActivityInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
@@ -31,6 +32,9 @@ public class WebConfig implements WebMvcConfigurer {
     @Autowired
     private SecurityInterceptor securityInterceptor;
 
+    @Autowired
+    private SessionActivityInterceptor sessionActivityInterceptor;
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
 
@@ -61,5 +65,11 @@ public class WebConfig implements WebMvcConfigurer {
                 .excludePathPatterns("/api/health", "/api/actuator/**", "/api/auth/captcha")
                 .order(4);
         */
+
+        // 會話活動攔截器 - 只寫內存，不訪問數據庫，與上述攔截器相互獨立
+        registry.addInterceptor(sessionActivityInterceptor)
+                .addPathPatterns("/api/**")
+                .excludePathPatterns("/api/health", "/api/actuator/**", "/api/auth/login", "/api/auth/register")
+                .order(5);
     }
 }
\ No newline at end of file
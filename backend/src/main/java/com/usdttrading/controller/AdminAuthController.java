@@ -1,11 +1,13 @@
 package com.usdttrading.controller;
 
+import cn.dev33.satoken.annotation.SaCheckRole;
 import cn.dev33.satoken.stp.SaTokenInfo;
 import cn.dev33.satoken.stp.StpUtil;
 import cn.hutool.core.util.StrUtil;
 import com.usdttrading.entity.Admin;
 import com.usdttrading.security.RSAUtil;
 import com.usdttrading.service.AdminService;
+import com.usdttrading.service.SessionActivityTracker;
 import com.usdttrading.dto.ApiResponse;
 import com.usdttrading.vo.AdminLoginRequest;
 import com.usdttrading.vo.AdminLoginResponse;
@@ -39,6 +41,9 @@ public class AdminAuthController {
     @Resource
     private RSAUtil rsaUtil;
 
+    @Resource
+    private SessionActivityTracker sessionActivityTracker;
+
     /**
      * 管理員登入
      * 支援RSA加密密碼傳輸，具備頻率限制和安全檢查
@@ -255,6 +260,16 @@ public class AdminAuthController {
     }
 
 
+    /**
+     * 在線會話統計（來自會話追蹤服務內存狀態，不掃描會話表）
+     */
+    @GetMapping("/sessions/stats")
+    @SaCheckRole("ADMIN")
+    @Operation(summary = "在線會話統計", description = "查看本節點及集群在線會話數")
+    public ApiResponse<Map<String, Object>> getSessionStats() {
+        return ApiResponse.success("獲取成功", sessionActivityTracker.getStatus());
+    }
+
     /**
      * 管理員API測試端點
      * 用於前後端集成測試和系統健康檢查
@@ -0,0 +1,99 @@
+package com.usdttrading.controller;
+
+import cn.dev33.satoken.annotation.SaCheckRole;
+import cn.dev33.satoken.stp.StpUtil;
+import com.usdttrading.dto.ApiResponse;
+import com.usdttrading.service.AnnouncementFeedService;
+import com.usdttrading.service.AnnouncementFeedService.FeedSnapshot;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * 系統公告控制器
+ * 公告列表直接寫出內存快照中預序列化的響應體，並支持ETag條件請求
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/announcements")
+@RequiredArgsConstructor
+@Tag(name = "系統公告", description = "首頁公告及彈窗公告API")
+public class AnnouncementController {
+
+    private final AnnouncementFeedService announcementFeedService;
+
+    /**
+     * 獲取有效公告
+     */
+    @GetMapping
+    @Operation(summary = "獲取公告列表", description = "按當前用戶身份返回有效公告")
+    public ResponseEntity<byte[]> getAnnouncements(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        FeedSnapshot snapshot = announcementFeedService.getFeed(resolveAudience());
+        return write(snapshot.getFeedBody(), snapshot.getFeedEtag(), ifNoneMatch);
+    }
+
+    /**
+     * 獲取彈窗公告
+     */
+    @GetMapping("/popup")
+    @Operation(summary = "獲取彈窗公告", description = "按當前用戶身份返回需彈窗顯示的公告")
+    public ResponseEntity<byte[]> getPopupAnnouncements(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        FeedSnapshot snapshot = announcementFeedService.getFeed(resolveAudience());
+        return write(snapshot.getPopupBody(), snapshot.getPopupEtag(), ifNoneMatch);
+    }
+
+    /**
+     * 公告變更後刷新快照（所有節點）
+     */
+    @PostMapping("/admin/refresh")
+    @SaCheckRole("ADMIN")
+    @Operation(summary = "刷新公告快照", description = "公告新增、修改或下線後刷新所有節點的公告快照")
+    public ApiResponse<Map<String, Object>> refresh() {
+        announcementFeedService.refresh();
+        log.info("管理員刷新公告快照: adminId={}", StpUtil.getLoginIdDefaultNull());
+        return ApiResponse.success("刷新成功", announcementFeedService.getStatus());
+    }
+
+    /**
+     * 公告快照狀態
+     */
+    @GetMapping("/admin/status")
+    @SaCheckRole("ADMIN")
+    @Operation(summary = "公告快照狀態", description = "查看本節點公告快照及下一次重算時間")
+    public ApiResponse<Map<String, Object>> getStatus() {
+        return ApiResponse.success("獲取成功", announcementFeedService.getStatus());
+    }
+
+    private static String resolveAudience() {
+        if (!StpUtil.isLogin()) {
+            return AnnouncementFeedService.AUDIENCE_ALL;
+        }
+        if (StpUtil.hasRole("ADMIN")) {
+            return AnnouncementFeedService.AUDIENCE_ADMINS;
+        }
+        return StpUtil.hasRole("VIP") ? AnnouncementFeedService.AUDIENCE_VIP : AnnouncementFeedService.AUDIENCE_USERS;
+    }
+
+    private static ResponseEntity<byte[]> write(byte[] body, String etag, String ifNoneMatch) {
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .body(body);
+    }
+}
@@ -0,0 +1,100 @@
+package com.usdttrading.controller;
+
+import cn.dev33.satoken.annotation.SaCheckLogin;
+import cn.dev33.satoken.annotation.SaCheckRole;
+import cn.dev33.satoken.stp.StpUtil;
+import com.usdttrading.dto.ApiResponse;
+import com.usdttrading.service.ArchiveSegmentStore.Manifest;
+import com.usdttrading.service.DataArchiveService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 歷史數據歸檔控制器
+ * 查看歸檔分段、查詢已歸檔的價格歷史、操作日誌及安全事件
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/archive")
+@RequiredArgsConstructor
+@Tag(name = "歷史數據歸檔", description = "歸檔分段查看及歸檔數據查詢API")
+@SaCheckLogin
+@SaCheckRole("ADMIN")
+public class ArchiveController {
+
+    private static final int MAX_QUERY_ROWS = 1000;
+
+    private final DataArchiveService dataArchiveService;
+
+    /**
+     * 列出歸檔分段
+     */
+    @GetMapping("/segments")
+    @Operation(summary = "歸檔分段列表", description = "列出指定表的歸檔分段及其時間範圍、行數和狀態")
+    public ApiResponse<List<Manifest>> getSegments(
+            @Parameter(description = "表名：price_history、audit_logs、security_events")
+            @RequestParam String table) throws IOException {
+        return ApiResponse.success("獲取成功", dataArchiveService.listSegments(table));
+    }
+
+    /**
+     * 查詢歸檔數據
+     */
+    @GetMapping("/query")
+    @Operation(summary = "查詢歸檔數據", description = "按時間範圍（及用戶）讀取已歸檔的行，最多返回1000行")
+    public ApiResponse<List<Map<String, Object>>> query(
+            @Parameter(description = "表名：price_history、audit_logs、security_events")
+            @RequestParam String table,
+            @Parameter(description = "開始時間（含）", example = "2025-01-01T00:00:00")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "結束時間（不含）", example = "2025-02-01T00:00:00")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "用戶ID")
+            @RequestParam(required = false) Long userId,
+            @Parameter(description = "最多返回行數", example = "200")
+            @RequestParam(defaultValue = "200") int limit) throws IOException {
+        if (!from.isBefore(to)) {
+            return ApiResponse.error("開始時間必須早於結束時間");
+        }
+        int rows = Math.max(1, Math.min(limit, MAX_QUERY_ROWS));
+        log.info("管理員查詢歸檔數據: adminId={}, table={}, from={}, to={}, userId={}",
+                StpUtil.getLoginIdDefaultNull(), table, from, to, userId);
+        return ApiResponse.success("獲取成功", dataArchiveService.query(table, from, to, userId, rows));
+    }
+
+    /**
+     * 立即執行歸檔
+     */
+    @PostMapping("/run")
+    @Operation(summary = "立即歸檔", description = "在後台執行一次歸檔及清理，返回歸檔任務ID，進度通過狀態接口查看")
+    public ApiResponse<Map<String, Object>> run() {
+        log.info("管理員觸發歸檔: adminId={}", StpUtil.getLoginIdDefaultNull());
+        Map<String, Object> result = new HashMap<>();
+        result.put("jobId", dataArchiveService.runNow());
+        return ApiResponse.success("歸檔任務已提交", result);
+    }
+
+    /**
+     * 歸檔狀態
+     */
+    @GetMapping("/status")
+    @Operation(summary = "歸檔狀態", description = "查看保留期、歸檔及清理統計和最近一次執行結果")
+    public ApiResponse<Map<String, Object>> getStatus() {
+        return ApiResponse.success("獲取成功", dataArchiveService.getStatus());
+    }
+}
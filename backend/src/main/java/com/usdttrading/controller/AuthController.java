@@ -8,6 +8,9 @@ import com.usdttrading.entity.User;
 import com.usdttrading.service.UserService;
 import com.usdttrading.service.EmailService;
 import com.usdttrading.service.AuditLogService;
+import com.usdttrading.service.AuthStateStore;
+import com.usdttrading.service.SecurityCorrelationEngine;
+import com.usdttrading.service.SessionActivityTracker;
 import com.usdttrading.security.JwtUtil;
 import com.usdttrading.security.RSAUtil;
 import com.usdttrading.utils.ValidationUtils;
@@ -18,7 +21,6 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
@@ -28,6 +30,7 @@ import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Size;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -50,9 +53,11 @@ public class AuthController {
     private final UserService userService;
     private final EmailService emailService;
     private final AuditLogService auditLogService;
+    private final SessionActivityTracker sessionActivityTracker;
     private final JwtUtil jwtUtil;
     private final RSAUtil rsaUtil;
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final AuthStateStore authStateStore;
+    private final SecurityCorrelationEngine securityCorrelationEngine;
     private final ValidationUtils validationUtils;
 
     /**
@@ -69,8 +74,7 @@ public class AuthController {
 
         // 檢查發送頻率限制
         String rateLimitKey = "send_verification_limit:" + clientIp;
-        Integer attempts = (Integer) redisTemplate.opsForValue().get(rateLimitKey);
-        if (attempts != null && attempts >= 5) {
+        if (authStateStore.getAttempts(rateLimitKey) >= 5) {
             return ApiResponse.error("發送過於頻繁，請10分鐘後重試");
         }
 
@@ -89,15 +93,13 @@ public class AuthController {
             String verificationCode = emailService.generateVerificationCode();
             String verifyKey = "pre_register_verify:" + request.getEmail();
             
-            // 存儲驗證碼，有效期10分鐘
-            redisTemplate.opsForValue().set(verifyKey, verificationCode, 10, TimeUnit.MINUTES);
+            // 存儲驗證碼（有效期10分鐘）並記錄發送頻率限制
+            authStateStore.storeCode(verifyKey, verificationCode, 10, TimeUnit.MINUTES,
+                    rateLimitKey, 10, TimeUnit.MINUTES);
 
             // 發送驗證郵件
             emailService.sendPreRegistrationVerificationEmail(request.getEmail(), verificationCode);
 
-            // 記錄發送頻率限制
-            redisTemplate.opsForValue().set(rateLimitKey, (attempts == null ? 0 : attempts) + 1, 10, TimeUnit.MINUTES);
-
             // 記錄安全事件
             auditLogService.logSecurityEvent(null, "PRE_REGISTER_VERIFICATION_SENT", 
                     "發送註冊前驗證碼: " + request.getEmail(), clientIp, userAgent, true, null);
@@ -111,7 +113,7 @@ public class AuthController {
 
         } catch (Exception e) {
             // 記錄失敗嘗試
-            redisTemplate.opsForValue().set(rateLimitKey, (attempts == null ? 0 : attempts) + 1, 10, TimeUnit.MINUTES);
+            authStateStore.recordAttempt(rateLimitKey, 10, TimeUnit.MINUTES);
             
             auditLogService.logSecurityEvent(null, "PRE_REGISTER_VERIFICATION_FAILED", 
                     "發送註冊前驗證碼失敗: " + e.getMessage(), clientIp, userAgent, false, e.getMessage());
@@ -133,10 +135,11 @@ public class AuthController {
         String clientIp = RequestUtils.getClientIp(httpRequest);
         String userAgent = RequestUtils.getUserAgent(httpRequest);
 
-        // 檢查註冊頻率限制
+        // 註冊頻率計數與預註冊驗證碼一次讀取
         String rateLimitKey = "register_limit:" + clientIp;
-        Integer attempts = (Integer) redisTemplate.opsForValue().get(rateLimitKey);
-        if (attempts != null && attempts >= 3) {
+        String verifyKey = "pre_register_verify:" + request.getEmail();
+        List<Object> state = authStateStore.read(rateLimitKey, verifyKey);
+        if (AuthStateStore.toAttempts(state.get(0)) >= 3) {
             return ApiResponse.error("註冊過於頻繁，請5分鐘後重試");
         }
 
@@ -156,8 +159,7 @@ public class AuthController {
 
         try {
             // 驗證預註冊驗證碼
-            String verifyKey = "pre_register_verify:" + request.getEmail();
-            String storedCode = (String) redisTemplate.opsForValue().get(verifyKey);
+            Object storedCode = state.get(1);
             
             if (storedCode == null) {
                 return ApiResponse.error("驗證碼已過期，請重新獲取");
@@ -170,9 +172,6 @@ public class AuthController {
             // 註冊用戶（包含用戶名）
             User user = userService.register(request.getUsername(), request.getEmail(), request.getPassword(), request.getPhone());
 
-            // 刪除預註冊驗證碼
-            redisTemplate.delete(verifyKey);
-
             // 直接激活用戶並設置郵箱已驗證（因為已經預驗證）
             userService.activateUser(user.getId());
 
@@ -180,15 +179,14 @@ public class AuthController {
             String accessToken = jwtUtil.generateAccessToken(user.getId(), user.getRoleId());
             String refreshToken = jwtUtil.generateRefreshToken(user.getId());
 
-            // 存儲刷新令牌
-            String refreshKey = "refresh_token:" + user.getId();
-            redisTemplate.opsForValue().set(refreshKey, refreshToken, 7, TimeUnit.DAYS);
+            // 刪除預註冊驗證碼、存儲刷新令牌並記錄註冊頻率限制
+            authStateStore.completeRegistration(user.getId(), refreshToken, verifyKey,
+                    rateLimitKey, 5, TimeUnit.MINUTES);
 
             // Sa-Token 登錄
             StpUtil.login(user.getId());
-
-            // 記錄註冊頻率限制
-            redisTemplate.opsForValue().set(rateLimitKey, (attempts == null ? 0 : attempts) + 1, 5, TimeUnit.MINUTES);
+            sessionActivityTracker.openSession(user.getId(), StpUtil.getTokenValue(), clientIp, userAgent,
+                    RequestUtils.isMobileDevice(httpRequest));
 
             // 記錄安全事件
             auditLogService.logSecurityEvent(user.getId(), "USER_REGISTER", 
@@ -205,7 +203,7 @@ public class AuthController {
 
         } catch (Exception e) {
             // 記錄失敗嘗試
-            redisTemplate.opsForValue().set(rateLimitKey, (attempts == null ? 0 : attempts) + 1, 5, TimeUnit.MINUTES);
+            authStateStore.recordAttempt(rateLimitKey, 5, TimeUnit.MINUTES);
             
             auditLogService.logSecurityEvent(null, "USER_REGISTER_FAILED", 
                     "註冊失敗: " + e.getMessage(), clientIp, userAgent, false, e.getMessage());
@@ -229,11 +227,16 @@ public class AuthController {
 
         // 檢查登錄頻率限制
         String rateLimitKey = "login_limit:" + clientIp;
-        Integer attempts = (Integer) redisTemplate.opsForValue().get(rateLimitKey);
-        if (attempts != null && attempts >= 5) {
+        if (authStateStore.getAttempts(rateLimitKey) >= 5) {
             return ApiResponse.error("登錄嘗試過於頻繁，請15分鐘後重試");
         }
 
+        // 關聯引擎判定為暴力破解或撞庫來源的IP暫時禁止登錄
+        String correlationIp = securityCorrelationEngine.resolveClientIp(httpRequest);
+        if (securityCorrelationEngine.isLoginBlocked(correlationIp)) {
+            return ApiResponse.error("登錄嘗試過於頻繁，請稍後重試");
+        }
+
         try {
             // 用戶登錄（支持RSA解密）
             User user;
@@ -251,20 +254,19 @@ public class AuthController {
             String accessToken = jwtUtil.generateAccessToken(user.getId(), user.getRoleId());
             String refreshToken = jwtUtil.generateRefreshToken(user.getId());
 
-            // 存儲刷新令牌
-            String refreshKey = "refresh_token:" + user.getId();
-            redisTemplate.opsForValue().set(refreshKey, refreshToken, 7, TimeUnit.DAYS);
-
-            // 記錄設備信息
-            String deviceKey = "user_device:" + user.getId() + ":" + RequestUtils.generateDeviceFingerprint(userAgent, clientIp);
+            // 存儲刷新令牌、記錄設備信息並重置登錄失敗計數
             Map<String, Object> deviceInfo = new HashMap<>();
             deviceInfo.put("ip", clientIp);
             deviceInfo.put("userAgent", userAgent);
             deviceInfo.put("loginTime", System.currentTimeMillis());
-            redisTemplate.opsForValue().set(deviceKey, deviceInfo, 30, TimeUnit.DAYS);
+            authStateStore.completeLogin(user.getId(), refreshToken,
+                    RequestUtils.generateDeviceFingerprint(userAgent, clientIp), deviceInfo, rateLimitKey);
+
+            // 登記會話，後續請求的活動時間由追蹤服務批量寫入
+            sessionActivityTracker.openSession(user.getId(), StpUtil.getTokenValue(), clientIp, userAgent,
+                    RequestUtils.isMobileDevice(httpRequest));
 
-            // 重置登錄失敗計數
-            redisTemplate.delete(rateLimitKey);
+            securityCorrelationEngine.onLoginSuccess(user.getId(), correlationIp, userAgent);
 
             Map<String, Object> result = new HashMap<>();
             result.put("accessToken", accessToken);
@@ -276,7 +278,8 @@ public class AuthController {
 
         } catch (Exception e) {
             // 記錄失敗嘗試
-            redisTemplate.opsForValue().set(rateLimitKey, (attempts == null ? 0 : attempts) + 1, 15, TimeUnit.MINUTES);
+            authStateStore.recordAttempt(rateLimitKey, 15, TimeUnit.MINUTES);
+            securityCorrelationEngine.onLoginFailure(request.getEmail(), correlationIp, userAgent);
             
             auditLogService.logSecurityEvent(null, "USER_LOGIN_FAILED", 
                     "登錄失敗: " + e.getMessage(), clientIp, userAgent, false, e.getMessage());
@@ -301,18 +304,11 @@ public class AuthController {
             // 獲取當前Token
             String token = StpUtil.getTokenValue();
             
-            // 將Token加入黑名單
-            if (StrUtil.isNotBlank(token)) {
-                String blacklistKey = "jwt_blacklist:" + token;
-                redisTemplate.opsForValue().set(blacklistKey, "logout", 
-                        jwtUtil.getAccessTokenExpiration(), TimeUnit.MILLISECONDS);
-            }
+            // 將Token加入黑名單並刪除刷新令牌
+            authStateStore.revoke(userId, StrUtil.isNotBlank(token) ? token : null, jwtUtil.getAccessTokenExpiration());
 
-            // 刪除刷新令牌
-            String refreshKey = "refresh_token:" + userId;
-            redisTemplate.delete(refreshKey);
-
-            // Sa-Token登出
+            // 結束會話記錄並Sa-Token登出
+            sessionActivityTracker.closeSession(token);
             userService.logout();
 
             // 記錄安全事件
@@ -342,8 +338,7 @@ public class AuthController {
             Long userId = jwtUtil.getUserIdFromToken(request.getRefreshToken());
             
             // 檢查Redis中的刷新令牌
-            String refreshKey = "refresh_token:" + userId;
-            String storedToken = (String) redisTemplate.opsForValue().get(refreshKey);
+            String storedToken = authStateStore.getRefreshToken(userId);
             
             if (!request.getRefreshToken().equals(storedToken)) {
                 return ApiResponse.error("刷新令牌不匹配");
@@ -374,22 +369,20 @@ public class AuthController {
     @Operation(summary = "郵箱驗證", description = "驗證用戶郵箱")
     public ApiResponse<String> verifyEmail(@Valid @RequestBody VerifyEmailRequest request) {
         try {
+            // 原子比較並刪除驗證碼，同一驗證碼只能使用一次
             String verifyKey = "email_verify:" + request.getUserId();
-            String storedCode = (String) redisTemplate.opsForValue().get(verifyKey);
+            long consumed = authStateStore.consume(verifyKey, request.getCode());
 
-            if (storedCode == null) {
+            if (consumed == AuthStateStore.CODE_MISSING) {
                 return ApiResponse.error("驗證碼已過期");
             }
 
-            if (!storedCode.equals(request.getCode())) {
+            if (consumed == AuthStateStore.CODE_MISMATCH) {
                 return ApiResponse.error("驗證碼錯誤");
             }
 
             // 驗證郵箱
             userService.verifyEmail(request.getUserId());
-            
-            // 刪除驗證碼
-            redisTemplate.delete(verifyKey);
 
             return ApiResponse.success("郵箱驗證成功");
 
@@ -414,22 +407,19 @@ public class AuthController {
 
             // 檢查重發頻率
             String resendKey = "resend_limit:" + userId;
-            Integer attempts = (Integer) redisTemplate.opsForValue().get(resendKey);
-            if (attempts != null && attempts >= 3) {
+            if (authStateStore.getAttempts(resendKey) >= 3) {
                 return ApiResponse.error("重發次數過多，請1小時後重試");
             }
 
             // 生成新驗證碼
             String verificationCode = emailService.generateVerificationCode();
             String verifyKey = "email_verify:" + userId;
-            redisTemplate.opsForValue().set(verifyKey, verificationCode, 5, TimeUnit.MINUTES);
+            authStateStore.storeCode(verifyKey, verificationCode, 5, TimeUnit.MINUTES,
+                    resendKey, 1, TimeUnit.HOURS);
 
             // 發送驗證郵件
             emailService.sendVerificationEmail(user.getEmail(), userId, verificationCode);
 
-            // 記錄重發次數
-            redisTemplate.opsForValue().set(resendKey, (attempts == null ? 0 : attempts) + 1, 1, TimeUnit.HOURS);
-
             return ApiResponse.success("驗證郵件已重新發送");
 
         } catch (Exception e) {
@@ -456,22 +446,19 @@ public class AuthController {
 
             // 檢查重設頻率
             String resetKey = "reset_limit:" + user.getId();
-            Integer attempts = (Integer) redisTemplate.opsForValue().get(resetKey);
-            if (attempts != null && attempts >= 3) {
+            if (authStateStore.getAttempts(resetKey) >= 3) {
                 return ApiResponse.error("重設次數過多，請1小時後重試");
             }
 
             // 生成重設令牌
             String resetToken = jwtUtil.generatePasswordResetToken(user.getId());
             String tokenKey = "reset_token:" + user.getId();
-            redisTemplate.opsForValue().set(tokenKey, resetToken, 30, TimeUnit.MINUTES);
+            authStateStore.storeCode(tokenKey, resetToken, 30, TimeUnit.MINUTES,
+                    resetKey, 1, TimeUnit.HOURS);
 
             // 發送重設郵件
             emailService.sendPasswordResetEmail(user.getEmail(), user.getId(), resetToken);
 
-            // 記錄重設次數
-            redisTemplate.opsForValue().set(resetKey, (attempts == null ? 0 : attempts) + 1, 1, TimeUnit.HOURS);
-
             // 記錄安全事件
             auditLogService.logSecurityEvent(user.getId(), "PASSWORD_RESET_REQUEST", 
                     "密碼重設請求", clientIp, "", true, null);
@@ -501,24 +488,19 @@ public class AuthController {
 
             Long userId = jwtUtil.getUserIdFromToken(request.getToken());
             
-            // 檢查Redis中的令牌
-            String tokenKey = "reset_token:" + userId;
-            String storedToken = (String) redisTemplate.opsForValue().get(tokenKey);
-            
-            if (!request.getToken().equals(storedToken)) {
-                return ApiResponse.error("重設令牌不匹配");
-            }
-
             // 驗證新密碼
             if (!validationUtils.isValidPassword(request.getNewPassword())) {
                 return ApiResponse.error("密碼必須包含8位以上，且包含大小寫字母、數字和特殊字符");
             }
 
+            // 原子比較並刪除Redis中的令牌，同一令牌只能使用一次
+            String tokenKey = "reset_token:" + userId;
+            if (authStateStore.consume(tokenKey, request.getToken()) != AuthStateStore.CODE_CONSUMED) {
+                return ApiResponse.error("重設令牌不匹配");
+            }
+
             // 重設密碼
             userService.changePassword(userId, "", request.getNewPassword());
-
-            // 刪除重設令牌
-            redisTemplate.delete(tokenKey);
             
             // 刪除所有該用戶的會話
             StpUtil.kickout(userId);
@@ -584,8 +566,7 @@ public class AuthController {
         
         // 檢查頻率限制
         String rateLimitKey = "check_username_limit:" + clientIp;
-        Integer attempts = (Integer) redisTemplate.opsForValue().get(rateLimitKey);
-        if (attempts != null && attempts >= 10) {
+        if (authStateStore.getAttempts(rateLimitKey) >= 10) {
             return ApiResponse.error("檢查過於頻繁，請1分鐘後重試");
         }
         
@@ -599,7 +580,7 @@ public class AuthController {
             boolean isAvailable = !userService.existsByUsername(username);
             
             // 記錄頻率限制
-            redisTemplate.opsForValue().set(rateLimitKey, (attempts == null ? 0 : attempts) + 1, 1, TimeUnit.MINUTES);
+            authStateStore.recordAttempt(rateLimitKey, 1, TimeUnit.MINUTES);
             
             Map<String, Object> result = new HashMap<>();
             result.put("available", isAvailable);
@@ -626,8 +607,7 @@ public class AuthController {
         
         // 檢查頻率限制
         String rateLimitKey = "check_email_limit:" + clientIp;
-        Integer attempts = (Integer) redisTemplate.opsForValue().get(rateLimitKey);
-        if (attempts != null && attempts >= 10) {
+        if (authStateStore.getAttempts(rateLimitKey) >= 10) {
             return ApiResponse.error("檢查過於頻繁，請1分鐘後重試");
         }
         
@@ -641,7 +621,7 @@ public class AuthController {
             boolean isAvailable = !userService.existsByEmail(email);
             
             // 記錄頻率限制
-            redisTemplate.opsForValue().set(rateLimitKey, (attempts == null ? 0 : attempts) + 1, 1, TimeUnit.MINUTES);
+            authStateStore.recordAttempt(rateLimitKey, 1, TimeUnit.MINUTES);
             
             Map<String, Object> result = new HashMap<>();
             result.put("available", isAvailable);
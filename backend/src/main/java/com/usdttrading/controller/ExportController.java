@@ -0,0 +1,133 @@
+package com.usdttrading.controller;
+
+import cn.dev33.satoken.annotation.SaCheckLogin;
+import cn.dev33.satoken.annotation.SaCheckRole;
+import cn.dev33.satoken.stp.StpUtil;
+import com.usdttrading.dto.ApiResponse;
+import com.usdttrading.service.ExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 報表導出控制器
+ * 短時間範圍直接下載，長時間範圍創建導出任務後查詢進度並下載文件
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/exports")
+@RequiredArgsConstructor
+@Tag(name = "報表導出", description = "CSV及Excel報表流式導出API")
+@SaCheckLogin
+@SaCheckRole("ADMIN")
+public class ExportController {
+
+    private final ExportService exportService;
+
+    /**
+     * 可導出的報表
+     */
+    @GetMapping("/reports")
+    @Operation(summary = "報表列表", description = "列出可導出的報表")
+    public ApiResponse<Map<String, String>> getReports() {
+        return ApiResponse.success("獲取成功", exportService.listReports());
+    }
+
+    /**
+     * 直接導出報表
+     */
+    @GetMapping("/reports/{report}")
+    @Operation(summary = "直接導出", description = "按日期範圍將報表直接寫入響應，範圍過長時請創建導出任務")
+    public void download(
+            @Parameter(description = "報表：kyc-review、audit-logs、orders")
+            @PathVariable String report,
+            @Parameter(description = "開始日期", example = "2025-01-01")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "結束日期（含）", example = "2025-01-31")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "導出格式：csv、xlsx", example = "csv")
+            @RequestParam(defaultValue = "csv") String format,
+            HttpServletResponse response) throws IOException {
+        log.info("管理員導出報表: adminId={}, report={}, range={}~{}, format={}",
+                StpUtil.getLoginIdDefaultNull(), report, startDate, endDate, format);
+        exportService.stream(report, startDate, endDate, format, response);
+    }
+
+    /**
+     * 創建導出任務
+     */
+    @PostMapping("/jobs")
+    @Operation(summary = "創建導出任務", description = "在後台導出長時間範圍的報表，完成後下載")
+    public ApiResponse<Map<String, Object>> createJob(
+            @Parameter(description = "報表：kyc-review、audit-logs、orders")
+            @RequestParam String report,
+            @Parameter(description = "開始日期", example = "2025-01-01")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "結束日期（含）", example = "2025-12-31")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @Parameter(description = "導出格式：csv、xlsx", example = "xlsx")
+            @RequestParam(defaultValue = "csv") String format) {
+        Long adminId = StpUtil.getLoginIdAsLong();
+        return ApiResponse.success("導出任務已創建",
+                exportService.createJob(report, startDate, endDate, format, adminId));
+    }
+
+    /**
+     * 我的導出任務
+     */
+    @GetMapping("/jobs")
+    @Operation(summary = "導出任務列表", description = "列出當前管理員的導出任務")
+    public ApiResponse<List<Map<String, Object>>> getJobs() {
+        return ApiResponse.success("獲取成功", exportService.listJobs(StpUtil.getLoginIdAsLong()));
+    }
+
+    /**
+     * 導出任務進度
+     */
+    @GetMapping("/jobs/{jobId}")
+    @Operation(summary = "導出任務進度", description = "查看導出任務狀態、已導出行數及估算進度")
+    public ApiResponse<Map<String, Object>> getJob(@PathVariable String jobId) {
+        return ApiResponse.success("獲取成功", exportService.getJob(jobId, StpUtil.getLoginIdAsLong()));
+    }
+
+    /**
+     * 取消導出任務
+     */
+    @DeleteMapping("/jobs/{jobId}")
+    @Operation(summary = "取消導出任務", description = "取消排隊或執行中的導出任務")
+    public ApiResponse<Map<String, Object>> cancelJob(@PathVariable String jobId) {
+        return ApiResponse.success("已取消", exportService.cancelJob(jobId, StpUtil.getLoginIdAsLong()));
+    }
+
+    /**
+     * 下載導出文件
+     */
+    @GetMapping("/jobs/{jobId}/download")
+    @Operation(summary = "下載導出文件", description = "下載已完成導出任務的文件")
+    public void downloadJob(@PathVariable String jobId, HttpServletResponse response) throws IOException {
+        exportService.download(jobId, StpUtil.getLoginIdAsLong(), response);
+    }
+
+    /**
+     * 導出統計
+     */
+    @GetMapping("/status")
+    @Operation(summary = "導出統計", description = "查看導出次數、行數及任務統計")
+    public ApiResponse<Map<String, Object>> getStatus() {
+        return ApiResponse.success("獲取成功", exportService.getStatus());
+    }
+}
@@ -5,6 +5,7 @@ import cn.dev33.satoken.stp.StpUtil;
 import com.usdttrading.dto.ApiResponse;
 import com.usdttrading.entity.UserKyc;
 import com.usdttrading.service.FileStorageService;
+import com.usdttrading.service.KycFileServingService;
 import com.usdttrading.service.KycService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -17,9 +18,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -39,6 +43,7 @@ public class KycController {
 
     private final KycService kycService;
     private final FileStorageService fileStorageService;
+    private final KycFileServingService kycFileServingService;
 
     /**
      * 提交基本KYC信息
@@ -209,6 +214,45 @@ public class KycController {
         return fileStorageService.getSignedFileUrl(documentId, userId);
     }
 
+    /**
+     * 下載文件內容（支持Range和條件請求）
+     *
+     * @param documentId 文檔ID
+     * @param request HTTP請求
+     * @param response HTTP響應
+     * @throws IOException IO異常
+     */
+    @GetMapping("/file/{documentId}/content")
+    @Operation(summary = "下載文件內容", description = "流式下發已上傳文件，支持Range分段及ETag緩存驗證")
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "下載成功"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "206", description = "分段內容"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "304", description = "內容未修改"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "無訪問權限"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "文件不存在"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "416", description = "請求區間無效")
+    })
+    public void getFileContent(
+            @Parameter(description = "文檔ID", required = true)
+            @PathVariable("documentId") @NotNull Long documentId,
+            @Parameter(description = "過期時間戳", required = true)
+            @RequestParam(value = "expires", required = false) Long expires,
+            @Parameter(description = "URL簽名", required = true)
+            @RequestParam(value = "signature", required = false) String signature,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        Long userId = StpUtil.getLoginIdAsLong();
+        log.debug("用戶下載文件: userId={}, documentId={}, range={}", userId, documentId, request.getHeader("Range"));
+
+        if (!fileStorageService.verifySignedUrl(documentId, userId, expires, signature)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "訪問鏈接無效或已過期");
+            return;
+        }
+
+        kycFileServingService.serveDocument(documentId, userId, false, request, response);
+    }
+
     /**
      * 刪除已上傳的文件
      *
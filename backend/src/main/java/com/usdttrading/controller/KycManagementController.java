@@ -5,7 +5,10 @@ import cn.dev33.satoken.annotation.SaCheckRole;
 import cn.dev33.satoken.stp.StpUtil;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.usdttrading.dto.ApiResponse;
+import com.usdttrading.service.ExportService;
+import com.usdttrading.service.KycFileServingService;
 import com.usdttrading.service.KycManagementService;
+import com.usdttrading.service.SanctionsScreeningService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -14,10 +17,15 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 
@@ -38,6 +46,9 @@ import java.util.Map;
 public class KycManagementController {
 
     private final KycManagementService kycManagementService;
+    private final KycFileServingService kycFileServingService;
+    private final SanctionsScreeningService sanctionsScreeningService;
+    private final ExportService exportService;
 
     /**
      * 分頁查詢KYC申請列表
@@ -96,6 +107,103 @@ public class KycManagementController {
         return kycManagementService.getKycDetail(kycId);
     }
 
+    /**
+     * 按敏感標識查找KYC記錄
+     * 標識放在請求體中，避免以查詢參數形式出現在訪問日誌及代理日誌裡
+     *
+     * @param identifiers idNumber（證件號）、bankAccount（銀行賬號）、phoneNumber（手機號）
+     * @return 匹配的KYC記錄
+     */
+    @PostMapping("/identifier-lookup")
+    @Operation(summary = "按標識查找KYC", description = "按證件號、銀行賬號或手機號查找關聯的KYC記錄，用於重複及欺詐排查")
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "查詢成功"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "參數錯誤"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "權限不足")
+    })
+    public ApiResponse<List<Map<String, Object>>> lookupByIdentifier(
+            @Parameter(description = "查找標識：idNumber、bankAccount、phoneNumber，至少填寫一項", required = true)
+            @RequestBody Map<String, String> identifiers) {
+
+        log.info("管理員按標識查找KYC: adminId={}", StpUtil.getLoginIdAsLong());
+
+        return kycManagementService.lookupByIdentifier(identifiers.get("idNumber"),
+                identifiers.get("bankAccount"), identifiers.get("phoneNumber"));
+    }
+
+    /**
+     * 回填KYC盲索引
+     *
+     * @return 回填統計
+     */
+    @PostMapping("/blind-index/backfill")
+    @Operation(summary = "回填盲索引", description = "為存量KYC記錄分批計算證件號、銀行賬號及手機號盲索引")
+    @SaCheckRole("SUPER_ADMIN")
+    public ApiResponse<Map<String, Object>> backfillBlindIndexes() {
+        log.info("管理員觸發盲索引回填: adminId={}", StpUtil.getLoginIdAsLong());
+
+        return kycManagementService.backfillBlindIndexes();
+    }
+
+    /**
+     * 獲取制裁名單狀態
+     *
+     * @return 名單載入狀態
+     */
+    @GetMapping("/screening/status")
+    @Operation(summary = "制裁名單狀態", description = "查看制裁/黑名單索引的載入狀態及條目數")
+    public ApiResponse<Map<String, Object>> getScreeningStatus() {
+        return ApiResponse.success("獲取成功", sanctionsScreeningService.getStatus());
+    }
+
+    /**
+     * 重新載入制裁名單
+     *
+     * @return 名單載入狀態
+     */
+    @PostMapping("/screening/reload")
+    @Operation(summary = "重新載入制裁名單", description = "立即從名單目錄重建索引並原子替換")
+    @SaCheckRole("SUPER_ADMIN")
+    public ApiResponse<Map<String, Object>> reloadScreeningLists() {
+        log.info("管理員重新載入制裁名單: adminId={}", StpUtil.getLoginIdAsLong());
+        try {
+            sanctionsScreeningService.reload(true);
+            return ApiResponse.success("名單已重新載入", sanctionsScreeningService.getStatus());
+        } catch (IOException e) {
+            log.error("重新載入制裁名單失敗: error={}", e.getMessage(), e);
+            return ApiResponse.error("載入失敗: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 查看KYC文件內容
+     *
+     * @param documentId 文檔ID
+     * @param request HTTP請求
+     * @param response HTTP響應
+     * @throws IOException IO異常
+     */
+    @GetMapping("/documents/{documentId}/content")
+    @Operation(summary = "查看KYC文件", description = "審核員流式查看KYC文件，支持Range分段及ETag緩存驗證")
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "獲取成功"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "206", description = "分段內容"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "304", description = "內容未修改"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "文件不存在"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "權限不足")
+    })
+    public void getDocumentContent(
+            @Parameter(description = "文檔ID", required = true)
+            @PathVariable("documentId") @NotNull Long documentId,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        Long adminId = StpUtil.getLoginIdAsLong();
+        log.debug("管理員查看KYC文件: adminId={}, documentId={}", adminId, documentId);
+
+        kycFileServingService.serveDocument(documentId, adminId, true, request, response);
+    }
+
     /**
      * 審核KYC申請
      *
@@ -247,20 +355,21 @@ public class KycManagementController {
 
     /**
      * 導出KYC審核報告
+     * 直接流式寫入響應，不含證件號、銀行賬號等敏感數據；更長時間範圍請使用導出任務
      *
      * @param startDate 開始日期
      * @param endDate 結束日期
      * @param format 導出格式
-     * @return ApiResponse
+     * @param response HTTP響應
      */
     @GetMapping("/export-report")
-    @Operation(summary = "導出審核報告", description = "導出指定時間範圍的KYC審核報告")
+    @Operation(summary = "導出審核報告", description = "導出指定時間範圍的KYC審核報告（excel或csv）")
     @ApiResponses(value = {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "導出成功"),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "參數錯誤")
     })
     @SaCheckRole("SUPER_ADMIN") // 需要更高權限
-    public ApiResponse<Object> exportReport(
+    public void exportReport(
             @Parameter(description = "開始日期", example = "2025-01-01", required = true)
             @RequestParam("startDate") @NotBlank String startDate,
             
@@ -268,12 +377,22 @@ public class KycManagementController {
             @RequestParam("endDate") @NotBlank String endDate,
             
             @Parameter(description = "導出格式", example = "excel")
-            @RequestParam(value = "format", defaultValue = "excel") String format) {
+            @RequestParam(value = "format", defaultValue = "excel") String format,
+            
+            HttpServletResponse response) throws IOException {
         
-        log.info("導出KYC審核報告: startDate={}, endDate={}, format={}", startDate, endDate, format);
+        log.info("導出KYC審核報告: adminId={}, startDate={}, endDate={}, format={}",
+                StpUtil.getLoginIdDefaultNull(), startDate, endDate, format);
         
-        // 這裡應該實現實際的報告導出邏輯
-        return ApiResponse.success("報告導出功能開發中", null);
+        LocalDate start;
+        LocalDate end;
+        try {
+            start = LocalDate.parse(startDate);
+            end = LocalDate.parse(endDate);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("日期格式應為yyyy-MM-dd");
+        }
+        exportService.stream("kyc-review", start, end, format, response);
     }
 
     /**
@@ -0,0 +1,78 @@
+package com.usdttrading.controller;
+
+import cn.dev33.satoken.annotation.SaCheckLogin;
+import cn.dev33.satoken.stp.StpUtil;
+import com.usdttrading.dto.ApiResponse;
+import com.usdttrading.enums.NotificationCategory;
+import com.usdttrading.service.NotificationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 站內通知控制器
+ * 未讀數及最近通知讀取Redis收件箱緩存，已讀操作寫庫後同步更新緩存
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/notifications")
+@RequiredArgsConstructor
+@Tag(name = "站內通知", description = "未讀數、收件箱及已讀標記API")
+@SaCheckLogin
+public class NotificationController {
+
+    private final NotificationService notificationService;
+
+    /**
+     * 獲取未讀通知數量（按類別）
+     */
+    @GetMapping("/unread-count")
+    @Operation(summary = "獲取未讀數量", description = "按類別返回未讀通知數量及總數")
+    public ApiResponse<Map<String, Long>> getUnreadCount() {
+        Long userId = StpUtil.getLoginIdAsLong();
+        return ApiResponse.success("獲取成功", notificationService.getUnreadCounts(userId));
+    }
+
+    /**
+     * 獲取最近的通知
+     */
+    @GetMapping("/inbox")
+    @Operation(summary = "獲取最近通知", description = "返回最近的站內通知，新在前")
+    public ApiResponse<List<Map<String, Object>>> getInbox() {
+        Long userId = StpUtil.getLoginIdAsLong();
+        return ApiResponse.success("獲取成功", notificationService.getLatestNotifications(userId));
+    }
+
+    /**
+     * 標記通知為已讀
+     */
+    @PostMapping("/{id}/read")
+    @Operation(summary = "標記已讀", description = "將指定通知標記為已讀")
+    public ApiResponse<Void> markAsRead(@Parameter(description = "通知ID") @PathVariable Long id) {
+        Long userId = StpUtil.getLoginIdAsLong();
+        notificationService.markAsRead(id, userId);
+        return ApiResponse.success();
+    }
+
+    /**
+     * 批量標記通知為已讀
+     */
+    @PostMapping("/read-all")
+    @Operation(summary = "全部標記已讀", description = "將全部（或指定類別的）未讀通知標記為已讀")
+    public ApiResponse<Void> markAllAsRead(
+            @Parameter(description = "通知類別（可選）") @RequestParam(required = false) NotificationCategory category) {
+        Long userId = StpUtil.getLoginIdAsLong();
+        notificationService.markAllAsRead(userId, category);
+        return ApiResponse.success();
+    }
+}
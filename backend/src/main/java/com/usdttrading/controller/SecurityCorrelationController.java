@@ -0,0 +1,76 @@
+package com.usdttrading.controller;
+
+import cn.dev33.satoken.annotation.SaCheckLogin;
+import cn.dev33.satoken.annotation.SaCheckRole;
+import cn.dev33.satoken.stp.StpUtil;
+import com.usdttrading.dto.ApiResponse;
+import com.usdttrading.service.SecurityCorrelationEngine;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 安全事件關聯控制器
+ * 查看實時關聯引擎的告警、封禁IP及統計，解除誤封的IP
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/admin/security/correlation")
+@RequiredArgsConstructor
+@Tag(name = "安全事件關聯", description = "實時安全告警及IP封禁管理API")
+@SaCheckLogin
+@SaCheckRole("ADMIN")
+public class SecurityCorrelationController {
+
+    private final SecurityCorrelationEngine securityCorrelationEngine;
+
+    /**
+     * 最近告警
+     */
+    @GetMapping("/alerts")
+    @Operation(summary = "最近告警", description = "本節點最近觸發的安全告警，最新的在前")
+    public ApiResponse<List<Map<String, Object>>> getAlerts() {
+        return ApiResponse.success("獲取成功", securityCorrelationEngine.getRecentAlerts());
+    }
+
+    /**
+     * 封禁中的IP
+     */
+    @GetMapping("/blocked-ips")
+    @Operation(summary = "封禁IP列表", description = "因暴力破解或撞庫被暫時禁止登錄的IP及截止時間（毫秒時間戳）")
+    public ApiResponse<Map<String, Object>> getBlockedIps() {
+        return ApiResponse.success("獲取成功", securityCorrelationEngine.getBlockedIps());
+    }
+
+    /**
+     * 解除IP封禁
+     */
+    @DeleteMapping("/blocked-ips")
+    @Operation(summary = "解除IP封禁", description = "解除指定IP的登錄封禁")
+    public ApiResponse<Boolean> unblockIp(
+            @Parameter(description = "IP地址", example = "203.0.113.10")
+            @RequestParam String ip) {
+        boolean removed = securityCorrelationEngine.unblockIp(ip);
+        log.info("管理員解除IP封禁: adminId={}, ip={}, removed={}", StpUtil.getLoginIdDefaultNull(), ip, removed);
+        return removed ? ApiResponse.success("已解除封禁", true) : ApiResponse.error("該IP未被封禁");
+    }
+
+    /**
+     * 引擎狀態
+     */
+    @GetMapping("/status")
+    @Operation(summary = "關聯引擎狀態", description = "查看事件數、各規則告警數、鎖定賬號及封禁IP統計")
+    public ApiResponse<Map<String, Object>> getStatus() {
+        return ApiResponse.success("獲取成功", securityCorrelationEngine.getStatus());
+    }
+}
@@ -0,0 +1,71 @@
+package com.usdttrading.controller;
+
+import cn.dev33.satoken.annotation.SaCheckLogin;
+import cn.dev33.satoken.annotation.SaCheckRole;
+import cn.dev33.satoken.stp.StpUtil;
+import com.usdttrading.dto.ApiResponse;
+import com.usdttrading.service.EventStreamBroadcaster;
+import com.usdttrading.service.PriceService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+
+/**
+ * 實時推送控制器
+ * 以SSE長連接推送價格行情、訂單狀態及站內通知，替代客戶端輪詢
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/stream")
+@RequiredArgsConstructor
+@Tag(name = "實時推送", description = "價格、訂單狀態及通知的SSE推送API")
+@SaCheckLogin
+public class StreamController {
+
+    private final EventStreamBroadcaster eventStreamBroadcaster;
+    private final PriceService priceService;
+
+    /**
+     * 建立推送連接
+     * 事件：price（最新行情）、order（訂單狀態）、notification（站內通知）、resync（需重新拉取狀態）
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "訂閱實時事件", description = "SSE推送價格行情、訂單狀態及站內通知")
+    public ResponseEntity<SseEmitter> subscribe() {
+        Long userId = StpUtil.getLoginIdAsLong();
+        ApiResponse<Map<String, Object>> price = priceService.getCurrentPrice();
+        SseEmitter emitter = eventStreamBroadcaster.subscribe(userId, price.isSuccess() ? price.getData() : null);
+        if (emitter == null) {
+            log.warn("推送連接數已達上限: userId={}", userId);
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+        return ResponseEntity.ok()
+                .header("Cache-Control", "no-cache")
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+    }
+
+    /**
+     * 推送連接狀態
+     */
+    @GetMapping("/admin/status")
+    @SaCheckRole("ADMIN")
+    @Operation(summary = "推送狀態", description = "查看本節點推送連接數及投遞統計")
+    public ApiResponse<Map<String, Object>> getStatus() {
+        return ApiResponse.success("獲取成功", eventStreamBroadcaster.getStatus());
+    }
+}
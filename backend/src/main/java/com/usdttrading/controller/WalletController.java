@@ -5,7 +5,10 @@ import cn.dev33.satoken.annotation.SaCheckRole;
 import cn.dev33.satoken.stp.StpUtil;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.usdttrading.dto.ApiResponse;
+import com.usdttrading.service.AddressValidationService;
+import com.usdttrading.service.DepositAddressPool;
 import com.usdttrading.service.WalletService;
+import com.usdttrading.service.WalletSweeper;
 import com.usdttrading.utils.RequestUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -20,8 +23,10 @@ import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -43,6 +48,9 @@ import java.util.Map;
 public class WalletController {
 
     private final WalletService walletService;
+    private final WalletSweeper walletSweeper;
+    private final DepositAddressPool depositAddressPool;
+    private final AddressValidationService addressValidationService;
 
     /**
      * 獲取錢包餘額
@@ -275,6 +283,31 @@ public class WalletController {
         return walletService.validateAddress(request.getAddress(), request.getNetwork());
     }
 
+    /**
+     * 批量驗證錢包地址（前端批量輸入、批量提現導入）
+     */
+    @PostMapping("/validate-addresses")
+    @Operation(summary = "批量驗證錢包地址", description = "按順序返回每個地址的校驗結果及規範化地址")
+    public ApiResponse<List<Map<String, Object>>> validateAddresses(
+            @Valid @RequestBody BatchAddressValidationRequest request) {
+        
+        log.info("批量驗證錢包地址: count={}", request.getAddresses().size());
+        
+        List<AddressValidationService.AddressQuery> queries = new ArrayList<>(request.getAddresses().size());
+        for (AddressValidationRequest item : request.getAddresses()) {
+            queries.add(new AddressValidationService.AddressQuery(item.getAddress(), item.getNetwork()));
+        }
+        try {
+            List<Map<String, Object>> results = new ArrayList<>(queries.size());
+            for (AddressValidationService.ValidationResult result : addressValidationService.validateBatch(queries)) {
+                results.add(result.toMap());
+            }
+            return ApiResponse.success("地址驗證完成", results);
+        } catch (IllegalArgumentException e) {
+            return ApiResponse.error(e.getMessage());
+        }
+    }
+
     // ==================== 管理端接口 ====================
 
     /**
@@ -386,6 +419,60 @@ public class WalletController {
         return walletService.getWalletStatistics(period);
     }
 
+    /**
+     * 預覽資金歸集計劃（管理員）
+     */
+    @GetMapping("/admin/treasury/sweep-plan")
+    @SaCheckRole("ADMIN")
+    @Operation(summary = "預覽歸集計劃", description = "生成當前的充值歸集及冷熱錢包再平衡計劃，只輸出不上鏈")
+    public ApiResponse<Map<String, Object>> previewSweepPlan() {
+        log.info("管理員預覽歸集計劃: adminId={}", StpUtil.getLoginIdAsLong());
+        return ApiResponse.success("獲取成功", walletSweeper.previewPlan());
+    }
+
+    /**
+     * 獲取資金歸集狀態（管理員）
+     */
+    @GetMapping("/admin/treasury/sweep-status")
+    @SaCheckRole("ADMIN")
+    @Operation(summary = "歸集狀態", description = "查看歸集服務狀態及最近一次定時任務生成的計劃")
+    public ApiResponse<Map<String, Object>> getSweepStatus() {
+        Map<String, Object> status = walletSweeper.getStatus();
+        status.put("lastPlan", walletSweeper.getLastPlan());
+        return ApiResponse.success("獲取成功", status);
+    }
+
+    /**
+     * 獲取充值地址池狀態（管理員）
+     */
+    @GetMapping("/admin/treasury/address-pool")
+    @SaCheckRole("ADMIN")
+    @Operation(summary = "充值地址池狀態", description = "查看各網絡未分配地址數及地址索引規模")
+    public ApiResponse<Map<String, Object>> getAddressPoolStatus() {
+        return ApiResponse.success("獲取成功", depositAddressPool.getStatus());
+    }
+
+    /**
+     * 更新平台錢包自動歸集設置（超級管理員）
+     */
+    @PutMapping("/admin/treasury/wallets/{walletId}/auto-collect")
+    @SaCheckRole("SUPER_ADMIN")
+    @Operation(summary = "更新自動歸集設置", description = "設置熱錢包是否自動轉入冷錢包及歸集閾值")
+    public ApiResponse<String> updateAutoCollect(
+            @Parameter(description = "平台錢包ID", required = true)
+            @PathVariable("walletId") @NotNull Long walletId,
+            @Valid @RequestBody AutoCollectRequest request) {
+        
+        log.info("管理員更新自動歸集設置: adminId={}, walletId={}, autoCollect={}, threshold={}",
+                StpUtil.getLoginIdAsLong(), walletId, request.getAutoCollect(), request.getCollectThreshold());
+        if (Boolean.TRUE.equals(request.getAutoCollect()) && request.getCollectThreshold() == null) {
+            return ApiResponse.error("開啟自動歸集時必須設置歸集閾值");
+        }
+        return walletSweeper.updateAutoCollect(walletId, request.getAutoCollect(), request.getCollectThreshold())
+                ? ApiResponse.success("自動歸集設置已更新")
+                : ApiResponse.error("平台錢包不存在");
+    }
+
     // DTO classes
     public static class WithdrawRequest {
         @NotNull(message = "提現金額不能為空")
@@ -425,6 +512,16 @@ public class WalletController {
         public void setNetwork(String network) { this.network = network; }
     }
 
+    public static class BatchAddressValidationRequest {
+        @NotEmpty(message = "地址列表不能為空")
+        @Valid
+        private List<AddressValidationRequest> addresses;
+
+        // getters and setters
+        public List<AddressValidationRequest> getAddresses() { return addresses; }
+        public void setAddresses(List<AddressValidationRequest> addresses) { this.addresses = addresses; }
+    }
+
     public static class WithdrawalReviewRequest {
         @NotNull(message = "審核結果不能為空")
         private Boolean approved;
@@ -437,4 +534,18 @@ public class WalletController {
         public String getComment() { return comment; }
         public void setComment(String comment) { this.comment = comment; }
     }
-}
\ No newline at end of file
+
+    public static class AutoCollectRequest {
+        @NotNull(message = "自動歸集開關不能為空")
+        private Boolean autoCollect;
+
+        @DecimalMin(value = "0", inclusive = false, message = "歸集閾值必須大於0")
+        private BigDecimal collectThreshold;
+
+        // getters and setters
+        public Boolean getAutoCollect() { return autoCollect; }
+        public void setAutoCollect(Boolean autoCollect) { this.autoCollect = autoCollect; }
+        public BigDecimal getCollectThreshold() { return collectThreshold; }
+        public void setCollectThreshold(BigDecimal collectThreshold) { this.collectThreshold = collectThreshold; }
+    }
+}
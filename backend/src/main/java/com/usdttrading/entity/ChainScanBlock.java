@@ -0,0 +1,39 @@
+package com.usdttrading.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 區塊掃描記錄實體類
+ * 保存最近已掃描區塊的哈希，最高高度即掃描游標，用於重啟續掃及區塊重組檢測
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("chain_scan_blocks")
+public class ChainScanBlock extends BaseEntity {
+
+    /**
+     * 鏈標識（如 TRON）
+     */
+    private String chain;
+
+    /**
+     * 區塊高度
+     */
+    private Long blockNumber;
+
+    /**
+     * 區塊哈希
+     */
+    private String blockHash;
+
+    /**
+     * 父區塊哈希
+     */
+    private String parentHash;
+}
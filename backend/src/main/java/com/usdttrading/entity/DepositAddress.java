@@ -0,0 +1,56 @@
+package com.usdttrading.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * 充值地址池實體類
+ * 地址由擴展公鑰按 external/index 路徑預先推導，分配給用戶後不再變更
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("deposit_addresses")
+public class DepositAddress extends BaseEntity {
+
+    public static final String STATUS_AVAILABLE = "AVAILABLE";
+    public static final String STATUS_ASSIGNED = "ASSIGNED";
+
+    /**
+     * 網絡類型（TRC20、ERC20）
+     */
+    private String network;
+
+    /**
+     * 地址
+     */
+    private String address;
+
+    /**
+     * 推導索引
+     */
+    private Integer derivationIndex;
+
+    /**
+     * 狀態（AVAILABLE、ASSIGNED）
+     */
+    private String status;
+
+    /**
+     * 分配的用戶ID
+     */
+    private Long userId;
+
+    /**
+     * 分配時間
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime assignedAt;
+}
@@ -1,5 +1,7 @@
 package com.usdttrading.entity;
 
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableName;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.Data;
@@ -102,6 +104,42 @@ public class KycWorkflowStep extends BaseEntity {
      */
     private String additionalData;
 
+    /**
+     * 下次可執行時間（自動步驟由後台執行器認領）
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime nextRunAt;
+
+    /**
+     * 認領節點
+     */
+    @TableField(updateStrategy = FieldStrategy.IGNORED)
+    private String claimedBy;
+
+    /**
+     * 認領租約到期時間，過期後其他節點可重新認領
+     */
+    @TableField(updateStrategy = FieldStrategy.IGNORED)
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime claimExpiresAt;
+
+    /**
+     * 執行嘗試次數
+     */
+    private Integer attempts;
+
+    /**
+     * SLA截止時間
+     */
+    @TableField(updateStrategy = FieldStrategy.IGNORED)
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime slaDeadline;
+
+    /**
+     * 是否已因SLA超時升級
+     */
+    private Boolean escalated;
+
     /**
      * 檢查步驟是否已完成
      */
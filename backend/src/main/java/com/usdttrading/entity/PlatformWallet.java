@@ -75,6 +75,11 @@ public class PlatformWallet extends BaseEntity {
      */
     private BigDecimal collectThreshold;
 
+    /**
+     * 下一个出款序号
+     */
+    private Long nextNonce;
+
     /**
      * 钱包描述
      */
@@ -108,6 +108,11 @@ public class Transaction extends BaseEntity {
      */
     private Long blockNumber;
 
+    /**
+     * 轉賬事件在交易內的序號
+     */
+    private Integer logIndex;
+
     /**
      * 確認數
      */
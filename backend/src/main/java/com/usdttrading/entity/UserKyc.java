@@ -2,6 +2,7 @@ package com.usdttrading.entity;
 
 import com.baomidou.mybatisplus.annotation.TableName;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.usdttrading.enums.Gender;
 import com.usdttrading.enums.IdType;
 import com.usdttrading.enums.KycStatus;
@@ -119,6 +120,12 @@ public class UserKyc extends BaseEntity {
      */
     private String phoneNumber;
 
+    /**
+     * 聯繫電話盲索引 (HMAC-SHA256)
+     */
+    @JsonIgnore
+    private String phoneNumberBidx;
+
     /**
      * 電子郵箱
      */
@@ -136,6 +143,12 @@ public class UserKyc extends BaseEntity {
     @NotBlank(message = "证件号码不能为空")
     private String idNumber;
 
+    /**
+     * 证件号码盲索引 (HMAC-SHA256)
+     */
+    @JsonIgnore
+    private String idNumberBidx;
+
     /**
      * 身份证正面照片URL
      */
@@ -166,6 +179,12 @@ public class UserKyc extends BaseEntity {
      */
     private String bankAccount;
 
+    /**
+     * 银行账号盲索引 (HMAC-SHA256)
+     */
+    @JsonIgnore
+    private String bankAccountBidx;
+
     /**
      * 银行名称
      */
@@ -0,0 +1,115 @@
+package com.usdttrading.entity;
+
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 資金歸集記錄實體類
+ * 記錄充值地址歸集到熱錢包、熱錢包轉入冷錢包的鏈上轉賬
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("wallet_sweeps")
+public class WalletSweep extends BaseEntity {
+
+    public static final String TYPE_DEPOSIT_SWEEP = "DEPOSIT_SWEEP";
+    public static final String TYPE_HOT_TO_COLD = "HOT_TO_COLD";
+
+    public static final String STATUS_SIGNED = "SIGNED";
+    public static final String STATUS_BROADCAST = "BROADCAST";
+    public static final String STATUS_CONFIRMED = "CONFIRMED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    /**
+     * 歸集類型（DEPOSIT_SWEEP、HOT_TO_COLD）
+     */
+    private String sweepType;
+
+    /**
+     * 網絡類型
+     */
+    private String network;
+
+    /**
+     * 轉出地址
+     */
+    private String fromAddress;
+
+    /**
+     * 轉出錢包ID（充值歸集為用戶錢包，熱轉冷為平台錢包）
+     */
+    private Long fromWalletId;
+
+    /**
+     * 轉入地址
+     */
+    private String toAddress;
+
+    /**
+     * 轉入平台錢包ID
+     */
+    private Long toWalletId;
+
+    /**
+     * 金額
+     */
+    private BigDecimal amount;
+
+    /**
+     * 歸集的充值筆數
+     */
+    private Integer depositCount;
+
+    /**
+     * 鏈上交易哈希
+     */
+    private String transactionHash;
+
+    /**
+     * 已簽名交易
+     */
+    @JsonIgnore
+    private String signedPayload;
+
+    /**
+     * 狀態（SIGNED、BROADCAST、CONFIRMED、FAILED）
+     */
+    private String status;
+
+    /**
+     * 區塊號
+     */
+    private Long blockNumber;
+
+    /**
+     * 鏈上網絡手續費
+     */
+    private BigDecimal networkFee;
+
+    /**
+     * 失敗原因
+     */
+    private String failureReason;
+
+    /**
+     * 廣播時間
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime broadcastAt;
+
+    /**
+     * 確認時間
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime confirmedAt;
+}
@@ -2,6 +2,7 @@ package com.usdttrading.entity;
 
 import com.baomidou.mybatisplus.annotation.TableName;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.usdttrading.enums.WithdrawalStatus;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -150,6 +151,48 @@ public class Withdrawal extends BaseEntity {
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime processedAt;
 
+    /**
+     * 出款热钱包ID
+     */
+    private Long sourceWalletId;
+
+    /**
+     * 出款序号（按热钱包递增）
+     */
+    private Long chainNonce;
+
+    /**
+     * 已签名交易（重播时原样广播，保证同一笔提款只对应一笔链上交易）
+     */
+    @JsonIgnore
+    private String signedPayload;
+
+    /**
+     * 广播时间
+     */
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime broadcastAt;
+
+    /**
+     * 广播尝试次数
+     */
+    private Integer broadcastAttempts;
+
+    /**
+     * 确认数
+     */
+    private Integer confirmations;
+
+    /**
+     * 链上网络手续费
+     */
+    private BigDecimal networkFee;
+
+    /**
+     * 失败原因
+     */
+    private String failureReason;
+
     /**
      * 检查是否待审核
      */
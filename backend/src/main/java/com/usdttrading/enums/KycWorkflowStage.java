@@ -0,0 +1,118 @@
+package com.usdttrading.enums;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * KYC審核工作流階段（狀態機定義）
+ * 每個階段對應一條kyc_workflow_steps記錄，定義是否自動執行以及超時後的升級目標；
+ * SLA時限由KycReviewWorkflow按配置計算
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+public enum KycWorkflowStage {
+    AUTO_PRE_REVIEW(1, "自動預審", true),
+    PRIMARY_REVIEW(2, "初級審核", false),
+    SENIOR_REVIEW(3, "高級審核", false),
+    RISK_FINAL_REVIEW(4, "風控終審", false);
+
+    /**
+     * 步驟狀態
+     */
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_READY = "READY";
+    public static final String STATUS_IN_PROGRESS = "IN_PROGRESS";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_REJECTED = "REJECTED";
+    public static final String STATUS_SKIPPED = "SKIPPED";
+
+    /**
+     * 允許的狀態轉換
+     * PENDING：已創建尚未輪到，人工步驟激活後（started_at非空）亦保持PENDING等待審核員處理；
+     * READY：等待後台執行器認領（自動步驟）；IN_PROGRESS：執行器處理中
+     */
+    private static final Map<String, Set<String>> TRANSITIONS = Map.of(
+            STATUS_PENDING, Set.of(STATUS_READY, STATUS_IN_PROGRESS, STATUS_COMPLETED, STATUS_REJECTED, STATUS_SKIPPED),
+            STATUS_READY, Set.of(STATUS_IN_PROGRESS, STATUS_SKIPPED),
+            STATUS_IN_PROGRESS, Set.of(STATUS_READY, STATUS_COMPLETED, STATUS_REJECTED, STATUS_SKIPPED),
+            STATUS_COMPLETED, Set.of(),
+            STATUS_REJECTED, Set.of(),
+            STATUS_SKIPPED, Set.of()
+    );
+
+    private static final Set<KycWorkflowStage> MANUAL_STAGES = EnumSet.of(PRIMARY_REVIEW, SENIOR_REVIEW, RISK_FINAL_REVIEW);
+
+    private final int stepNumber;
+    private final String stepName;
+    private final boolean automatic;
+
+    KycWorkflowStage(int stepNumber, String stepName, boolean automatic) {
+        this.stepNumber = stepNumber;
+        this.stepName = stepName;
+        this.automatic = automatic;
+    }
+
+    public int getStepNumber() {
+        return stepNumber;
+    }
+
+    public String getStepName() {
+        return stepName;
+    }
+
+    public boolean isAutomatic() {
+        return automatic;
+    }
+
+    /**
+     * SLA超時後的升級目標：自動步驟升級為人工初審，人工步驟逐級上送，終審無更高級別
+     */
+    public KycWorkflowStage getEscalationTarget() {
+        switch (this) {
+            case AUTO_PRE_REVIEW:
+                return PRIMARY_REVIEW;
+            case PRIMARY_REVIEW:
+                return SENIOR_REVIEW;
+            case SENIOR_REVIEW:
+                return RISK_FINAL_REVIEW;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 是否為人工審核階段
+     */
+    public boolean isManual() {
+        return MANUAL_STAGES.contains(this);
+    }
+
+    public static KycWorkflowStage fromStepNumber(Integer stepNumber) {
+        if (stepNumber == null) {
+            return null;
+        }
+        for (KycWorkflowStage stage : values()) {
+            if (stage.stepNumber == stepNumber) {
+                return stage;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 檢查狀態轉換是否合法
+     */
+    public static boolean canTransition(String from, String to) {
+        if (from == null) {
+            return true;
+        }
+        if (from.equals(to)) {
+            return true;
+        }
+        Set<String> targets = TRANSITIONS.get(from);
+        return targets != null && targets.contains(to);
+    }
+}
@@ -0,0 +1,53 @@
+package com.usdttrading.interceptor;
+
+import cn.dev33.satoken.stp.StpUtil;
+import com.usdttrading.service.SessionActivityTracker;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 會話活動攔截器
+ * 已登錄請求只在內存記錄活動時間，由SessionActivityTracker批量寫庫；會話空閒或超時則拒絕請求
+ * 
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SessionActivityInterceptor implements HandlerInterceptor {
+
+    private final SessionActivityTracker sessionActivityTracker;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!StpUtil.isLogin()) {
+            return true;
+        }
+        if (sessionActivityTracker.touch(StpUtil.getTokenValue())) {
+            return true;
+        }
+        handleSessionExpired(response);
+        return false;
+    }
+
+    /**
+     * 處理會話過期
+     */
+    private void handleSessionExpired(HttpServletResponse response) {
+        response.setStatus(401);
+        response.setContentType("application/json;charset=UTF-8");
+        try {
+            response.getWriter().write("{\"success\":false,\"code\":401,\"message\":\"會話已過期，請重新登錄\",\"data\":null}");
+        } catch (IOException e) {
+            log.error("寫入會話過期響應失敗", e);
+        }
+    }
+}
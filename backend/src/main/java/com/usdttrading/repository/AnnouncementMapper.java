@@ -44,6 +44,13 @@ public interface AnnouncementMapper extends BaseMapper<Announcement> {
     @Select("SELECT * FROM announcements WHERE is_active = 1 AND expire_at IS NOT NULL AND expire_at BETWEEN NOW() AND #{beforeTime}")
     List<Announcement> selectExpiringAnnouncements(@Param("beforeTime") LocalDateTime beforeTime);
 
+    /**
+     * 查詢公告流候選（已生效及待生效、未過期），供內存快照按時間邊界計算可見公告
+     */
+    @Select("SELECT * FROM announcements WHERE is_active = 1 AND deleted = 0 AND (expire_at IS NULL OR expire_at > NOW()) " +
+            "ORDER BY priority DESC, publish_at DESC LIMIT #{limit}")
+    List<Announcement> selectFeedCandidates(@Param("limit") int limit);
+
     /**
      * 根據類型查詢公告
      */
@@ -0,0 +1,51 @@
+package com.usdttrading.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.usdttrading.entity.ChainScanBlock;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+/**
+ * 區塊掃描記錄Mapper接口
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Mapper
+public interface ChainScanBlockMapper extends BaseMapper<ChainScanBlock> {
+
+    /**
+     * 查詢掃描游標（最高已掃描區塊）
+     */
+    @Select("SELECT * FROM chain_scan_blocks WHERE chain = #{chain} ORDER BY block_number DESC LIMIT 1")
+    ChainScanBlock selectCursor(@Param("chain") String chain);
+
+    /**
+     * 按高度倒序查詢最近的掃描記錄
+     */
+    @Select("SELECT * FROM chain_scan_blocks WHERE chain = #{chain} AND block_number >= #{fromBlock} " +
+            "ORDER BY block_number DESC")
+    List<ChainScanBlock> selectRecent(@Param("chain") String chain, @Param("fromBlock") Long fromBlock);
+
+    /**
+     * 批量寫入掃描記錄（重掃時覆蓋哈希）
+     */
+    int upsertBatch(@Param("blocks") List<ChainScanBlock> blocks);
+
+    /**
+     * 刪除分叉點之後的記錄（區塊重組回滾）
+     */
+    @Delete("DELETE FROM chain_scan_blocks WHERE chain = #{chain} AND block_number > #{blockNumber}")
+    int deleteAbove(@Param("chain") String chain, @Param("blockNumber") Long blockNumber);
+
+    /**
+     * 清理重組窗口之外的舊記錄
+     */
+    @Delete("DELETE FROM chain_scan_blocks WHERE chain = #{chain} AND block_number < #{blockNumber}")
+    int deleteBelow(@Param("chain") String chain, @Param("blockNumber") Long blockNumber);
+}
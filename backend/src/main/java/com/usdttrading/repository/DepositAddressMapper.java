@@ -0,0 +1,69 @@
+package com.usdttrading.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.usdttrading.entity.DepositAddress;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 充值地址池Mapper接口
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Mapper
+public interface DepositAddressMapper extends BaseMapper<DepositAddress> {
+
+    /**
+     * 統計未分配地址數
+     */
+    @Select("SELECT COUNT(*) FROM deposit_addresses WHERE network = #{network} AND status = 'AVAILABLE' AND deleted = 0")
+    long countAvailable(@Param("network") String network);
+
+    /**
+     * 查詢已推導的最大索引
+     */
+    @Select("SELECT COALESCE(MAX(derivation_index), -1) FROM deposit_addresses WHERE network = #{network}")
+    int selectMaxIndex(@Param("network") String network);
+
+    /**
+     * 批量寫入新推導的地址（已存在的索引忽略）
+     */
+    int insertBatch(@Param("addresses") List<DepositAddress> addresses);
+
+    /**
+     * 鎖定一個未分配地址（跳過其他事務已鎖定的行）
+     */
+    @Select("SELECT * FROM deposit_addresses WHERE network = #{network} AND status = 'AVAILABLE' AND deleted = 0 " +
+            "ORDER BY derivation_index ASC LIMIT 1 FOR UPDATE SKIP LOCKED")
+    DepositAddress lockAvailable(@Param("network") String network);
+
+    /**
+     * 分配地址
+     */
+    @Update("UPDATE deposit_addresses SET status = 'ASSIGNED', user_id = #{userId}, assigned_at = #{now}, " +
+            "updated_at = #{now}, version = version + 1 WHERE id = #{id} AND status = 'AVAILABLE' AND deleted = 0")
+    int assign(@Param("id") Long id, @Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    /**
+     * 查詢用戶已分配的地址
+     */
+    @Select("SELECT * FROM deposit_addresses WHERE network = #{network} AND user_id = #{userId} AND deleted = 0 LIMIT 1")
+    DepositAddress selectByUser(@Param("network") String network, @Param("userId") Long userId);
+
+    /**
+     * 按 (assigned_at, id) 游標查詢已分配地址（僅返回network、address、user_id、assigned_at、id）
+     */
+    @Select("SELECT id, network, address, user_id, assigned_at FROM deposit_addresses " +
+            "WHERE status = 'ASSIGNED' AND deleted = 0 " +
+            "AND (assigned_at > #{assignedAt} OR (assigned_at = #{assignedAt} AND id > #{lastId})) " +
+            "ORDER BY assigned_at ASC, id ASC LIMIT #{limit}")
+    List<DepositAddress> selectAssignedAfter(@Param("assignedAt") LocalDateTime assignedAt,
+                                             @Param("lastId") Long lastId, @Param("limit") int limit);
+}
@@ -0,0 +1,59 @@
+package com.usdttrading.repository;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 報表導出Mapper接口
+ * 查詢以MySQL流式結果集（fetchSize = Integer.MIN_VALUE）逐行交給ResultHandler處理，不在內存中累積結果；
+ * 只查詢報表需要的列，KYC報表不包含證件號、銀行賬號等個人敏感數據
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Mapper
+public interface ExportMapper {
+
+    /**
+     * 流式查詢KYC審核記錄
+     */
+    @Select("SELECT k.id, k.user_id, k.id_type, k.status, k.rejection_reason, k.created_at, k.verified_at, " +
+            "k.expires_at, k.updated_at FROM user_kyc k " +
+            "WHERE k.deleted = 0 AND k.created_at >= #{from} AND k.created_at < #{to} ORDER BY k.id")
+    @Options(fetchSize = Integer.MIN_VALUE, resultSetType = ResultSetType.FORWARD_ONLY)
+    @ResultType(LinkedHashMap.class)
+    void streamKycReviews(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                          ResultHandler<Map<String, Object>> handler);
+
+    /**
+     * 流式查詢操作日誌
+     */
+    @Select("SELECT id, user_id, action, resource, resource_id, result, ip_address, request_id, error_message, " +
+            "execution_time, created_at FROM audit_logs " +
+            "WHERE created_at >= #{from} AND created_at < #{to} ORDER BY id")
+    @Options(fetchSize = Integer.MIN_VALUE, resultSetType = ResultSetType.FORWARD_ONLY)
+    @ResultType(LinkedHashMap.class)
+    void streamAuditLogs(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                         ResultHandler<Map<String, Object>> handler);
+
+    /**
+     * 流式查詢訂單
+     */
+    @Select("SELECT id, order_no, user_id, type, currency_pair, amount, price, total_amount, filled_amount, " +
+            "status, payment_method, created_at, completed_at FROM orders " +
+            "WHERE deleted = 0 AND created_at >= #{from} AND created_at < #{to} ORDER BY id")
+    @Options(fetchSize = Integer.MIN_VALUE, resultSetType = ResultSetType.FORWARD_ONLY)
+    @ResultType(LinkedHashMap.class)
+    void streamOrders(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                      ResultHandler<Map<String, Object>> handler);
+}
@@ -6,6 +6,7 @@ import com.usdttrading.entity.KycDocument;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -66,6 +67,16 @@ public interface KycDocumentMapper extends BaseMapper<KycDocument> {
     @Select("SELECT COUNT(*) FROM kyc_documents WHERE user_id = #{userId} AND deleted = false")
     int countByUserId(@Param("userId") Long userId);
 
+    /**
+     * 增加文檔訪問次數
+     *
+     * @param id 文檔ID
+     * @param accessedAt 訪問時間
+     * @return 影響行數
+     */
+    @Update("UPDATE kyc_documents SET access_count = IFNULL(access_count, 0) + 1, last_accessed_at = #{accessedAt} WHERE id = #{id}")
+    int incrementAccessCount(@Param("id") Long id, @Param("accessedAt") LocalDateTime accessedAt);
+
     /**
      * 分頁查詢文檔
      *
@@ -6,6 +6,7 @@ import com.usdttrading.entity.KycWorkflowStep;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -100,4 +101,72 @@ public interface KycWorkflowStepMapper extends BaseMapper<KycWorkflowStep> {
                                                  @Param("kycId") Long kycId,
                                                  @Param("status") String status,
                                                  @Param("stepNumber") Integer stepNumber);
+
+    /**
+     * 批量插入工作流步驟（單條多值INSERT）
+     *
+     * @param steps 步驟列表（需已分配ID）
+     * @return 插入行數
+     */
+    int insertBatch(@Param("steps") List<KycWorkflowStep> steps);
+
+    /**
+     * 鎖定可執行的自動步驟（FOR UPDATE SKIP LOCKED，多節點互不阻塞）
+     * 需在事務中調用，隨後通過markClaimed寫入認領信息
+     *
+     * @param limit 最多認領數量
+     * @return 已鎖定的步驟
+     */
+    List<KycWorkflowStep> lockReadySteps(@Param("limit") int limit);
+
+    /**
+     * 寫入認領信息
+     *
+     * @param ids 步驟ID
+     * @param claimedBy 認領節點
+     * @param claimExpiresAt 租約到期時間
+     * @return 更新行數
+     */
+    int markClaimed(@Param("ids") List<Long> ids,
+                    @Param("claimedBy") String claimedBy,
+                    @Param("claimExpiresAt") LocalDateTime claimExpiresAt);
+
+    /**
+     * 釋放租約已過期的步驟（節點宕機後由其他節點重新執行）
+     *
+     * @param now 當前時間
+     * @return 釋放數量
+     */
+    @Update("UPDATE kyc_workflow_steps SET status = 'READY', claimed_by = NULL, claim_expires_at = NULL, " +
+            "next_run_at = #{now}, version = version + 1 " +
+            "WHERE status = 'IN_PROGRESS' AND claim_expires_at IS NOT NULL AND claim_expires_at < #{now} AND deleted = 0")
+    int releaseExpiredClaims(@Param("now") LocalDateTime now);
+
+    /**
+     * 查詢在指定時間前到期且尚未升級的SLA步驟
+     *
+     * @param before 截止時間
+     * @param limit 最多返回數量
+     * @return 步驟列表
+     */
+    @Select("SELECT * FROM kyc_workflow_steps WHERE sla_deadline IS NOT NULL AND sla_deadline <= #{before} " +
+            "AND escalated = 0 AND status IN ('PENDING', 'READY', 'IN_PROGRESS') AND deleted = 0 " +
+            "ORDER BY sla_deadline ASC LIMIT #{limit}")
+    List<KycWorkflowStep> selectSlaDueBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    /**
+     * 標記SLA升級（條件更新，保證多節點下只升級一次）
+     * 租約未過期的IN_PROGRESS步驟正由執行器處理，不搶佔，待租約釋放後由下次SLA掃描重新觸發
+     *
+     * @param id 步驟ID
+     * @param now 當前時間
+     * @return 1 表示本節點獲得升級權
+     */
+    @Update("UPDATE kyc_workflow_steps SET escalated = 1, status = 'COMPLETED', result = 'SLA_ESCALATED', " +
+            "completed_at = #{now}, claimed_by = NULL, claim_expires_at = NULL, version = version + 1 " +
+            "WHERE id = #{id} AND escalated = 0 AND sla_deadline <= #{now} " +
+            "AND status IN ('PENDING', 'READY', 'IN_PROGRESS') " +
+            "AND NOT (status = 'IN_PROGRESS' AND claim_expires_at IS NOT NULL AND claim_expires_at > #{now}) " +
+            "AND deleted = 0")
+    int markEscalated(@Param("id") Long id, @Param("now") LocalDateTime now);
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.usdttrading.repository;
 
 import com.usdttrading.entity.Notification;
+import com.usdttrading.enums.NotificationCategory;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import org.apache.ibatis.annotations.Mapper;
@@ -9,6 +10,7 @@ import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 通知Mapper接口
@@ -61,4 +63,35 @@ public interface NotificationMapper extends BaseMapper<Notification> {
      */
     @Select("SELECT * FROM notifications WHERE user_id IS NULL ORDER BY created_at DESC")
     List<Notification> selectSystemNotifications();
-}
\ No newline at end of file
+
+    /**
+     * 按類別統計用戶未讀通知數（收件箱計數重建）
+     */
+    @Select("SELECT category, COUNT(*) AS cnt FROM notifications " +
+            "WHERE user_id = #{userId} AND status = 'UNREAD' AND deleted = 0 GROUP BY category")
+    List<Map<String, Object>> countUnreadByCategory(@Param("userId") Long userId);
+
+    /**
+     * 按用戶、類別批量統計未讀通知數（收件箱計數對賬）
+     */
+    List<Map<String, Object>> countUnreadByUsers(@Param("userIds") List<Long> userIds);
+
+    /**
+     * 查詢用戶最近的通知（收件箱列表重建）
+     */
+    @Select("SELECT * FROM notifications WHERE user_id = #{userId} AND deleted = 0 " +
+            "ORDER BY created_at DESC, id DESC LIMIT #{limit}")
+    List<Notification> selectLatestByUserId(@Param("userId") Long userId, @Param("limit") int limit);
+
+    /**
+     * 標記單條未讀通知為已讀（已讀則不更新，返回0）
+     */
+    @Update("UPDATE notifications SET status = 'READ', read_at = NOW(), updated_at = NOW() " +
+            "WHERE id = #{id} AND user_id = #{userId} AND status = 'UNREAD' AND deleted = 0")
+    int markReadIfUnread(@Param("id") Long id, @Param("userId") Long userId);
+
+    /**
+     * 標記用戶全部（或指定類別）未讀通知為已讀
+     */
+    int markAllUnreadAsRead(@Param("userId") Long userId, @Param("category") NotificationCategory category);
+}
@@ -10,6 +10,7 @@ import org.apache.ibatis.annotations.Select;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -55,6 +56,36 @@ public interface OrderMapper extends BaseMapper<Order> {
     @Select("SELECT * FROM orders WHERE status = 'pending' AND payment_deadline < NOW() AND deleted = 0")
     List<Order> findExpiredOrders();
 
+    /**
+     * 按主键游标查询带支付截止时间的待处理订单（仅返回id、user_id、payment_deadline）
+     */
+    @Select("SELECT id, user_id, payment_deadline FROM orders WHERE order_status = 'PENDING' " +
+            "AND payment_deadline IS NOT NULL AND payment_deadline <= #{before} AND id > #{lastId} AND deleted = 0 " +
+            "ORDER BY id ASC LIMIT #{limit}")
+    List<Order> findPendingDeadlines(@Param("before") LocalDateTime before, @Param("lastId") Long lastId, @Param("limit") int limit);
+
+    /**
+     * 锁定已到期的待处理订单（需在事务中调用）
+     */
+    List<Order> lockExpiredOrders(@Param("ids") Collection<Long> ids);
+
+    /**
+     * 批量将待处理订单标记为已过期
+     */
+    int markExpired(@Param("ids") Collection<Long> ids, @Param("reason") String reason, @Param("now") LocalDateTime now);
+
+    /**
+     * 取消待处理或处理中的订单（状态已变更时不更新，返回0）
+     */
+    int cancelOrder(@Param("id") Long id, @Param("userId") Long userId, @Param("reason") String reason,
+                    @Param("now") LocalDateTime now);
+
+    /**
+     * 待处理的买入订单确认支付（状态已变更时不更新，返回0）
+     */
+    int confirmPayment(@Param("id") Long id, @Param("userId") Long userId, @Param("paymentProof") String paymentProof,
+                       @Param("now") LocalDateTime now);
+
     /**
      * 获取指定时间范围内的订单
      */
@@ -5,6 +5,7 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
 
@@ -41,4 +42,19 @@ public interface OrderTransactionMapper extends BaseMapper<OrderTransaction> {
      */
     @Select("SELECT * FROM order_transactions WHERE status = 'failed' ORDER BY created_at DESC")
     List<OrderTransaction> selectFailedTransactions();
+
+    /**
+     * 按最新區塊高度批量推進待確認交易的確認數，達到要求的同時標記為已確認
+     */
+    @Update("UPDATE order_transactions SET confirmations = #{headBlock} - block_number + 1, " +
+            "status = IF(#{headBlock} - block_number + 1 >= #{required}, 'CONFIRMED', status), updated_at = NOW() " +
+            "WHERE status = 'PENDING' AND block_number IS NOT NULL AND block_number <= #{headBlock} AND deleted = 0")
+    int advanceConfirmations(@Param("headBlock") Long headBlock, @Param("required") int required);
+
+    /**
+     * 分叉點之後的待確認交易清空區塊信息，等待重新打包（區塊重組）
+     */
+    @Update("UPDATE order_transactions SET block_number = NULL, confirmations = 0, updated_at = NOW() " +
+            "WHERE status = 'PENDING' AND block_number > #{blockNumber} AND deleted = 0")
+    int resetAbove(@Param("blockNumber") Long blockNumber);
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -62,8 +63,70 @@ public interface PlatformWalletMapper extends BaseMapper<PlatformWallet> {
     BigDecimal calculateTotalBalance(@Param("currency") String currency);
 
     /**
-     * 查詢餘額不足的錢包
+     * 查詢餘額低於閾值的錢包
      */
-    @Select("SELECT * FROM platform_wallets WHERE balance < minimum_balance AND is_active = 1")
-    List<PlatformWallet> selectLowBalanceWallets();
+    List<PlatformWallet> selectLowBalanceWallets(@Param("threshold") BigDecimal threshold);
+
+    /**
+     * 查詢餘額高於閾值的錢包
+     */
+    List<PlatformWallet> selectHighBalanceWallets(@Param("threshold") BigDecimal threshold);
+
+    /**
+     * 查詢已開啟自動歸集且餘額達到歸集閾值的錢包
+     */
+    List<PlatformWallet> selectWalletsNeedingCollection();
+
+    /**
+     * 更新自動歸集設置
+     */
+    int updateAutoCollectSettings(@Param("id") Long id, @Param("autoCollect") Boolean autoCollect,
+                                  @Param("collectThreshold") BigDecimal collectThreshold);
+
+    /**
+     * 按類型查詢幣種下啟用的錢包
+     */
+    @Select("SELECT * FROM platform_wallets WHERE currency = #{currency} AND wallet_type = #{walletType} " +
+            "AND is_active = 1 AND deleted = 0 ORDER BY id ASC")
+    List<PlatformWallet> selectActiveByType(@Param("currency") String currency, @Param("walletType") String walletType);
+
+    /**
+     * 鎖定單個錢包
+     */
+    @Select("SELECT * FROM platform_wallets WHERE id = #{id} AND deleted = 0 FOR UPDATE")
+    PlatformWallet selectByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * 鎖定幣種下所有啟用的熱錢包（出款分配期間防止併發預留）
+     */
+    @Select("SELECT * FROM platform_wallets WHERE currency = #{currency} AND wallet_type = 'hot' AND is_active = 1 " +
+            "AND deleted = 0 ORDER BY id ASC FOR UPDATE")
+    List<PlatformWallet> lockHotWallets(@Param("currency") String currency);
+
+    /**
+     * 增加預留餘額
+     */
+    int increaseReservedBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * 減少預留餘額（預留不足時不更新，返回0）
+     */
+    int decreaseReservedBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * 減少餘額（餘額不足時不更新，返回0）
+     */
+    int decreaseBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * 分配出款序號
+     */
+    @Update("UPDATE platform_wallets SET next_nonce = COALESCE(next_nonce, 0) + #{count}, updated_at = NOW() " +
+            "WHERE id = #{id} AND deleted = 0")
+    int allocateNonces(@Param("id") Long id, @Param("count") int count);
+
+    /**
+     * 增加餘額
+     */
+    int increaseBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
 }
\ No newline at end of file
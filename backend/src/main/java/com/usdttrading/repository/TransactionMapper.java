@@ -5,9 +5,12 @@ import com.usdttrading.entity.Transaction;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 交易記錄Mapper接口
@@ -44,4 +47,82 @@ public interface TransactionMapper extends BaseMapper<Transaction> {
      */
     @Select("SELECT * FROM transactions WHERE transaction_number = #{transactionNumber}")
     Transaction selectByTransactionNumber(@Param("transactionNumber") String transactionNumber);
+
+    /**
+     * 批量寫入鏈上充值（同一網絡、交易哈希及收款地址已存在時忽略；被區塊重組作廢的記錄重新激活）
+     */
+    int upsertChainDeposits(@Param("deposits") List<Transaction> deposits, @Param("orphanReason") String orphanReason);
+
+    /**
+     * 按最新區塊高度批量推進待確認充值的確認數
+     */
+    @Update("UPDATE transactions SET confirmations = #{headBlock} - block_number + 1, updated_at = NOW() " +
+            "WHERE network = #{network} AND type = 'DEPOSIT' AND status = 'PENDING' " +
+            "AND block_number IS NOT NULL AND block_number <= #{headBlock} AND deleted = 0")
+    int advanceDepositConfirmations(@Param("network") String network, @Param("headBlock") Long headBlock);
+
+    /**
+     * 查詢已達確認數的待入賬充值
+     */
+    @Select("SELECT * FROM transactions WHERE network = #{network} AND type = 'DEPOSIT' AND status = 'PENDING' " +
+            "AND confirmations >= #{minConfirmations} AND deleted = 0 ORDER BY block_number ASC LIMIT #{limit}")
+    List<Transaction> selectConfirmedDeposits(@Param("network") String network,
+                                              @Param("minConfirmations") int minConfirmations,
+                                              @Param("limit") int limit);
+
+    /**
+     * 標記充值完成（條件更新，保證只入賬一次）
+     */
+    @Update("UPDATE transactions SET status = 'COMPLETED', completed_at = #{now}, updated_at = NOW(), version = version + 1 " +
+            "WHERE id = #{id} AND status = 'PENDING' AND deleted = 0")
+    int completeDeposit(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * 作廢分叉點之後尚未入賬的鏈上充值（區塊重組）
+     */
+    @Update("UPDATE transactions SET status = 'FAILED', cancel_reason = #{reason}, cancel_time = NOW(), " +
+            "updated_at = NOW(), version = version + 1 " +
+            "WHERE network = #{network} AND type = 'DEPOSIT' AND status = 'PENDING' " +
+            "AND block_number > #{blockNumber} AND deleted = 0")
+    int orphanDepositsAbove(@Param("network") String network, @Param("blockNumber") Long blockNumber,
+                            @Param("reason") String reason);
+
+    /**
+     * 同步提現流水狀態（交易哈希、區塊號為空時保留原值）
+     */
+    @Update("UPDATE transactions SET status = #{status}, transaction_hash = COALESCE(#{txHash}, transaction_hash), " +
+            "block_number = COALESCE(#{blockNumber}, block_number), completed_at = COALESCE(#{completedAt}, completed_at), " +
+            "updated_at = NOW(), version = version + 1 " +
+            "WHERE transaction_number = #{transactionNumber} AND type = 'WITHDRAWAL' AND deleted = 0")
+    int updateWithdrawalLedger(@Param("transactionNumber") String transactionNumber, @Param("status") String status,
+                               @Param("txHash") String txHash, @Param("blockNumber") Long blockNumber,
+                               @Param("completedAt") LocalDateTime completedAt);
+
+    /**
+     * 按充值地址匯總已入賬、未歸集的鏈上充值
+     * 返回 address、walletUserId、depositCount、amount、maxId
+     */
+    @Select("SELECT to_address AS address, MAX(user_id) AS walletUserId, COUNT(*) AS depositCount, " +
+            "SUM(amount) AS amount, MAX(id) AS maxId FROM transactions " +
+            "WHERE network = #{network} AND type = 'DEPOSIT' AND status = 'COMPLETED' AND sweep_id IS NULL " +
+            "AND transaction_hash IS NOT NULL AND deleted = 0 " +
+            "GROUP BY to_address HAVING SUM(amount) >= #{minAmount} ORDER BY amount DESC LIMIT #{limit}")
+    List<Map<String, Object>> selectSweepCandidates(@Param("network") String network,
+                                                    @Param("minAmount") BigDecimal minAmount,
+                                                    @Param("limit") int limit);
+
+    /**
+     * 標記充值已歸集（僅標記不超過maxId且尚未歸集的記錄）
+     */
+    @Update("UPDATE transactions SET sweep_id = #{sweepId}, updated_at = NOW() " +
+            "WHERE network = #{network} AND to_address = #{address} AND type = 'DEPOSIT' AND status = 'COMPLETED' " +
+            "AND sweep_id IS NULL AND transaction_hash IS NOT NULL AND id <= #{maxId} AND deleted = 0")
+    int markSwept(@Param("network") String network, @Param("address") String address,
+                  @Param("maxId") Long maxId, @Param("sweepId") Long sweepId);
+
+    /**
+     * 清除歸集標記（歸集失敗後重新歸集）
+     */
+    @Update("UPDATE transactions SET sweep_id = NULL, updated_at = NOW() WHERE sweep_id = #{sweepId}")
+    int unmarkSwept(@Param("sweepId") Long sweepId);
 }
\ No newline at end of file
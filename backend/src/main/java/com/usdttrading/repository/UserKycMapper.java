@@ -5,6 +5,7 @@ import com.usdttrading.entity.UserKyc;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.util.List;
 
@@ -43,10 +44,44 @@ public interface UserKycMapper extends BaseMapper<UserKyc> {
     List<UserKyc> findPendingKyc();
 
     /**
-     * 根据证件号码查找KYC记录（用于重复检查）
+     * 根据证件号码盲索引查找KYC记录（用于重复检查）
      */
-    @Select("SELECT * FROM user_kyc WHERE id_number = #{idNumber} AND deleted = 0")
-    List<UserKyc> findByIdNumber(@Param("idNumber") String idNumber);
+    @Select("SELECT * FROM user_kyc WHERE id_number_bidx = #{idNumberBidx} AND deleted = 0")
+    List<UserKyc> findByIdNumberBidx(@Param("idNumberBidx") String idNumberBidx);
+
+    /**
+     * 根据银行账号盲索引查找KYC记录
+     */
+    @Select("SELECT * FROM user_kyc WHERE bank_account_bidx = #{bankAccountBidx} AND deleted = 0")
+    List<UserKyc> findByBankAccountBidx(@Param("bankAccountBidx") String bankAccountBidx);
+
+    /**
+     * 根据手机号盲索引查找KYC记录
+     */
+    @Select("SELECT * FROM user_kyc WHERE phone_number_bidx = #{phoneNumberBidx} AND deleted = 0")
+    List<UserKyc> findByPhoneNumberBidx(@Param("phoneNumberBidx") String phoneNumberBidx);
+
+    /**
+     * 统计同一证件号码的其他已通过KYC记录数
+     */
+    @Select("SELECT COUNT(*) FROM user_kyc WHERE id_number_bidx = #{idNumberBidx} AND status = 'approved' " +
+            "AND id <> #{excludeId} AND deleted = 0")
+    int countApprovedByIdNumberBidx(@Param("idNumberBidx") String idNumberBidx, @Param("excludeId") Long excludeId);
+
+    /**
+     * 按主键游标分批获取缺少盲索引的KYC记录（回填任务使用）
+     */
+    List<UserKyc> findBlindIndexBackfillBatch(@Param("lastId") Long lastId, @Param("limit") int limit);
+
+    /**
+     * 更新盲索引字段
+     */
+    @Update("UPDATE user_kyc SET id_number_bidx = #{idNumberBidx}, bank_account_bidx = #{bankAccountBidx}, " +
+            "phone_number_bidx = #{phoneNumberBidx} WHERE id = #{id}")
+    int updateBlindIndexes(@Param("id") Long id,
+                           @Param("idNumberBidx") String idNumberBidx,
+                           @Param("bankAccountBidx") String bankAccountBidx,
+                           @Param("phoneNumberBidx") String phoneNumberBidx);
 
     /**
      * 获取即将过期的KYC记录
@@ -73,4 +73,25 @@ public interface UserSessionMapper extends BaseMapper<UserSession> {
      */
     @Select("SELECT * FROM user_sessions WHERE user_id = #{userId} AND device_type = #{deviceType} AND is_active = 1")
     List<UserSession> selectByUserIdAndDeviceType(@Param("userId") Long userId, @Param("deviceType") String deviceType);
-}
\ No newline at end of file
+
+    /**
+     * 根據Token查詢會話（不過濾狀態，用於區分未登記與已失效）
+     */
+    @Select("SELECT * FROM user_sessions WHERE token = #{token} AND deleted = 0 ORDER BY id DESC LIMIT 1")
+    UserSession selectAnyByToken(@Param("token") String token);
+
+    /**
+     * 批量寫入會話活動時間及滑動過期時間（只前進不回退）
+     */
+    int batchTouchSessions(@Param("sessions") List<UserSession> sessions);
+
+    /**
+     * 批量禁用會話
+     */
+    int batchDisableSessions(@Param("sessionIds") List<String> sessionIds);
+
+    /**
+     * 批量禁用空閒會話（以庫中最後活動時間為準，其他節點仍在活動的會話不受影響）
+     */
+    int disableIdleSessions(@Param("sessionIds") List<String> sessionIds, @Param("idleBefore") LocalDateTime idleBefore);
+}
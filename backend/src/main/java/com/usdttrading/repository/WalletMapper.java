@@ -5,6 +5,7 @@ import com.usdttrading.entity.Wallet;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -64,4 +65,48 @@ public interface WalletMapper extends BaseMapper<Wallet> {
      * 更新钱包余额
      */
     int updateBalance(@Param("id") Long id, @Param("balance") BigDecimal balance, @Param("frozenBalance") BigDecimal frozenBalance);
+
+    /**
+     * 解冻USDT（冻结不足时不更新，返回0）
+     */
+    @Update("UPDATE wallets SET usdt_balance = usdt_balance + #{amount}, frozen_usdt = frozen_usdt - #{amount}, " +
+            "updated_at = NOW(), version = version + 1 " +
+            "WHERE user_id = #{userId} AND frozen_usdt >= #{amount} AND deleted = 0 LIMIT 1")
+    int releaseFrozenUsdt(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    /**
+     * 冻结USDT（可用余额不足时不更新，返回0）
+     */
+    @Update("UPDATE wallets SET usdt_balance = usdt_balance - #{amount}, frozen_usdt = frozen_usdt + #{amount}, " +
+            "updated_at = NOW(), version = version + 1 " +
+            "WHERE user_id = #{userId} AND usdt_balance >= #{amount} AND deleted = 0 LIMIT 1")
+    int freezeUsdt(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    /**
+     * 按主键游标查询钱包地址（仅返回id、user_id、address）
+     */
+    @Select("SELECT id, user_id, address FROM wallets WHERE id > #{lastId} AND address IS NOT NULL AND deleted = 0 " +
+            "ORDER BY id ASC LIMIT #{limit}")
+    List<Wallet> findAddressesAfter(@Param("lastId") Long lastId, @Param("limit") int limit);
+
+    /**
+     * 绑定充值地址（仅在尚未绑定时更新）
+     */
+    @Update("UPDATE wallets SET address = #{address}, updated_at = NOW(), version = version + 1 " +
+            "WHERE user_id = #{userId} AND address IS NULL AND deleted = 0 LIMIT 1")
+    int bindAddress(@Param("userId") Long userId, @Param("address") String address);
+
+    /**
+     * 增加USDT可用余额
+     */
+    @Update("UPDATE wallets SET usdt_balance = usdt_balance + #{amount}, updated_at = NOW(), version = version + 1 " +
+            "WHERE user_id = #{userId} AND deleted = 0 LIMIT 1")
+    int creditUsdt(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
+    /**
+     * 扣減凍結USDT（提現出款完成，凍結不足時不更新，返回0）
+     */
+    @Update("UPDATE wallets SET frozen_usdt = frozen_usdt - #{amount}, updated_at = NOW(), version = version + 1 " +
+            "WHERE user_id = #{userId} AND frozen_usdt >= #{amount} AND deleted = 0 LIMIT 1")
+    int settleFrozenUsdt(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
 }
\ No newline at end of file
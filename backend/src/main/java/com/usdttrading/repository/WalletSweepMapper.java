@@ -0,0 +1,62 @@
+package com.usdttrading.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.usdttrading.entity.WalletSweep;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 資金歸集記錄Mapper接口
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Mapper
+public interface WalletSweepMapper extends BaseMapper<WalletSweep> {
+
+    /**
+     * 按狀態查詢歸集記錄
+     */
+    @Select("SELECT * FROM wallet_sweeps WHERE network = #{network} AND status = #{status} AND deleted = 0 " +
+            "ORDER BY id ASC LIMIT #{limit}")
+    List<WalletSweep> selectByStatus(@Param("network") String network, @Param("status") String status,
+                                     @Param("limit") int limit);
+
+    /**
+     * 記錄廣播成功
+     */
+    @Update("UPDATE wallet_sweeps SET status = 'BROADCAST', broadcast_at = #{now}, updated_at = #{now} " +
+            "WHERE id = #{id} AND status IN ('SIGNED', 'BROADCAST') AND deleted = 0")
+    int markBroadcast(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * 退回待廣播，由下一輪原樣重播
+     */
+    @Update("UPDATE wallet_sweeps SET status = 'SIGNED', broadcast_at = NULL, updated_at = NOW() " +
+            "WHERE id = #{id} AND status = 'BROADCAST' AND deleted = 0")
+    int resetBroadcast(@Param("id") Long id);
+
+    /**
+     * 確認完成
+     */
+    @Update("UPDATE wallet_sweeps SET status = 'CONFIRMED', block_number = #{blockNumber}, network_fee = #{networkFee}, " +
+            "signed_payload = NULL, confirmed_at = #{now}, updated_at = #{now}, version = version + 1 " +
+            "WHERE id = #{id} AND status = 'BROADCAST' AND deleted = 0")
+    int markConfirmed(@Param("id") Long id, @Param("blockNumber") Long blockNumber,
+                      @Param("networkFee") BigDecimal networkFee, @Param("now") LocalDateTime now);
+
+    /**
+     * 標記失敗
+     */
+    @Update("UPDATE wallet_sweeps SET status = 'FAILED', failure_reason = #{reason}, signed_payload = NULL, " +
+            "updated_at = NOW(), version = version + 1 " +
+            "WHERE id = #{id} AND status IN ('SIGNED', 'BROADCAST') AND deleted = 0")
+    int markFailed(@Param("id") Long id, @Param("reason") String reason);
+}
@@ -7,6 +7,7 @@ import com.usdttrading.entity.Withdrawal;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -61,4 +62,118 @@ public interface WithdrawalMapper extends BaseMapper<Withdrawal> {
      * 获取需要自动审核的提款记录
      */
     List<Withdrawal> findAutoApprovalWithdrawals(@Param("maxAmount") BigDecimal maxAmount);
+
+    /**
+     * 审核通过（仅待审核、审核中状态可更新）
+     */
+    @Update("UPDATE withdrawals SET status = 'APPROVED', reviewer_id = #{reviewerId}, review_note = #{note}, " +
+            "reviewed_at = #{now}, updated_at = #{now}, version = version + 1 " +
+            "WHERE id = #{id} AND status IN ('PENDING', 'REVIEWING') AND deleted = 0")
+    int approve(@Param("id") Long id, @Param("reviewerId") Long reviewerId, @Param("note") String note,
+                @Param("now") LocalDateTime now);
+
+    /**
+     * 审核拒绝（仅待审核、审核中状态可更新）
+     */
+    @Update("UPDATE withdrawals SET status = 'REJECTED', reviewer_id = #{reviewerId}, rejection_reason = #{reason}, " +
+            "reviewed_at = #{now}, updated_at = #{now}, version = version + 1 " +
+            "WHERE id = #{id} AND status IN ('PENDING', 'REVIEWING') AND deleted = 0")
+    int reject(@Param("id") Long id, @Param("reviewerId") Long reviewerId, @Param("reason") String reason,
+               @Param("now") LocalDateTime now);
+
+    /**
+     * 锁定一批已批准的提款（跳过其他事务已锁定的行）
+     */
+    @Select("SELECT * FROM withdrawals WHERE status = 'APPROVED' AND network = #{network} AND deleted = 0 " +
+            "ORDER BY reviewed_at ASC, id ASC LIMIT #{limit} FOR UPDATE SKIP LOCKED")
+    List<Withdrawal> lockApproved(@Param("network") String network, @Param("limit") int limit);
+
+    /**
+     * 记录签名结果并转为处理中
+     */
+    @Update("UPDATE withdrawals SET status = 'PROCESSING', source_wallet_id = #{sourceWalletId}, chain_nonce = #{nonce}, " +
+            "transaction_hash = #{txHash}, signed_payload = #{payload}, broadcast_at = NULL, confirmations = 0, " +
+            "updated_at = NOW(), version = version + 1 " +
+            "WHERE id = #{id} AND status = 'APPROVED' AND deleted = 0")
+    int markSigned(@Param("id") Long id, @Param("sourceWalletId") Long sourceWalletId, @Param("nonce") Long nonce,
+                   @Param("txHash") String txHash, @Param("payload") String payload);
+
+    /**
+     * 查询已签名、待广播的提款
+     */
+    @Select("SELECT * FROM withdrawals WHERE status = 'PROCESSING' AND network = #{network} " +
+            "AND signed_payload IS NOT NULL AND broadcast_at IS NULL AND deleted = 0 " +
+            "ORDER BY source_wallet_id ASC, chain_nonce ASC LIMIT #{limit}")
+    List<Withdrawal> selectUnbroadcast(@Param("network") String network, @Param("limit") int limit);
+
+    /**
+     * 记录广播成功
+     */
+    @Update("UPDATE withdrawals SET broadcast_at = #{now}, broadcast_attempts = COALESCE(broadcast_attempts, 0) + 1, " +
+            "updated_at = #{now} WHERE id = #{id} AND status = 'PROCESSING' AND deleted = 0")
+    int markBroadcast(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * 累加广播尝试次数（广播异常时）
+     */
+    @Update("UPDATE withdrawals SET broadcast_attempts = COALESCE(broadcast_attempts, 0) + 1, updated_at = NOW() " +
+            "WHERE id = #{id} AND status = 'PROCESSING' AND deleted = 0")
+    int incrementBroadcastAttempts(@Param("id") Long id);
+
+    /**
+     * 清除广播时间，由广播循环原样重播已签名交易
+     */
+    @Update("UPDATE withdrawals SET broadcast_at = NULL, updated_at = NOW() " +
+            "WHERE id = #{id} AND status = 'PROCESSING' AND deleted = 0")
+    int resetBroadcast(@Param("id") Long id);
+
+    /**
+     * 查询已广播、待确认的提款
+     */
+    @Select("SELECT * FROM withdrawals WHERE status = 'PROCESSING' AND network = #{network} " +
+            "AND broadcast_at IS NOT NULL AND deleted = 0 ORDER BY broadcast_at ASC LIMIT #{limit}")
+    List<Withdrawal> selectInFlight(@Param("network") String network, @Param("limit") int limit);
+
+    /**
+     * 更新确认进度
+     */
+    @Update("UPDATE withdrawals SET block_number = #{blockNumber}, confirmations = #{confirmations}, updated_at = NOW() " +
+            "WHERE id = #{id} AND status = 'PROCESSING' AND deleted = 0")
+    int updateConfirmations(@Param("id") Long id, @Param("blockNumber") Long blockNumber,
+                            @Param("confirmations") int confirmations);
+
+    /**
+     * 确认完成
+     */
+    @Update("UPDATE withdrawals SET status = 'COMPLETED', block_number = #{blockNumber}, confirmations = #{confirmations}, " +
+            "network_fee = #{networkFee}, signed_payload = NULL, processed_at = #{now}, updated_at = #{now}, version = version + 1 " +
+            "WHERE id = #{id} AND status = 'PROCESSING' AND deleted = 0")
+    int complete(@Param("id") Long id, @Param("blockNumber") Long blockNumber, @Param("confirmations") int confirmations,
+                 @Param("networkFee") BigDecimal networkFee, @Param("now") LocalDateTime now);
+
+    /**
+     * 出款失败
+     */
+    @Update("UPDATE withdrawals SET status = 'FAILED', failure_reason = #{reason}, signed_payload = NULL, " +
+            "processed_at = #{now}, updated_at = #{now}, version = version + 1 " +
+            "WHERE id = #{id} AND status = 'PROCESSING' AND deleted = 0")
+    int fail(@Param("id") Long id, @Param("reason") String reason, @Param("now") LocalDateTime now);
+
+    /**
+     * 放弃当前签名交易并退回已批准状态，等待重新签名
+     */
+    @Update("UPDATE withdrawals SET status = 'APPROVED', source_wallet_id = NULL, chain_nonce = NULL, transaction_hash = NULL, " +
+            "signed_payload = NULL, broadcast_at = NULL, confirmations = 0, failure_reason = #{reason}, " +
+            "updated_at = NOW(), version = version + 1 " +
+            "WHERE id = #{id} AND status = 'PROCESSING' AND deleted = 0")
+    int requeue(@Param("id") Long id, @Param("reason") String reason);
+
+    /**
+     * 记录人工出款（链下广播）
+     */
+    @Update("UPDATE withdrawals SET status = 'PROCESSING', source_wallet_id = #{sourceWalletId}, transaction_hash = #{txHash}, " +
+            "broadcast_at = #{now}, broadcast_attempts = 1, confirmations = 0, updated_at = #{now}, version = version + 1 " +
+            "WHERE id = #{id} AND status = 'APPROVED' AND deleted = 0")
+    int markManualPayout(@Param("id") Long id, @Param("sourceWalletId") Long sourceWalletId,
+                         @Param("txHash") String txHash, @Param("now") LocalDateTime now);
 }
\ No newline at end of file
@@ -0,0 +1,226 @@
+package com.usdttrading.service;
+
+import com.usdttrading.utils.EthAddressUtil;
+import com.usdttrading.utils.TronAddressUtil;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 鏈上地址校驗服務
+ * TRC20做Base58Check解碼及雙重SHA-256校驗和驗證，ERC20做十六進制格式及EIP-55大小寫校驗和驗證，
+ * 在提現申請時攔截無效地址，避免到廣播階段才失敗。
+ * 最近校驗過的結果保存在分段LRU中，同一地址重複校驗（前端輸入、批量導入）不再重複計算
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Service
+public class AddressValidationService {
+
+    public static final String NETWORK_TRC20 = "TRC20";
+    public static final String NETWORK_ERC20 = "ERC20";
+    private static final int SEGMENTS = 16;
+
+    @Value("${app.address-validation.cache-size:20000}")
+    private int cacheSize;
+
+    @Value("${app.address-validation.batch-max-size:1000}")
+    private int batchMaxSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private LruSegment[] segments;
+
+    /**
+     * 校驗結果（不可變，可直接緩存共享）
+     */
+    @Getter
+    public static final class ValidationResult {
+        private final String address;
+        private final String network;
+        private final boolean valid;
+        /**
+         * 規範化地址：ERC20為EIP-55校驗和格式，TRC20為原地址
+         */
+        private final String normalizedAddress;
+        /**
+         * 是否帶校驗和（TRC20恆為true，ERC20全小寫/全大寫時為false）
+         */
+        private final boolean checksummed;
+        private final String reason;
+
+        private ValidationResult(String address, String network, boolean valid, String normalizedAddress,
+                                 boolean checksummed, String reason) {
+            this.address = address;
+            this.network = network;
+            this.valid = valid;
+            this.normalizedAddress = normalizedAddress;
+            this.checksummed = checksummed;
+            this.reason = reason;
+        }
+
+        private static ValidationResult invalid(String address, String network, String reason) {
+            return new ValidationResult(address, network, false, null, false, reason);
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("address", address);
+            map.put("network", network);
+            map.put("isValid", valid);
+            map.put("normalizedAddress", normalizedAddress);
+            map.put("checksummed", checksummed);
+            map.put("message", valid ? "地址格式正確" : reason);
+            return map;
+        }
+    }
+
+    /**
+     * 批量校驗的單個請求項
+     */
+    @Getter
+    public static final class AddressQuery {
+        private final String address;
+        private final String network;
+
+        public AddressQuery(String address, String network) {
+            this.address = address;
+            this.network = network;
+        }
+    }
+
+    /**
+     * 按訪問順序淘汰的緩存分段，分段加鎖降低併發競爭
+     */
+    private static final class LruSegment extends LinkedHashMap<String, ValidationResult> {
+        private final int capacity;
+
+        private LruSegment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ValidationResult> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        int perSegment = Math.max(1, cacheSize / SEGMENTS);
+        segments = new LruSegment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new LruSegment(perSegment);
+        }
+    }
+
+    /**
+     * 校驗單個地址
+     *
+     * @param address 地址
+     * @param network 網絡類型（TRC20、ERC20）
+     * @return 校驗結果
+     */
+    public ValidationResult validate(String address, String network) {
+        String normalizedNetwork = network == null ? "" : network.trim().toUpperCase(Locale.ROOT);
+        if (address == null || address.isEmpty()) {
+            return ValidationResult.invalid(address, normalizedNetwork, "地址不能為空");
+        }
+        String key = normalizedNetwork + ':' + address;
+        LruSegment segment = segments[(key.hashCode() & 0x7FFFFFFF) % SEGMENTS];
+        ValidationResult cached;
+        synchronized (segment) {
+            cached = segment.get(key);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        ValidationResult result = compute(address, normalizedNetwork);
+        synchronized (segment) {
+            segment.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * 是否為有效地址
+     */
+    public boolean isValid(String address, String network) {
+        return validate(address, network).isValid();
+    }
+
+    /**
+     * 批量校驗，結果順序與請求一致
+     *
+     * @param queries 請求項
+     * @return 校驗結果
+     */
+    public List<ValidationResult> validateBatch(List<AddressQuery> queries) {
+        if (queries.size() > batchMaxSize) {
+            throw new IllegalArgumentException("單次最多校驗" + batchMaxSize + "個地址");
+        }
+        List<ValidationResult> results = new ArrayList<>(queries.size());
+        for (AddressQuery query : queries) {
+            results.add(validate(query.getAddress(), query.getNetwork()));
+        }
+        return results;
+    }
+
+    /**
+     * 獲取緩存統計
+     */
+    public Map<String, Object> getStatus() {
+        int size = 0;
+        for (LruSegment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        Map<String, Object> status = new HashMap<>();
+        status.put("cacheSize", size);
+        status.put("cacheCapacity", cacheSize);
+        status.put("hits", hits.get());
+        status.put("misses", misses.get());
+        return status;
+    }
+
+    private static ValidationResult compute(String address, String network) {
+        switch (network) {
+            case NETWORK_TRC20:
+                if (address.length() != 34 || address.charAt(0) != 'T') {
+                    return ValidationResult.invalid(address, network, "TRON地址應為T開頭的34位字符");
+                }
+                return TronAddressUtil.isValidAddress(address)
+                        ? new ValidationResult(address, network, true, address, true, null)
+                        : ValidationResult.invalid(address, network, "TRON地址校驗和錯誤");
+            case NETWORK_ERC20:
+                if (!EthAddressUtil.isHexAddress(address)) {
+                    return ValidationResult.invalid(address, network, "以太坊地址應為0x開頭的40位十六進制");
+                }
+                String checksumAddress = EthAddressUtil.toChecksumAddress(address);
+                if (!EthAddressUtil.hasChecksum(address)) {
+                    return new ValidationResult(address, network, true, checksumAddress, false, null);
+                }
+                return checksumAddress.equals(address)
+                        ? new ValidationResult(address, network, true, checksumAddress, true, null)
+                        : ValidationResult.invalid(address, network, "以太坊地址EIP-55校驗和錯誤");
+            default:
+                return ValidationResult.invalid(address, network, "不支持的網絡類型");
+        }
+    }
+}
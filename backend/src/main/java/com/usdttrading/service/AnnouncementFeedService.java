@@ -0,0 +1,337 @@
+package com.usdttrading.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.usdttrading.dto.ApiResponse;
+import com.usdttrading.entity.Announcement;
+import com.usdttrading.repository.AnnouncementMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * 公告流服務
+ * 在內存維護按受眾劃分的不可變快照，響應體（公告列表、彈窗公告）在構建時一次序列化為JSON字節，
+ * 首頁讀取直接寫出，不訪問數據庫也不逐請求序列化。
+ * 候選集包含待生效的公告，發布、過期時間到達時由邊界定時器從內存重算快照；
+ * 公告變更後調用 refresh() 重新加載，並經Redis pub/sub通知其他節點
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AnnouncementFeedService implements MessageListener {
+
+    public static final String AUDIENCE_ALL = "all";
+    public static final String AUDIENCE_USERS = "users";
+    public static final String AUDIENCE_VIP = "vip";
+    public static final String AUDIENCE_ADMINS = "admins";
+    private static final List<String> AUDIENCES = List.of(AUDIENCE_ALL, AUDIENCE_USERS, AUDIENCE_VIP, AUDIENCE_ADMINS);
+    /**
+     * 受眾 -> 可見的公告目標受眾；VIP同時是已登錄用戶，可見面向用戶的公告
+     */
+    private static final Map<String, Set<String>> VISIBLE_TARGETS = Map.of(
+            AUDIENCE_ALL, Set.of(AUDIENCE_ALL),
+            AUDIENCE_USERS, Set.of(AUDIENCE_ALL, AUDIENCE_USERS),
+            AUDIENCE_VIP, Set.of(AUDIENCE_ALL, AUDIENCE_USERS, AUDIENCE_VIP),
+            AUDIENCE_ADMINS, Set.of(AUDIENCE_ALL, AUDIENCE_ADMINS));
+    private static final String REFRESH_CHANNEL = "announcement:refresh";
+
+    private final AnnouncementMapper announcementMapper;
+    private final ObjectMapper objectMapper;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Value("${app.announcement.candidate-limit:500}")
+    private int candidateLimit;
+
+    @Value("${app.announcement.feed-size:50}")
+    private int feedSize;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong rematerializations = new AtomicLong();
+    private final AtomicLong served = new AtomicLong();
+
+    /**
+     * 當前狀態，整體替換
+     */
+    private volatile FeedState state;
+
+    /**
+     * 單個受眾的快照
+     */
+    @Getter
+    public static final class FeedSnapshot {
+        private final String audience;
+        private final int size;
+        private final byte[] feedBody;
+        private final String feedEtag;
+        private final byte[] popupBody;
+        private final String popupEtag;
+
+        private FeedSnapshot(String audience, int size, byte[] feedBody, String feedEtag,
+                             byte[] popupBody, String popupEtag) {
+            this.audience = audience;
+            this.size = size;
+            this.feedBody = feedBody;
+            this.feedEtag = feedEtag;
+            this.popupBody = popupBody;
+            this.popupEtag = popupEtag;
+        }
+    }
+
+    private static final class FeedState {
+        private final List<Announcement> candidates;
+        private final Map<String, FeedSnapshot> snapshots;
+        private final LocalDateTime builtAt;
+        /**
+         * 下一個發布或過期時間，到達時重算快照；null表示無需定時重算
+         */
+        private final LocalDateTime nextBoundary;
+
+        private FeedState(List<Announcement> candidates, Map<String, FeedSnapshot> snapshots,
+                          LocalDateTime builtAt, LocalDateTime nextBoundary) {
+            this.candidates = candidates;
+            this.snapshots = snapshots;
+            this.builtAt = builtAt;
+            this.nextBoundary = nextBoundary;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(REFRESH_CHANNEL));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("加載公告流失敗，首次讀取時重試: error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 獲取受眾快照
+     *
+     * @param audience 受眾（all、users、vip、admins）
+     * @return 快照
+     */
+    public FeedSnapshot getFeed(String audience) {
+        FeedState current = state;
+        if (current == null) {
+            current = reload();
+        }
+        served.incrementAndGet();
+        FeedSnapshot snapshot = current.snapshots.get(normalize(audience));
+        return snapshot != null ? snapshot : current.snapshots.get(AUDIENCE_ALL);
+    }
+
+    /**
+     * 公告變更後刷新本節點快照並通知其他節點
+     */
+    public void refresh() {
+        reload();
+        try {
+            stringRedisTemplate.convertAndSend(REFRESH_CHANNEL, nodeId);
+        } catch (Exception e) {
+            log.warn("廣播公告刷新失敗，其他節點由定時加載兜底: error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 其他節點的刷新通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        if (nodeId.equals(new String(message.getBody(), StandardCharsets.UTF_8))) {
+            return;
+        }
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("響應公告刷新通知失敗: error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 發布、過期邊界檢查，只從內存候選集重算
+     */
+    @Scheduled(fixedDelayString = "${app.announcement.boundary-check-ms:1000}")
+    public void checkBoundary() {
+        if (isBoundaryDue(state)) {
+            synchronized (this) {
+                // 加鎖後重讀，避免用舊候選集覆蓋剛加載的狀態
+                FeedState current = state;
+                if (isBoundaryDue(current)) {
+                    rematerialize(current.candidates);
+                }
+            }
+        }
+    }
+
+    /**
+     * 定時全量加載，兜底直接改庫及丟失的刷新通知
+     */
+    @Scheduled(fixedDelayString = "${app.announcement.reload-interval-ms:300000}")
+    public void periodicReload() {
+        try {
+            reload();
+        } catch (Exception e) {
+            log.error("定時加載公告流失敗: error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 獲取公告流狀態
+     */
+    public Map<String, Object> getStatus() {
+        FeedState current = state;
+        Map<String, Object> status = new HashMap<>();
+        status.put("loaded", current != null);
+        if (current != null) {
+            status.put("candidates", current.candidates.size());
+            status.put("builtAt", current.builtAt);
+            status.put("nextBoundary", current.nextBoundary);
+            Map<String, Object> sizes = new LinkedHashMap<>();
+            current.snapshots.forEach((audience, snapshot) -> sizes.put(audience, snapshot.getSize()));
+            status.put("audiences", sizes);
+        }
+        status.put("reloads", reloads.get());
+        status.put("rematerializations", rematerializations.get());
+        status.put("served", served.get());
+        return status;
+    }
+
+    private synchronized FeedState reload() {
+        List<Announcement> candidates = announcementMapper.selectFeedCandidates(candidateLimit);
+        reloads.incrementAndGet();
+        return rematerialize(Collections.unmodifiableList(new ArrayList<>(candidates)));
+    }
+
+    private synchronized FeedState rematerialize(List<Announcement> candidates) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime nextBoundary = null;
+        List<Announcement> visible = new ArrayList<>();
+        for (Announcement announcement : candidates) {
+            LocalDateTime publishAt = announcement.getPublishAt();
+            LocalDateTime expireAt = announcement.getExpireAt();
+            if (publishAt != null && publishAt.isAfter(now)) {
+                nextBoundary = earliest(nextBoundary, publishAt);
+                continue;
+            }
+            if (expireAt != null) {
+                if (!expireAt.isAfter(now)) {
+                    continue;
+                }
+                nextBoundary = earliest(nextBoundary, expireAt);
+            }
+            visible.add(announcement);
+        }
+
+        Map<String, FeedSnapshot> snapshots = new HashMap<>();
+        for (String audience : AUDIENCES) {
+            List<Map<String, Object>> feed = new ArrayList<>();
+            List<Map<String, Object>> popups = new ArrayList<>();
+            Set<String> targets = VISIBLE_TARGETS.get(audience);
+            for (Announcement announcement : visible) {
+                if (!targets.contains(normalize(announcement.getTargetAudience()))) {
+                    continue;
+                }
+                Map<String, Object> view = toView(announcement);
+                if (feed.size() < feedSize) {
+                    feed.add(view);
+                }
+                if (announcement.isPopup()) {
+                    popups.add(view);
+                }
+            }
+            snapshots.put(audience, new FeedSnapshot(audience, feed.size(),
+                    serialize(feed), etag(feed), serialize(popups), etag(popups)));
+        }
+
+        FeedState built = new FeedState(candidates, Map.copyOf(snapshots), now, nextBoundary);
+        state = built;
+        rematerializations.incrementAndGet();
+        log.debug("公告流快照已重建: visible={}, nextBoundary={}", visible.size(), nextBoundary);
+        return built;
+    }
+
+    private byte[] serialize(List<Map<String, Object>> items) {
+        try {
+            return objectMapper.writeValueAsBytes(ApiResponse.success("獲取公告成功", items));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化公告失敗", e);
+        }
+    }
+
+    /**
+     * ETag只按公告內容計算，重建快照而內容不變時客戶端緩存仍然有效
+     */
+    private String etag(List<Map<String, Object>> items) {
+        try {
+            byte[] data = objectMapper.writeValueAsBytes(items);
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            return "\"" + Long.toHexString(crc.getValue()) + "-" + data.length + "\"";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化公告失敗", e);
+        }
+    }
+
+    private static Map<String, Object> toView(Announcement announcement) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("id", String.valueOf(announcement.getId()));
+        view.put("title", announcement.getTitle());
+        view.put("content", announcement.getContent());
+        view.put("type", announcement.getType());
+        view.put("priority", announcement.getPriority());
+        view.put("targetAudience", announcement.getTargetAudience());
+        view.put("isPopup", announcement.isPopup());
+        view.put("publishAt", announcement.getPublishAt());
+        view.put("expireAt", announcement.getExpireAt());
+        return view;
+    }
+
+    private static String normalize(String audience) {
+        return audience == null ? AUDIENCE_ALL : audience.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isBoundaryDue(FeedState current) {
+        return current != null && current.nextBoundary != null && !LocalDateTime.now().isBefore(current.nextBoundary);
+    }
+
+    private static LocalDateTime earliest(LocalDateTime current, LocalDateTime candidate) {
+        return current == null || candidate.isBefore(current) ? candidate : current;
+    }
+}
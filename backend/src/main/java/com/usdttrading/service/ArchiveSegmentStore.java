@@ -0,0 +1,333 @@
+package com.usdttrading.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 歸檔分段存儲
+ * 每個分段為一個gzip壓縮文件，首行為表頭，之後每行為一個行組：行組內按列存放值（列式），
+ * 同列值相鄰，壓縮率高，也便於日後轉換為Parquet等列式格式。
+ * 分段旁有清單文件記錄ID範圍、時間範圍、行數、ID校驗和、SHA-256及狀態（WRITTEN、VERIFIED、PURGED）；
+ * 分段先寫臨時文件，完成後原子改名
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArchiveSegmentStore {
+
+    public static final String STATUS_WRITTEN = "WRITTEN";
+    public static final String STATUS_VERIFIED = "VERIFIED";
+    public static final String STATUS_PURGED = "PURGED";
+
+    private static final String SEGMENT_SUFFIX = ".seg.gz";
+    private static final String MANIFEST_SUFFIX = ".manifest.json";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int FORMAT_VERSION = 1;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.archive.dir:./archive}")
+    private String archiveDir;
+
+    /**
+     * 分段清單
+     */
+    @Data
+    public static class Manifest {
+        private String table;
+        private String segment;
+        private String timeColumn;
+        private LocalDateTime cutoff;
+        private long minId;
+        private long maxId;
+        private LocalDateTime minTime;
+        private LocalDateTime maxTime;
+        private long rows;
+        /**
+         * 行ID之和，與數據庫核對
+         */
+        private long idSum;
+        private long bytes;
+        private String sha256;
+        private String status;
+        private LocalDateTime createdAt;
+        private LocalDateTime verifiedAt;
+        private LocalDateTime purgedAt;
+    }
+
+    /**
+     * 分段讀取結果
+     */
+    @Data
+    public static class ScanResult {
+        private long rows;
+        private long idSum;
+        private String sha256;
+    }
+
+    /**
+     * 分段寫入器，按行組追加
+     */
+    public final class SegmentWriter implements Closeable {
+        private final Manifest manifest;
+        private final Path tempFile;
+        private final MessageDigest digest;
+        private final BufferedWriter writer;
+        private boolean finished;
+
+        private SegmentWriter(String table, String timeColumn, LocalDateTime cutoff) throws IOException {
+            Path dir = tableDir(table);
+            Files.createDirectories(dir);
+            this.manifest = new Manifest();
+            manifest.setTable(table);
+            manifest.setTimeColumn(timeColumn);
+            manifest.setCutoff(cutoff);
+            manifest.setMinId(Long.MAX_VALUE);
+            manifest.setMaxId(Long.MIN_VALUE);
+            this.tempFile = Files.createTempFile(dir, table + "-", SEGMENT_SUFFIX + TEMP_SUFFIX);
+            this.digest = sha256();
+            OutputStream out = new DigestOutputStream(Files.newOutputStream(tempFile), digest);
+            this.writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(out, 64 * 1024),
+                    StandardCharsets.UTF_8));
+            Map<String, Object> header = new LinkedHashMap<>();
+            header.put("format", FORMAT_VERSION);
+            header.put("table", table);
+            header.put("timeColumn", timeColumn);
+            writeLine(header);
+        }
+
+        /**
+         * 寫入一個行組
+         *
+         * @param columns 列名
+         * @param rows 行值，與列名順序一致
+         * @param ids 各行ID
+         * @param times 各行時間
+         */
+        public void writeRowGroup(List<String> columns, List<Object[]> rows, long[] ids, LocalDateTime[] times)
+                throws IOException {
+            List<List<Object>> values = new ArrayList<>(columns.size());
+            for (int c = 0; c < columns.size(); c++) {
+                List<Object> column = new ArrayList<>(rows.size());
+                for (Object[] row : rows) {
+                    column.add(row[c]);
+                }
+                values.add(column);
+            }
+            Map<String, Object> group = new LinkedHashMap<>();
+            group.put("rows", rows.size());
+            group.put("columns", columns);
+            group.put("values", values);
+            writeLine(group);
+
+            for (int i = 0; i < ids.length; i++) {
+                manifest.setMinId(Math.min(manifest.getMinId(), ids[i]));
+                manifest.setMaxId(Math.max(manifest.getMaxId(), ids[i]));
+                manifest.setIdSum(manifest.getIdSum() + ids[i]);
+                if (times[i] != null) {
+                    if (manifest.getMinTime() == null || times[i].isBefore(manifest.getMinTime())) {
+                        manifest.setMinTime(times[i]);
+                    }
+                    if (manifest.getMaxTime() == null || times[i].isAfter(manifest.getMaxTime())) {
+                        manifest.setMaxTime(times[i]);
+                    }
+                }
+            }
+            manifest.setRows(manifest.getRows() + rows.size());
+        }
+
+        /**
+         * 完成分段：關閉文件、改名並寫入WRITTEN狀態的清單
+         */
+        public Manifest finish() throws IOException {
+            writer.close();
+            finished = true;
+            String name = manifest.getTable() + "-" + manifest.getMinId() + "-" + manifest.getMaxId();
+            Path target = tableDir(manifest.getTable()).resolve(name + SEGMENT_SUFFIX);
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            manifest.setSegment(name);
+            manifest.setBytes(Files.size(target));
+            manifest.setSha256(HexFormat.of().formatHex(digest.digest()));
+            manifest.setStatus(STATUS_WRITTEN);
+            manifest.setCreatedAt(LocalDateTime.now());
+            save(manifest);
+            return manifest;
+        }
+
+        /**
+         * 放棄未完成的分段
+         */
+        public void abort() {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+                // 臨時文件隨後刪除
+            }
+            finished = true;
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                log.warn("刪除歸檔臨時文件失敗: file={}, error={}", tempFile, e.getMessage());
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!finished) {
+                abort();
+            }
+        }
+
+        private void writeLine(Object value) throws IOException {
+            writer.write(objectMapper.writeValueAsString(value));
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * 開始寫入新分段
+     */
+    public SegmentWriter open(String table, String timeColumn, LocalDateTime cutoff) throws IOException {
+        return new SegmentWriter(table, timeColumn, cutoff);
+    }
+
+    /**
+     * 保存清單（先寫臨時文件再改名）
+     */
+    public void save(Manifest manifest) throws IOException {
+        Path dir = tableDir(manifest.getTable());
+        Path target = dir.resolve(manifest.getSegment() + MANIFEST_SUFFIX);
+        Path temp = dir.resolve(manifest.getSegment() + MANIFEST_SUFFIX + TEMP_SUFFIX);
+        Files.write(temp, objectMapper.writeValueAsBytes(manifest));
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 刪除分段及清單（核對失敗時）
+     */
+    public void delete(Manifest manifest) throws IOException {
+        Path dir = tableDir(manifest.getTable());
+        Files.deleteIfExists(dir.resolve(manifest.getSegment() + SEGMENT_SUFFIX));
+        Files.deleteIfExists(dir.resolve(manifest.getSegment() + MANIFEST_SUFFIX));
+    }
+
+    /**
+     * 列出表的所有分段清單，按最小ID排序
+     */
+    public List<Manifest> list(String table) throws IOException {
+        Path dir = tableDir(table);
+        List<Manifest> manifests = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return manifests;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + MANIFEST_SUFFIX)) {
+            for (Path file : stream) {
+                try {
+                    manifests.add(objectMapper.readValue(file.toFile(), Manifest.class));
+                } catch (IOException e) {
+                    log.warn("讀取歸檔清單失敗: file={}, error={}", file, e.getMessage());
+                }
+            }
+        }
+        manifests.sort(Comparator.comparingLong(Manifest::getMinId));
+        return manifests;
+    }
+
+    /**
+     * 順序讀取分段的所有行
+     *
+     * @param manifest 分段清單
+     * @param consumer 行處理，返回false停止讀取；為null時只統計
+     * @return 已讀行數、ID之和及文件SHA-256（提前停止時僅供參考）
+     */
+    @SuppressWarnings("unchecked")
+    public ScanResult scan(Manifest manifest, Predicate<Map<String, Object>> consumer) throws IOException {
+        Path file = tableDir(manifest.getTable()).resolve(manifest.getSegment() + SEGMENT_SUFFIX);
+        MessageDigest digest = sha256();
+        ScanResult result = new ScanResult();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(in, 64 * 1024),
+                     StandardCharsets.UTF_8))) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Map<String, Object> group = objectMapper.readValue(line, Map.class);
+                List<String> columns = (List<String>) group.get("columns");
+                List<List<Object>> values = (List<List<Object>>) group.get("values");
+                int rows = ((Number) group.get("rows")).intValue();
+                int idColumn = columns.indexOf("id");
+                for (int r = 0; r < rows; r++) {
+                    result.setRows(result.getRows() + 1);
+                    if (idColumn >= 0) {
+                        result.setIdSum(result.getIdSum() + ((Number) values.get(idColumn).get(r)).longValue());
+                    }
+                    if (consumer != null) {
+                        Map<String, Object> row = new LinkedHashMap<>();
+                        for (int c = 0; c < columns.size(); c++) {
+                            row.put(columns.get(c), values.get(c).get(r));
+                        }
+                        if (!consumer.test(row)) {
+                            return result;
+                        }
+                    }
+                }
+            }
+            // 讀完解壓流後補讀剩餘字節，保證摘要覆蓋整個文件
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) >= 0) {
+                // 僅推進摘要
+            }
+        }
+        result.setSha256(HexFormat.of().formatHex(digest.digest()));
+        return result;
+    }
+
+    private Path tableDir(String table) {
+        return Paths.get(archiveDir, table);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+}
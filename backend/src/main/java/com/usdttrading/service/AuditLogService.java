@@ -8,6 +8,7 @@ import com.usdttrading.repository.AuditLogMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.usdttrading.entity.SecurityEvent;
 import com.usdttrading.repository.SecurityEventMapper;
@@ -118,6 +119,7 @@ public class AuditLogService {
     /**
      * 分頁查詢審計日誌
      */
+    @Transactional(readOnly = true)
     public Page<AuditLog> getAuditLogs(int page, int size, Long userId, String action, String resource) {
         Page<AuditLog> pageObj = new Page<>(page, size);
         QueryWrapper<AuditLog> wrapper = new QueryWrapper<>();
@@ -141,6 +143,7 @@ public class AuditLogService {
     /**
      * 根據資源查詢操作記錄
      */
+    @Transactional(readOnly = true)
     public Page<AuditLog> getResourceLogs(String resource, String resourceId, int page, int size) {
         Page<AuditLog> pageObj = new Page<>(page, size);
         QueryWrapper<AuditLog> wrapper = new QueryWrapper<>();
@@ -180,6 +183,28 @@ public class AuditLogService {
         }
     }
 
+    /**
+     * 記錄安全告警（帶嚴重程度及關聯數據）
+     */
+    public void logSecurityAlert(Long userId, String eventType, String severity, String description,
+                                 String metadata, String ipAddress, String userAgent) {
+        try {
+            SecurityEvent securityEvent = new SecurityEvent();
+            securityEvent.setUserId(userId);
+            securityEvent.setEventType(eventType);
+            securityEvent.setSeverity(severity);
+            securityEvent.setDescription(description);
+            securityEvent.setMetadata(metadata);
+            securityEvent.setIpAddress(ipAddress);
+            securityEvent.setUserAgent(userAgent);
+            securityEvent.setSuccess(false);
+            securityEvent.setIsResolved(false);
+            securityEventMapper.insert(securityEvent);
+        } catch (Exception e) {
+            log.error("記錄安全告警失敗: eventType={}, userId={}", eventType, userId, e);
+        }
+    }
+
     /**
      * 記錄管理員操作日誌
      */
@@ -0,0 +1,193 @@
+package com.usdttrading.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 認證狀態存儲
+ * 集中管理認證流程使用的Redis鍵（頻率限制、驗證碼、刷新令牌、設備信息、令牌黑名單），
+ * 每個流程的檢查合併為一次MGET，寫入合併為一次管道提交；驗證碼、重設令牌以Lua腳本原子比較並刪除，防止重放。
+ * 值經RedisTemplate的類型化序列化器編碼，腳本參數與存儲值編碼一致，可直接按字節比較
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Service
+@RequiredArgsConstructor
+public class AuthStateStore {
+
+    /**
+     * 驗證碼消費結果：不存在或已過期
+     */
+    public static final long CODE_MISSING = -1L;
+    /**
+     * 驗證碼消費結果：不匹配
+     */
+    public static final long CODE_MISMATCH = 0L;
+    /**
+     * 驗證碼消費結果：匹配並已刪除
+     */
+    public static final long CODE_CONSUMED = 1L;
+
+    private static final long REFRESH_TOKEN_DAYS = 7;
+    private static final long DEVICE_INFO_DAYS = 30;
+
+    /**
+     * 值相等時刪除鍵
+     */
+    private static final RedisScript<Long> CONSUME_SCRIPT = new DefaultRedisScript<>(
+            "local stored = redis.call('GET', KEYS[1]) " +
+            "if not stored then return -1 end " +
+            "if stored == ARGV[1] then redis.call('DEL', KEYS[1]) return 1 end " +
+            "return 0", Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 一次讀取多個鍵（頻率計數、驗證碼等）
+     *
+     * @param keys 鍵
+     * @return 與鍵順序一致的值，不存在為null
+     */
+    public List<Object> read(String... keys) {
+        List<Object> values = redisTemplate.opsForValue().multiGet(Arrays.asList(keys));
+        return values != null ? values : Collections.nCopies(keys.length, null);
+    }
+
+    /**
+     * 讀取頻率計數
+     */
+    public int getAttempts(String rateLimitKey) {
+        return toAttempts(redisTemplate.opsForValue().get(rateLimitKey));
+    }
+
+    /**
+     * 頻率計數加一並重置有效期（INCR與EXPIRE同一管道提交）
+     */
+    public void recordAttempt(String rateLimitKey, long timeout, TimeUnit unit) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                operations.opsForValue().increment(rateLimitKey);
+                operations.expire(rateLimitKey, timeout, unit);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 保存驗證碼並計入發送頻率（一次管道提交）
+     */
+    public void storeCode(String codeKey, String code, long codeTimeout, TimeUnit codeUnit,
+                          String rateLimitKey, long rateTimeout, TimeUnit rateUnit) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                operations.opsForValue().set(codeKey, code, codeTimeout, codeUnit);
+                operations.opsForValue().increment(rateLimitKey);
+                operations.expire(rateLimitKey, rateTimeout, rateUnit);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 原子比較並刪除驗證碼或一次性令牌
+     *
+     * @param key 鍵
+     * @param expected 用戶提交的值
+     * @return CODE_CONSUMED、CODE_MISMATCH 或 CODE_MISSING
+     */
+    public long consume(String key, String expected) {
+        Long result = redisTemplate.execute(CONSUME_SCRIPT, Collections.singletonList(key), expected);
+        return result != null ? result : CODE_MISSING;
+    }
+
+    /**
+     * 註冊成功後的寫入：刪除預註冊驗證碼、保存刷新令牌、計入註冊頻率（一次管道提交）
+     */
+    public void completeRegistration(Long userId, String refreshToken, String codeKey,
+                                     String rateLimitKey, long rateTimeout, TimeUnit rateUnit) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                operations.delete(codeKey);
+                operations.opsForValue().set(refreshTokenKey(userId), refreshToken, REFRESH_TOKEN_DAYS, TimeUnit.DAYS);
+                operations.opsForValue().increment(rateLimitKey);
+                operations.expire(rateLimitKey, rateTimeout, rateUnit);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 登錄成功後的寫入：保存刷新令牌、設備信息，清除登錄失敗計數（一次管道提交）
+     */
+    public void completeLogin(Long userId, String refreshToken, String deviceFingerprint,
+                              Map<String, Object> deviceInfo, String rateLimitKey) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                operations.opsForValue().set(refreshTokenKey(userId), refreshToken, REFRESH_TOKEN_DAYS, TimeUnit.DAYS);
+                operations.opsForValue().set("user_device:" + userId + ":" + deviceFingerprint, deviceInfo,
+                        DEVICE_INFO_DAYS, TimeUnit.DAYS);
+                operations.delete(rateLimitKey);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 登出：訪問令牌加入黑名單並刪除刷新令牌（一次管道提交）
+     */
+    public void revoke(Long userId, String accessToken, long accessTokenTtlMillis) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                if (accessToken != null && !accessToken.isEmpty()) {
+                    operations.opsForValue().set("jwt_blacklist:" + accessToken, "logout",
+                            accessTokenTtlMillis, TimeUnit.MILLISECONDS);
+                }
+                operations.delete(refreshTokenKey(userId));
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 讀取用戶當前的刷新令牌
+     */
+    public String getRefreshToken(Long userId) {
+        Object value = redisTemplate.opsForValue().get(refreshTokenKey(userId));
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * 頻率計數值轉為次數
+     */
+    public static int toAttempts(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    private static String refreshTokenKey(Long userId) {
+        return "refresh_token:" + userId;
+    }
+}
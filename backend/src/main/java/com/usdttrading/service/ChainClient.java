@@ -0,0 +1,132 @@
+package com.usdttrading.service;
+
+import com.usdttrading.entity.PlatformWallet;
+import com.usdttrading.entity.Wallet;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 出款鏈客戶端
+ * 每個網絡（TRC20、ERC20）一個實現，負責簽名、廣播及查詢交易狀態；
+ * 私鑰只在實現內部解密使用，出款引擎（WithdrawalProcessor）不接觸私鑰
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+public interface ChainClient {
+
+    /**
+     * 廣播結果
+     */
+    enum BroadcastResult {
+        /**
+         * 節點已接收（包括重複廣播同一筆交易）
+         */
+        ACCEPTED,
+        /**
+         * 節點拒絕，重播同一筆交易不會成功
+         */
+        REJECTED
+    }
+
+    /**
+     * 鏈上交易狀態
+     */
+    enum TransferState {
+        /**
+         * 節點查無此交易
+         */
+        NOT_FOUND,
+        /**
+         * 已廣播、尚未打包
+         */
+        PENDING,
+        /**
+         * 已打包且執行成功
+         */
+        INCLUDED,
+        /**
+         * 已打包但執行失敗
+         */
+        FAILED,
+        /**
+         * 已過期，不會再被打包
+         */
+        EXPIRED
+    }
+
+    /**
+     * 已簽名交易
+     */
+    @Data
+    @AllArgsConstructor
+    class SignedTransfer {
+        private final String txHash;
+        private final String payload;
+    }
+
+    /**
+     * 交易狀態
+     */
+    @Data
+    @AllArgsConstructor
+    class TransferStatus {
+        private final TransferState state;
+        private final Long blockNumber;
+        private final int confirmations;
+        private final BigDecimal networkFee;
+    }
+
+    /**
+     * 支持的網絡（與Withdrawal.network一致，如TRC20）
+     */
+    String getNetwork();
+
+    /**
+     * 地址是否屬於本網絡，用於篩選出款熱錢包
+     */
+    boolean acceptsAddress(String address);
+
+    /**
+     * 估算單筆轉賬的網絡手續費
+     */
+    BigDecimal estimateFee(PlatformWallet from, String toAddress, BigDecimal amount);
+
+    /**
+     * 簽名轉賬交易
+     * 相同參數必須得到相同的交易哈希，重播時直接廣播已保存的簽名結果
+     *
+     * @param from 出款熱錢包
+     * @param toAddress 收款地址
+     * @param amount 轉賬金額
+     * @param nonce 出款序號
+     * @param feeLimit 手續費上限
+     * @return 已簽名交易
+     */
+    SignedTransfer sign(PlatformWallet from, String toAddress, BigDecimal amount, long nonce, BigDecimal feeLimit);
+
+    /**
+     * 簽名從用戶充值地址歸集的轉賬交易
+     * 充值地址本身沒有手續費資源時，由實現負責從手續費錢包補充
+     *
+     * @param from 用戶錢包（充值地址）
+     * @param toAddress 歸集目標地址
+     * @param amount 轉賬金額
+     * @param feeLimit 手續費上限
+     * @return 已簽名交易
+     */
+    SignedTransfer signSweep(Wallet from, String toAddress, BigDecimal amount, BigDecimal feeLimit);
+
+    /**
+     * 廣播已簽名交易，網絡或節點暫時不可用時拋出異常
+     */
+    BroadcastResult broadcast(String txHash, String payload);
+
+    /**
+     * 查詢交易狀態
+     */
+    TransferStatus getStatus(String txHash);
+}
@@ -0,0 +1,543 @@
+package com.usdttrading.service;
+
+import com.usdttrading.service.ArchiveSegmentStore.Manifest;
+import com.usdttrading.service.ArchiveSegmentStore.ScanResult;
+import com.usdttrading.service.ArchiveSegmentStore.SegmentWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 歷史數據歸檔服務
+ * 價格歷史、操作日誌、安全事件超過保留期的行按主鍵游標分批讀出，寫入本地歸檔分段，
+ * 核對分段與數據庫的行數及ID校驗和後，按小批量物理刪除，每批之間暫停，避免長時間持鎖。
+ * 已分區的表由本服務維護按月範圍分區：提前建好未來月份的分區，刪除早於保留期且已清空的分區。
+ * 歸檔數據可按表、時間範圍（及用戶）即時查詢
+ * <p>
+ * 僅主節點執行；歸檔目錄應為共享存儲，查詢才能在任意節點讀到全部分段。
+ * 歸檔及分區維護在獨立線程執行，一次歸檔可能持續數分鐘，不佔用定時任務線程和請求線程
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DataArchiveService {
+
+    private static final String LEADER_ROLE = "data-archive";
+    private static final DateTimeFormatter PARTITION_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final String MAX_PARTITION = "pmax";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ArchiveSegmentStore segmentStore;
+    private final LeaderElectionService leaderElectionService;
+
+    @Value("${app.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.archive.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${app.archive.segment-rows:200000}")
+    private long segmentRows;
+
+    @Value("${app.archive.max-rows-per-run:2000000}")
+    private long maxRowsPerRun;
+
+    @Value("${app.archive.delete-batch-size:1000}")
+    private int deleteBatchSize;
+
+    @Value("${app.archive.delete-pause-ms:50}")
+    private long deletePauseMs;
+
+    @Value("${app.archive.partition-months-ahead:3}")
+    private int partitionMonthsAhead;
+
+    @Value("${app.archive.price-history-retention-days:90}")
+    private int priceHistoryRetentionDays;
+
+    @Value("${app.archive.audit-logs-retention-days:365}")
+    private int auditLogsRetentionDays;
+
+    @Value("${app.archive.security-events-retention-days:365}")
+    private int securityEventsRetentionDays;
+
+    private final Map<String, ArchiveTable> tables = new LinkedHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicReference<String> currentJob = new AtomicReference<>();
+    private volatile String lastJobId;
+    private final AtomicLong archivedRows = new AtomicLong();
+    private final AtomicLong purgedRows = new AtomicLong();
+    private final AtomicLong segmentsWritten = new AtomicLong();
+    private final AtomicLong verifyFailures = new AtomicLong();
+    private final AtomicLong partitionsAdded = new AtomicLong();
+    private final AtomicLong partitionsDropped = new AtomicLong();
+    private final Map<String, Map<String, Object>> lastRuns = new ConcurrentHashMap<>();
+
+    /**
+     * 歸檔表定義，表名及列名為固定值，可安全拼入SQL
+     */
+    private static final class ArchiveTable {
+        private final String name;
+        private final String timeColumn;
+        private final int retentionDays;
+
+        private ArchiveTable(String name, String timeColumn, int retentionDays) {
+            this.name = name;
+            this.timeColumn = timeColumn;
+            this.retentionDays = retentionDays;
+        }
+
+        private LocalDateTime cutoff() {
+            return LocalDate.now().minusDays(retentionDays).atStartOfDay();
+        }
+    }
+
+    /**
+     * 一批讀出的行
+     */
+    private static final class RowBatch {
+        private final List<String> columns = new ArrayList<>();
+        private final List<Object[]> rows = new ArrayList<>();
+        private final List<Long> ids = new ArrayList<>();
+        private final List<LocalDateTime> times = new ArrayList<>();
+    }
+
+    @PostConstruct
+    public void init() {
+        register(new ArchiveTable("price_history", "timestamp", priceHistoryRetentionDays));
+        register(new ArchiveTable("audit_logs", "created_at", auditLogsRetentionDays));
+        register(new ArchiveTable("security_events", "created_at", securityEventsRetentionDays));
+    }
+
+    private void register(ArchiveTable table) {
+        tables.put(table.name, table);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 定時歸檔
+     */
+    @Scheduled(cron = "${app.archive.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        if (!enabled || !leaderElectionService.isLeader(LEADER_ROLE)) {
+            return;
+        }
+        submit("scheduled");
+    }
+
+    /**
+     * 定時維護分區
+     */
+    @Scheduled(cron = "${app.archive.partition-cron:0 0 2 * * *}")
+    public void scheduledPartitionMaintenance() {
+        if (!enabled || !leaderElectionService.isLeader(LEADER_ROLE)) {
+            return;
+        }
+        executor.execute(this::maintainPartitions);
+    }
+
+    /**
+     * 立即執行一次歸檔（管理接口），提交後即返回，進度通過狀態接口查看
+     *
+     * @return 歸檔任務ID，已在執行時返回正在執行的任務ID
+     */
+    public String runNow() {
+        if (!enabled) {
+            throw new IllegalStateException("歸檔未啟用");
+        }
+        return submit("manual");
+    }
+
+    private String submit(String trigger) {
+        String jobId = UUID.randomUUID().toString().replace("-", "");
+        String current = currentJob.compareAndExchange(null, jobId);
+        if (current != null) {
+            log.info("歸檔正在執行，跳過本次觸發: jobId={}, trigger={}", current, trigger);
+            return current;
+        }
+        try {
+            executor.execute(() -> runAll(jobId));
+        } catch (RejectedExecutionException e) {
+            currentJob.set(null);
+            throw e;
+        }
+        log.info("歸檔任務已提交: jobId={}, trigger={}", jobId, trigger);
+        return jobId;
+    }
+
+    private void runAll(String jobId) {
+        try {
+            for (ArchiveTable table : tables.values()) {
+                Map<String, Object> run = new LinkedHashMap<>();
+                run.put("jobId", jobId);
+                run.put("startedAt", LocalDateTime.now());
+                try {
+                    run.putAll(archiveTable(table));
+                } catch (Exception e) {
+                    log.error("歸檔失敗: table={}, error={}", table.name, e.getMessage(), e);
+                    run.put("error", e.getMessage());
+                }
+                run.put("finishedAt", LocalDateTime.now());
+                lastRuns.put(table.name, run);
+            }
+        } finally {
+            lastJobId = jobId;
+            currentJob.set(null);
+        }
+    }
+
+    private Map<String, Object> archiveTable(ArchiveTable table) throws IOException {
+        // 先完成上次中斷的分段
+        for (Manifest manifest : segmentStore.list(table.name)) {
+            if (!ArchiveSegmentStore.STATUS_PURGED.equals(manifest.getStatus())) {
+                log.info("續做未完成的歸檔分段: table={}, segment={}, status={}",
+                        table.name, manifest.getSegment(), manifest.getStatus());
+                if (ArchiveSegmentStore.STATUS_VERIFIED.equals(manifest.getStatus()) || verify(table, manifest)) {
+                    purge(table, manifest);
+                }
+            }
+        }
+
+        LocalDateTime cutoff = table.cutoff();
+        long lastId = 0;
+        long total = 0;
+        int segments = 0;
+        boolean exhausted = false;
+        while (!exhausted && total < maxRowsPerRun) {
+            Manifest manifest;
+            try (SegmentWriter writer = segmentStore.open(table.name, table.timeColumn, cutoff)) {
+                long segmentCount = 0;
+                while (segmentCount < segmentRows && total < maxRowsPerRun) {
+                    int limit = (int) Math.min(batchSize, maxRowsPerRun - total);
+                    RowBatch batch = fetch(table, lastId, cutoff, limit);
+                    if (!batch.rows.isEmpty()) {
+                        writer.writeRowGroup(batch.columns, batch.rows,
+                                batch.ids.stream().mapToLong(Long::longValue).toArray(),
+                                batch.times.toArray(new LocalDateTime[0]));
+                        lastId = batch.ids.get(batch.ids.size() - 1);
+                        segmentCount += batch.rows.size();
+                        total += batch.rows.size();
+                    }
+                    if (batch.rows.size() < limit) {
+                        exhausted = true;
+                        break;
+                    }
+                }
+                if (segmentCount == 0) {
+                    break;
+                }
+                manifest = writer.finish();
+            }
+            segments++;
+            segmentsWritten.incrementAndGet();
+            archivedRows.addAndGet(manifest.getRows());
+            log.info("歸檔分段已寫入: table={}, segment={}, rows={}, bytes={}",
+                    table.name, manifest.getSegment(), manifest.getRows(), manifest.getBytes());
+            if (!verify(table, manifest)) {
+                // 分段已刪除，下次從頭重新歸檔這些行
+                break;
+            }
+            purge(table, manifest);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("cutoff", cutoff);
+        result.put("rows", total);
+        result.put("segments", segments);
+        return result;
+    }
+
+    private RowBatch fetch(ArchiveTable table, long lastId, LocalDateTime cutoff, int limit) {
+        String sql = "SELECT * FROM " + table.name + " WHERE id > ? AND " + table.timeColumn + " < ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.query(sql, rs -> {
+            RowBatch batch = new RowBatch();
+            ResultSetMetaData meta = rs.getMetaData();
+            int count = meta.getColumnCount();
+            int timeIndex = -1;
+            for (int i = 1; i <= count; i++) {
+                String column = meta.getColumnLabel(i);
+                batch.columns.add(column);
+                if (column.equalsIgnoreCase(table.timeColumn)) {
+                    timeIndex = i;
+                }
+            }
+            while (rs.next()) {
+                Object[] row = new Object[count];
+                for (int i = 1; i <= count; i++) {
+                    row[i - 1] = normalize(rs.getObject(i));
+                }
+                batch.rows.add(row);
+                batch.ids.add(rs.getLong("id"));
+                Timestamp time = timeIndex > 0 ? rs.getTimestamp(timeIndex) : null;
+                batch.times.add(time != null ? time.toLocalDateTime() : null);
+            }
+            return batch;
+        }, lastId, Timestamp.valueOf(cutoff), limit);
+    }
+
+    /**
+     * 核對分段：文件完整（行數、ID之和、SHA-256）且與數據庫中同範圍的行一致
+     */
+    private boolean verify(ArchiveTable table, Manifest manifest) throws IOException {
+        ScanResult scan = segmentStore.scan(manifest, null);
+        Map<String, Object> db = jdbcTemplate.queryForMap(
+                "SELECT COUNT(*) AS row_count, COALESCE(SUM(id), 0) AS id_sum FROM " + table.name +
+                " WHERE id BETWEEN ? AND ? AND " + table.timeColumn + " < ?",
+                manifest.getMinId(), manifest.getMaxId(), Timestamp.valueOf(manifest.getCutoff()));
+        long dbRows = ((Number) db.get("row_count")).longValue();
+        long dbIdSum = ((Number) db.get("id_sum")).longValue();
+
+        boolean fileIntact = scan.getRows() == manifest.getRows() && scan.getIdSum() == manifest.getIdSum()
+                && manifest.getSha256().equals(scan.getSha256());
+        boolean matchesDb = dbRows == manifest.getRows() && dbIdSum == manifest.getIdSum();
+        if (fileIntact && matchesDb) {
+            manifest.setStatus(ArchiveSegmentStore.STATUS_VERIFIED);
+            manifest.setVerifiedAt(LocalDateTime.now());
+            segmentStore.save(manifest);
+            return true;
+        }
+        verifyFailures.incrementAndGet();
+        log.error("歸檔分段核對失敗，丟棄分段: table={}, segment={}, fileRows={}, manifestRows={}, dbRows={}, fileIntact={}",
+                table.name, manifest.getSegment(), scan.getRows(), manifest.getRows(), dbRows, fileIntact);
+        segmentStore.delete(manifest);
+        return false;
+    }
+
+    /**
+     * 小批量物理刪除已核對的行
+     */
+    private void purge(ArchiveTable table, Manifest manifest) throws IOException {
+        String sql = "DELETE FROM " + table.name + " WHERE id BETWEEN ? AND ? AND " + table.timeColumn + " < ? LIMIT ?";
+        Timestamp cutoff = Timestamp.valueOf(manifest.getCutoff());
+        long deleted = 0;
+        int affected;
+        do {
+            affected = jdbcTemplate.update(sql, manifest.getMinId(), manifest.getMaxId(), cutoff, deleteBatchSize);
+            deleted += affected;
+            if (affected == deleteBatchSize && deletePauseMs > 0) {
+                try {
+                    Thread.sleep(deletePauseMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("歸檔刪除被中斷", e);
+                }
+            }
+        } while (affected == deleteBatchSize);
+
+        purgedRows.addAndGet(deleted);
+        manifest.setStatus(ArchiveSegmentStore.STATUS_PURGED);
+        manifest.setPurgedAt(LocalDateTime.now());
+        segmentStore.save(manifest);
+        log.info("歸檔分段已清理: table={}, segment={}, deleted={}", table.name, manifest.getSegment(), deleted);
+    }
+
+    /**
+     * 維護已分區表的按月分區
+     */
+    public void maintainPartitions() {
+        for (ArchiveTable table : tables.values()) {
+            try {
+                maintainPartitions(table);
+            } catch (Exception e) {
+                log.error("維護分區失敗: table={}, error={}", table.name, e.getMessage(), e);
+            }
+        }
+    }
+
+    private void maintainPartitions(ArchiveTable table) {
+        List<Map<String, Object>> partitions = jdbcTemplate.queryForList(
+                "SELECT PARTITION_NAME AS name, PARTITION_DESCRIPTION AS bound FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL " +
+                "ORDER BY PARTITION_ORDINAL_POSITION", table.name);
+        if (partitions.isEmpty()) {
+            log.debug("表未分區，跳過分區維護: table={}", table.name);
+            return;
+        }
+        String last = String.valueOf(partitions.get(partitions.size() - 1).get("name"));
+        if (!MAX_PARTITION.equals(last)) {
+            log.warn("表的最後一個分區不是{}，跳過分區維護: table={}", MAX_PARTITION, table.name);
+            return;
+        }
+
+        // 補齊當月至未來N個月的分區
+        List<String> additions = new ArrayList<>();
+        long highestBound = 0;
+        for (Map<String, Object> partition : partitions) {
+            if (!MAX_PARTITION.equals(partition.get("name"))) {
+                highestBound = Math.max(highestBound, Long.parseLong(String.valueOf(partition.get("bound"))));
+            }
+        }
+        YearMonth month = YearMonth.now();
+        for (int i = 0; i <= partitionMonthsAhead; i++, month = month.plusMonths(1)) {
+            String upper = month.plusMonths(1).atDay(1).atStartOfDay().toString().replace('T', ' ');
+            long bound = unixTimestamp(upper);
+            if (bound > highestBound) {
+                additions.add("PARTITION " + month.atDay(1).format(PARTITION_FORMAT) +
+                        " VALUES LESS THAN (UNIX_TIMESTAMP('" + upper + "'))");
+                highestBound = bound;
+            }
+        }
+        if (!additions.isEmpty()) {
+            jdbcTemplate.execute("ALTER TABLE " + table.name + " REORGANIZE PARTITION " + MAX_PARTITION + " INTO (" +
+                    String.join(", ", additions) + ", PARTITION " + MAX_PARTITION + " VALUES LESS THAN MAXVALUE)");
+            partitionsAdded.addAndGet(additions.size());
+            log.info("已新增分區: table={}, partitions={}", table.name, additions.size());
+        }
+
+        // 刪除早於保留期且已清空的分區（數據已歸檔並刪除）
+        long cutoff = unixTimestamp(table.cutoff().toString().replace('T', ' '));
+        for (Map<String, Object> partition : partitions) {
+            String name = String.valueOf(partition.get("name"));
+            if (MAX_PARTITION.equals(name) || Long.parseLong(String.valueOf(partition.get("bound"))) > cutoff) {
+                continue;
+            }
+            List<Long> remaining = jdbcTemplate.queryForList(
+                    "SELECT id FROM " + table.name + " PARTITION (" + name + ") LIMIT 1", Long.class);
+            if (remaining.isEmpty()) {
+                jdbcTemplate.execute("ALTER TABLE " + table.name + " DROP PARTITION " + name);
+                partitionsDropped.incrementAndGet();
+                log.info("已刪除空分區: table={}, partition={}", table.name, name);
+            }
+        }
+    }
+
+    private long unixTimestamp(String dateTime) {
+        Long value = jdbcTemplate.queryForObject("SELECT UNIX_TIMESTAMP(?)", Long.class, dateTime);
+        return value != null ? value : 0L;
+    }
+
+    /**
+     * 列出表的歸檔分段
+     */
+    public List<Manifest> listSegments(String table) throws IOException {
+        return segmentStore.list(requireTable(table).name);
+    }
+
+    /**
+     * 查詢歸檔數據
+     *
+     * @param table 表名
+     * @param from 開始時間（含）
+     * @param to 結束時間（不含）
+     * @param userId 用戶ID，可選，僅對含user_id列的表生效
+     * @param limit 最多返回行數
+     * @return 按ID順序的行
+     */
+    public List<Map<String, Object>> query(String table, LocalDateTime from, LocalDateTime to, Long userId, int limit)
+            throws IOException {
+        ArchiveTable archiveTable = requireTable(table);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Manifest manifest : segmentStore.list(archiveTable.name)) {
+            if (rows.size() >= limit) {
+                break;
+            }
+            if (manifest.getMinTime() == null || manifest.getMaxTime() == null
+                    || manifest.getMaxTime().isBefore(from) || !manifest.getMinTime().isBefore(to)) {
+                continue;
+            }
+            segmentStore.scan(manifest, row -> {
+                Object time = row.get(archiveTable.timeColumn);
+                if (time == null) {
+                    return true;
+                }
+                LocalDateTime rowTime = LocalDateTime.parse(String.valueOf(time));
+                if (rowTime.isBefore(from) || !rowTime.isBefore(to)) {
+                    return true;
+                }
+                if (userId != null && !String.valueOf(userId).equals(String.valueOf(row.get("user_id")))) {
+                    return true;
+                }
+                rows.add(row);
+                return rows.size() < limit;
+            });
+        }
+        return rows;
+    }
+
+    /**
+     * 獲取歸檔狀態
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("leader", leaderElectionService.wasLeader(LEADER_ROLE));
+        status.put("running", currentJob.get() != null);
+        status.put("currentJobId", currentJob.get());
+        status.put("lastJobId", lastJobId);
+        Map<String, Object> retention = new LinkedHashMap<>();
+        tables.values().forEach(table -> retention.put(table.name, table.retentionDays));
+        status.put("retentionDays", retention);
+        status.put("archivedRows", archivedRows.get());
+        status.put("purgedRows", purgedRows.get());
+        status.put("segmentsWritten", segmentsWritten.get());
+        status.put("verifyFailures", verifyFailures.get());
+        status.put("partitionsAdded", partitionsAdded.get());
+        status.put("partitionsDropped", partitionsDropped.get());
+        status.put("lastRuns", new LinkedHashMap<>(lastRuns));
+        return status;
+    }
+
+    private ArchiveTable requireTable(String table) {
+        ArchiveTable archiveTable = table != null ? tables.get(table) : null;
+        if (archiveTable == null) {
+            throw new IllegalArgumentException("不支持的歸檔表: " + table);
+        }
+        return archiveTable;
+    }
+
+    /**
+     * 值轉為JSON友好的類型：時間為ISO文本，小數保留精度，二進制為Base64
+     */
+    private static Object normalize(Object value) {
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime().toString();
+        }
+        if (value instanceof LocalDateTime) {
+            return value.toString();
+        }
+        if (value instanceof java.sql.Date) {
+            return ((java.sql.Date) value).toLocalDate().toString();
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof byte[]) {
+            return Base64.getEncoder().encodeToString((byte[]) value);
+        }
+        return value;
+    }
+}
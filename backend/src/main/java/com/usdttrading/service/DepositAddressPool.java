@@ -0,0 +1,329 @@
+package com.usdttrading.service;
+
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.usdttrading.entity.DepositAddress;
+import com.usdttrading.repository.DepositAddressMapper;
+import com.usdttrading.repository.WalletMapper;
+import com.usdttrading.utils.EthAddressUtil;
+import com.usdttrading.utils.FutureUtils;
+import com.usdttrading.utils.HdPublicKeyDeriver;
+import com.usdttrading.utils.TronAddressUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 充值地址池服務
+ * 主節點後台按擴展公鑰（賬戶級xpub，external鏈 .../0/i）預先推導TRC20、ERC20地址，
+ * 未分配地址低於低水位時補充到目標數量；用戶申請地址時以一條 FOR UPDATE SKIP LOCKED 事務原子領取，
+ * 請求路徑上不做任何密鑰運算。各節點按 (assigned_at, id) 游標增量同步已分配地址，
+ * 在內存維護地址到用戶的索引供充值掃描O(1)匹配
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DepositAddressPool {
+
+    public static final String NETWORK_TRC20 = "TRC20";
+    public static final String NETWORK_ERC20 = "ERC20";
+    private static final String LEADER_ROLE = "address-pool-filler";
+    private static final int SYNC_BATCH_SIZE = 1000;
+
+    private final DepositAddressMapper depositAddressMapper;
+    private final WalletMapper walletMapper;
+    private final LeaderElectionService leaderElectionService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.address-pool.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.address-pool.trc20.xpub:}")
+    private String trc20Xpub;
+
+    @Value("${app.address-pool.erc20.xpub:}")
+    private String erc20Xpub;
+
+    @Value("${app.address-pool.low-watermark:500}")
+    private int lowWatermark;
+
+    @Value("${app.address-pool.target-size:2000}")
+    private int targetSize;
+
+    @Value("${app.address-pool.fill-chunk:200}")
+    private int fillChunk;
+
+    @Value("${app.address-pool.sync-lookback-seconds:60}")
+    private int syncLookbackSeconds;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong derived = new AtomicLong();
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    /**
+     * 網絡 -> external鏈節點（.../0），子地址由此按索引推導
+     */
+    private final Map<String, HdPublicKeyDeriver> externalChains = new ConcurrentHashMap<>();
+
+    /**
+     * 網絡 -> (地址 -> 用戶ID)，ERC20地址統一小寫
+     */
+    private final Map<String, Map<String, Long>> addressIndex = new ConcurrentHashMap<>();
+
+    private volatile LocalDateTime syncCursor = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @PostConstruct
+    public void init() {
+        registerChain(NETWORK_TRC20, trc20Xpub);
+        registerChain(NETWORK_ERC20, erc20Xpub);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 網絡是否已配置地址池
+     */
+    public boolean supports(String network) {
+        return enabled && externalChains.containsKey(network);
+    }
+
+    /**
+     * 為用戶領取充值地址（已領取則直接返回原地址）
+     *
+     * @param userId 用戶ID
+     * @param network 網絡類型
+     * @return 地址，地址池未配置或已耗盡時返回null
+     */
+    public String claimAddress(Long userId, String network) {
+        if (!supports(network)) {
+            return null;
+        }
+        DepositAddress existing = depositAddressMapper.selectByUser(network, userId);
+        if (existing != null) {
+            return existing.getAddress();
+        }
+        DepositAddress address;
+        try {
+            address = transactionTemplate.execute(status -> claimInTransaction(userId, network));
+        } catch (DuplicateKeyException e) {
+            // 同一用戶併發領取，以先提交者為準
+            existing = depositAddressMapper.selectByUser(network, userId);
+            return existing != null ? existing.getAddress() : null;
+        }
+        if (address == null) {
+            exhausted.incrementAndGet();
+            log.warn("充值地址池已耗盡: network={}, userId={}", network, userId);
+            return null;
+        }
+        claimed.incrementAndGet();
+        indexOf(network).put(indexKey(network, address.getAddress()), userId);
+        log.info("分配充值地址: network={}, userId={}, index={}", network, userId, address.getDerivationIndex());
+        return address.getAddress();
+    }
+
+    /**
+     * 按地址查找所屬用戶
+     *
+     * @param network 網絡類型
+     * @param address 地址
+     * @return 用戶ID，不屬於地址池時返回null
+     */
+    public Long lookupUser(String network, String address) {
+        if (address == null) {
+            return null;
+        }
+        Map<String, Long> index = addressIndex.get(network);
+        return index != null ? index.get(indexKey(network, address)) : null;
+    }
+
+    /**
+     * 補充地址池（主節點）
+     */
+    @Scheduled(fixedDelayString = "${app.address-pool.fill-interval-ms:30000}")
+    public void fill() {
+        if (!enabled || externalChains.isEmpty() || !leaderElectionService.isLeader(LEADER_ROLE)) {
+            return;
+        }
+        for (String network : externalChains.keySet()) {
+            try {
+                fillNetwork(network);
+            } catch (Exception e) {
+                log.error("補充充值地址池失敗: network={}, error={}", network, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 增量同步已分配地址索引（所有節點）
+     */
+    @Scheduled(fixedDelayString = "${app.address-pool.sync-interval-ms:5000}")
+    public void syncIndex() {
+        if (!enabled || externalChains.isEmpty()) {
+            return;
+        }
+        try {
+            // 回看窗口覆蓋提交順序與分配時間不一致的事務，重複讀取的地址只是覆蓋寫
+            LocalDateTime at = syncCursor.minusSeconds(syncLookbackSeconds);
+            long lastId = 0L;
+            LocalDateTime newest = syncCursor;
+            while (true) {
+                List<DepositAddress> batch = depositAddressMapper.selectAssignedAfter(at, lastId, SYNC_BATCH_SIZE);
+                for (DepositAddress address : batch) {
+                    indexOf(address.getNetwork()).put(indexKey(address.getNetwork(), address.getAddress()), address.getUserId());
+                    at = address.getAssignedAt();
+                    lastId = address.getId();
+                    if (at.isAfter(newest)) {
+                        newest = at;
+                    }
+                }
+                if (batch.size() < SYNC_BATCH_SIZE) {
+                    break;
+                }
+            }
+            syncCursor = newest;
+        } catch (Exception e) {
+            log.error("同步充值地址索引失敗: error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 獲取地址池狀態
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("leader", leaderElectionService.wasLeader(LEADER_ROLE));
+        status.put("lowWatermark", lowWatermark);
+        status.put("targetSize", targetSize);
+        Map<String, Object> networks = new LinkedHashMap<>();
+        for (String network : externalChains.keySet()) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("available", depositAddressMapper.countAvailable(network));
+            item.put("indexed", indexOf(network).size());
+            networks.put(network, item);
+        }
+        status.put("networks", networks);
+        status.put("derived", derived.get());
+        status.put("claimed", claimed.get());
+        status.put("exhausted", exhausted.get());
+        return status;
+    }
+
+    private DepositAddress claimInTransaction(Long userId, String network) {
+        DepositAddress existing = depositAddressMapper.selectByUser(network, userId);
+        if (existing != null) {
+            return existing;
+        }
+        DepositAddress address = depositAddressMapper.lockAvailable(network);
+        if (address == null) {
+            return null;
+        }
+        if (depositAddressMapper.assign(address.getId(), userId, LocalDateTime.now()) != 1) {
+            throw new IllegalStateException("充值地址分配衝突: id=" + address.getId());
+        }
+        if (NETWORK_TRC20.equals(network)) {
+            walletMapper.bindAddress(userId, address.getAddress());
+        }
+        return address;
+    }
+
+    private void fillNetwork(String network) throws InterruptedException {
+        long available = depositAddressMapper.countAvailable(network);
+        if (available >= lowWatermark) {
+            return;
+        }
+        int next = depositAddressMapper.selectMaxIndex(network) + 1;
+        long missing = targetSize - available;
+        log.info("補充充值地址池: network={}, available={}, fromIndex={}, count={}", network, available, next, missing);
+        while (missing > 0) {
+            int count = (int) Math.min(fillChunk, missing);
+            List<DepositAddress> chunk = deriveRange(network, next, count);
+            depositAddressMapper.insertBatch(chunk);
+            derived.addAndGet(chunk.size());
+            next += count;
+            missing -= count;
+        }
+    }
+
+    /**
+     * 併發推導 [from, from + count) 的地址
+     */
+    private List<DepositAddress> deriveRange(String network, int from, int count) throws InterruptedException {
+        HdPublicKeyDeriver chain = externalChains.get(network);
+        List<Future<String>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = from + i;
+            futures.add(executor.submit(() -> toAddress(network, chain.derive(index).getUncompressedPublicKey())));
+        }
+        List<DepositAddress> addresses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String value;
+            try {
+                value = FutureUtils.await(futures.get(i));
+            } catch (IllegalStateException e) {
+                // BIP32無效索引（概率可忽略），跳過
+                log.warn("跳過無效推導索引: network={}, index={}", network, from + i);
+                continue;
+            }
+            DepositAddress address = new DepositAddress();
+            address.setId(IdWorker.getId());
+            address.setNetwork(network);
+            address.setAddress(value);
+            address.setDerivationIndex(from + i);
+            addresses.add(address);
+        }
+        return addresses;
+    }
+
+    private void registerChain(String network, String xpub) {
+        if (xpub == null || xpub.isBlank()) {
+            return;
+        }
+        try {
+            externalChains.put(network, HdPublicKeyDeriver.fromExtendedKey(xpub.trim()).derive(0));
+            log.info("充值地址池已啟用: network={}", network);
+        } catch (IllegalArgumentException e) {
+            log.error("充值地址池擴展公鑰無效: network={}, error={}", network, e.getMessage());
+        }
+    }
+
+    private Map<String, Long> indexOf(String network) {
+        return addressIndex.computeIfAbsent(network, key -> new ConcurrentHashMap<>());
+    }
+
+    private static String toAddress(String network, byte[] publicKey) {
+        return NETWORK_TRC20.equals(network)
+                ? TronAddressUtil.fromPublicKey(publicKey)
+                : EthAddressUtil.fromPublicKey(publicKey);
+    }
+
+    private static String indexKey(String network, String address) {
+        return NETWORK_ERC20.equals(network) ? address.toLowerCase(Locale.ROOT) : address;
+    }
+}
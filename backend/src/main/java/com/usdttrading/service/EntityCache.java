@@ -0,0 +1,504 @@
+package com.usdttrading.service;
+
+import cn.hutool.core.bean.BeanUtil;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.usdttrading.entity.User;
+import com.usdttrading.entity.UserKyc;
+import com.usdttrading.entity.Wallet;
+import com.usdttrading.repository.UserKycMapper;
+import com.usdttrading.repository.UserMapper;
+import com.usdttrading.repository.WalletMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * 實體二級緩存
+ * 交易資格檢查高頻讀取的用戶、KYC、錢包按 L1本地LRU + L2 Redis 兩級緩存：用戶按ID，KYC及錢包按用戶ID。
+ * <ul>
+ *     <li>緩存的是去除敏感字段的只讀副本（不含密碼哈希、谷歌驗證密鑰、錢包私鑰及KYC個人資料），
+ *     只用於資格判斷及展示；需要修改後寫回的路徑（凍結餘額、審核）仍直接查詢Mapper</li>
+ *     <li>三張表的每條寫語句由MyBatis攔截器在提交（或回滾）後失效對應鍵，並經Redis pub/sub通知其他節點；
+ *     無法確定鍵的寫入（條件構造器更新、按主鍵的原生SQL）整體失效該區域，通過遞增代次使L2舊鍵不再被讀取</li>
+ *     <li>失效時寫入短期墓碑，阻止失效前已讀到舊值的請求回填L2；本地回填前核對失效戳，避免回填舊值</li>
+ * </ul>
+ * 繞過MyBatis的直接改庫由L1、L2有效期兜底
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EntityCache implements MessageListener {
+
+    public static final String REGION_USER = "user";
+    public static final String REGION_KYC = "kyc";
+    public static final String REGION_WALLET = "wallet";
+
+    private static final String INVALIDATE_CHANNEL = "entity-cache:invalidate";
+    private static final String KEY_PREFIX = "entity:";
+    private static final long TOMBSTONE_MS = 5000;
+    private static final int SEGMENTS = 16;
+
+    /**
+     * 墓碑不存在時才回填
+     */
+    private static final RedisScript<Long> POPULATE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[2]) == 1 then return 0 end " +
+            "redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) return 1", Long.class);
+
+    private final UserMapper userMapper;
+    private final UserKycMapper userKycMapper;
+    private final WalletMapper walletMapper;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Value("${app.entity-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.entity-cache.local-size:10000}")
+    private int localSize;
+
+    @Value("${app.entity-cache.local-ttl-seconds:60}")
+    private long localTtlSeconds;
+
+    @Value("${app.entity-cache.redis-ttl-seconds:600}")
+    private long redisTtlSeconds;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, Region<?>> regions = new LinkedHashMap<>();
+    private Region<User> users;
+    private Region<UserKyc> kycs;
+    private Region<Wallet> wallets;
+
+    /**
+     * 按訪問順序淘汰的本地緩存分段
+     */
+    private static final class LruSegment extends LinkedHashMap<Long, LocalEntry> {
+        private final int capacity;
+
+        private LruSegment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, LocalEntry> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    private static final class LocalEntry {
+        private final Object value;
+        private final long expiresAt;
+
+        private LocalEntry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * 緩存區域（一種實體）
+     */
+    private final class Region<T> {
+        private final String name;
+        private final Class<T> type;
+        private final String mapperPrefix;
+        private final Function<Long, T> loader;
+        private final UnaryOperator<T> sanitizer;
+        /**
+         * 從寫語句參數中的實體取緩存鍵
+         */
+        private final Function<Object, Long> entityKey;
+        private final LruSegment[] segments = new LruSegment[SEGMENTS];
+        private final AtomicLong generation = new AtomicLong();
+        /**
+         * 失效戳，回填本地緩存前核對
+         */
+        private final AtomicLong stamp = new AtomicLong();
+        private final AtomicLong localHits = new AtomicLong();
+        private final AtomicLong redisHits = new AtomicLong();
+        private final AtomicLong loads = new AtomicLong();
+        private final AtomicLong invalidations = new AtomicLong();
+        private final AtomicLong regionInvalidations = new AtomicLong();
+
+        private Region(String name, Class<T> type, Class<?> mapperType, Function<Long, T> loader,
+                       UnaryOperator<T> sanitizer, Function<Object, Long> entityKey) {
+            this.name = name;
+            this.type = type;
+            this.mapperPrefix = mapperType.getName() + ".";
+            this.loader = loader;
+            this.sanitizer = sanitizer;
+            this.entityKey = entityKey;
+            int perSegment = Math.max(1, localSize / SEGMENTS);
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = new LruSegment(perSegment);
+            }
+        }
+
+        private T get(Long key) {
+            if (key == null) {
+                return null;
+            }
+            if (!enabled) {
+                T loaded = loader.apply(key);
+                return loaded != null ? sanitizer.apply(loaded) : null;
+            }
+            long now = System.nanoTime();
+            LruSegment segment = segment(key);
+            LocalEntry entry;
+            synchronized (segment) {
+                entry = segment.get(key);
+            }
+            if (entry != null && entry.expiresAt - now > 0) {
+                localHits.incrementAndGet();
+                return type.cast(entry.value);
+            }
+
+            long stampBefore = stamp.get();
+            String redisKey = redisKey(key);
+            T value = null;
+            try {
+                Object cached = redisTemplate.opsForValue().get(redisKey);
+                if (type.isInstance(cached)) {
+                    value = type.cast(cached);
+                    redisHits.incrementAndGet();
+                }
+            } catch (Exception e) {
+                log.debug("讀取實體緩存失敗，回源數據庫: region={}, key={}, error={}", name, key, e.getMessage());
+            }
+            if (value == null) {
+                T loaded = loader.apply(key);
+                loads.incrementAndGet();
+                if (loaded == null) {
+                    return null;
+                }
+                value = sanitizer.apply(loaded);
+                try {
+                    redisTemplate.execute(POPULATE_SCRIPT, Arrays.asList(redisKey, tombstoneKey(key)),
+                            value, TimeUnit.SECONDS.toMillis(redisTtlSeconds));
+                } catch (Exception e) {
+                    log.debug("回填實體緩存失敗: region={}, key={}, error={}", name, key, e.getMessage());
+                }
+            }
+            if (stamp.get() == stampBefore) {
+                synchronized (segment) {
+                    segment.put(key, new LocalEntry(value, now + TimeUnit.SECONDS.toNanos(localTtlSeconds)));
+                }
+            }
+            return value;
+        }
+
+        private void evictLocal(Long key) {
+            stamp.incrementAndGet();
+            LruSegment segment = segment(key);
+            synchronized (segment) {
+                segment.remove(key);
+            }
+        }
+
+        private void clearLocal() {
+            stamp.incrementAndGet();
+            for (LruSegment segment : segments) {
+                synchronized (segment) {
+                    segment.clear();
+                }
+            }
+        }
+
+        private void invalidate(Long key) {
+            evictLocal(key);
+            invalidations.incrementAndGet();
+            String redisKey = redisKey(key);
+            String tombstoneKey = tombstoneKey(key);
+            stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    operations.delete(redisKey);
+                    operations.opsForValue().set(tombstoneKey, "1", TOMBSTONE_MS, TimeUnit.MILLISECONDS);
+                    return null;
+                }
+            });
+            broadcast(name, String.valueOf(key), generation.get());
+        }
+
+        private void invalidateAll() {
+            clearLocal();
+            regionInvalidations.incrementAndGet();
+            Long next = stringRedisTemplate.opsForValue().increment(generationKey());
+            if (next != null) {
+                generation.accumulateAndGet(next, Math::max);
+            }
+            broadcast(name, "", generation.get());
+        }
+
+        private void adoptGeneration(long remote) {
+            if (remote > generation.get()) {
+                generation.accumulateAndGet(remote, Math::max);
+                clearLocal();
+            }
+        }
+
+        private LruSegment segment(Long key) {
+            return segments[Math.floorMod(key.hashCode(), SEGMENTS)];
+        }
+
+        private String redisKey(Long key) {
+            return KEY_PREFIX + name + ":" + generation.get() + ":" + key;
+        }
+
+        private String tombstoneKey(Long key) {
+            return KEY_PREFIX + name + ":tomb:" + key;
+        }
+
+        private String generationKey() {
+            return KEY_PREFIX + name + ":gen";
+        }
+
+        private Map<String, Object> getStatus() {
+            int size = 0;
+            for (LruSegment segment : segments) {
+                synchronized (segment) {
+                    size += segment.size();
+                }
+            }
+            Map<String, Object> status = new HashMap<>();
+            status.put("localSize", size);
+            status.put("generation", generation.get());
+            status.put("localHits", localHits.get());
+            status.put("redisHits", redisHits.get());
+            status.put("loads", loads.get());
+            status.put("invalidations", invalidations.get());
+            status.put("regionInvalidations", regionInvalidations.get());
+            return status;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        users = register(new Region<>(REGION_USER, User.class, UserMapper.class, userMapper::selectById,
+                EntityCache::sanitizeUser, target -> {
+                    if (target instanceof User) {
+                        return ((User) target).getId();
+                    }
+                    // deleteById 的參數即主鍵
+                    return target instanceof Long ? (Long) target : null;
+                }));
+        kycs = register(new Region<>(REGION_KYC, UserKyc.class, UserKycMapper.class, userKycMapper::selectByUserId,
+                EntityCache::sanitizeKyc, target -> target instanceof UserKyc ? ((UserKyc) target).getUserId() : null));
+        wallets = register(new Region<>(REGION_WALLET, Wallet.class, WalletMapper.class, walletMapper::selectByUserId,
+                EntityCache::sanitizeWallet, target -> target instanceof Wallet ? ((Wallet) target).getUserId() : null));
+        syncGenerations();
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    private <T> Region<T> register(Region<T> region) {
+        regions.put(region.name, region);
+        return region;
+    }
+
+    /**
+     * 獲取用戶（只讀副本，不含密碼哈希及驗證密鑰）
+     */
+    public User getUser(Long userId) {
+        return users.get(userId);
+    }
+
+    /**
+     * 獲取用戶的KYC記錄（只讀副本，僅含狀態、等級、有效期及風險字段）
+     */
+    public UserKyc getUserKyc(Long userId) {
+        return kycs.get(userId);
+    }
+
+    /**
+     * 獲取用戶的錢包（只讀副本，不含私鑰；餘額僅供展示，扣減前須從Mapper讀取）
+     */
+    public Wallet getWallet(Long userId) {
+        return wallets.get(userId);
+    }
+
+    /**
+     * 寫語句執行後調用：在事務完成後失效對應緩存，無事務時立即失效
+     *
+     * @param statementId MappedStatement ID（Mapper全限定名.方法名）
+     * @param parameter 語句參數
+     */
+    public void onMapperUpdate(String statementId, Object parameter) {
+        Region<?> region = null;
+        for (Region<?> candidate : regions.values()) {
+            if (statementId.startsWith(candidate.mapperPrefix)) {
+                region = candidate;
+                break;
+            }
+        }
+        if (region == null) {
+            return;
+        }
+        Long key = resolveKey(region, parameter);
+        Region<?> target = region;
+        Runnable action = key != null ? () -> target.invalidate(key) : target::invalidateAll;
+        afterCompletion(action);
+    }
+
+    /**
+     * 其他節點的失效通知：nodeId|region|key|generation，key為空表示整個區域
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", -1);
+        if (parts.length != 4 || nodeId.equals(parts[0])) {
+            return;
+        }
+        Region<?> region = regions.get(parts[1]);
+        if (region == null) {
+            return;
+        }
+        try {
+            if (parts[2].isEmpty()) {
+                region.adoptGeneration(Long.parseLong(parts[3]));
+                region.clearLocal();
+            } else {
+                region.evictLocal(Long.parseLong(parts[2]));
+            }
+        } catch (NumberFormatException e) {
+            log.warn("無效的實體緩存失效通知: {}", String.join("|", parts));
+        }
+    }
+
+    /**
+     * 同步各區域代次，兜底丟失的整體失效通知
+     */
+    @Scheduled(fixedDelayString = "${app.entity-cache.generation-sync-ms:30000}")
+    public void syncGenerations() {
+        for (Region<?> region : regions.values()) {
+            try {
+                String value = stringRedisTemplate.opsForValue().get(region.generationKey());
+                if (value != null) {
+                    region.adoptGeneration(Long.parseLong(value));
+                }
+            } catch (Exception e) {
+                log.debug("同步實體緩存代次失敗: region={}, error={}", region.name, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 獲取緩存狀態
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        regions.forEach((name, region) -> status.put(name, region.getStatus()));
+        return status;
+    }
+
+    private static Long resolveKey(Region<?> region, Object parameter) {
+        if (!(parameter instanceof Map)) {
+            return region.entityKey.apply(parameter);
+        }
+        Map<?, ?> params = (Map<?, ?>) parameter;
+        // MyBatis的ParamMap取不存在的鍵會拋異常，先判斷
+        if (params.containsKey(Constants.ENTITY)) {
+            Long key = region.entityKey.apply(params.get(Constants.ENTITY));
+            // 條件構造器更新無法確定影響的行
+            if (key != null && !params.containsKey(Constants.WRAPPER)) {
+                return key;
+            }
+            return null;
+        }
+        if (params.containsKey("userId") && params.get("userId") instanceof Long) {
+            return (Long) params.get("userId");
+        }
+        return null;
+    }
+
+    private void broadcast(String region, String key, long generation) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, nodeId + "|" + region + "|" + key + "|" + generation);
+        } catch (Exception e) {
+            log.warn("廣播實體緩存失效失敗，其他節點由本地有效期兜底: region={}, error={}", region, e.getMessage());
+        }
+    }
+
+    /**
+     * 事務完成後執行（回滾也失效，清除事務內讀到未提交數據的回填），無事務時立即執行
+     */
+    private static void afterCompletion(Runnable action) {
+        Runnable guarded = () -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                log.warn("失效實體緩存失敗: error={}", e.getMessage());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    guarded.run();
+                }
+            });
+        } else {
+            guarded.run();
+        }
+    }
+
+    private static User sanitizeUser(User user) {
+        return BeanUtil.copyProperties(user, User.class, "passwordHash", "salt", "googleAuthKey");
+    }
+
+    private static Wallet sanitizeWallet(Wallet wallet) {
+        return BeanUtil.copyProperties(wallet, Wallet.class, "privateKey");
+    }
+
+    private static UserKyc sanitizeKyc(UserKyc kyc) {
+        UserKyc view = new UserKyc();
+        view.setId(kyc.getId());
+        view.setUserId(kyc.getUserId());
+        view.setStatus(kyc.getStatus());
+        view.setKycLevel(kyc.getKycLevel());
+        view.setVerifiedAt(kyc.getVerifiedAt());
+        view.setExpiresAt(kyc.getExpiresAt());
+        view.setRiskScore(kyc.getRiskScore());
+        view.setRiskLevel(kyc.getRiskLevel());
+        view.setRequiresSupplement(kyc.getRequiresSupplement());
+        view.setCreatedAt(kyc.getCreatedAt());
+        view.setUpdatedAt(kyc.getUpdatedAt());
+        view.setDeleted(kyc.getDeleted());
+        view.setVersion(kyc.getVersion());
+        return view;
+    }
+}
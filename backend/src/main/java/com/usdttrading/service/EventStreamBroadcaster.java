@@ -0,0 +1,400 @@
+package com.usdttrading.service;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.usdttrading.entity.Order;
+import com.usdttrading.utils.TransactionUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 服務端推送廣播服務（SSE）
+ * 價格行情廣播給所有連接，訂單狀態及站內通知只推給所屬用戶；事件在本節點直接投遞，
+ * 同時經Redis pub/sub轉發到其他節點。每個連接由單一虛擬線程串行發送：
+ * 價格只保留最新一條（慢連接跳過中間行情），用戶事件進入有界隊列，溢出時通知客戶端重新同步並斷開
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EventStreamBroadcaster implements MessageListener {
+
+    public static final String EVENT_PRICE = "price";
+    public static final String EVENT_ORDER = "order";
+    public static final String EVENT_NOTIFICATION = "notification";
+    private static final String EVENT_RESYNC = "resync";
+    private static final String RELAY_CHANNEL = "stream:events";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Value("${app.stream.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${app.stream.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${app.stream.max-connections:20000}")
+    private int maxConnections;
+
+    @Value("${app.stream.max-connections-per-user:5}")
+    private int maxConnectionsPerUser;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Set<Connection>> connectionsByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong relayedOut = new AtomicLong();
+    private final AtomicLong relayedIn = new AtomicLong();
+
+    /**
+     * 最新行情（已序列化），新連接建立時先推送
+     */
+    private volatile String latestPrice;
+
+    /**
+     * 單個推送連接
+     */
+    private static final class Connection {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final AtomicReference<String> pendingPrice = new AtomicReference<>();
+        private final Queue<String[]> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean heartbeat;
+        private volatile boolean overflowed;
+        private volatile boolean closed;
+
+        private Connection(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        private boolean hasPending() {
+            return !closed && (heartbeat || overflowed || pendingPrice.get() != null || !queue.isEmpty());
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(RELAY_CHANNEL));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        for (Connection connection : connections) {
+            close(connection, true);
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * 建立推送連接
+     *
+     * @param userId 用戶ID
+     * @param priceSnapshot 當前行情，本節點尚未收到行情時作為首條推送
+     * @return 推送連接，超過連接數上限時返回null
+     */
+    public SseEmitter subscribe(Long userId, Map<String, Object> priceSnapshot) {
+        if (!enabled) {
+            return null;
+        }
+        if (connectionCount.incrementAndGet() > maxConnections) {
+            connectionCount.decrementAndGet();
+            rejected.incrementAndGet();
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Connection connection = new Connection(userId, emitter);
+        AtomicBoolean accepted = new AtomicBoolean();
+        connectionsByUser.compute(userId, (key, set) -> {
+            Set<Connection> userConnections = set != null ? set : ConcurrentHashMap.newKeySet();
+            if (userConnections.size() < maxConnectionsPerUser) {
+                userConnections.add(connection);
+                accepted.set(true);
+            }
+            return userConnections.isEmpty() ? null : userConnections;
+        });
+        if (!accepted.get()) {
+            connectionCount.decrementAndGet();
+            rejected.incrementAndGet();
+            return null;
+        }
+        connections.add(connection);
+        emitter.onCompletion(() -> unregister(connection));
+        emitter.onTimeout(() -> unregister(connection));
+        emitter.onError(e -> unregister(connection));
+
+        String snapshot = latestPrice;
+        if (snapshot == null && priceSnapshot != null) {
+            snapshot = JSONUtil.toJsonStr(priceSnapshot);
+        }
+        if (snapshot != null) {
+            connection.pendingPrice.set(snapshot);
+            schedule(connection);
+        }
+        return emitter;
+    }
+
+    /**
+     * 廣播行情（事務提交後發送）
+     *
+     * @param priceData 行情數據
+     */
+    public void publishPrice(Map<String, Object> priceData) {
+        String data = JSONUtil.toJsonStr(priceData);
+        afterCommit(() -> {
+            deliverPrice(data);
+            relay(EVENT_PRICE, null, data);
+        });
+    }
+
+    /**
+     * 推送訂單狀態變更
+     *
+     * @param order 訂單
+     */
+    public void publishOrderStatus(Order order) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("orderId", String.valueOf(order.getId()));
+        data.put("orderNumber", order.getOrderNumber());
+        data.put("orderType", order.getOrderType() != null ? order.getOrderType().name() : null);
+        data.put("status", order.getOrderStatus() != null ? order.getOrderStatus().name() : null);
+        data.put("updatedAt", LocalDateTime.now().toString());
+        publishToUser(order.getUserId(), EVENT_ORDER, data);
+    }
+
+    /**
+     * 推送用戶事件（事務提交後發送）
+     *
+     * @param userId 用戶ID
+     * @param event 事件名
+     * @param payload 事件數據
+     */
+    public void publishToUser(Long userId, String event, Map<String, Object> payload) {
+        if (userId == null) {
+            return;
+        }
+        String data = JSONUtil.toJsonStr(payload);
+        afterCommit(() -> {
+            deliverToUser(userId, event, data);
+            relay(event, userId, data);
+        });
+    }
+
+    /**
+     * 接收其他節點轉發的事件
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            JSONObject relayed = JSONUtil.parseObj(new String(message.getBody(), StandardCharsets.UTF_8));
+            if (nodeId.equals(relayed.getStr("node"))) {
+                return;
+            }
+            relayedIn.incrementAndGet();
+            String event = relayed.getStr("event");
+            String data = relayed.getStr("data");
+            if (EVENT_PRICE.equals(event)) {
+                deliverPrice(data);
+            } else {
+                deliverToUser(relayed.getLong("userId"), event, data);
+            }
+        } catch (Exception e) {
+            log.warn("處理推送轉發消息失敗: error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 心跳，保持空閒連接並及時發現已斷開的客戶端
+     */
+    @Scheduled(fixedDelayString = "${app.stream.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        for (Connection connection : connections) {
+            connection.heartbeat = true;
+            schedule(connection);
+        }
+    }
+
+    /**
+     * 獲取推送狀態
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("connections", connectionCount.get());
+        status.put("users", connectionsByUser.size());
+        status.put("bufferSize", bufferSize);
+        status.put("delivered", delivered.get());
+        status.put("coalesced", coalesced.get());
+        status.put("overflowed", overflowed.get());
+        status.put("rejected", rejected.get());
+        status.put("relayedOut", relayedOut.get());
+        status.put("relayedIn", relayedIn.get());
+        return status;
+    }
+
+    private void deliverPrice(String data) {
+        latestPrice = data;
+        for (Connection connection : connections) {
+            if (connection.pendingPrice.getAndSet(data) != null) {
+                coalesced.incrementAndGet();
+            }
+            schedule(connection);
+        }
+    }
+
+    private void deliverToUser(Long userId, String event, String data) {
+        Set<Connection> userConnections = connectionsByUser.get(userId);
+        if (userConnections == null) {
+            return;
+        }
+        for (Connection connection : userConnections) {
+            if (connection.queued.incrementAndGet() > bufferSize) {
+                connection.queued.decrementAndGet();
+                if (!connection.overflowed) {
+                    connection.overflowed = true;
+                    overflowed.incrementAndGet();
+                }
+            } else {
+                connection.queue.add(new String[]{event, data});
+            }
+            schedule(connection);
+        }
+    }
+
+    private void relay(String event, Long userId, String data) {
+        JSONObject message = new JSONObject();
+        message.set("node", nodeId);
+        message.set("event", event);
+        message.set("userId", userId);
+        message.set("data", data);
+        String body = message.toString();
+        executor.execute(() -> {
+            try {
+                stringRedisTemplate.convertAndSend(RELAY_CHANNEL, body);
+                relayedOut.incrementAndGet();
+            } catch (Exception e) {
+                log.warn("轉發推送事件失敗: event={}, error={}", event, e.getMessage());
+            }
+        });
+    }
+
+    private void schedule(Connection connection) {
+        if (!connection.closed && connection.draining.compareAndSet(false, true)) {
+            executor.execute(() -> drain(connection));
+        }
+    }
+
+    /**
+     * 串行發送連接上的待發事件；發送阻塞期間到達的行情只保留最新一條
+     */
+    private void drain(Connection connection) {
+        try {
+            do {
+                flush(connection);
+                connection.draining.set(false);
+            } while (connection.hasPending() && connection.draining.compareAndSet(false, true));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("推送連接已斷開: userId={}, error={}", connection.userId, e.getMessage());
+            close(connection, false);
+        }
+    }
+
+    private void flush(Connection connection) throws IOException {
+        if (connection.closed) {
+            return;
+        }
+        if (connection.heartbeat) {
+            connection.heartbeat = false;
+            connection.emitter.send(SseEmitter.event().comment("ping"));
+        }
+        String price = connection.pendingPrice.getAndSet(null);
+        if (price != null) {
+            connection.emitter.send(SseEmitter.event().name(EVENT_PRICE).data(price));
+            delivered.incrementAndGet();
+        }
+        String[] event;
+        while ((event = connection.queue.poll()) != null) {
+            connection.queued.decrementAndGet();
+            connection.emitter.send(SseEmitter.event().name(event[0]).data(event[1]));
+            delivered.incrementAndGet();
+        }
+        if (connection.overflowed) {
+            // 客戶端收到後應重新拉取訂單及通知狀態，EventSource會自動重連
+            connection.emitter.send(SseEmitter.event().name(EVENT_RESYNC).data("{}"));
+            close(connection, true);
+        }
+    }
+
+    private void close(Connection connection, boolean complete) {
+        unregister(connection);
+        if (complete) {
+            try {
+                connection.emitter.complete();
+            } catch (Exception e) {
+                log.debug("關閉推送連接失敗: error={}", e.getMessage());
+            }
+        }
+    }
+
+    private void unregister(Connection connection) {
+        if (connection.closed) {
+            return;
+        }
+        connection.closed = true;
+        if (connections.remove(connection)) {
+            connectionCount.decrementAndGet();
+        }
+        connectionsByUser.computeIfPresent(connection.userId, (key, set) -> {
+            set.remove(connection);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        // 推送失敗不影響業務，客戶端重連後重新拉取
+        TransactionUtils.afterCommit(action, e -> log.warn("推送事件失敗: error={}", e.getMessage()));
+    }
+}
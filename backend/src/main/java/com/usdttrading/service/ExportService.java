@@ -0,0 +1,607 @@
+package com.usdttrading.service;
+
+import com.usdttrading.exception.BusinessException;
+import com.usdttrading.repository.ExportMapper;
+import com.usdttrading.utils.ExportWriter;
+import com.usdttrading.utils.ExportWriter.Format;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 報表導出服務
+ * 查詢結果經MyBatis ResultHandler逐行寫出為CSV或XLSX，內存佔用與行數無關：
+ * 短時間範圍直接寫入響應流；長時間範圍創建導出任務，在後台寫入文件，可查詢進度、取消及下載。
+ * 導出在只讀事務中執行，配置了從庫時路由到從庫。
+ * 導出任務登記在本節點內存中，下載需訪問創建任務的節點
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+public class ExportService {
+
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+
+    private static final DateTimeFormatter FILE_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final ExportMapper exportMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Value("${app.export.dir:./exports}")
+    private String exportDir;
+
+    @Value("${app.export.max-stream-days:31}")
+    private int maxStreamDays;
+
+    @Value("${app.export.max-job-days:366}")
+    private int maxJobDays;
+
+    @Value("${app.export.max-running-jobs:4}")
+    private int maxRunningJobs;
+
+    @Value("${app.export.job-retention-hours:24}")
+    private long jobRetentionHours;
+
+    private final Map<String, Report> reports = new LinkedHashMap<>();
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong streamedExports = new AtomicLong();
+    private final AtomicLong exportedRows = new AtomicLong();
+    private final AtomicLong jobsCompleted = new AtomicLong();
+    private final AtomicLong jobsFailed = new AtomicLong();
+    private final AtomicLong jobsCancelled = new AtomicLong();
+
+    public ExportService(ExportMapper exportMapper, PlatformTransactionManager transactionManager) {
+        this.exportMapper = exportMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * 流式查詢，按時間範圍把行交給處理器
+     */
+    @FunctionalInterface
+    private interface RowSource {
+        void stream(LocalDateTime from, LocalDateTime to, ResultHandler<Map<String, Object>> handler);
+    }
+
+    /**
+     * 報表定義：列鍵為數據庫列名，時間列用於估算進度
+     */
+    private static final class Report {
+        private final String name;
+        private final String title;
+        private final String timeColumn;
+        private final List<String> columns = new ArrayList<>();
+        private final List<String> titles = new ArrayList<>();
+        private final RowSource source;
+
+        private Report(String name, String title, String timeColumn, RowSource source) {
+            this.name = name;
+            this.title = title;
+            this.timeColumn = timeColumn;
+            this.source = source;
+        }
+
+        private Report column(String column, String title) {
+            columns.add(column);
+            titles.add(title);
+            return this;
+        }
+    }
+
+    /**
+     * 導出任務
+     */
+    private static final class ExportJob {
+        private final String id = UUID.randomUUID().toString().replace("-", "");
+        private final String report;
+        private final Format format;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        private final Long adminId;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final AtomicLong rows = new AtomicLong();
+        private volatile String status = STATUS_QUEUED;
+        private volatile boolean cancelRequested;
+        private volatile LocalDateTime lastRowTime;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+        private volatile long bytes;
+        private volatile Path file;
+        private volatile Future<?> future;
+
+        private ExportJob(String report, Format format, LocalDate startDate, LocalDate endDate, Long adminId) {
+            this.report = report;
+            this.format = format;
+            this.startDate = startDate;
+            this.endDate = endDate;
+            this.adminId = adminId;
+        }
+
+        private boolean isActive() {
+            return STATUS_QUEUED.equals(status) || STATUS_RUNNING.equals(status);
+        }
+    }
+
+    /**
+     * 逐行寫出的結果處理器：取消或寫出失敗時停止讀取
+     */
+    private final class RowWriter implements ResultHandler<Map<String, Object>> {
+        private final Report report;
+        private final ExportWriter writer;
+        private final ExportJob job;
+        private long rows;
+        private IOException error;
+
+        private RowWriter(Report report, ExportWriter writer, ExportJob job) {
+            this.report = report;
+            this.writer = writer;
+            this.job = job;
+        }
+
+        @Override
+        public void handleResult(ResultContext<? extends Map<String, Object>> context) {
+            if (job != null && job.cancelRequested) {
+                context.stop();
+                return;
+            }
+            Map<String, Object> row = context.getResultObject();
+            List<Object> values = new ArrayList<>(report.columns.size());
+            for (String column : report.columns) {
+                values.add(value(row, column));
+            }
+            try {
+                writer.writeRow(values);
+            } catch (IOException e) {
+                error = e;
+                context.stop();
+                return;
+            }
+            rows++;
+            if (job != null) {
+                job.rows.incrementAndGet();
+                job.lastRowTime = toDateTime(value(row, report.timeColumn));
+            }
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        register(new Report("kyc-review", "KYC審核報告", "created_at", exportMapper::streamKycReviews)
+                .column("id", "KYC ID")
+                .column("user_id", "用戶ID")
+                .column("id_type", "證件類型")
+                .column("status", "審核狀態")
+                .column("rejection_reason", "拒絕原因")
+                .column("created_at", "提交時間")
+                .column("verified_at", "通過時間")
+                .column("expires_at", "到期時間")
+                .column("updated_at", "更新時間"));
+        register(new Report("audit-logs", "操作日誌", "created_at", exportMapper::streamAuditLogs)
+                .column("id", "日誌ID")
+                .column("user_id", "用戶ID")
+                .column("action", "操作")
+                .column("resource", "資源")
+                .column("resource_id", "資源ID")
+                .column("result", "結果")
+                .column("ip_address", "IP地址")
+                .column("request_id", "請求ID")
+                .column("error_message", "錯誤信息")
+                .column("execution_time", "耗時(毫秒)")
+                .column("created_at", "時間"));
+        register(new Report("orders", "訂單報表", "created_at", exportMapper::streamOrders)
+                .column("id", "訂單ID")
+                .column("order_no", "訂單號")
+                .column("user_id", "用戶ID")
+                .column("type", "類型")
+                .column("currency_pair", "交易對")
+                .column("amount", "USDT數量")
+                .column("price", "單價")
+                .column("total_amount", "總金額")
+                .column("filled_amount", "已成交數量")
+                .column("status", "狀態")
+                .column("payment_method", "支付方式")
+                .column("created_at", "創建時間")
+                .column("completed_at", "完成時間"));
+    }
+
+    private void register(Report report) {
+        reports.put(report.name, report);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        jobs.values().forEach(job -> job.cancelRequested = true);
+        executor.shutdownNow();
+    }
+
+    /**
+     * 可導出的報表
+     */
+    public Map<String, String> listReports() {
+        Map<String, String> result = new LinkedHashMap<>();
+        reports.values().forEach(report -> result.put(report.name, report.title));
+        return result;
+    }
+
+    /**
+     * 直接導出到響應流
+     *
+     * @return 導出行數
+     */
+    public long stream(String reportName, LocalDate startDate, LocalDate endDate, String formatName,
+                       HttpServletResponse response) throws IOException {
+        Report report = requireReport(reportName);
+        Format format = Format.of(formatName);
+        checkRange(startDate, endDate, maxStreamDays, "直接導出最多" + maxStreamDays + "天，更長範圍請創建導出任務");
+
+        response.setContentType(format.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(fileName(report, startDate, endDate, format), StandardCharsets.UTF_8)
+                .build().toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        long started = System.currentTimeMillis();
+        OutputStream out = response.getOutputStream();
+        long rows = export(report, startDate, endDate, format.open(out, report.title), null);
+        out.flush();
+        streamedExports.incrementAndGet();
+        log.info("報表直接導出完成: report={}, range={}~{}, format={}, rows={}, elapsed={}ms",
+                report.name, startDate, endDate, format.getExtension(), rows, System.currentTimeMillis() - started);
+        return rows;
+    }
+
+    /**
+     * 創建導出任務，在後台寫入文件
+     */
+    public Map<String, Object> createJob(String reportName, LocalDate startDate, LocalDate endDate, String formatName,
+                                         Long adminId) {
+        Report report = requireReport(reportName);
+        Format format = Format.of(formatName);
+        checkRange(startDate, endDate, maxJobDays, "導出任務最多" + maxJobDays + "天");
+        synchronized (jobs) {
+            long active = jobs.values().stream().filter(ExportJob::isActive).count();
+            if (active >= maxRunningJobs) {
+                throw new BusinessException("導出任務過多，請稍後再試");
+            }
+            ExportJob job = new ExportJob(report.name, format, startDate, endDate, adminId);
+            jobs.put(job.id, job);
+            job.future = executor.submit(() -> runJob(job, report));
+            log.info("創建導出任務: jobId={}, report={}, range={}~{}, format={}, adminId={}",
+                    job.id, report.name, startDate, endDate, format.getExtension(), adminId);
+            return toMap(job);
+        }
+    }
+
+    /**
+     * 查詢任務進度
+     */
+    public Map<String, Object> getJob(String jobId, Long adminId) {
+        return toMap(requireJob(jobId, adminId));
+    }
+
+    /**
+     * 列出管理員的導出任務
+     */
+    public List<Map<String, Object>> listJobs(Long adminId) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        jobs.values().stream()
+                .filter(job -> job.adminId != null && job.adminId.equals(adminId))
+                .sorted((a, b) -> b.createdAt.compareTo(a.createdAt))
+                .forEach(job -> result.add(toMap(job)));
+        return result;
+    }
+
+    /**
+     * 取消任務：未開始的直接取消，執行中的在下一行停止並刪除文件
+     */
+    public Map<String, Object> cancelJob(String jobId, Long adminId) {
+        ExportJob job = requireJob(jobId, adminId);
+        if (job.isActive()) {
+            job.cancelRequested = true;
+            Future<?> future = job.future;
+            if (future != null && future.cancel(false)) {
+                finishCancelled(job);
+            }
+            log.info("取消導出任務: jobId={}, adminId={}, rows={}", job.id, adminId, job.rows.get());
+        }
+        return toMap(job);
+    }
+
+    /**
+     * 下發已完成任務的文件
+     */
+    public void download(String jobId, Long adminId, HttpServletResponse response) throws IOException {
+        ExportJob job = requireJob(jobId, adminId);
+        Path file = job.file;
+        if (!STATUS_COMPLETED.equals(job.status) || file == null || !Files.exists(file)) {
+            throw new IllegalArgumentException("導出文件尚未生成或已過期");
+        }
+        Report report = requireReport(job.report);
+        response.setContentType(job.format.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(fileName(report, job.startDate, job.endDate, job.format), StandardCharsets.UTF_8)
+                .build().toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setContentLengthLong(Files.size(file));
+        Files.copy(file, response.getOutputStream());
+        response.getOutputStream().flush();
+    }
+
+    /**
+     * 清理過期任務及其文件，包括重啟前遺留的文件
+     */
+    @Scheduled(fixedDelayString = "${app.export.cleanup-interval-ms:600000}")
+    public void cleanup() {
+        LocalDateTime expireBefore = LocalDateTime.now().minusHours(jobRetentionHours);
+        jobs.values().removeIf(job -> {
+            if (job.isActive() || job.finishedAt == null || job.finishedAt.isAfter(expireBefore)) {
+                return false;
+            }
+            deleteQuietly(job.file);
+            return true;
+        });
+
+        Path dir = Paths.get(exportDir);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        long expireMillis = System.currentTimeMillis() - Duration.ofHours(jobRetentionHours).toMillis();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) {
+                String id = file.getFileName().toString();
+                int dot = id.indexOf('.');
+                boolean known = dot > 0 && jobs.containsKey(id.substring(0, dot));
+                if (!known && Files.getLastModifiedTime(file).toMillis() < expireMillis) {
+                    deleteQuietly(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("清理導出文件失敗: dir={}, error={}", dir, e.getMessage());
+        }
+    }
+
+    /**
+     * 獲取導出統計
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("reports", listReports());
+        status.put("maxStreamDays", maxStreamDays);
+        status.put("maxJobDays", maxJobDays);
+        status.put("maxRunningJobs", maxRunningJobs);
+        status.put("activeJobs", jobs.values().stream().filter(ExportJob::isActive).count());
+        status.put("retainedJobs", jobs.size());
+        status.put("streamedExports", streamedExports.get());
+        status.put("exportedRows", exportedRows.get());
+        status.put("jobsCompleted", jobsCompleted.get());
+        status.put("jobsFailed", jobsFailed.get());
+        status.put("jobsCancelled", jobsCancelled.get());
+        return status;
+    }
+
+    private void runJob(ExportJob job, Report report) {
+        if (job.cancelRequested) {
+            finishCancelled(job);
+            return;
+        }
+        job.status = STATUS_RUNNING;
+        Path dir = Paths.get(exportDir);
+        Path target = dir.resolve(job.id + "." + job.format.getExtension());
+        Path temp = dir.resolve(job.id + "." + job.format.getExtension() + TEMP_SUFFIX);
+        long started = System.currentTimeMillis();
+        try {
+            Files.createDirectories(dir);
+            long rows;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                rows = export(report, job.startDate, job.endDate, job.format.open(out, report.title), job);
+            }
+            if (job.cancelRequested) {
+                deleteQuietly(temp);
+                finishCancelled(job);
+                return;
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            job.file = target;
+            job.bytes = Files.size(target);
+            job.finishedAt = LocalDateTime.now();
+            job.status = STATUS_COMPLETED;
+            jobsCompleted.incrementAndGet();
+            log.info("導出任務完成: jobId={}, report={}, rows={}, bytes={}, elapsed={}ms",
+                    job.id, report.name, rows, job.bytes, System.currentTimeMillis() - started);
+        } catch (Exception e) {
+            deleteQuietly(temp);
+            job.error = e.getMessage();
+            job.finishedAt = LocalDateTime.now();
+            job.status = STATUS_FAILED;
+            jobsFailed.incrementAndGet();
+            log.error("導出任務失敗: jobId={}, report={}, rows={}", job.id, report.name, job.rows.get(), e);
+        }
+    }
+
+    /**
+     * 在只讀事務中流式查詢並逐行寫出；取消時不寫結尾
+     */
+    private long export(Report report, LocalDate startDate, LocalDate endDate, ExportWriter writer, ExportJob job)
+            throws IOException {
+        writer.writeHeader(report.titles);
+        RowWriter rowWriter = new RowWriter(report, writer, job);
+        LocalDateTime from = startDate.atStartOfDay();
+        LocalDateTime to = endDate.plusDays(1).atStartOfDay();
+        readOnlyTransaction.executeWithoutResult(status -> report.source.stream(from, to, rowWriter));
+        exportedRows.addAndGet(rowWriter.rows);
+        if (rowWriter.error != null) {
+            throw rowWriter.error;
+        }
+        if (job == null || !job.cancelRequested) {
+            writer.finish();
+        }
+        return rowWriter.rows;
+    }
+
+    private void finishCancelled(ExportJob job) {
+        if (STATUS_CANCELLED.equals(job.status)) {
+            return;
+        }
+        job.finishedAt = LocalDateTime.now();
+        job.status = STATUS_CANCELLED;
+        jobsCancelled.incrementAndGet();
+    }
+
+    private Map<String, Object> toMap(ExportJob job) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("jobId", job.id);
+        map.put("report", job.report);
+        map.put("format", job.format.getExtension());
+        map.put("startDate", job.startDate);
+        map.put("endDate", job.endDate);
+        map.put("status", job.status);
+        map.put("rows", job.rows.get());
+        map.put("progress", progress(job));
+        map.put("bytes", job.bytes);
+        map.put("error", job.error);
+        map.put("createdAt", job.createdAt);
+        map.put("finishedAt", job.finishedAt);
+        return map;
+    }
+
+    /**
+     * 按最近寫出行的時間在導出範圍內的位置估算進度（行按ID順序讀取，時間大致遞增）
+     */
+    private int progress(ExportJob job) {
+        if (STATUS_COMPLETED.equals(job.status)) {
+            return 100;
+        }
+        LocalDateTime last = job.lastRowTime;
+        if (last == null) {
+            return 0;
+        }
+        LocalDateTime from = job.startDate.atStartOfDay();
+        long total = ChronoUnit.SECONDS.between(from, job.endDate.plusDays(1).atStartOfDay());
+        long done = ChronoUnit.SECONDS.between(from, last);
+        return (int) Math.max(0, Math.min(99, done * 100 / Math.max(1, total)));
+    }
+
+    private Report requireReport(String name) {
+        Report report = name != null ? reports.get(name) : null;
+        if (report == null) {
+            throw new IllegalArgumentException("不支持的報表: " + name);
+        }
+        return report;
+    }
+
+    private ExportJob requireJob(String jobId, Long adminId) {
+        ExportJob job = jobId != null ? jobs.get(jobId) : null;
+        if (job == null || job.adminId == null || !job.adminId.equals(adminId)) {
+            throw new IllegalArgumentException("導出任務不存在: " + jobId);
+        }
+        return job;
+    }
+
+    private static void checkRange(LocalDate startDate, LocalDate endDate, int maxDays, String message) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("結束日期不能早於開始日期");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) + 1 > maxDays) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    private static String fileName(Report report, LocalDate startDate, LocalDate endDate, Format format) {
+        return report.title + "_" + startDate.format(FILE_DATE_FORMAT) + "_" + endDate.format(FILE_DATE_FORMAT)
+                + "." + format.getExtension();
+    }
+
+    /**
+     * 按列名取值；開啟下劃線轉駝峰時鍵可能為駝峰形式
+     */
+    private static Object value(Map<String, Object> row, String column) {
+        Object value = row.get(column);
+        if (value != null || column.indexOf('_') < 0) {
+            return value;
+        }
+        StringBuilder camel = new StringBuilder(column.length());
+        boolean upper = false;
+        for (char c : column.toCharArray()) {
+            if (c == '_') {
+                upper = true;
+            } else {
+                camel.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return row.get(camel.toString());
+    }
+
+    private static LocalDateTime toDateTime(Object value) {
+        if (value instanceof LocalDateTime) {
+            return (LocalDateTime) value;
+        }
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        }
+        if (value instanceof java.util.Date) {
+            return LocalDateTime.ofInstant(((java.util.Date) value).toInstant(), ZoneId.systemDefault());
+        }
+        return null;
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("刪除導出文件失敗: file={}, error={}", file, e.getMessage());
+        }
+    }
+}
@@ -6,19 +6,26 @@ import com.usdttrading.enums.KycDocumentType;
 import com.usdttrading.exception.BusinessException;
 import com.usdttrading.repository.KycDocumentMapper;
 import com.usdttrading.utils.FileProcessingUtil;
+import com.usdttrading.utils.StreamingFileCipher;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -37,6 +44,7 @@ public class FileStorageService {
 
     private final KycDocumentMapper kycDocumentMapper;
     private final FileProcessingUtil fileProcessingUtil;
+    private final StreamingFileCipher streamingFileCipher;
 
     @Value("${app.file.upload-dir:./uploads}")
     private String uploadDir;
@@ -53,8 +61,31 @@ public class FileStorageService {
     @Value("${app.file.enable-virus-scan:false}")
     private boolean enableVirusScan;
 
+    @Value("${app.file.url-signing-key:}")
+    private String urlSigningKeyBase64;
+
     private static final Set<String> ALLOWED_IMAGE_TYPES = Set.of("image/jpeg", "image/jpg", "image/png");
     private static final Set<String> ALLOWED_PDF_TYPES = Set.of("application/pdf");
+    private static final int DECRYPT_CHUNK_SIZE = 64 * 1024;
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MIN_SIGNING_KEY_BYTES = 32;
+
+    private SecretKeySpec urlSigningKey;
+
+    /**
+     * 載入文件URL簽名密鑰，未配置時拒絕啟動，避免簽名URL可被偽造
+     */
+    @PostConstruct
+    public void init() {
+        if (urlSigningKeyBase64 == null || urlSigningKeyBase64.isEmpty()) {
+            throw new IllegalStateException("未配置文件URL簽名密鑰: app.file.url-signing-key");
+        }
+        byte[] keyBytes = Base64.getDecoder().decode(urlSigningKeyBase64);
+        if (keyBytes.length < MIN_SIGNING_KEY_BYTES) {
+            throw new IllegalStateException("文件URL簽名密鑰長度不足" + MIN_SIGNING_KEY_BYTES + "字節");
+        }
+        urlSigningKey = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+    }
 
     /**
      * 上傳KYC文件
@@ -86,29 +117,19 @@ public class FileStorageService {
                 Files.createDirectories(parentDir);
             }
 
-            // 處理文件內容
-            byte[] fileContent = file.getBytes();
-
             // 病毒掃描
-            if (enableVirusScan && !passesVirusScan(fileContent)) {
+            if (enableVirusScan && !passesVirusScan(file.getBytes())) {
                 throw new BusinessException("文件未通過病毒掃描，上傳失敗");
             }
 
-            // 計算文件MD5
-            String fileMd5 = calculateMD5(fileContent);
-
-            // 文件加密（如果啟用）
-            if (enableEncryption) {
-                fileContent = encryptFileContent(fileContent);
-            }
-
-            // 保存文件
-            Files.copy(new ByteArrayInputStream(fileContent), Paths.get(fullPath), StandardCopyOption.REPLACE_EXISTING);
-
-            // 添加水印（對於圖片文件）
-            if (documentType.isIdentityDocument() && isImageFile(file)) {
-                addWatermark(fullPath, userId);
+            // 保存文件：邊讀邊計算MD5，啟用加密時分段流式加密寫盤，不在堆中保留整個文件
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            boolean watermark = documentType.isIdentityDocument() && isImageFile(file);
+            try (InputStream in = openUploadContent(file, fileExtension, userId, watermark, md5);
+                 OutputStream out = openStorageStream(Paths.get(fullPath))) {
+                in.transferTo(out);
             }
+            String fileMd5 = toHex(md5.digest());
 
             // 創建文檔記錄
             KycDocument document = new KycDocument();
@@ -122,7 +143,8 @@ public class FileStorageService {
             document.setFileSize(file.getSize());
             document.setFileMd5(fileMd5);
             document.setEncrypted(enableEncryption);
-            document.setEncryptionAlgorithm(enableEncryption ? "AES-256-GCM" : null);
+            document.setEncryptionAlgorithm(enableEncryption ? StreamingFileCipher.ALGORITHM_NAME : null);
+            document.setEncryptionKeyId(enableEncryption ? streamingFileCipher.currentKeyId() : null);
             document.setStatus("UPLOADED");
             document.setVirusScanPassed(!enableVirusScan || true); // 如果沒有啟用掃描或通過掃描
             document.setUploadIp(getCurrentUserIP());
@@ -169,12 +191,8 @@ public class FileStorageService {
                 return ApiResponse.error("文件已過期");
             }
 
-            // 生成臨時訪問URL（有效期30分鐘）
+            // 生成臨時訪問URL（有效期30分鐘），訪問次數在實際下載時記錄
             String signedUrl = generateSignedUrl(document, 30);
-            
-            // 更新訪問記錄
-            document.incrementAccessCount();
-            kycDocumentMapper.updateById(document);
 
             return ApiResponse.success("獲取文件URL成功", signedUrl);
 
@@ -246,9 +264,9 @@ public class FileStorageService {
             }
         }
 
-        // 檢查文件魔數（防止文件偽造）
-        try {
-            byte[] fileHeader = file.getBytes();
+        // 檢查文件魔數（防止文件偽造），只讀取文件頭
+        try (InputStream in = file.getInputStream()) {
+            byte[] fileHeader = in.readNBytes(8);
             if (!isValidFileType(fileHeader, contentType)) {
                 throw new BusinessException("文件類型與內容不匹配，可能是偽造文件");
             }
@@ -303,33 +321,182 @@ public class FileStorageService {
     }
 
     /**
-     * 計算文件MD5
+     * 轉換為十六進制字符串
      */
-    private String calculateMD5(byte[] content) {
+    private String toHex(byte[] hash) {
+        StringBuilder hexString = new StringBuilder();
+        for (byte b : hash) {
+            String hex = Integer.toHexString(0xff & b);
+            if (hex.length() == 1) {
+                hexString.append('0');
+            }
+            hexString.append(hex);
+        }
+        return hexString.toString();
+    }
+
+    /**
+     * 打開上傳內容流，同時將原始內容計入MD5
+     * 身份證明圖片需要先在內存中加水印，其餘文件直接流式讀取
+     */
+    private InputStream openUploadContent(MultipartFile file, String format, Long userId,
+                                          boolean watermark, MessageDigest md5) throws IOException {
+        if (!watermark) {
+            return new DigestInputStream(file.getInputStream(), md5);
+        }
+        byte[] content = file.getBytes();
+        md5.update(content);
+        return new ByteArrayInputStream(addWatermark(content, format, userId));
+    }
+
+    /**
+     * 打開存儲輸出流，啟用加密時包裝為分段加密流
+     */
+    private OutputStream openStorageStream(Path path) throws IOException {
+        OutputStream out = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        if (!enableEncryption) {
+            return out;
+        }
         try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] hash = md.digest(content);
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
+            return streamingFileCipher.newEncryptingStream(out);
+        } catch (IOException | RuntimeException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 解析文檔在磁盤上的存儲路徑
+     *
+     * @param document 文檔
+     * @return 存儲路徑
+     */
+    public Path resolveDocumentPath(KycDocument document) {
+        Path root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Path path = root.resolve(document.getFilePath()).normalize();
+        if (!path.startsWith(root)) {
+            throw new BusinessException("非法的文件路徑");
+        }
+        return path;
+    }
+
+    /**
+     * 校驗簽名URL
+     *
+     * @param documentId 文檔ID
+     * @param userId 當前用戶ID
+     * @param expires 過期時間戳（毫秒）
+     * @param signature 簽名
+     * @return 簽名匹配且未過期時返回true
+     */
+    public boolean verifySignedUrl(Long documentId, Long userId, Long expires, String signature) {
+        if (documentId == null || userId == null || expires == null || signature == null) {
+            return false;
+        }
+        if (expires < System.currentTimeMillis()) {
+            return false;
+        }
+        byte[] expected = sign(documentId, userId, expires).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * 按文件頭判斷是否為分段加密格式，不依賴數據庫中的加密標記
+     *
+     * @param path 文件路徑
+     * @return 是否加密
+     * @throws IOException IO異常
+     */
+    public boolean isEncryptedFile(Path path) throws IOException {
+        return streamingFileCipher.isEncryptedFormat(path);
+    }
+
+    /**
+     * 獲取加密文件的明文長度
+     *
+     * @param path 文件路徑
+     * @return 明文長度
+     * @throws IOException IO異常
+     */
+    public long getDecryptedLength(Path path) throws IOException {
+        if (streamingFileCipher.isEncryptedFormat(path)) {
+            return streamingFileCipher.plaintextLength(path);
+        }
+        // 早期標記為加密但以明文存儲的文件
+        return Files.size(path);
+    }
+
+    /**
+     * 解密文件的指定明文區間並寫入輸出流，只解密覆蓋該區間的段
+     *
+     * @param path 文件路徑
+     * @param offset 明文起始偏移
+     * @param length 明文長度
+     * @param out 輸出流
+     * @throws IOException IO異常
+     */
+    public void copyDecryptedRange(Path path, long offset, long length, OutputStream out) throws IOException {
+        if (streamingFileCipher.isEncryptedFormat(path)) {
+            streamingFileCipher.decryptRange(path, offset, length, out);
+            return;
+        }
+
+        // 早期標記為加密但以明文存儲的文件，按塊讀取避免整個文件進入堆內存
+        byte[] buffer = new byte[DECRYPT_CHUNK_SIZE];
+        try (InputStream in = Files.newInputStream(path)) {
+            long skipped = 0;
+            while (skipped < offset) {
+                long n = in.skip(offset - skipped);
+                if (n <= 0) {
+                    throw new EOFException("文件長度不足");
                 }
-                hexString.append(hex);
+                skipped += n;
+            }
+
+            long remaining = length;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new EOFException("文件長度不足");
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
             }
-            return hexString.toString();
-        } catch (Exception e) {
-            throw new RuntimeException("計算MD5失敗", e);
         }
     }
 
     /**
-     * 加密文件內容
+     * 使用當前主密鑰重新包裝文檔的數據密鑰（主密鑰輪換），無需重新加密文件內容
+     *
+     * @param document 文檔
+     * @return 是否發生了重新包裝
      */
-    private byte[] encryptFileContent(byte[] content) {
-        // 這裡應該實現實際的加密邏輯
-        // 使用DataEncryptionUtil進行AES加密
-        return content; // 暫時返回原內容，實際實現時需要加密
+    public boolean rewrapDocumentKey(KycDocument document) {
+        if (!Boolean.TRUE.equals(document.getEncrypted())) {
+            return false;
+        }
+
+        try {
+            Path path = resolveDocumentPath(document);
+            if (!Files.isRegularFile(path) || !streamingFileCipher.isEncryptedFormat(path)) {
+                return false;
+            }
+            if (!streamingFileCipher.rewrapKey(path)) {
+                return false;
+            }
+
+            KycDocument update = new KycDocument();
+            update.setId(document.getId());
+            update.setEncryptionKeyId(streamingFileCipher.currentKeyId());
+            kycDocumentMapper.updateById(update);
+
+            log.info("文檔密鑰已重新包裝: documentId={}, keyId={}", document.getId(), update.getEncryptionKeyId());
+            return true;
+        } catch (IOException e) {
+            log.error("文檔密鑰重新包裝失敗: documentId={}, error={}", document.getId(), e.getMessage(), e);
+            return false;
+        }
     }
 
     /**
@@ -344,17 +511,20 @@ public class FileStorageService {
     /**
      * 添加水印
      */
-    private void addWatermark(String filePath, Long userId) {
+    private byte[] addWatermark(byte[] content, String format, Long userId) {
         try {
-            BufferedImage image = ImageIO.read(new File(filePath));
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(content));
             if (image != null) {
                 BufferedImage watermarkedImage = fileProcessingUtil.addWatermark(image, "KYC-" + userId);
-                String format = filePath.substring(filePath.lastIndexOf(".") + 1);
-                ImageIO.write(watermarkedImage, format, new File(filePath));
+                byte[] watermarked = fileProcessingUtil.imageToBytes(watermarkedImage, format);
+                if (watermarked.length > 0) {
+                    return watermarked;
+                }
             }
         } catch (Exception e) {
-            log.warn("添加水印失敗: filePath={}, error={}", filePath, e.getMessage());
+            log.warn("添加水印失敗: userId={}, error={}", userId, e.getMessage());
         }
+        return content;
     }
 
     /**
@@ -370,10 +540,23 @@ public class FileStorageService {
      * 生成簽名URL
      */
     private String generateSignedUrl(KycDocument document, int validMinutes) {
-        // 這裡應該生成帶有時間戳和簽名的URL
-        // 實際項目中可能使用JWT或其他簽名機制
-        long timestamp = System.currentTimeMillis() + (validMinutes * 60 * 1000);
-        return String.format("/api/files/%d?expires=%d&signature=temp", document.getId(), timestamp);
+        long expires = System.currentTimeMillis() + (validMinutes * 60 * 1000L);
+        return String.format("/api/kyc/file/%d/content?expires=%d&signature=%s",
+                document.getId(), expires, sign(document.getId(), document.getUserId(), expires));
+    }
+
+    /**
+     * HMAC-SHA256簽名，綁定文檔、所屬用戶及過期時間
+     */
+    private String sign(Long documentId, Long userId, long expires) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(urlSigningKey);
+            byte[] digest = mac.doFinal((documentId + ":" + userId + ":" + expires).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("文件URL簽名失敗", e);
+        }
     }
 
     /**
@@ -0,0 +1,201 @@
+package com.usdttrading.service;
+
+import com.usdttrading.entity.UserKyc;
+import com.usdttrading.repository.UserKycMapper;
+import com.usdttrading.utils.BlindIndexUtil;
+import com.usdttrading.utils.DataEncryptionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * KYC盲索引服務
+ * 負責按明文標識做索引查詢、重複檢查，以及對存量數據分批回填
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KycBlindIndexService {
+
+    private final UserKycMapper userKycMapper;
+    private final BlindIndexUtil blindIndexUtil;
+    private final DataEncryptionUtil encryptionUtil;
+
+    @Value("${app.kyc.blind-index.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    @Value("${app.kyc.blind-index.backfill-batch-size:500}")
+    private int backfillBatchSize;
+
+    private final AtomicBoolean backfillRunning = new AtomicBoolean(false);
+
+    /**
+     * 按證件號查找KYC記錄
+     *
+     * @param idNumber 證件號明文
+     * @return KYC記錄列表
+     */
+    public List<UserKyc> findByIdNumber(String idNumber) {
+        String index = blindIndexUtil.idNumber(idNumber);
+        return index == null ? Collections.emptyList() : userKycMapper.findByIdNumberBidx(index);
+    }
+
+    /**
+     * 按銀行賬號查找KYC記錄
+     *
+     * @param bankAccount 銀行賬號明文
+     * @return KYC記錄列表
+     */
+    public List<UserKyc> findByBankAccount(String bankAccount) {
+        String index = blindIndexUtil.bankAccount(bankAccount);
+        return index == null ? Collections.emptyList() : userKycMapper.findByBankAccountBidx(index);
+    }
+
+    /**
+     * 按手機號查找KYC記錄
+     *
+     * @param phoneNumber 手機號明文
+     * @return KYC記錄列表
+     */
+    public List<UserKyc> findByPhoneNumber(String phoneNumber) {
+        String index = blindIndexUtil.phoneNumber(phoneNumber);
+        return index == null ? Collections.emptyList() : userKycMapper.findByPhoneNumberBidx(index);
+    }
+
+    /**
+     * 檢查是否存在同一證件號的其他已通過KYC
+     * 記錄尚未回填盲索引時即時計算（不在此處補寫，該方法可能在審核事務之外的線程執行，
+     * 補寫由回填任務完成，避免與持有行鎖的審核事務互相等待）
+     *
+     * @param kyc KYC記錄
+     * @return true 存在重複
+     */
+    public boolean hasApprovedDuplicateIdNumber(UserKyc kyc) {
+        String index = kyc.getIdNumberBidx();
+        if (index == null && kyc.getIdNumber() != null) {
+            index = blindIndexUtil.idNumber(encryptionUtil.decrypt(kyc.getIdNumber()));
+        }
+        if (index == null) {
+            return false;
+        }
+        return userKycMapper.countApprovedByIdNumberBidx(index, kyc.getId()) > 0;
+    }
+
+    /**
+     * 應用啟動後在後台回填存量數據
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Async
+    public void backfillOnStartup() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        try {
+            backfill();
+        } catch (Exception e) {
+            log.warn("啟動時盲索引回填失敗，可稍後手動觸發: error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 分批回填缺少盲索引的KYC記錄
+     * 按主鍵游標流式掃描，每批只解密並更新缺失的字段
+     *
+     * @return 回填統計
+     */
+    public Map<String, Object> backfill() {
+        Map<String, Object> result = new HashMap<>();
+        if (!backfillRunning.compareAndSet(false, true)) {
+            result.put("running", true);
+            return result;
+        }
+
+        long startTime = System.currentTimeMillis();
+        int scanned = 0;
+        int updated = 0;
+        int failed = 0;
+
+        try {
+            long lastId = 0L;
+            int batchSize = Math.max(1, backfillBatchSize);
+            while (true) {
+                List<UserKyc> batch = userKycMapper.findBlindIndexBackfillBatch(lastId, batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                for (UserKyc kyc : batch) {
+                    lastId = kyc.getId();
+                    scanned++;
+                    try {
+                        if (backfillRow(kyc)) {
+                            updated++;
+                        }
+                    } catch (Exception e) {
+                        failed++;
+                        log.warn("盲索引回填失敗: kycId={}, error={}", kyc.getId(), e.getMessage());
+                    }
+                }
+
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+        } finally {
+            backfillRunning.set(false);
+        }
+
+        long elapsed = System.currentTimeMillis() - startTime;
+        if (scanned > 0) {
+            log.info("盲索引回填完成: scanned={}, updated={}, failed={}, elapsed={}ms", scanned, updated, failed, elapsed);
+        }
+
+        result.put("running", false);
+        result.put("scanned", scanned);
+        result.put("updated", updated);
+        result.put("failed", failed);
+        result.put("elapsedMs", elapsed);
+        return result;
+    }
+
+    /**
+     * 回填單條記錄，只計算缺失的索引
+     */
+    private boolean backfillRow(UserKyc kyc) {
+        String idNumberBidx = kyc.getIdNumberBidx();
+        String bankAccountBidx = kyc.getBankAccountBidx();
+        String phoneNumberBidx = kyc.getPhoneNumberBidx();
+
+        if (idNumberBidx == null && kyc.getIdNumber() != null) {
+            idNumberBidx = blindIndexUtil.idNumber(encryptionUtil.decrypt(kyc.getIdNumber()));
+        }
+        if (bankAccountBidx == null && kyc.getBankAccount() != null) {
+            bankAccountBidx = blindIndexUtil.bankAccount(encryptionUtil.decrypt(kyc.getBankAccount()));
+        }
+        if (phoneNumberBidx == null && kyc.getPhoneNumber() != null) {
+            phoneNumberBidx = blindIndexUtil.phoneNumber(encryptionUtil.decrypt(kyc.getPhoneNumber()));
+        }
+
+        if (Objects.equals(idNumberBidx, kyc.getIdNumberBidx())
+                && Objects.equals(bankAccountBidx, kyc.getBankAccountBidx())
+                && Objects.equals(phoneNumberBidx, kyc.getPhoneNumberBidx())) {
+            return false;
+        }
+        return userKycMapper.updateBlindIndexes(kyc.getId(), idNumberBidx, bankAccountBidx, phoneNumberBidx) > 0;
+    }
+}
@@ -0,0 +1,283 @@
+package com.usdttrading.service;
+
+import com.usdttrading.entity.KycDocument;
+import com.usdttrading.repository.KycDocumentMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * KYC文件下發服務
+ * 未加密文件走零拷貝（Tomcat sendfile / FileChannel.transferTo），加密文件按固定塊解密；
+ * 支持HTTP Range及ETag條件請求
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KycFileServingService {
+
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    private final KycDocumentMapper kycDocumentMapper;
+    private final FileStorageService fileStorageService;
+
+    /**
+     * 下發KYC文件內容
+     *
+     * @param documentId 文檔ID
+     * @param userId 當前用戶ID
+     * @param adminAccess 是否為管理員訪問（管理員可查看任意用戶文件）
+     * @param request HTTP請求
+     * @param response HTTP響應
+     * @throws IOException IO異常
+     */
+    public void serveDocument(Long documentId, Long userId, boolean adminAccess,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        KycDocument document = kycDocumentMapper.selectById(documentId);
+        if (document == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), "文件不存在");
+            return;
+        }
+
+        // 權限檢查
+        if (!adminAccess && !document.getUserId().equals(userId)) {
+            response.sendError(HttpStatus.FORBIDDEN.value(), "沒有文件訪問權限");
+            return;
+        }
+
+        // 檢查文件是否過期
+        if (document.isExpired()) {
+            response.sendError(HttpStatus.GONE.value(), "文件已過期");
+            return;
+        }
+
+        Path path = fileStorageService.resolveDocumentPath(document);
+        if (!Files.isRegularFile(path)) {
+            log.warn("KYC文件缺失: documentId={}, path={}", documentId, path);
+            response.sendError(HttpStatus.NOT_FOUND.value(), "文件不存在");
+            return;
+        }
+
+        // 以文件頭判斷，加密文件的長度和區間均按明文計算
+        boolean encrypted = fileStorageService.isEncryptedFile(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        long contentLength = encrypted ? fileStorageService.getDecryptedLength(path) : Files.size(path);
+        String etag = buildETag(document, lastModified, contentLength);
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=0, must-revalidate");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        // 條件請求
+        if (matchesETag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        long start = 0;
+        long end = contentLength - 1;
+        boolean partial = false;
+
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), etag, lastModified)) {
+            long[] range = parseRange(rangeHeader, contentLength);
+            if (range == UNSATISFIABLE) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + contentLength);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            if (range != null) {
+                start = range[0];
+                end = range[1];
+                partial = true;
+            }
+        }
+
+        long length = Math.max(0, end - start + 1);
+
+        response.setContentType(document.getMimeType() != null ? document.getMimeType() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline()
+                .filename(document.getOriginalFileName() != null ? document.getOriginalFileName() : document.getStoredFileName(),
+                          StandardCharsets.UTF_8)
+                .build().toString());
+        response.setContentLengthLong(length);
+
+        if (partial) {
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + contentLength);
+        } else {
+            response.setStatus(HttpStatus.OK.value());
+        }
+
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        // 只在GET從頭讀取時記錄訪問，HEAD及後續分段請求不計數
+        if (!head && start == 0) {
+            kycDocumentMapper.incrementAccessCount(documentId, LocalDateTime.now());
+        }
+
+        if (head || length == 0) {
+            return;
+        }
+
+        if (encrypted) {
+            OutputStream out = response.getOutputStream();
+            fileStorageService.copyDecryptedRange(path, start, length, out);
+            out.flush();
+        } else if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            // 由容器直接使用sendfile發送，數據不經過JVM堆
+            request.setAttribute(SENDFILE_FILENAME_ATTR, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + length);
+        } else {
+            transferFile(path, start, length, response.getOutputStream());
+        }
+
+        log.debug("KYC文件下發: documentId={}, range={}-{}, encrypted={}", documentId, start, end, encrypted);
+    }
+
+    /**
+     * 使用FileChannel.transferTo發送文件區間
+     */
+    private void transferFile(Path path, long start, long length, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * 生成ETag：文件摘要 + 修改時間 + 長度
+     */
+    private String buildETag(KycDocument document, long lastModified, long contentLength) {
+        String digest = document.getFileMd5() != null ? document.getFileMd5() : String.valueOf(document.getId());
+        return "\"" + digest + "-" + Long.toHexString(lastModified) + "-" + Long.toHexString(contentLength) + "\"";
+    }
+
+    /**
+     * 判斷If-None-Match是否命中
+     */
+    private boolean matchesETag(String header, String etag) {
+        if (header == null) {
+            return false;
+        }
+        for (String candidate : header.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if ("*".equals(value) || etag.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 判斷If-Range條件，不滿足時忽略Range返回完整內容
+     */
+    private boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        String value = ifRange.trim();
+        if (value.startsWith("\"")) {
+            return etag.equals(value);
+        }
+        try {
+            long since = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return lastModified / 1000 <= since / 1000;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 解析單一區間的Range頭
+     *
+     * @return [start, end]；多區間或格式不支持時返回null（返回完整內容）；不可滿足時返回UNSATISFIABLE
+     */
+    private long[] parseRange(String header, long contentLength) {
+        if (!header.startsWith("bytes=")) {
+            return null;
+        }
+        String spec = header.substring(6).trim();
+        if (spec.contains(",")) {
+            return null;
+        }
+
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+
+            if (first.isEmpty()) {
+                // 後綴區間：最後N個字節
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || contentLength == 0) {
+                    return UNSATISFIABLE;
+                }
+                start = Math.max(0, contentLength - suffix);
+                end = contentLength - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? contentLength - 1 : Math.min(Long.parseLong(last), contentLength - 1);
+                if (start >= contentLength) {
+                    return UNSATISFIABLE;
+                }
+                if (end < start) {
+                    return null;
+                }
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -16,8 +16,10 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * KYC管理服務
@@ -39,6 +41,7 @@ public class KycManagementService {
     private final UserMapper userMapper;
     private final DataEncryptionUtil encryptionUtil;
     private final NotificationService notificationService;
+    private final KycBlindIndexService kycBlindIndexService;
 
     /**
      * 分頁查詢KYC申請列表
@@ -88,10 +91,10 @@ public class KycManagementService {
                 
                 // 脫敏顯示敏感信息
                 if (kyc.getRealName() != null) {
-                    record.put("realName", encryptionUtil.maskName(encryptionUtil.decrypt(kyc.getRealName())));
+                    record.put("realName", encryptionUtil.maskName(encryptionUtil.decryptCached(kyc.getRealName())));
                 }
                 if (kyc.getIdNumber() != null) {
-                    record.put("idNumber", encryptionUtil.maskIdNumber(encryptionUtil.decrypt(kyc.getIdNumber())));
+                    record.put("idNumber", encryptionUtil.maskIdNumber(encryptionUtil.decryptCached(kyc.getIdNumber())));
                 }
                 
                 // 獲取用戶基本信息
@@ -147,22 +150,15 @@ public class KycManagementService {
             detail.put("requiresSupplement", kyc.getRequiresSupplement());
             detail.put("supplementRequirement", kyc.getSupplementRequirement());
 
-            // 解密並脫敏顯示敏感信息
-            if (kyc.getRealName() != null) {
-                detail.put("realName", encryptionUtil.decrypt(kyc.getRealName()));
-            }
-            if (kyc.getIdNumber() != null) {
-                detail.put("idNumber", encryptionUtil.decrypt(kyc.getIdNumber()));
-            }
-            if (kyc.getAddress() != null) {
-                detail.put("address", encryptionUtil.decrypt(kyc.getAddress()));
-            }
-            if (kyc.getPhoneNumber() != null) {
-                detail.put("phoneNumber", encryptionUtil.decrypt(kyc.getPhoneNumber()));
-            }
-            if (kyc.getBankAccount() != null) {
-                detail.put("bankAccount", encryptionUtil.decrypt(kyc.getBankAccount()));
-            }
+            // 批量解密敏感信息
+            Map<String, String> encryptedFields = new LinkedHashMap<>();
+            encryptedFields.put("realName", kyc.getRealName());
+            encryptedFields.put("idNumber", kyc.getIdNumber());
+            encryptedFields.put("address", kyc.getAddress());
+            encryptedFields.put("phoneNumber", kyc.getPhoneNumber());
+            encryptedFields.put("bankAccount", kyc.getBankAccount());
+            encryptedFields.values().removeIf(Objects::isNull);
+            detail.putAll(encryptionUtil.decryptAllCached(encryptedFields));
 
             // 非敏感信息
             detail.put("englishName", kyc.getEnglishName());
@@ -218,6 +214,68 @@ public class KycManagementService {
         }
     }
 
+    /**
+     * 按敏感標識查找關聯的KYC記錄（盲索引等值查詢）
+     *
+     * @param idNumber 證件號
+     * @param bankAccount 銀行賬號
+     * @param phoneNumber 手機號
+     * @return 匹配的KYC記錄摘要
+     */
+    public ApiResponse<List<Map<String, Object>>> lookupByIdentifier(String idNumber, String bankAccount, String phoneNumber) {
+        try {
+            List<UserKyc> matches;
+            String matchedBy;
+            if (idNumber != null && !idNumber.isBlank()) {
+                matches = kycBlindIndexService.findByIdNumber(idNumber);
+                matchedBy = "idNumber";
+            } else if (bankAccount != null && !bankAccount.isBlank()) {
+                matches = kycBlindIndexService.findByBankAccount(bankAccount);
+                matchedBy = "bankAccount";
+            } else if (phoneNumber != null && !phoneNumber.isBlank()) {
+                matches = kycBlindIndexService.findByPhoneNumber(phoneNumber);
+                matchedBy = "phoneNumber";
+            } else {
+                return ApiResponse.error("請提供證件號、銀行賬號或手機號");
+            }
+
+            List<Map<String, Object>> records = matches.stream().map(kyc -> {
+                Map<String, Object> record = new HashMap<>();
+                record.put("kycId", kyc.getId());
+                record.put("userId", kyc.getUserId());
+                record.put("status", kyc.getStatus());
+                record.put("riskLevel", kyc.getRiskLevel());
+                record.put("matchedBy", matchedBy);
+                record.put("createdAt", kyc.getCreatedAt());
+                return record;
+            }).toList();
+
+            return ApiResponse.success("查詢成功", records);
+
+        } catch (Exception e) {
+            log.error("按標識查找KYC失敗: error={}", e.getMessage(), e);
+            return ApiResponse.error("查詢失敗: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 回填KYC盲索引
+     *
+     * @return 回填統計
+     */
+    public ApiResponse<Map<String, Object>> backfillBlindIndexes() {
+        try {
+            Map<String, Object> result = kycBlindIndexService.backfill();
+            if (Boolean.TRUE.equals(result.get("running"))) {
+                return ApiResponse.error("盲索引回填正在進行中");
+            }
+            return ApiResponse.success("盲索引回填完成", result);
+        } catch (Exception e) {
+            log.error("盲索引回填失敗: error={}", e.getMessage(), e);
+            return ApiResponse.error("回填失敗: " + e.getMessage());
+        }
+    }
+
     /**
      * 審核KYC申請
      *
@@ -382,6 +440,7 @@ public class KycManagementService {
      * @param endDate 結束日期
      * @return 統計數據
      */
+    @Transactional(readOnly = true)
     public ApiResponse<Map<String, Object>> getReviewStatistics(String startDate, String endDate) {
         try {
             LocalDateTime start = LocalDateTime.parse(startDate + " 00:00:00", 
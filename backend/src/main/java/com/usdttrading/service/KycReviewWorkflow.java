@@ -1,6 +1,8 @@
 package com.usdttrading.service;
 
+import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.usdttrading.dto.ApiResponse;
 import com.usdttrading.entity.*;
 import com.usdttrading.enums.*;
@@ -8,12 +10,16 @@ import com.usdttrading.exception.BusinessException;
 import com.usdttrading.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -35,6 +41,10 @@ public class KycReviewWorkflow {
     private final KycReviewMapper kycReviewMapper;
     private final KycDocumentMapper kycDocumentMapper;
     private final NotificationService notificationService;
+    private final KycBlindIndexService kycBlindIndexService;
+    private final SanctionsScreeningService sanctionsScreeningService;
+    private final KycRiskCheckPipeline kycRiskCheckPipeline;
+    private final ObjectProvider<KycRiskCheck> additionalRiskChecks;
 
     @Value("${app.kyc.auto-approval-threshold:30}")
     private BigDecimal autoApprovalThreshold;
@@ -45,6 +55,24 @@ public class KycReviewWorkflow {
     @Value("${app.kyc.enable-auto-review:true}")
     private boolean enableAutoReview;
 
+    @Value("${app.kyc.risk-check-timeout-ms:3000}")
+    private long riskCheckTimeoutMs;
+
+    @Value("${app.kyc.workflow.max-auto-attempts:3}")
+    private int maxAutoAttempts;
+
+    @Value("${app.kyc.workflow.auto-pre-review-sla-minutes:10}")
+    private int autoPreReviewSlaMinutes;
+
+    @Value("${app.kyc.workflow.primary-review-sla-minutes:1440}")
+    private int primaryReviewSlaMinutes;
+
+    @Value("${app.kyc.workflow.senior-review-sla-minutes:2880}")
+    private int seniorReviewSlaMinutes;
+
+    @Value("${app.kyc.workflow.final-review-sla-minutes:4320}")
+    private int finalReviewSlaMinutes;
+
     /**
      * 啟動KYC審核工作流
      *
@@ -71,10 +99,8 @@ public class KycReviewWorkflow {
             kyc.setReviewStartedAt(LocalDateTime.now());
             userKycMapper.updateById(kyc);
 
-            // 開始第一步：自動預審
-            startAutomaticPreReview(kycId);
-
-            log.info("KYC審核工作流啟動成功: kycId={}", kycId);
+            // 自動預審由後台工作流引擎認領執行，不佔用提交請求
+            log.info("KYC審核工作流啟動成功，自動預審已排隊: kycId={}", kycId);
 
             return ApiResponse.success("審核工作流啟動成功", null);
 
@@ -85,51 +111,141 @@ public class KycReviewWorkflow {
     }
 
     /**
-     * 創建工作流步驟
+     * 創建工作流步驟（按狀態機定義一次性批量插入）
+     * 自動預審步驟直接置為READY等待執行器認領，其餘步驟待前序完成後激活
      *
      * @param kycId KYC ID
      */
     private void createWorkflowSteps(Long kycId) {
-        // Step 1: 自動預審
-        createWorkflowStep(kycId, 1, "自動預審", "PENDING");
+        LocalDateTime now = LocalDateTime.now();
+        List<KycWorkflowStep> steps = new ArrayList<>();
+        for (KycWorkflowStage stage : KycWorkflowStage.values()) {
+            KycWorkflowStep step = new KycWorkflowStep();
+            step.setId(IdWorker.getId());
+            step.setKycId(kycId);
+            step.setStepNumber(stage.getStepNumber());
+            step.setStepName(stage.getStepName());
+            step.setRequiresManualIntervention(stage.isManual());
+            if (stage.isAutomatic() && stage.getStepNumber() == 1) {
+                step.setStatus(KycWorkflowStage.STATUS_READY);
+                step.setNextRunAt(now);
+                step.setSlaDeadline(now.plusMinutes(getSlaMinutes(stage)));
+            } else {
+                step.setStatus(KycWorkflowStage.STATUS_PENDING);
+            }
+            steps.add(step);
+        }
+        kycWorkflowStepMapper.insertBatch(steps);
+    }
 
-        // Step 2: 初級審核
-        createWorkflowStep(kycId, 2, "初級審核", "PENDING");
+    /**
+     * 執行已被認領的自動步驟（由工作流引擎在後台調用）
+     *
+     * @param stepId 步驟ID
+     * @param nodeId 認領節點
+     */
+    @Transactional
+    public void executeAutomaticStep(Long stepId, String nodeId) {
+        KycWorkflowStep step = kycWorkflowStepMapper.selectById(stepId);
+        if (step == null || !step.isInProgress() || !nodeId.equals(step.getClaimedBy())) {
+            log.debug("步驟已不屬於本節點，跳過: stepId={}, nodeId={}", stepId, nodeId);
+            return;
+        }
 
-        // Step 3: 高級審核 (高風險用戶或初級審核未通過)
-        createWorkflowStep(kycId, 3, "高級審核", "PENDING");
+        KycWorkflowStage stage = KycWorkflowStage.fromStepNumber(step.getStepNumber());
+        if (stage != KycWorkflowStage.AUTO_PRE_REVIEW) {
+            log.warn("非自動步驟被認領，已忽略: stepId={}, stepNumber={}", stepId, step.getStepNumber());
+            return;
+        }
 
-        // Step 4: 風控終審 (特殊情況)
-        createWorkflowStep(kycId, 4, "風控終審", "PENDING");
+        // 多次執行失敗（節點反覆宕機或超時）時直接轉人工
+        if (step.getAttempts() != null && step.getAttempts() > maxAutoAttempts) {
+            log.warn("自動預審重試次數超限，轉入人工審核: kycId={}, attempts={}", step.getKycId(), step.getAttempts());
+            proceedToManualReview(step.getKycId(), step, null);
+            return;
+        }
+
+        runAutomaticPreReview(step);
     }
 
     /**
-     * 創建單個工作流步驟
+     * SLA超時升級（由工作流引擎的時間輪觸發，多節點下只有一個節點會成功升級）
+     *
+     * @param stepId 步驟ID
      */
-    private void createWorkflowStep(Long kycId, Integer stepNumber, String stepName, String status) {
-        KycWorkflowStep step = new KycWorkflowStep();
-        step.setKycId(kycId);
-        step.setStepNumber(stepNumber);
-        step.setStepName(stepName);
-        step.setStatus(status);
-        step.setRequiresManualIntervention(stepNumber > 1);
-        kycWorkflowStepMapper.insert(step);
+    @Transactional
+    public void escalateOverdueStep(Long stepId) {
+        KycWorkflowStep step = kycWorkflowStepMapper.selectById(stepId);
+        if (step == null || Boolean.TRUE.equals(step.getEscalated())) {
+            return;
+        }
+
+        UserKyc kyc = userKycMapper.selectById(step.getKycId());
+        if (kyc == null || !KycStatus.UNDER_REVIEW.equals(kyc.getStatus())) {
+            // 審核已結束，清除SLA
+            step.setSlaDeadline(null);
+            kycWorkflowStepMapper.updateById(step);
+            return;
+        }
+
+        if (kycWorkflowStepMapper.markEscalated(stepId, LocalDateTime.now()) == 0) {
+            return;
+        }
+
+        KycWorkflowStage stage = KycWorkflowStage.fromStepNumber(step.getStepNumber());
+        KycWorkflowStage target = stage != null ? stage.getEscalationTarget() : null;
+        if (target == null) {
+            log.warn("KYC終審SLA超時，已無更高級別: kycId={}, stepNumber={}", kyc.getId(), step.getStepNumber());
+            notificationService.sendKycManualReviewNotification(kyc.getId());
+            return;
+        }
+
+        KycWorkflowStep targetStep = getWorkflowStep(kyc.getId(), target.getStepNumber());
+        if (targetStep != null) {
+            activateManualStep(targetStep, target);
+            kyc.setCurrentStep(target.getStepNumber());
+            userKycMapper.updateById(kyc);
+        }
+
+        notificationService.sendKycManualReviewNotification(kyc.getId());
+
+        log.warn("KYC審核步驟SLA超時已升級: kycId={}, from={}, to={}", kyc.getId(), stage, target);
     }
 
     /**
-     * 開始自動預審
-     *
-     * @param kycId KYC ID
+     * 激活人工審核步驟並設置SLA
      */
-    private void startAutomaticPreReview(Long kycId) {
-        try {
-            // 獲取第一個步驟
-            KycWorkflowStep step = getWorkflowStep(kycId, 1);
-            if (step == null) return;
+    private void activateManualStep(KycWorkflowStep step, KycWorkflowStage stage) {
+        LocalDateTime now = LocalDateTime.now();
+        step.setSlaDeadline(now.plusMinutes(getSlaMinutes(stage)));
+        step.setRequiresManualIntervention(true);
+        updateStepStatus(step, KycWorkflowStage.STATUS_PENDING, null, now);
+    }
 
-            // 更新步驟狀態為進行中
-            updateStepStatus(step, "IN_PROGRESS", null, LocalDateTime.now());
+    /**
+     * 獲取階段SLA（分鐘）
+     */
+    private int getSlaMinutes(KycWorkflowStage stage) {
+        switch (stage) {
+            case AUTO_PRE_REVIEW:
+                return autoPreReviewSlaMinutes;
+            case PRIMARY_REVIEW:
+                return primaryReviewSlaMinutes;
+            case SENIOR_REVIEW:
+                return seniorReviewSlaMinutes;
+            default:
+                return finalReviewSlaMinutes;
+        }
+    }
 
+    /**
+     * 執行自動預審
+     *
+     * @param step 已認領的自動預審步驟
+     */
+    private void runAutomaticPreReview(KycWorkflowStep step) {
+        Long kycId = step.getKycId();
+        try {
             // 執行風險評估
             KycRiskAssessment riskAssessment = performRiskAssessment(kycId);
 
@@ -156,9 +272,9 @@ public class KycReviewWorkflow {
         } catch (Exception e) {
             log.error("自動預審失敗: kycId={}, error={}", kycId, e.getMessage(), e);
             // 自動預審失敗，轉入人工審核
-            KycWorkflowStep step = getWorkflowStep(kycId, 1);
-            if (step != null) {
-                proceedToManualReview(kycId, step, null);
+            KycWorkflowStep latest = kycWorkflowStepMapper.selectById(step.getId());
+            if (latest != null && latest.isInProgress()) {
+                proceedToManualReview(kycId, latest, null);
             }
         }
     }
@@ -178,22 +294,12 @@ public class KycReviewWorkflow {
             assessment.setKycId(kycId);
             assessment.setUserId(kyc.getUserId());
 
-            // 計算各項風險分數
-            BigDecimal ageRiskScore = calculateAgeRiskScore(kyc);
-            BigDecimal locationRiskScore = calculateLocationRiskScore(kyc);
-            BigDecimal occupationRiskScore = calculateOccupationRiskScore(kyc);
-            BigDecimal incomeRiskScore = calculateIncomeRiskScore(kyc);
-
-            assessment.setAgeRiskScore(ageRiskScore);
-            assessment.setLocationRiskScore(locationRiskScore);
-            assessment.setOccupationRiskScore(occupationRiskScore);
-            assessment.setIncomeRiskScore(incomeRiskScore);
-
-            // 執行各項檢查
-            assessment.setBlacklistCheck(performBlacklistCheck(kyc));
-            assessment.setDuplicateCheck(performDuplicateCheck(kyc));
-            assessment.setAmlCheck(performAmlCheck(kyc));
-            assessment.setIdentityVerification(performIdentityVerification(kycId));
+            // 併發執行各項風險檢查，記錄每項耗時
+            Map<String, Object> details = new LinkedHashMap<>();
+            Map<String, KycRiskCheckPipeline.CheckRecord> checkRecords =
+                    kycRiskCheckPipeline.run(kyc, buildRiskChecks(details), assessment);
+            details.put("checks", checkRecords);
+            assessment.setAssessmentDetails(JSONUtil.toJsonStr(details));
 
             // 計算綜合風險分數
             BigDecimal totalRiskScore = calculateTotalRiskScore(assessment);
@@ -304,64 +410,95 @@ public class KycReviewWorkflow {
     }
 
     /**
-     * 執行黑名單檢查
+     * 構建風險檢查流水線
+     * 內置檢查之外，註冊為Spring Bean的KycRiskCheck會一併執行
+     *
+     * @param details 評估詳情（檢查結果在調用線程寫入）
+     * @return 檢查項列表
      */
-    private Boolean performBlacklistCheck(UserKyc kyc) {
-        // 這裡應該查詢實際的黑名單數據庫
-        // 現在返回模擬結果
-        return true; // 假設通過檢查
-    }
+    private List<KycRiskCheck> buildRiskChecks(Map<String, Object> details) {
+        List<KycRiskCheck> checks = new ArrayList<>();
 
-    /**
-     * 執行重複申請檢查
-     */
-    private Boolean performDuplicateCheck(UserKyc kyc) {
-        try {
-            // 檢查是否有相同身份證號的其他已通過KYC記錄
-            QueryWrapper<UserKyc> queryWrapper = new QueryWrapper<>();
-            queryWrapper.eq("id_number", kyc.getIdNumber());
-            queryWrapper.eq("status", KycStatus.APPROVED);
-            queryWrapper.ne("id", kyc.getId());
-            
-            List<UserKyc> duplicates = userKycMapper.selectList(queryWrapper);
-            return duplicates.isEmpty();
-            
-        } catch (Exception e) {
-            log.error("重複申請檢查失敗: kycId={}", kyc.getId(), e);
-            return false; // 檢查失敗時保守處理
-        }
+        // 資料評分為純計算，失敗時按缺失資料的默認分數處理
+        checks.add(KycRiskCheck.of("profileScores", riskCheckTimeoutMs, kyc -> {
+            BigDecimal ageRiskScore = calculateAgeRiskScore(kyc);
+            BigDecimal locationRiskScore = calculateLocationRiskScore(kyc);
+            BigDecimal occupationRiskScore = calculateOccupationRiskScore(kyc);
+            BigDecimal incomeRiskScore = calculateIncomeRiskScore(kyc);
+            return assessment -> {
+                assessment.setAgeRiskScore(ageRiskScore);
+                assessment.setLocationRiskScore(locationRiskScore);
+                assessment.setOccupationRiskScore(occupationRiskScore);
+                assessment.setIncomeRiskScore(incomeRiskScore);
+            };
+        }, assessment -> {
+            assessment.setAgeRiskScore(BigDecimal.valueOf(20));
+            assessment.setLocationRiskScore(BigDecimal.valueOf(30));
+            assessment.setOccupationRiskScore(BigDecimal.valueOf(20));
+            assessment.setIncomeRiskScore(BigDecimal.valueOf(25));
+        }));
+
+        // 黑名單及反洗錢共用一次名單篩查
+        checks.add(KycRiskCheck.of("sanctionsScreening", riskCheckTimeoutMs, kyc -> {
+            SanctionsScreeningService.ScreeningResult screening = sanctionsScreeningService.screenKyc(kyc);
+            if (!screening.getMatches().isEmpty()) {
+                log.warn("KYC名單篩查命中: kycId={}, blacklistHit={}, amlHit={}, matches={}",
+                        kyc.getId(), screening.isBlacklistHit(), screening.isAmlHit(), screening.getMatches().size());
+            }
+            return assessment -> {
+                assessment.setBlacklistCheck(!screening.isBlacklistHit());
+                assessment.setAmlCheck(!screening.isAmlHit());
+                Map<String, Object> screeningDetails = new LinkedHashMap<>();
+                screeningDetails.put("listsLoaded", screening.isListsLoaded());
+                screeningDetails.put("blacklistHit", screening.isBlacklistHit());
+                screeningDetails.put("amlHit", screening.isAmlHit());
+                screeningDetails.put("matches", screening.getMatches());
+                screeningDetails.put("elapsedMicros", screening.getElapsedMicros());
+                details.put("screening", screeningDetails);
+            };
+        }, assessment -> {
+            assessment.setBlacklistCheck(false);
+            assessment.setAmlCheck(false);
+            details.put("screening", Map.of("screeningError", true));
+        }));
+
+        checks.add(KycRiskCheck.of("duplicateCheck", riskCheckTimeoutMs, kyc -> {
+            boolean passed = performDuplicateCheck(kyc);
+            return assessment -> assessment.setDuplicateCheck(passed);
+        }, assessment -> assessment.setDuplicateCheck(false)));
+
+        checks.add(KycRiskCheck.of("identityVerification", riskCheckTimeoutMs, kyc -> {
+            boolean passed = performIdentityVerification(kyc.getId());
+            return assessment -> assessment.setIdentityVerification(passed);
+        }, assessment -> assessment.setIdentityVerification(false)));
+
+        additionalRiskChecks.orderedStream().forEach(checks::add);
+        return checks;
     }
 
     /**
-     * 執行反洗錢檢查
+     * 執行重複申請檢查
      */
-    private Boolean performAmlCheck(UserKyc kyc) {
-        // 這裡應該集成實際的AML檢查服務
-        // 現在返回模擬結果
-        return true; // 假設通過檢查
+    private boolean performDuplicateCheck(UserKyc kyc) {
+        // 通過證件號盲索引檢查是否有其他已通過KYC記錄（密文使用隨機IV，無法直接比對）
+        return !kycBlindIndexService.hasApprovedDuplicateIdNumber(kyc);
     }
 
     /**
      * 執行身份驗證檢查
      */
-    private Boolean performIdentityVerification(Long kycId) {
-        try {
-            // 檢查必要文檔是否已上傳
-            List<KycDocument> documents = kycDocumentMapper.selectByKycId(kycId);
-            
-            boolean hasIdFront = documents.stream()
-                .anyMatch(doc -> "id_front".equals(doc.getDocumentType()));
-            boolean hasIdBack = documents.stream()
-                .anyMatch(doc -> "id_back".equals(doc.getDocumentType()));
-            boolean hasSelfie = documents.stream()
-                .anyMatch(doc -> "selfie".equals(doc.getDocumentType()));
-            
-            return hasIdFront && hasIdBack && hasSelfie;
-            
-        } catch (Exception e) {
-            log.error("身份驗證檢查失敗: kycId={}", kycId, e);
-            return false;
-        }
+    private boolean performIdentityVerification(Long kycId) {
+        // 檢查必要文檔是否已上傳
+        List<KycDocument> documents = kycDocumentMapper.selectByKycId(kycId);
+
+        boolean hasIdFront = documents.stream()
+            .anyMatch(doc -> "id_front".equals(doc.getDocumentType()));
+        boolean hasIdBack = documents.stream()
+            .anyMatch(doc -> "id_back".equals(doc.getDocumentType()));
+        boolean hasSelfie = documents.stream()
+            .anyMatch(doc -> "selfie".equals(doc.getDocumentType()));
+
+        return hasIdFront && hasIdBack && hasSelfie;
     }
 
     /**
@@ -468,7 +605,10 @@ public class KycReviewWorkflow {
      */
     private void completeAutoApproval(Long kycId, KycWorkflowStep step, KycRiskAssessment assessment) {
         // 更新步驟狀態
-        updateStepStatus(step, "COMPLETED", KycReviewResult.AUTO_APPROVED.getCode(), null);
+        if (!updateStepStatus(step, "COMPLETED", KycReviewResult.AUTO_APPROVED.getCode(), null)) {
+            abandonStaleResult(step);
+            return;
+        }
 
         // 更新KYC狀態
         UserKyc kyc = userKycMapper.selectById(kycId);
@@ -493,7 +633,10 @@ public class KycReviewWorkflow {
      */
     private void completeAutoRejection(Long kycId, KycWorkflowStep step, KycRiskAssessment assessment) {
         // 更新步驟狀態
-        updateStepStatus(step, "REJECTED", KycReviewResult.AUTO_REJECTED.getCode(), null);
+        if (!updateStepStatus(step, "REJECTED", KycReviewResult.AUTO_REJECTED.getCode(), null)) {
+            abandonStaleResult(step);
+            return;
+        }
 
         // 更新KYC狀態
         UserKyc kyc = userKycMapper.selectById(kycId);
@@ -517,16 +660,19 @@ public class KycReviewWorkflow {
      */
     private void proceedToManualReview(Long kycId, KycWorkflowStep currentStep, KycRiskAssessment assessment) {
         // 完成當前步驟
-        updateStepStatus(currentStep, "COMPLETED", "REQUIRES_MANUAL_REVIEW", null);
+        if (!updateStepStatus(currentStep, "COMPLETED", "REQUIRES_MANUAL_REVIEW", null)) {
+            abandonStaleResult(currentStep);
+            return;
+        }
 
-        // 開始下一步驟（初級審核）
-        KycWorkflowStep nextStep = getWorkflowStep(kycId, 2);
+        // 開始下一步驟（初級審核），並設置SLA
+        KycWorkflowStep nextStep = getWorkflowStep(kycId, KycWorkflowStage.PRIMARY_REVIEW.getStepNumber());
         if (nextStep != null) {
-            updateStepStatus(nextStep, "PENDING", null, LocalDateTime.now());
+            activateManualStep(nextStep, KycWorkflowStage.PRIMARY_REVIEW);
             
             // 更新KYC當前步驟
             UserKyc kyc = userKycMapper.selectById(kycId);
-            kyc.setCurrentStep(2);
+            kyc.setCurrentStep(KycWorkflowStage.PRIMARY_REVIEW.getStepNumber());
             userKycMapper.updateById(kyc);
         }
 
@@ -547,10 +693,24 @@ public class KycReviewWorkflow {
         return kycWorkflowStepMapper.selectOne(queryWrapper);
     }
 
+    /**
+     * 步驟已被其他節點或SLA升級修改（版本號變化），放棄本次執行結果並回滾
+     */
+    private void abandonStaleResult(KycWorkflowStep step) {
+        TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        log.warn("步驟已被修改，放棄本次執行結果: stepId={}, kycId={}", step.getId(), step.getKycId());
+    }
+
     /**
      * 更新步驟狀態
+     *
+     * @return 是否更新成功，版本號衝突時返回false
      */
-    private void updateStepStatus(KycWorkflowStep step, String status, String result, LocalDateTime startTime) {
+    private boolean updateStepStatus(KycWorkflowStep step, String status, String result, LocalDateTime startTime) {
+        if (!KycWorkflowStage.canTransition(step.getStatus(), status)) {
+            throw new IllegalStateException("非法的工作流狀態轉換: stepId=" + step.getId()
+                    + ", from=" + step.getStatus() + ", to=" + status);
+        }
         step.setStatus(status);
         if (result != null) {
             step.setResult(result);
@@ -561,8 +721,10 @@ public class KycReviewWorkflow {
         if ("COMPLETED".equals(status) || "REJECTED".equals(status)) {
             step.setCompletedAt(LocalDateTime.now());
             step.calculateProcessingTime();
+            step.setClaimedBy(null);
+            step.setClaimExpiresAt(null);
         }
-        kycWorkflowStepMapper.updateById(step);
+        return kycWorkflowStepMapper.updateById(step) > 0;
     }
 
     /**
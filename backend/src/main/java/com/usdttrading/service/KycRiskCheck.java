@@ -0,0 +1,81 @@
+package com.usdttrading.service;
+
+import com.usdttrading.entity.KycRiskAssessment;
+import com.usdttrading.entity.UserKyc;
+
+import java.util.function.Consumer;
+
+/**
+ * KYC風險檢查項
+ * 檢查在獨立線程中執行，只返回對評估結果的寫入操作，由流水線在調用線程統一應用；
+ * 超時或異常時應用降級結果。註冊為Spring Bean即可接入風險評估流水線
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+public interface KycRiskCheck {
+
+    /**
+     * 檢查名稱（用於延遲統計及日誌）
+     */
+    String getName();
+
+    /**
+     * 單項超時時間（毫秒）
+     */
+    default long getTimeoutMillis() {
+        return 3000;
+    }
+
+    /**
+     * 執行檢查
+     *
+     * @param kyc KYC記錄
+     * @return 對評估結果的寫入操作
+     * @throws Exception 檢查失敗
+     */
+    Consumer<KycRiskAssessment> execute(UserKyc kyc) throws Exception;
+
+    /**
+     * 超時或失敗時的降級結果
+     *
+     * @param assessment 評估結果
+     */
+    void applyFallback(KycRiskAssessment assessment);
+
+    /**
+     * 以函數組合創建檢查項
+     */
+    static KycRiskCheck of(String name, long timeoutMillis, CheckFunction function, Consumer<KycRiskAssessment> fallback) {
+        return new KycRiskCheck() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public long getTimeoutMillis() {
+                return timeoutMillis;
+            }
+
+            @Override
+            public Consumer<KycRiskAssessment> execute(UserKyc kyc) throws Exception {
+                return function.execute(kyc);
+            }
+
+            @Override
+            public void applyFallback(KycRiskAssessment assessment) {
+                fallback.accept(assessment);
+            }
+        };
+    }
+
+    /**
+     * 檢查函數
+     */
+    @FunctionalInterface
+    interface CheckFunction {
+        Consumer<KycRiskAssessment> execute(UserKyc kyc) throws Exception;
+    }
+}
@@ -0,0 +1,127 @@
+package com.usdttrading.service;
+
+import com.usdttrading.entity.KycRiskAssessment;
+import com.usdttrading.entity.UserKyc;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * KYC風險檢查流水線
+ * 各檢查項在虛擬線程上併發執行，總耗時取決於最慢的一項而非所有檢查之和
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Component
+public class KycRiskCheckPipeline {
+
+    public static final String STATUS_OK = "OK";
+    public static final String STATUS_TIMEOUT = "TIMEOUT";
+    public static final String STATUS_ERROR = "ERROR";
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * 單項檢查執行記錄
+     */
+    public static class CheckRecord {
+        private final String status;
+        private final long latencyMillis;
+
+        CheckRecord(String status, long latencyMillis) {
+            this.status = status;
+            this.latencyMillis = latencyMillis;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+    }
+
+    /**
+     * 併發執行檢查並將結果寫入評估
+     *
+     * @param kyc KYC記錄
+     * @param checks 檢查項
+     * @param assessment 評估結果
+     * @return 各檢查項的執行記錄（按註冊順序）
+     */
+    public Map<String, CheckRecord> run(UserKyc kyc, List<KycRiskCheck> checks, KycRiskAssessment assessment) {
+        long start = System.nanoTime();
+
+        List<Future<Consumer<KycRiskAssessment>>> futures = new ArrayList<>(checks.size());
+        long[] finishedAt = new long[checks.size()];
+        for (int i = 0; i < checks.size(); i++) {
+            KycRiskCheck check = checks.get(i);
+            int slot = i;
+            futures.add(executor.submit(() -> {
+                try {
+                    return check.execute(kyc);
+                } finally {
+                    finishedAt[slot] = System.nanoTime();
+                }
+            }));
+        }
+
+        Map<String, CheckRecord> records = new LinkedHashMap<>();
+        for (int i = 0; i < checks.size(); i++) {
+            KycRiskCheck check = checks.get(i);
+            Future<Consumer<KycRiskAssessment>> future = futures.get(i);
+
+            // 所有檢查同時開始，各自的截止時間從流水線啟動算起
+            long remainingNanos = start + TimeUnit.MILLISECONDS.toNanos(check.getTimeoutMillis()) - System.nanoTime();
+            String status;
+            try {
+                Consumer<KycRiskAssessment> result = future.get(Math.max(0, remainingNanos), TimeUnit.NANOSECONDS);
+                result.accept(assessment);
+                status = STATUS_OK;
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                check.applyFallback(assessment);
+                status = STATUS_TIMEOUT;
+                log.warn("風險檢查超時，使用降級結果: kycId={}, check={}, timeout={}ms",
+                        kyc.getId(), check.getName(), check.getTimeoutMillis());
+            } catch (ExecutionException e) {
+                check.applyFallback(assessment);
+                status = STATUS_ERROR;
+                log.error("風險檢查失敗，使用降級結果: kycId={}, check={}", kyc.getId(), check.getName(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                check.applyFallback(assessment);
+                status = STATUS_ERROR;
+            }
+
+            long end = STATUS_OK.equals(status) ? finishedAt[i] : System.nanoTime();
+            records.put(check.getName(), new CheckRecord(status, TimeUnit.NANOSECONDS.toMillis(end - start)));
+        }
+
+        log.debug("風險檢查流水線完成: kycId={}, checks={}, elapsed={}ms",
+                kyc.getId(), checks.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return records;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -8,6 +8,7 @@ import com.usdttrading.enums.KycDocumentType;
 import com.usdttrading.enums.KycStatus;
 import com.usdttrading.exception.BusinessException;
 import com.usdttrading.repository.*;
+import com.usdttrading.utils.BlindIndexUtil;
 import com.usdttrading.utils.DataEncryptionUtil;
 import com.usdttrading.utils.FileProcessingUtil;
 import com.usdttrading.utils.RequestUtils;
@@ -42,6 +43,7 @@ public class KycService {
     private final KycReviewMapper kycReviewMapper;
     private final UserMapper userMapper;
     private final DataEncryptionUtil encryptionUtil;
+    private final BlindIndexUtil blindIndexUtil;
     private final FileProcessingUtil fileProcessingUtil;
     private final FileStorageService fileStorageService;
     private final NotificationService notificationService;
@@ -269,6 +271,7 @@ public class KycService {
 
             // 加密存儲銀行信息
             kyc.setBankAccount(encryptionUtil.encrypt(bankInfo.get("bankAccount")));
+            kyc.setBankAccountBidx(blindIndexUtil.bankAccount(bankInfo.get("bankAccount")));
             kyc.setBankName(bankInfo.get("bankName"));
             kyc.setBankBranch(bankInfo.get("bankBranch"));
             kyc.setAccountHolderName(bankInfo.get("accountHolderName"));
@@ -424,13 +427,20 @@ public class KycService {
      * 填充基本KYC信息
      */
     private void fillBasicKycInfo(UserKyc kyc, Map<String, Object> kycData) {
-        // 加密敏感信息
-        kyc.setRealName(encryptionUtil.encrypt(kycData.get("realName").toString()));
-        kyc.setIdNumber(encryptionUtil.encrypt(kycData.get("idNumber").toString()));
-        kyc.setAddress(encryptionUtil.encrypt(kycData.get("address").toString()));
-        
-        if (kycData.containsKey("phoneNumber")) {
-            kyc.setPhoneNumber(encryptionUtil.encrypt(kycData.get("phoneNumber").toString()));
+        // 批量加密敏感信息
+        List<String> encrypted = encryptionUtil.encryptAll(Arrays.asList(
+                kycData.get("realName").toString(),
+                kycData.get("idNumber").toString(),
+                kycData.get("address").toString(),
+                kycData.containsKey("phoneNumber") ? kycData.get("phoneNumber").toString() : null));
+        kyc.setRealName(encrypted.get(0));
+        kyc.setIdNumber(encrypted.get(1));
+        kyc.setIdNumberBidx(blindIndexUtil.idNumber(kycData.get("idNumber").toString()));
+        kyc.setAddress(encrypted.get(2));
+
+        if (encrypted.get(3) != null) {
+            kyc.setPhoneNumber(encrypted.get(3));
+            kyc.setPhoneNumberBidx(blindIndexUtil.phoneNumber(kycData.get("phoneNumber").toString()));
         }
 
         // 非敏感信息直接存儲
@@ -0,0 +1,205 @@
+package com.usdttrading.service;
+
+import com.usdttrading.entity.KycWorkflowStep;
+import com.usdttrading.repository.KycWorkflowStepMapper;
+import com.usdttrading.utils.TimerWheel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * KYC工作流引擎
+ * 自動步驟以數據庫為隊列：各節點定時以SELECT ... FOR UPDATE SKIP LOCKED認領READY步驟並寫入租約，
+ * 在虛擬線程上執行；節點宕機後租約過期由其他節點重新認領。SLA臨近到期的步驟載入時間輪，
+ * 到期時觸發升級，升級本身為條件更新，多節點同時觸發也只會生效一次
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KycWorkflowEngine {
+
+    private final KycWorkflowStepMapper kycWorkflowStepMapper;
+    private final KycReviewWorkflow kycReviewWorkflow;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.kyc.workflow.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.kyc.workflow.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${app.kyc.workflow.claim-batch-size:20}")
+    private int claimBatchSize;
+
+    @Value("${app.kyc.workflow.lease-seconds:120}")
+    private int leaseSeconds;
+
+    @Value("${app.kyc.workflow.max-concurrency:32}")
+    private int maxConcurrency;
+
+    @Value("${app.kyc.workflow.sla-horizon-minutes:10}")
+    private int slaHorizonMinutes;
+
+    @Value("${app.kyc.workflow.sla-scan-batch-size:1000}")
+    private int slaScanBatchSize;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private String nodeId;
+    private Semaphore permits;
+    private TimerWheel<Long> slaWheel;
+
+    @PostConstruct
+    public void init() {
+        nodeId = configuredNodeId == null || configuredNodeId.isEmpty()
+                ? ManagementFactory.getRuntimeMXBean().getName()
+                : configuredNodeId;
+        permits = new Semaphore(Math.max(1, maxConcurrency));
+        slaWheel = new TimerWheel<>("kyc-sla", 1000, 512, this::onSlaDeadline, executor);
+        if (enabled) {
+            slaWheel.start();
+            log.info("KYC工作流引擎已啟動: nodeId={}, maxConcurrency={}", nodeId, maxConcurrency);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        slaWheel.stop();
+        executor.shutdownNow();
+    }
+
+    /**
+     * 認領並派發可執行的自動步驟
+     * 只認領有空閒執行許可的數量，認領與寫入租約在同一短事務內完成，執行在事務之外
+     */
+    @Scheduled(fixedDelayString = "${app.kyc.workflow.poll-interval-ms:1000}")
+    public void pollReadySteps() {
+        if (!enabled) {
+            return;
+        }
+        int capacity = Math.min(claimBatchSize, permits.availablePermits());
+        if (capacity <= 0) {
+            return;
+        }
+
+        List<Long> claimed;
+        try {
+            claimed = transactionTemplate.execute(status -> claimSteps(capacity));
+        } catch (Exception e) {
+            log.error("認領工作流步驟失敗: nodeId={}, error={}", nodeId, e.getMessage());
+            return;
+        }
+        if (claimed == null || claimed.isEmpty()) {
+            return;
+        }
+
+        for (Long stepId : claimed) {
+            permits.acquireUninterruptibly();
+            try {
+                executor.execute(() -> runStep(stepId));
+            } catch (Exception e) {
+                // 執行器已關閉，租約過期後由其他節點接手
+                permits.release();
+                log.warn("派發工作流步驟失敗: stepId={}, error={}", stepId, e.getMessage());
+            }
+        }
+        log.debug("已認領工作流步驟: nodeId={}, count={}", nodeId, claimed.size());
+    }
+
+    /**
+     * 釋放租約已過期的步驟
+     */
+    @Scheduled(fixedDelayString = "${app.kyc.workflow.lease-check-interval-ms:30000}")
+    public void recoverExpiredClaims() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int released = kycWorkflowStepMapper.releaseExpiredClaims(LocalDateTime.now());
+            if (released > 0) {
+                log.warn("已釋放過期租約的工作流步驟: count={}", released);
+            }
+        } catch (Exception e) {
+            log.error("釋放過期租約失敗: error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 將即將到期的SLA載入時間輪
+     * 只載入掃描窗口內的步驟，窗口外的由後續掃描載入，內存佔用與待處理總量無關
+     */
+    @Scheduled(fixedDelayString = "${app.kyc.workflow.sla-scan-interval-ms:60000}")
+    public void loadSlaDeadlines() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime horizon = LocalDateTime.now().plusMinutes(slaHorizonMinutes);
+            List<KycWorkflowStep> steps = kycWorkflowStepMapper.selectSlaDueBefore(horizon, slaScanBatchSize);
+            ZoneId zone = ZoneId.systemDefault();
+            for (KycWorkflowStep step : steps) {
+                slaWheel.schedule(step.getId(), step.getSlaDeadline().atZone(zone).toInstant().toEpochMilli());
+            }
+        } catch (Exception e) {
+            log.error("載入SLA計時失敗: error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 獲取引擎狀態
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("nodeId", nodeId);
+        status.put("running", Math.max(0, maxConcurrency) - permits.availablePermits());
+        status.put("slaTimers", slaWheel.size());
+        return status;
+    }
+
+    private List<Long> claimSteps(int limit) {
+        List<KycWorkflowStep> ready = kycWorkflowStepMapper.lockReadySteps(limit);
+        if (ready.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = ready.stream().map(KycWorkflowStep::getId).collect(Collectors.toList());
+        kycWorkflowStepMapper.markClaimed(ids, nodeId, LocalDateTime.now().plusSeconds(leaseSeconds));
+        return ids;
+    }
+
+    private void runStep(Long stepId) {
+        try {
+            kycReviewWorkflow.executeAutomaticStep(stepId, nodeId);
+        } catch (Exception e) {
+            // 步驟保持IN_PROGRESS，租約過期後重新認領，重試次數超限時轉人工
+            log.error("執行工作流步驟失敗: stepId={}, nodeId={}", stepId, nodeId, e);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void onSlaDeadline(Long stepId) {
+        kycReviewWorkflow.escalateOverdueStep(stepId);
+    }
+}
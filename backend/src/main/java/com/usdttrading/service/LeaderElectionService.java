@@ -0,0 +1,108 @@
+package com.usdttrading.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集群選主服務
+ * 以Redisson鎖實現按角色的租約選主，定時任務每次執行前調用isLeader續約或搶佔；
+ * 鎖以節點固定令牌持有而非線程，任意調度線程均可續約。
+ * 調用方的續約間隔應不超過租約時長的1/3，否則租約在兩次續約之間過期，主節點會在各節點間反覆切換
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LeaderElectionService {
+
+    private static final String LOCK_PREFIX = "cluster:leader:";
+
+    private final RedissonClient redissonClient;
+
+    @Value("${app.cluster.leader-lease-seconds:30}")
+    private long leaseSeconds;
+
+    /**
+     * 本節點持鎖令牌（Redisson以客戶端ID加令牌區分持有者）
+     */
+    private final long token = new SecureRandom().nextLong();
+
+    private final Map<String, Boolean> leadership = new ConcurrentHashMap<>();
+
+    /**
+     * 檢查本節點是否為指定角色的主節點，必要時續約或搶佔
+     * Redis不可用時視為非主節點
+     *
+     * @param role 角色名
+     * @return true 本節點為主
+     */
+    public boolean isLeader(String role) {
+        RLock lock = redissonClient.getLock(LOCK_PREFIX + role);
+        boolean leader;
+        try {
+            if (lock.isHeldByThread(token)) {
+                leader = lock.expire(leaseSeconds, TimeUnit.SECONDS);
+            } else {
+                leader = lock.tryLockAsync(0, leaseSeconds, TimeUnit.SECONDS, token).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            leader = false;
+        } catch (Exception e) {
+            log.warn("選主失敗: role={}, error={}", role, e.getMessage());
+            leader = false;
+        }
+
+        Boolean previous = leadership.put(role, leader);
+        if (previous == null || previous != leader) {
+            log.info("集群角色變更: role={}, leader={}", role, leader);
+        }
+        return leader;
+    }
+
+    /**
+     * 最近一次檢查的結果（不訪問Redis）
+     */
+    public boolean wasLeader(String role) {
+        return Boolean.TRUE.equals(leadership.get(role));
+    }
+
+    /**
+     * 主動放棄角色
+     */
+    public void resign(String role) {
+        try {
+            RLock lock = redissonClient.getLock(LOCK_PREFIX + role);
+            if (lock.isHeldByThread(token)) {
+                lock.unlockAsync(token).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("放棄角色失敗: role={}, error={}", role, e.getMessage());
+        } finally {
+            leadership.put(role, false);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        leadership.entrySet().stream()
+                .filter(Map.Entry::getValue)
+                .map(Map.Entry::getKey)
+                .forEach(this::resign);
+    }
+}
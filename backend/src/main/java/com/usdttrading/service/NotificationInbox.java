@@ -0,0 +1,405 @@
+package com.usdttrading.service;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.usdttrading.entity.Notification;
+import com.usdttrading.enums.NotificationCategory;
+import com.usdttrading.enums.NotificationStatus;
+import com.usdttrading.repository.NotificationMapper;
+import com.usdttrading.utils.TransactionUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 站內信收件箱緩存
+ * 每個用戶在Redis維護一個按類別的未讀計數Hash和最近N條通知的定長List，
+ * 創建、已讀、全部已讀各以一個Lua腳本原子更新兩者，角標輪詢不訪問數據庫。
+ * Hash中 _v 為版本號（同時表示已初始化），_inbox 表示List已初始化；
+ * 未初始化時的增減直接跳過，由首次讀取從庫重建，主節點定時按版本號比對後與庫對賬
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NotificationInbox {
+
+    private static final String KEY_PREFIX = "notify:{";
+    private static final String COUNTS_SUFFIX = "}:unread";
+    private static final String INBOX_SUFFIX = "}:inbox";
+    private static final String VERSION_FIELD = "_v";
+    private static final String INBOX_FIELD = "_inbox";
+    private static final String LEADER_ROLE = "notification-inbox-reconciler";
+    private static final int RECONCILE_BATCH_SIZE = 200;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 新通知：計數+1，List頭部插入並截斷
+     * KEYS: counts, inbox  ARGV: category, item, size, ttlSeconds
+     */
+    private static final DefaultRedisScript<Long> PUSH_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "redis.call('HINCRBY', KEYS[1], ARGV[1], 1) " +
+            "redis.call('HINCRBY', KEYS[1], '_v', 1) " +
+            "if redis.call('HEXISTS', KEYS[1], '_inbox') == 1 then " +
+            "  redis.call('LPUSH', KEYS[2], ARGV[2]) " +
+            "  redis.call('LTRIM', KEYS[2], 0, tonumber(ARGV[3]) - 1) " +
+            "  redis.call('EXPIRE', KEYS[2], ARGV[4]) " +
+            "end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[4]) " +
+            "return 1", Long.class);
+
+    /**
+     * 單條已讀：計數-1（不低於0），List中對應條目狀態改為READ
+     * KEYS: counts, inbox  ARGV: category, id
+     */
+    private static final DefaultRedisScript<Long> READ_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "if redis.call('HINCRBY', KEYS[1], ARGV[1], -1) < 0 then redis.call('HSET', KEYS[1], ARGV[1], 0) end " +
+            "redis.call('HINCRBY', KEYS[1], '_v', 1) " +
+            "local items = redis.call('LRANGE', KEYS[2], 0, -1) " +
+            "for i, raw in ipairs(items) do " +
+            "  local item = cjson.decode(raw) " +
+            "  if item.id == ARGV[2] then " +
+            "    item.status = 'READ' " +
+            "    redis.call('LSET', KEYS[2], i - 1, cjson.encode(item)) " +
+            "    break " +
+            "  end " +
+            "end " +
+            "return 1", Long.class);
+
+    /**
+     * 全部已讀：指定類別（為空時全部類別）計數清零，List中對應條目狀態改為READ
+     * KEYS: counts, inbox  ARGV: category 或空串
+     */
+    private static final DefaultRedisScript<Long> READ_ALL_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "if ARGV[1] == '' then " +
+            "  local fields = redis.call('HKEYS', KEYS[1]) " +
+            "  for _, f in ipairs(fields) do " +
+            "    if string.sub(f, 1, 1) ~= '_' then redis.call('HSET', KEYS[1], f, 0) end " +
+            "  end " +
+            "else " +
+            "  redis.call('HSET', KEYS[1], ARGV[1], 0) " +
+            "end " +
+            "redis.call('HINCRBY', KEYS[1], '_v', 1) " +
+            "local items = redis.call('LRANGE', KEYS[2], 0, -1) " +
+            "for i, raw in ipairs(items) do " +
+            "  local item = cjson.decode(raw) " +
+            "  if item.status ~= 'READ' and (ARGV[1] == '' or item.category == ARGV[1]) then " +
+            "    item.status = 'READ' " +
+            "    redis.call('LSET', KEYS[2], i - 1, cjson.encode(item)) " +
+            "  end " +
+            "end " +
+            "return 1", Long.class);
+
+    /**
+     * 從庫重建計數：版本號與讀取時一致才覆蓋，避免覆蓋期間的增減
+     * KEYS: counts  ARGV: expectedVersion（未初始化為空串）, ttlSeconds, category1, count1, ...
+     */
+    private static final DefaultRedisScript<Long> REBUILD_COUNTS_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('HGET', KEYS[1], '_v') " +
+            "if (ARGV[1] == '' and current) or (ARGV[1] ~= '' and current ~= ARGV[1]) then return 0 end " +
+            "local fields = redis.call('HKEYS', KEYS[1]) " +
+            "for _, f in ipairs(fields) do " +
+            "  if string.sub(f, 1, 1) ~= '_' then redis.call('HDEL', KEYS[1], f) end " +
+            "end " +
+            "for i = 3, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('HINCRBY', KEYS[1], '_v', 1) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "return 1", Long.class);
+
+    /**
+     * 從庫重建List：計數版本號未變化才寫入
+     * KEYS: counts, inbox  ARGV: expectedVersion, ttlSeconds, item1, item2, ...
+     */
+    private static final DefaultRedisScript<Long> REBUILD_INBOX_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], '_v') ~= ARGV[1] then return 0 end " +
+            "redis.call('DEL', KEYS[2]) " +
+            "for i = 3, #ARGV do redis.call('RPUSH', KEYS[2], ARGV[i]) end " +
+            "redis.call('HSET', KEYS[1], '_inbox', 1) " +
+            "redis.call('EXPIRE', KEYS[2], ARGV[2]) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+            "return 1", Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final NotificationMapper notificationMapper;
+    private final LeaderElectionService leaderElectionService;
+
+    @Value("${app.notification.inbox.size:50}")
+    private int inboxSize;
+
+    @Value("${app.notification.inbox.ttl-hours:168}")
+    private long ttlHours;
+
+    private final AtomicLong rebuilds = new AtomicLong();
+    private final AtomicLong corrections = new AtomicLong();
+
+    /**
+     * 登記新通知（數據庫事務提交後更新緩存）
+     */
+    public void onCreated(Notification notification) {
+        if (notification.getUserId() == null || notification.getCategory() == null) {
+            return;
+        }
+        afterCommit(() -> stringRedisTemplate.execute(PUSH_SCRIPT,
+                keys(notification.getUserId()),
+                notification.getCategory().name(), toItem(notification), String.valueOf(inboxSize), ttlSeconds()));
+    }
+
+    /**
+     * 登記單條已讀
+     */
+    public void onRead(Long userId, Long notificationId, NotificationCategory category) {
+        afterCommit(() -> stringRedisTemplate.execute(READ_SCRIPT, keys(userId),
+                category.name(), String.valueOf(notificationId)));
+    }
+
+    /**
+     * 登記全部（或指定類別）已讀
+     */
+    public void onReadAll(Long userId, NotificationCategory category) {
+        afterCommit(() -> stringRedisTemplate.execute(READ_ALL_SCRIPT, keys(userId),
+                category != null ? category.name() : ""));
+    }
+
+    /**
+     * 按類別獲取未讀數，緩存未初始化時從庫重建
+     *
+     * @param userId 用戶ID
+     * @return 類別 -> 未讀數，另含 total
+     */
+    public Map<String, Long> getUnreadCounts(Long userId) {
+        Map<Object, Object> raw = stringRedisTemplate.opsForHash().entries(countsKey(userId));
+        if (!raw.containsKey(VERSION_FIELD)) {
+            rebuildCounts(userId, "");
+            raw = stringRedisTemplate.opsForHash().entries(countsKey(userId));
+        }
+        Map<String, Long> counts = new LinkedHashMap<>();
+        long total = 0;
+        for (Map.Entry<Object, Object> entry : raw.entrySet()) {
+            String field = (String) entry.getKey();
+            if (field.startsWith("_")) {
+                continue;
+            }
+            long value = Math.max(0, Long.parseLong((String) entry.getValue()));
+            counts.put(field, value);
+            total += value;
+        }
+        counts.put("total", total);
+        return counts;
+    }
+
+    /**
+     * 獲取最近的通知，緩存未初始化時從庫重建
+     *
+     * @param userId 用戶ID
+     * @return 最近通知（新在前）
+     */
+    public List<Map<String, Object>> getLatest(Long userId) {
+        String key = countsKey(userId);
+        Object version = stringRedisTemplate.opsForHash().get(key, VERSION_FIELD);
+        if (version == null || !Boolean.TRUE.equals(stringRedisTemplate.opsForHash().hasKey(key, INBOX_FIELD))) {
+            if (version == null) {
+                rebuildCounts(userId, "");
+                version = stringRedisTemplate.opsForHash().get(key, VERSION_FIELD);
+            }
+            List<Notification> latest = notificationMapper.selectLatestByUserId(userId, inboxSize);
+            List<String> args = new ArrayList<>(latest.size() + 2);
+            args.add(version != null ? (String) version : "");
+            args.add(ttlSeconds());
+            for (Notification notification : latest) {
+                args.add(toItem(notification));
+            }
+            stringRedisTemplate.execute(REBUILD_INBOX_SCRIPT, keys(userId), args.toArray());
+            rebuilds.incrementAndGet();
+            return toMaps(args.subList(2, args.size()));
+        }
+        return toMaps(stringRedisTemplate.opsForList().range(inboxKey(userId), 0, inboxSize - 1));
+    }
+
+    /**
+     * 與庫對賬（主節點）：逐批掃描已緩存用戶，按版本號比對後覆蓋有偏差的計數
+     */
+    @Scheduled(fixedDelayString = "${app.notification.inbox.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        if (!leaderElectionService.isLeader(LEADER_ROLE)) {
+            return;
+        }
+        try {
+            List<Long> batch = new ArrayList<>(RECONCILE_BATCH_SIZE);
+            ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*" + COUNTS_SUFFIX).count(1000).build();
+            try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+                while (cursor.hasNext()) {
+                    String key = cursor.next();
+                    batch.add(Long.valueOf(key.substring(KEY_PREFIX.length(), key.length() - COUNTS_SUFFIX.length())));
+                    if (batch.size() >= RECONCILE_BATCH_SIZE) {
+                        reconcileBatch(batch);
+                        batch.clear();
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                reconcileBatch(batch);
+            }
+        } catch (Exception e) {
+            log.error("收件箱計數對賬失敗: error={}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 獲取收件箱緩存狀態
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("inboxSize", inboxSize);
+        status.put("rebuilds", rebuilds.get());
+        status.put("corrections", corrections.get());
+        status.put("leader", leaderElectionService.wasLeader(LEADER_ROLE));
+        return status;
+    }
+
+    private void reconcileBatch(List<Long> userIds) {
+        // 先取版本號再查庫：查庫期間有增減則版本號變化，覆蓋會被腳本拒絕
+        Map<Long, String> versions = new HashMap<>();
+        Map<Long, Map<Object, Object>> cached = new HashMap<>();
+        for (Long userId : userIds) {
+            Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(countsKey(userId));
+            Object version = entries.get(VERSION_FIELD);
+            if (version != null) {
+                versions.put(userId, (String) version);
+                cached.put(userId, entries);
+            }
+        }
+        if (versions.isEmpty()) {
+            return;
+        }
+        Map<Long, Map<String, Long>> actual = new HashMap<>();
+        for (Map<String, Object> row : notificationMapper.countUnreadByUsers(new ArrayList<>(versions.keySet()))) {
+            Long userId = ((Number) row.get("userId")).longValue();
+            actual.computeIfAbsent(userId, key -> new HashMap<>())
+                    .put(String.valueOf(row.get("category")), ((Number) row.get("cnt")).longValue());
+        }
+        for (Map.Entry<Long, String> entry : versions.entrySet()) {
+            Long userId = entry.getKey();
+            Map<String, Long> expected = actual.getOrDefault(userId, Map.of());
+            if (!matches(cached.get(userId), expected)) {
+                if (writeCounts(userId, entry.getValue(), expected)) {
+                    corrections.incrementAndGet();
+                    log.info("收件箱計數已校正: userId={}, counts={}", userId, expected);
+                }
+            }
+        }
+    }
+
+    private void rebuildCounts(Long userId, String expectedVersion) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Map<String, Object> row : notificationMapper.countUnreadByCategory(userId)) {
+            counts.put(String.valueOf(row.get("category")), ((Number) row.get("cnt")).longValue());
+        }
+        writeCounts(userId, expectedVersion, counts);
+        rebuilds.incrementAndGet();
+    }
+
+    private boolean writeCounts(Long userId, String expectedVersion, Map<String, Long> counts) {
+        List<String> args = new ArrayList<>(counts.size() * 2 + 2);
+        args.add(expectedVersion);
+        args.add(ttlSeconds());
+        counts.forEach((category, count) -> {
+            args.add(category);
+            args.add(String.valueOf(count));
+        });
+        Long written = stringRedisTemplate.execute(REBUILD_COUNTS_SCRIPT,
+                List.of(countsKey(userId)), args.toArray());
+        return written != null && written == 1L;
+    }
+
+    private static boolean matches(Map<Object, Object> cached, Map<String, Long> expected) {
+        for (Map.Entry<Object, Object> entry : cached.entrySet()) {
+            String field = (String) entry.getKey();
+            if (!field.startsWith("_") && Long.parseLong((String) entry.getValue())
+                    != expected.getOrDefault(field, 0L)) {
+                return false;
+            }
+        }
+        for (Map.Entry<String, Long> entry : expected.entrySet()) {
+            if (!cached.containsKey(entry.getKey()) && entry.getValue() != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 通知轉為與收件箱緩存一致的視圖，供緩存不可用時回退使用
+     */
+    public static Map<String, Object> toView(Notification notification) {
+        return JSONUtil.parseObj(toItem(notification));
+    }
+
+    private static String toItem(Notification notification) {
+        JSONObject item = new JSONObject();
+        // ID以字符串保存，避免Lua cjson按雙精度解析雪花ID丟失精度
+        item.set("id", String.valueOf(notification.getId()));
+        item.set("type", notification.getType() != null ? notification.getType().name() : null);
+        item.set("category", notification.getCategory() != null ? notification.getCategory().name() : null);
+        item.set("priority", notification.getPriority() != null ? notification.getPriority().name() : null);
+        item.set("title", notification.getTitle());
+        item.set("content", notification.getContent());
+        item.set("status", notification.getStatus() != null ? notification.getStatus().name() : NotificationStatus.UNREAD.name());
+        item.set("createdAt", notification.getCreatedAt() != null ? notification.getCreatedAt().format(TIME_FORMAT) : null);
+        return item.toString();
+    }
+
+    private static List<Map<String, Object>> toMaps(List<String> items) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        if (items != null) {
+            for (String item : items) {
+                result.add(JSONUtil.parseObj(item));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 兩個鍵共用 {userId} 哈希標籤，集群模式下落在同一槽位，腳本可同時操作
+     */
+    private static List<String> keys(Long userId) {
+        return Arrays.asList(countsKey(userId), inboxKey(userId));
+    }
+
+    private static String countsKey(Long userId) {
+        return KEY_PREFIX + userId + COUNTS_SUFFIX;
+    }
+
+    private static String inboxKey(Long userId) {
+        return KEY_PREFIX + userId + INBOX_SUFFIX;
+    }
+
+    private String ttlSeconds() {
+        return String.valueOf(ttlHours * 3600);
+    }
+
+    private static void afterCommit(Runnable action) {
+        // 緩存更新失敗不影響業務，偏差由定時對賬修正
+        TransactionUtils.afterCommit(action, e -> log.warn("更新收件箱緩存失敗: error={}", e.getMessage()));
+    }
+}
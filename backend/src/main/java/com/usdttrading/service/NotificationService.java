@@ -20,6 +20,10 @@ import org.thymeleaf.context.Context;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -40,6 +44,10 @@ public class NotificationService {
     private final UserKycMapper userKycMapper;
     private final EmailService emailService;
     private final TemplateEngine templateEngine;
+    private final NotificationInbox notificationInbox;
+    private final EventStreamBroadcaster eventStreamBroadcaster;
+
+    private static final int LATEST_FALLBACK_SIZE = 50;
 
     /**
      * 發送KYC提交通知
@@ -237,6 +245,9 @@ public class NotificationService {
             notification.setCreatedAt(LocalDateTime.now());
 
             notificationMapper.insert(notification);
+            notificationInbox.onCreated(notification);
+            eventStreamBroadcaster.publishToUser(userId, EventStreamBroadcaster.EVENT_NOTIFICATION,
+                    NotificationInbox.toView(notification));
 
         } catch (Exception e) {
             log.error("創建通知記錄失敗: userId={}, type={}, error={}", userId, type, e.getMessage(), e);
@@ -343,10 +354,9 @@ public class NotificationService {
             queryWrapper.eq("user_id", userId);
             
             Notification notification = notificationMapper.selectOne(queryWrapper);
-            if (notification != null && NotificationStatus.UNREAD.equals(notification.getStatus())) {
-                notification.setStatus(NotificationStatus.READ);
-                notification.setReadAt(LocalDateTime.now());
-                notificationMapper.updateById(notification);
+            if (notification != null && NotificationStatus.UNREAD.equals(notification.getStatus())
+                    && notificationMapper.markReadIfUnread(notificationId, userId) == 1) {
+                notificationInbox.onRead(userId, notificationId, notification.getCategory());
             }
 
         } catch (Exception e) {
@@ -364,21 +374,10 @@ public class NotificationService {
     @Transactional
     public void markAllAsRead(Long userId, NotificationCategory category) {
         try {
-            QueryWrapper<Notification> queryWrapper = new QueryWrapper<>();
-            queryWrapper.eq("user_id", userId);
-            queryWrapper.eq("status", NotificationStatus.UNREAD);
-            
-            if (category != null) {
-                queryWrapper.eq("category", category);
-            }
-
-            Notification updateNotification = new Notification();
-            updateNotification.setStatus(NotificationStatus.READ);
-            updateNotification.setReadAt(LocalDateTime.now());
-            
-            notificationMapper.update(updateNotification, queryWrapper);
+            int updated = notificationMapper.markAllUnreadAsRead(userId, category);
+            notificationInbox.onReadAll(userId, category);
 
-            log.info("批量標記通知為已讀: userId={}, category={}", userId, category);
+            log.info("批量標記通知為已讀: userId={}, category={}, count={}", userId, category, updated);
 
         } catch (Exception e) {
             log.error("批量標記通知為已讀失敗: userId={}, category={}, error={}", 
@@ -444,22 +443,60 @@ public class NotificationService {
     }
 
     /**
-     * 獲取未讀通知數量
+     * 獲取未讀通知數量（讀取Redis收件箱計數，不訪問數據庫）
      *
      * @param userId 用戶ID
      * @return 未讀通知數量
      */
     public long getUnreadCount(Long userId) {
+        return getUnreadCounts(userId).getOrDefault("total", 0L);
+    }
+
+    /**
+     * 按類別獲取未讀通知數量
+     *
+     * @param userId 用戶ID
+     * @return 類別 -> 未讀數，另含 total
+     */
+    public Map<String, Long> getUnreadCounts(Long userId) {
         try {
-            QueryWrapper<Notification> queryWrapper = new QueryWrapper<>();
-            queryWrapper.eq("user_id", userId);
-            queryWrapper.eq("status", NotificationStatus.UNREAD);
-            
-            return notificationMapper.selectCount(queryWrapper);
+            return notificationInbox.getUnreadCounts(userId);
+        } catch (Exception e) {
+            // Redis不可用時回退到數據庫統計
+            log.warn("讀取收件箱計數失敗，回退數據庫: userId={}, error={}", userId, e.getMessage());
+            try {
+                Map<String, Long> counts = new HashMap<>();
+                long total = 0;
+                for (Map<String, Object> row : notificationMapper.countUnreadByCategory(userId)) {
+                    long count = ((Number) row.get("cnt")).longValue();
+                    counts.put(String.valueOf(row.get("category")), count);
+                    total += count;
+                }
+                counts.put("total", total);
+                return counts;
+            } catch (Exception ex) {
+                log.error("獲取未讀通知數量失敗: userId={}, error={}", userId, ex.getMessage(), ex);
+                return Map.of("total", 0L);
+            }
+        }
+    }
 
+    /**
+     * 獲取最近的通知
+     *
+     * @param userId 用戶ID
+     * @return 最近通知（新在前）
+     */
+    public List<Map<String, Object>> getLatestNotifications(Long userId) {
+        try {
+            return notificationInbox.getLatest(userId);
         } catch (Exception e) {
-            log.error("獲取未讀通知數量失敗: userId={}, error={}", userId, e.getMessage(), e);
-            return 0;
+            log.warn("讀取收件箱列表失敗，回退數據庫: userId={}, error={}", userId, e.getMessage());
+            List<Map<String, Object>> result = new ArrayList<>();
+            for (Notification notification : notificationMapper.selectLatestByUserId(userId, LATEST_FALLBACK_SIZE)) {
+                result.add(NotificationInbox.toView(notification));
+            }
+            return result;
         }
     }
     
@@ -0,0 +1,287 @@
+package com.usdttrading.service;
+
+import com.usdttrading.entity.Order;
+import com.usdttrading.enums.OrderStatus;
+import com.usdttrading.repository.OrderMapper;
+import com.usdttrading.repository.WalletMapper;
+import com.usdttrading.utils.TimerWheel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 訂單過期服務
+ * 待支付訂單的截止時間登記在內存時間輪中，到期後批量將訂單置為EXPIRED並解凍賣單凍結的USDT，
+ * 無需輪詢掃描訂單表。只有主節點持有計時器：成為主節點時從數據庫重建，
+ * 之後按窗口增量載入其他節點創建的訂單
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OrderExpiryService {
+
+    private static final String LEADER_ROLE = "order-expiry";
+    private static final String EXPIRE_REASON = "支付超時，系統自動取消";
+    private static final LocalDateTime NO_LIMIT = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    private final OrderMapper orderMapper;
+    private final WalletMapper walletMapper;
+    private final NotificationService notificationService;
+    private final EventStreamBroadcaster eventStreamBroadcaster;
+    private final LeaderElectionService leaderElectionService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.trading.order-expiry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.trading.order-expiry.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.trading.order-expiry.sync-horizon-minutes:10}")
+    private int syncHorizonMinutes;
+
+    private final Queue<Long> expiredQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong expiredTotal = new AtomicLong();
+
+    private TimerWheel<Long> wheel;
+    private volatile boolean leader;
+
+    @PostConstruct
+    public void init() {
+        // 到期處理只做入隊，直接在刻度線程執行
+        wheel = new TimerWheel<>("order-expiry", 1000, 512, expiredQueue::add, Runnable::run);
+        if (enabled) {
+            wheel.start();
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        wheel.stop();
+    }
+
+    /**
+     * 登記訂單支付截止時間
+     * 非主節點不登記，由主節點的增量同步載入
+     *
+     * @param order 訂單
+     */
+    public void register(Order order) {
+        if (!enabled || !leader || order.getId() == null || order.getPaymentDeadline() == null) {
+            return;
+        }
+        wheel.schedule(order.getId(), toEpochMillis(order.getPaymentDeadline()));
+    }
+
+    /**
+     * 取消計時（訂單已支付或取消）
+     *
+     * @param orderId 訂單ID
+     */
+    public void cancel(Long orderId) {
+        wheel.cancel(orderId);
+    }
+
+    /**
+     * 啟動後重建計時器
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Async
+    public void rebuildOnStartup() {
+        renewLeadership();
+    }
+
+    /**
+     * 選主並續約
+     * 續約間隔應不超過租約時長（app.cluster.leader-lease-seconds）的1/3，租約不會在兩次續約之間過期；
+     * 新成為主節點時全量重建，失去主節點身份時清空本地計時器
+     */
+    @Scheduled(fixedDelayString = "${app.trading.order-expiry.lease-renew-interval-ms:10000}")
+    public synchronized void renewLeadership() {
+        if (!enabled) {
+            return;
+        }
+        boolean nowLeader = leaderElectionService.isLeader(LEADER_ROLE);
+        if (!nowLeader) {
+            if (leader) {
+                leader = false;
+                wheel.clear();
+                expiredQueue.clear();
+            }
+            return;
+        }
+        if (leader) {
+            return;
+        }
+
+        leader = true;
+        try {
+            int loaded = loadDeadlines(NO_LIMIT);
+            log.info("訂單過期計時器已重建: loaded={}", loaded);
+        } catch (Exception e) {
+            // 下次續約時重試全量重建
+            leader = false;
+            log.error("重建訂單過期計時器失敗: error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 增量同步計時器，只載入窗口內到期的訂單（其他節點創建的訂單）
+     */
+    @Scheduled(fixedDelayString = "${app.trading.order-expiry.sync-interval-ms:30000}")
+    public synchronized void syncDeadlines() {
+        if (!enabled || !leader) {
+            return;
+        }
+        try {
+            loadDeadlines(LocalDateTime.now().plusMinutes(syncHorizonMinutes));
+        } catch (Exception e) {
+            log.error("同步訂單過期計時器失敗: error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 批量處理已到期訂單
+     */
+    @Scheduled(fixedDelayString = "${app.trading.order-expiry.drain-interval-ms:1000}")
+    public void drainExpired() {
+        if (!leader) {
+            return;
+        }
+        while (!expiredQueue.isEmpty()) {
+            Set<Long> ids = new LinkedHashSet<>();
+            Long id;
+            while (ids.size() < batchSize && (id = expiredQueue.poll()) != null) {
+                ids.add(id);
+            }
+            if (ids.isEmpty()) {
+                return;
+            }
+
+            List<Order> expired;
+            try {
+                expired = transactionTemplate.execute(status -> expireBatch(ids));
+            } catch (Exception e) {
+                // 本批訂單保持PENDING，由下次同步重新登記
+                log.error("批量處理過期訂單失敗: count={}, error={}", ids.size(), e.getMessage());
+                return;
+            }
+            if (expired != null && !expired.isEmpty()) {
+                expiredTotal.addAndGet(expired.size());
+                notifyExpired(expired);
+                log.info("已處理過期訂單: count={}", expired.size());
+            }
+        }
+    }
+
+    /**
+     * 獲取運行狀態
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("leader", leader);
+        status.put("scheduled", wheel.size());
+        status.put("queued", expiredQueue.size());
+        status.put("expiredTotal", expiredTotal.get());
+        return status;
+    }
+
+    private int loadDeadlines(LocalDateTime before) {
+        int loaded = 0;
+        long lastId = 0L;
+        while (true) {
+            List<Order> batch = orderMapper.findPendingDeadlines(before, lastId, batchSize);
+            for (Order order : batch) {
+                lastId = order.getId();
+                wheel.schedule(order.getId(), toEpochMillis(order.getPaymentDeadline()));
+            }
+            loaded += batch.size();
+            if (batch.size() < batchSize) {
+                return loaded;
+            }
+        }
+    }
+
+    /**
+     * 在單個事務中過期一批訂單
+     * 先鎖定仍為PENDING的訂單，按用戶合併賣單凍結額一次解凍，解凍失敗的用戶其訂單保持不變
+     */
+    private List<Order> expireBatch(Set<Long> ids) {
+        List<Order> locked = orderMapper.lockExpiredOrders(ids);
+        if (locked.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, BigDecimal> frozenByUser = new HashMap<>();
+        for (Order order : locked) {
+            if (order.isSellOrder() && order.getUsdtAmount() != null) {
+                frozenByUser.merge(order.getUserId(), order.getUsdtAmount(), BigDecimal::add);
+            }
+        }
+
+        Set<Long> failedUsers = new LinkedHashSet<>();
+        frozenByUser.forEach((userId, amount) -> {
+            if (walletMapper.releaseFrozenUsdt(userId, amount) == 0) {
+                failedUsers.add(userId);
+                log.error("解凍USDT失敗，凍結餘額不足: userId={}, amount={}", userId, amount);
+            }
+        });
+
+        List<Order> expired = new ArrayList<>(locked.size());
+        List<Long> expiredIds = new ArrayList<>(locked.size());
+        for (Order order : locked) {
+            if (!(order.isSellOrder() && failedUsers.contains(order.getUserId()))) {
+                order.setOrderStatus(OrderStatus.EXPIRED);
+                expired.add(order);
+                expiredIds.add(order.getId());
+            }
+        }
+        if (!expiredIds.isEmpty()) {
+            orderMapper.markExpired(expiredIds, EXPIRE_REASON, LocalDateTime.now());
+        }
+        return expired;
+    }
+
+    private void notifyExpired(List<Order> orders) {
+        for (Order order : orders) {
+            eventStreamBroadcaster.publishOrderStatus(order);
+            try {
+                notificationService.sendOrderNotification(order.getUserId(), order.getId(),
+                        "訂單已過期", "訂單號: " + order.getOrderNumber() + "，" + EXPIRE_REASON);
+            } catch (Exception e) {
+                log.warn("發送訂單過期通知失敗: orderId={}, error={}", order.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
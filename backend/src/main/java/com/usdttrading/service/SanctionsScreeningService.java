@@ -0,0 +1,308 @@
+package com.usdttrading.service;
+
+import com.usdttrading.entity.UserKyc;
+import com.usdttrading.utils.DataEncryptionUtil;
+import com.usdttrading.utils.WatchlistIndex;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 制裁/黑名單篩查服務
+ * 從本地名單文件構建內存索引，名單變更時在後台重建並原子替換，篩查過程無鎖
+ *
+ * 名單文件格式（UTF-8，每行一條，#開頭為注釋）：
+ * entryId,listName,type,value  其中type為 NAME / ID / ADDRESS
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SanctionsScreeningService {
+
+    private final DataEncryptionUtil encryptionUtil;
+
+    @Value("${app.screening.list-dir:data/sanctions}")
+    private String listDir;
+
+    @Value("${app.screening.name-match-threshold:0.85}")
+    private double nameMatchThreshold;
+
+    @Value("${app.screening.max-matches:10}")
+    private int maxMatches;
+
+    private volatile Snapshot snapshot = new Snapshot(WatchlistIndex.empty(), "", null, 0);
+
+    /**
+     * 索引快照，整體替換保證讀取一致
+     */
+    private static final class Snapshot {
+        private final WatchlistIndex index;
+        private final String fingerprint;
+        private final LocalDateTime loadedAt;
+        private final int fileCount;
+
+        private Snapshot(WatchlistIndex index, String fingerprint, LocalDateTime loadedAt, int fileCount) {
+            this.index = index;
+            this.fingerprint = fingerprint;
+            this.loadedAt = loadedAt;
+            this.fileCount = fileCount;
+        }
+    }
+
+    /**
+     * 篩查結果
+     */
+    @Data
+    public static class ScreeningResult {
+        /**
+         * 名單是否已載入
+         */
+        private boolean listsLoaded;
+        /**
+         * 證件號或姓名強匹配（黑名單命中）
+         */
+        private boolean blacklistHit;
+        /**
+         * 姓名模糊匹配或地址命中（需AML複核）
+         */
+        private boolean amlHit;
+        private List<WatchlistIndex.Match> matches = new ArrayList<>();
+        private long elapsedMicros;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            reload(false);
+        } catch (Exception e) {
+            log.error("載入制裁名單失敗: listDir={}, error={}", listDir, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 定時檢查名單文件變化並熱替換
+     */
+    @Scheduled(fixedDelayString = "${app.screening.refresh-interval-ms:300000}")
+    public void refreshIfChanged() {
+        try {
+            reload(false);
+        } catch (Exception e) {
+            log.error("刷新制裁名單失敗，繼續使用舊索引: error={}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 重新載入名單
+     *
+     * @param force 是否忽略文件指紋強制重建
+     * @return 是否發生替換
+     * @throws IOException 讀取失敗
+     */
+    public synchronized boolean reload(boolean force) throws IOException {
+        Path dir = Paths.get(listDir);
+        if (!Files.isDirectory(dir)) {
+            if (snapshot.loadedAt == null) {
+                log.warn("制裁名單目錄不存在，篩查將不生效: listDir={}", dir.toAbsolutePath());
+            }
+            return false;
+        }
+
+        List<Path> files = listFiles(dir);
+        String fingerprint = fingerprint(files);
+        if (!force && fingerprint.equals(snapshot.fingerprint)) {
+            return false;
+        }
+
+        long start = System.currentTimeMillis();
+        List<WatchlistIndex.Entry> entries = new ArrayList<>();
+        int skipped = 0;
+        for (Path file : files) {
+            skipped += readEntries(file, entries);
+        }
+
+        WatchlistIndex index = WatchlistIndex.build(entries);
+        snapshot = new Snapshot(index, fingerprint, LocalDateTime.now(), files.size());
+
+        log.info("制裁名單已載入: files={}, entries={}, names={}, skipped={}, elapsed={}ms",
+                files.size(), index.size(), index.nameCount(), skipped, System.currentTimeMillis() - start);
+        return true;
+    }
+
+    /**
+     * 篩查KYC申請人（姓名、英文名、證件號）
+     *
+     * @param kyc KYC記錄（敏感字段為密文）
+     * @return 篩查結果
+     */
+    public ScreeningResult screenKyc(UserKyc kyc) {
+        String realName = kyc.getRealName() != null ? encryptionUtil.decrypt(kyc.getRealName()) : null;
+        String idNumber = kyc.getIdNumber() != null ? encryptionUtil.decrypt(kyc.getIdNumber()) : null;
+        return screenPerson(realName, kyc.getEnglishName(), idNumber);
+    }
+
+    /**
+     * 篩查個人
+     *
+     * @param name 姓名
+     * @param alternateName 其他姓名（如英文名）
+     * @param idNumber 證件號
+     * @return 篩查結果
+     */
+    public ScreeningResult screenPerson(String name, String alternateName, String idNumber) {
+        long start = System.nanoTime();
+        Snapshot current = snapshot;
+        ScreeningResult result = newResult(current);
+
+        WatchlistIndex.Entry idHit = current.index.matchExact(WatchlistIndex.EntryType.ID, idNumber);
+        if (idHit != null) {
+            result.getMatches().add(new WatchlistIndex.Match(idHit.getEntryId(), idHit.getListName(),
+                    WatchlistIndex.EntryType.ID, idHit.getValue(), 1.0, true));
+            result.setBlacklistHit(true);
+        }
+
+        addNameMatches(current.index, name, result);
+        addNameMatches(current.index, alternateName, result);
+
+        result.setElapsedMicros((System.nanoTime() - start) / 1000);
+        return result;
+    }
+
+    /**
+     * 篩查鏈上地址（提現對手方等）
+     *
+     * @param address 地址
+     * @return 篩查結果
+     */
+    public ScreeningResult screenAddress(String address) {
+        long start = System.nanoTime();
+        Snapshot current = snapshot;
+        ScreeningResult result = newResult(current);
+
+        WatchlistIndex.Entry hit = current.index.matchExact(WatchlistIndex.EntryType.ADDRESS, address);
+        if (hit != null) {
+            result.getMatches().add(new WatchlistIndex.Match(hit.getEntryId(), hit.getListName(),
+                    WatchlistIndex.EntryType.ADDRESS, hit.getValue(), 1.0, true));
+            result.setAmlHit(true);
+        }
+
+        result.setElapsedMicros((System.nanoTime() - start) / 1000);
+        return result;
+    }
+
+    /**
+     * 獲取名單狀態
+     */
+    public Map<String, Object> getStatus() {
+        Snapshot current = snapshot;
+        Map<String, Object> status = new HashMap<>();
+        status.put("listDir", listDir);
+        status.put("loaded", current.loadedAt != null);
+        status.put("loadedAt", current.loadedAt);
+        status.put("files", current.fileCount);
+        status.put("entries", current.index.size());
+        status.put("names", current.index.nameCount());
+        return status;
+    }
+
+    private ScreeningResult newResult(Snapshot current) {
+        ScreeningResult result = new ScreeningResult();
+        result.setListsLoaded(current.loadedAt != null);
+        return result;
+    }
+
+    /**
+     * 姓名匹配：完全匹配計為黑名單命中，模糊匹配計為AML命中
+     */
+    private void addNameMatches(WatchlistIndex index, String name, ScreeningResult result) {
+        if (name == null || name.isBlank()) {
+            return;
+        }
+        for (WatchlistIndex.Match match : index.matchName(name, nameMatchThreshold, maxMatches)) {
+            if (result.getMatches().size() >= maxMatches) {
+                break;
+            }
+            result.getMatches().add(match);
+            if (match.isExact()) {
+                result.setBlacklistHit(true);
+            } else {
+                result.setAmlHit(true);
+            }
+        }
+    }
+
+    private List<Path> listFiles(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.{csv,txt}")) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        files.sort(null);
+        return files;
+    }
+
+    private String fingerprint(List<Path> files) throws IOException {
+        StringBuilder fingerprint = new StringBuilder();
+        for (Path file : files) {
+            fingerprint.append(file.getFileName()).append(':')
+                    .append(Files.size(file)).append(':')
+                    .append(Files.getLastModifiedTime(file).toMillis()).append(';');
+        }
+        return fingerprint.toString();
+    }
+
+    /**
+     * 讀取名單文件
+     *
+     * @return 跳過的無效行數
+     */
+    private int readEntries(Path file, List<WatchlistIndex.Entry> entries) throws IOException {
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(",", 4);
+                if (parts.length < 4) {
+                    skipped++;
+                    continue;
+                }
+                WatchlistIndex.EntryType type;
+                try {
+                    type = WatchlistIndex.EntryType.valueOf(parts[2].trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    skipped++;
+                    continue;
+                }
+                entries.add(new WatchlistIndex.Entry(parts[0].trim(), parts[1].trim(), type, parts[3].trim()));
+            }
+        }
+        return skipped;
+    }
+}
@@ -0,0 +1,588 @@
+package com.usdttrading.service;
+
+import cn.dev33.satoken.stp.StpUtil;
+import cn.hutool.core.lang.Validator;
+import cn.hutool.core.net.NetUtil;
+import cn.hutool.core.util.StrUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.usdttrading.entity.User;
+import com.usdttrading.repository.UserMapper;
+import com.usdttrading.utils.RequestUtils;
+import com.usdttrading.utils.SlidingWindowSketch;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 安全事件實時關聯引擎
+ * 登錄及提現事件發生時即按IP、賬號、用戶及設備累加滑動窗口計數，命中規則後立即告警並自動鎖定賬號或封禁IP：
+ * 暴力破解（同一賬號、IP或設備失敗過多）、撞庫（同一IP嘗試大量不同賬號）、
+ * 異地登錄（短時間內從不同網絡位置及設備登錄）、頻繁提現（窗口內提現次數或金額過大）。
+ * 高基數鍵由Count-Min Sketch計數，內存固定；估算值達到閾值一半的鍵（小閾值規則為全部鍵）才轉入有界的精確候選表，
+ * 以精確計數確認後才觸發，避免Sketch高估誤鎖賬號。各節點獨立統計本節點流量
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SecurityCorrelationEngine {
+
+    public static final String RULE_BRUTE_FORCE_ACCOUNT = "BRUTE_FORCE_ACCOUNT";
+    public static final String RULE_BRUTE_FORCE_IP = "BRUTE_FORCE_IP";
+    public static final String RULE_BRUTE_FORCE_DEVICE = "BRUTE_FORCE_DEVICE";
+    public static final String RULE_CREDENTIAL_STUFFING = "CREDENTIAL_STUFFING";
+    public static final String RULE_IMPOSSIBLE_TRAVEL = "IMPOSSIBLE_TRAVEL";
+    public static final String RULE_RAPID_WITHDRAWALS = "RAPID_WITHDRAWALS";
+
+    private static final String ALERT_EVENT_PREFIX = "ALERT_";
+    private static final int RECENT_ALERTS = 200;
+
+    /**
+     * 閾值不超過此值的規則直接精確計數，避免等到估算值過半才開始計數造成的延遲
+     */
+    private static final int EXACT_THRESHOLD = 16;
+
+    private final UserMapper userMapper;
+    private final AuditLogService auditLogService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.security.correlation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.security.correlation.window-minutes:10}")
+    private long windowMinutes;
+
+    @Value("${app.security.correlation.buckets:10}")
+    private int buckets;
+
+    @Value("${app.security.correlation.sketch-depth:4}")
+    private int sketchDepth;
+
+    @Value("${app.security.correlation.sketch-width:4096}")
+    private int sketchWidth;
+
+    @Value("${app.security.correlation.max-candidates:10000}")
+    private int maxCandidates;
+
+    @Value("${app.security.correlation.max-tracked-users:100000}")
+    private int maxTrackedUsers;
+
+    @Value("${app.security.correlation.brute-force-account-threshold:10}")
+    private int bruteForceAccountThreshold;
+
+    @Value("${app.security.correlation.brute-force-ip-threshold:50}")
+    private int bruteForceIpThreshold;
+
+    @Value("${app.security.correlation.brute-force-device-threshold:20}")
+    private int bruteForceDeviceThreshold;
+
+    @Value("${app.security.correlation.stuffing-distinct-accounts:8}")
+    private int stuffingDistinctAccounts;
+
+    @Value("${app.security.correlation.travel-window-minutes:60}")
+    private long travelWindowMinutes;
+
+    @Value("${app.security.correlation.lock-on-impossible-travel:false}")
+    private boolean lockOnImpossibleTravel;
+
+    @Value("${app.security.correlation.withdrawal-count-threshold:3}")
+    private int withdrawalCountThreshold;
+
+    @Value("${app.security.correlation.withdrawal-amount-threshold:50000}")
+    private long withdrawalAmountThreshold;
+
+    @Value("${app.security.correlation.lock-minutes:30}")
+    private int lockMinutes;
+
+    @Value("${app.security.correlation.ip-block-minutes:30}")
+    private int ipBlockMinutes;
+
+    /**
+     * 可信反向代理地址（逗號分隔，支持IPv4 CIDR），只有經由這些代理的請求才採信X-Forwarded-For
+     */
+    @Value("${app.security.correlation.trusted-proxies:}")
+    private String trustedProxies;
+
+    private Set<String> trustedProxySet = Collections.emptySet();
+    private final AtomicBoolean untrustedProxyWarned = new AtomicBoolean();
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong eventsObserved = new AtomicLong();
+    private final AtomicLong accountsLocked = new AtomicLong();
+    private final AtomicLong ipsBlocked = new AtomicLong();
+    private final AtomicLong loginsRejected = new AtomicLong();
+    private final Map<String, AtomicLong> alertCounts = new ConcurrentHashMap<>();
+    private final Deque<Map<String, Object>> recentAlerts = new ArrayDeque<>();
+
+    private long windowMillis;
+    private SlidingWindowSketch failuresByAccount;
+    private SlidingWindowSketch failuresByIp;
+    private SlidingWindowSketch failuresByDevice;
+    private SlidingWindowSketch accountIpPairs;
+    private SlidingWindowSketch distinctAccountsByIp;
+    private SlidingWindowSketch withdrawalsByUser;
+
+    /**
+     * 規則鍵 -> 精確候選計數
+     */
+    private Map<String, Candidate> candidates;
+
+    /**
+     * 用戶ID -> 最近一次成功登錄
+     */
+    private Map<Long, LastLogin> lastLogins;
+
+    /**
+     * 規則鍵 -> 告警靜默截止時間，同一鍵在窗口內只告警一次
+     */
+    private Map<String, Long> suppressed;
+
+    /**
+     * IP -> 登錄封禁截止時間
+     */
+    private Map<String, Long> blockedIps;
+
+    /**
+     * 精確候選：成員 -> [最近時間, 權重]，成員數有上限
+     */
+    private static final class Candidate {
+        private final Map<String, long[]> members = new LinkedHashMap<>();
+        private final int maxMembers;
+        private volatile long lastSeen;
+
+        private Candidate(int maxMembers) {
+            this.maxMembers = maxMembers;
+        }
+
+        private synchronized long add(String member, long weight, long now, long windowMillis) {
+            lastSeen = now;
+            members.remove(member);
+            members.put(member, new long[]{now, weight});
+            long total = 0;
+            Iterator<long[]> iterator = members.values().iterator();
+            while (iterator.hasNext()) {
+                long[] value = iterator.next();
+                if (value[0] < now - windowMillis || members.size() > maxMembers) {
+                    iterator.remove();
+                } else {
+                    total += value[1];
+                }
+            }
+            return total;
+        }
+    }
+
+    /**
+     * 最近一次成功登錄
+     */
+    private static final class LastLogin {
+        private final String ip;
+        private final String location;
+        private final String userAgent;
+        private final long time;
+
+        private LastLogin(String ip, String location, String userAgent, long time) {
+            this.ip = ip;
+            this.location = location;
+            this.userAgent = userAgent;
+            this.time = time;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        windowMillis = windowMinutes * 60_000L;
+        failuresByAccount = newSketch();
+        failuresByIp = newSketch();
+        failuresByDevice = newSketch();
+        accountIpPairs = newSketch();
+        distinctAccountsByIp = newSketch();
+        withdrawalsByUser = newSketch();
+        candidates = boundedMap(maxCandidates);
+        lastLogins = boundedMap(maxTrackedUsers);
+        suppressed = boundedMap(maxCandidates);
+        blockedIps = boundedMap(maxCandidates);
+        trustedProxySet = Set.copyOf(StrUtil.splitTrim(StrUtil.nullToEmpty(trustedProxies), ','));
+        log.info("安全事件關聯引擎啟動: enabled={}, window={}min, sketchBytes={}",
+                enabled, windowMinutes, failuresByAccount.sizeInBytes() * 6);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * 規則及封禁使用的客戶端IP
+     * 不直接採信客戶端可偽造的X-Forwarded-For，否則攻擊者每次換一個頭即可繞過IP計數，
+     * 或冒用他人IP使其被封禁
+     */
+    public String resolveClientIp(HttpServletRequest request) {
+        String clientIp = RequestUtils.getTrustedClientIp(request, trustedProxySet);
+        warnIfBehindUntrustedProxy(request, clientIp);
+        return clientIp;
+    }
+
+    /**
+     * 內網地址帶著X-Forwarded-For到達卻未被信任，說明部署在反向代理之後但未配置可信代理，
+     * 此時所有用戶共用代理IP，IP規則會誤封全部用戶；只提示一次
+     */
+    private void warnIfBehindUntrustedProxy(HttpServletRequest request, String clientIp) {
+        if (request == null || untrustedProxyWarned.get() || !clientIp.equals(request.getRemoteAddr())
+                || StrUtil.isBlank(request.getHeader("X-Forwarded-For"))) {
+            return;
+        }
+        boolean internal = "0:0:0:0:0:0:0:1".equals(clientIp)
+                || (Validator.isIpv4(clientIp) && NetUtil.isInnerIP(clientIp));
+        if (internal && untrustedProxyWarned.compareAndSet(false, true)) {
+            log.warn("請求來自內網地址{}並攜帶X-Forwarded-For，但該地址不在可信代理列表中，"
+                    + "IP規則將按代理地址計數。請配置 app.security.correlation.trusted-proxies", clientIp);
+        }
+    }
+
+    /**
+     * IP是否因暴力破解或撞庫被暫時禁止登錄
+     */
+    public boolean isLoginBlocked(String ip) {
+        if (!enabled || StrUtil.isBlank(ip)) {
+            return false;
+        }
+        Long until = blockedIps.get(ip);
+        if (until == null) {
+            return false;
+        }
+        if (until <= System.currentTimeMillis()) {
+            blockedIps.remove(ip);
+            return false;
+        }
+        loginsRejected.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 登錄失敗：暴力破解及撞庫規則
+     */
+    public void onLoginFailure(String account, String ip, String userAgent) {
+        if (!enabled) {
+            return;
+        }
+        eventsObserved.incrementAndGet();
+        long now = System.currentTimeMillis();
+        String normalized = account != null ? account.trim().toLowerCase(Locale.ROOT) : null;
+        String member = String.valueOf(sequence.incrementAndGet());
+
+        if (StrUtil.isNotBlank(normalized)) {
+            long estimate = failuresByAccount.add(normalized, 1, now);
+            if (confirm(RULE_BRUTE_FORCE_ACCOUNT, normalized, member, 1, estimate, bruteForceAccountThreshold, now)) {
+                raise(RULE_BRUTE_FORCE_ACCOUNT, "high", null, normalized, ip, userAgent,
+                        "賬號在" + windowMinutes + "分鐘內登錄失敗達" + bruteForceAccountThreshold + "次", true, false);
+            }
+        }
+        if (StrUtil.isNotBlank(ip)) {
+            long estimate = failuresByIp.add(ip, 1, now);
+            if (confirm(RULE_BRUTE_FORCE_IP, ip, member, 1, estimate, bruteForceIpThreshold, now)) {
+                raise(RULE_BRUTE_FORCE_IP, "high", null, normalized, ip, userAgent,
+                        "IP在" + windowMinutes + "分鐘內登錄失敗達" + bruteForceIpThreshold + "次", false, true);
+            }
+            if (StrUtil.isNotBlank(normalized) && accountIpPairs.add(ip + "|" + normalized, 1, now) == 1) {
+                // 該IP在窗口內首次嘗試此賬號，計入不同賬號數
+                long distinct = distinctAccountsByIp.add(ip, 1, now);
+                if (confirm(RULE_CREDENTIAL_STUFFING, ip, normalized, 1, distinct, stuffingDistinctAccounts, now)) {
+                    raise(RULE_CREDENTIAL_STUFFING, "critical", null, null, ip, userAgent,
+                            "IP在" + windowMinutes + "分鐘內嘗試登錄" + stuffingDistinctAccounts + "個以上不同賬號",
+                            false, true);
+                }
+            }
+        }
+        String device = device(ip, userAgent);
+        if (device != null) {
+            long estimate = failuresByDevice.add(device, 1, now);
+            if (confirm(RULE_BRUTE_FORCE_DEVICE, device, member, 1, estimate, bruteForceDeviceThreshold, now)) {
+                raise(RULE_BRUTE_FORCE_DEVICE, "high", null, normalized, ip, userAgent,
+                        "設備在" + windowMinutes + "分鐘內登錄失敗達" + bruteForceDeviceThreshold + "次", false, true);
+            }
+        }
+    }
+
+    /**
+     * 登錄成功：異地登錄規則
+     */
+    public void onLoginSuccess(Long userId, String ip, String userAgent) {
+        if (!enabled || userId == null) {
+            return;
+        }
+        eventsObserved.incrementAndGet();
+        long now = System.currentTimeMillis();
+        String location = location(ip);
+        LastLogin previous = lastLogins.put(userId, new LastLogin(ip, location, userAgent, now));
+        if (previous == null || location == null || previous.location == null) {
+            return;
+        }
+        boolean recent = now - previous.time <= travelWindowMinutes * 60_000L;
+        if (recent && !location.equals(previous.location) && !StrUtil.equals(userAgent, previous.userAgent)) {
+            raise(RULE_IMPOSSIBLE_TRAVEL, "high", userId, null, ip, userAgent,
+                    "用戶在" + ((now - previous.time) / 60_000L) + "分鐘內先後從" + previous.location + "（" + previous.ip
+                            + "）及" + location + "以不同設備登錄",
+                    lockOnImpossibleTravel, false);
+        }
+    }
+
+    /**
+     * 提現申請：頻繁提現規則
+     */
+    public void onWithdrawal(Long userId, BigDecimal amount, String ip, String userAgent) {
+        if (!enabled || userId == null) {
+            return;
+        }
+        eventsObserved.incrementAndGet();
+        long now = System.currentTimeMillis();
+        String key = String.valueOf(userId);
+        String member = String.valueOf(sequence.incrementAndGet());
+
+        long count = withdrawalsByUser.add(key, 1, now);
+        if (confirm(RULE_RAPID_WITHDRAWALS + ":count", key, member, 1, count, withdrawalCountThreshold, now)) {
+            raise(RULE_RAPID_WITHDRAWALS, "critical", userId, null, ip, userAgent,
+                    "用戶在" + windowMinutes + "分鐘內提現申請達" + withdrawalCountThreshold + "筆", true, false);
+            return;
+        }
+        if (amount != null && amount.signum() > 0) {
+            int units = amount.setScale(0, RoundingMode.CEILING).min(BigDecimal.valueOf(Integer.MAX_VALUE)).intValue();
+            // 提現事件量小，金額直接精確累計，不等估算值過半
+            if (track(RULE_RAPID_WITHDRAWALS + ":amount", key, member, units, withdrawalAmountThreshold, now)) {
+                raise(RULE_RAPID_WITHDRAWALS, "critical", userId, null, ip, userAgent,
+                        "用戶在" + windowMinutes + "分鐘內提現金額達" + withdrawalAmountThreshold + " USDT", true, false);
+            }
+        }
+    }
+
+    /**
+     * 解除IP登錄封禁
+     */
+    public boolean unblockIp(String ip) {
+        boolean removed = ip != null && blockedIps.remove(ip) != null;
+        if (removed) {
+            synchronized (suppressed) {
+                suppressed.keySet().removeIf(key -> key.endsWith("|" + ip));
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 當前被封禁的IP及截止時間
+     */
+    public Map<String, Object> getBlockedIps() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        synchronized (blockedIps) {
+            blockedIps.forEach((ip, until) -> {
+                if (until > now) {
+                    result.put(ip, until);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 最近的告警
+     */
+    public List<Map<String, Object>> getRecentAlerts() {
+        synchronized (recentAlerts) {
+            return new ArrayList<>(recentAlerts);
+        }
+    }
+
+    /**
+     * 獲取引擎狀態
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("windowMinutes", windowMinutes);
+        status.put("eventsObserved", eventsObserved.get());
+        Map<String, Long> alerts = new LinkedHashMap<>();
+        alertCounts.forEach((rule, count) -> alerts.put(rule, count.get()));
+        status.put("alerts", alerts);
+        status.put("accountsLocked", accountsLocked.get());
+        status.put("ipsBlocked", ipsBlocked.get());
+        status.put("loginsRejected", loginsRejected.get());
+        status.put("candidates", candidates.size());
+        status.put("trackedUsers", lastLogins.size());
+        status.put("blockedIps", getBlockedIps().size());
+        status.put("sketchBytes", failuresByAccount.sizeInBytes() * 6);
+        return status;
+    }
+
+    /**
+     * 清理過期的封禁、告警靜默記錄及候選計數
+     */
+    @Scheduled(fixedDelayString = "${app.security.correlation.cleanup-interval-ms:60000}")
+    public void cleanup() {
+        long now = System.currentTimeMillis();
+        synchronized (blockedIps) {
+            blockedIps.values().removeIf(until -> until <= now);
+        }
+        synchronized (suppressed) {
+            suppressed.values().removeIf(until -> until <= now);
+        }
+        synchronized (candidates) {
+            candidates.values().removeIf(candidate -> candidate.lastSeen < now - windowMillis);
+        }
+    }
+
+    /**
+     * Sketch估算值達到閾值一半時轉入精確候選計數（轉入前的事件不計），精確值達到閾值才算命中；
+     * 小閾值的規則從第一次事件起精確計數
+     */
+    private boolean confirm(String rule, String key, String member, long weight, long estimate, long threshold,
+                            long now) {
+        if (threshold > EXACT_THRESHOLD && estimate * 2 < threshold) {
+            return false;
+        }
+        return track(rule, key, member, weight, threshold, now);
+    }
+
+    /**
+     * 精確候選計數，窗口內權重之和達到閾值即命中
+     */
+    private boolean track(String rule, String key, String member, long weight, long threshold, long now) {
+        String candidateKey = rule + "|" + key;
+        Candidate candidate = candidates.computeIfAbsent(candidateKey,
+                k -> new Candidate((int) Math.min(Math.max(threshold * 2, 16), 1024)));
+        return candidate.add(member, weight, now, windowMillis) >= threshold;
+    }
+
+    /**
+     * 觸發告警：同一規則及鍵在窗口內只處理一次，寫入安全事件，並按規則鎖定賬號或封禁IP
+     */
+    private void raise(String rule, String severity, Long userId, String account, String ip, String userAgent,
+                       String description, boolean lockAccount, boolean blockIp) {
+        long now = System.currentTimeMillis();
+        String subject = userId != null ? String.valueOf(userId) : account != null && !blockIp ? account : ip;
+        String suppressKey = rule + "|" + subject;
+        Long until = suppressed.get(suppressKey);
+        if (until != null && until > now) {
+            return;
+        }
+        suppressed.put(suppressKey, now + windowMillis);
+        alertCounts.computeIfAbsent(rule, k -> new AtomicLong()).incrementAndGet();
+
+        if (blockIp && StrUtil.isNotBlank(ip) && !RequestUtils.isInternalIp(ip)) {
+            blockedIps.put(ip, now + ipBlockMinutes * 60_000L);
+            ipsBlocked.incrementAndGet();
+        }
+
+        Map<String, Object> alert = new LinkedHashMap<>();
+        alert.put("rule", rule);
+        alert.put("severity", severity);
+        alert.put("userId", userId);
+        alert.put("account", account);
+        alert.put("ip", ip);
+        alert.put("description", description);
+        alert.put("lockAccount", lockAccount);
+        alert.put("blockIp", blockIp);
+        alert.put("time", LocalDateTime.now());
+        synchronized (recentAlerts) {
+            recentAlerts.addFirst(alert);
+            while (recentAlerts.size() > RECENT_ALERTS) {
+                recentAlerts.removeLast();
+            }
+        }
+        log.warn("安全告警: rule={}, userId={}, account={}, ip={}, {}", rule, userId, account, ip, description);
+
+        executor.execute(() -> handleAlert(alert, userId, account, ip, userAgent));
+    }
+
+    /**
+     * 告警的後續處理（鎖定賬號、寫安全事件）在虛擬線程中執行，不阻塞請求
+     */
+    private void handleAlert(Map<String, Object> alert, Long userId, String account, String ip, String userAgent) {
+        String rule = (String) alert.get("rule");
+        try {
+            Long targetUserId = userId;
+            if (targetUserId == null && account != null) {
+                User user = userMapper.findByEmailOrPhone(account);
+                targetUserId = user != null ? user.getId() : null;
+            }
+            if (Boolean.TRUE.equals(alert.get("lockAccount")) && targetUserId != null) {
+                userMapper.lockAccount(targetUserId, lockMinutes);
+                StpUtil.kickout(targetUserId);
+                accountsLocked.incrementAndGet();
+                log.warn("安全告警自動鎖定賬號: rule={}, userId={}, minutes={}", rule, targetUserId, lockMinutes);
+            }
+            auditLogService.logSecurityAlert(targetUserId, ALERT_EVENT_PREFIX + rule, (String) alert.get("severity"),
+                    (String) alert.get("description"), objectMapper.writeValueAsString(alert), ip, userAgent);
+        } catch (Exception e) {
+            log.error("處理安全告警失敗: rule={}, userId={}, account={}", rule, userId, account, e);
+        }
+    }
+
+    private SlidingWindowSketch newSketch() {
+        return new SlidingWindowSketch(windowMillis, buckets, sketchDepth, sketchWidth);
+    }
+
+    private static <K, V> Map<K, V> boundedMap(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    private static String device(String ip, String userAgent) {
+        if (StrUtil.isBlank(userAgent)) {
+            return null;
+        }
+        return RequestUtils.generateDeviceFingerprint(userAgent, ip);
+    }
+
+    /**
+     * 網絡位置：有地理位置數據時為國家/地區，否則為IPv4的/16或IPv6的/48網段；內網地址不參與判斷
+     */
+    private static String location(String ip) {
+        if (StrUtil.isBlank(ip) || RequestUtils.isInternalIp(ip)) {
+            return null;
+        }
+        String country = RequestUtils.getCountryFromIp(ip);
+        if (StrUtil.isNotBlank(country) && !"unknown".equals(country)) {
+            return country;
+        }
+        if (ip.contains(":")) {
+            String[] groups = ip.split(":", -1);
+            return groups.length >= 3 ? groups[0] + ":" + groups[1] + ":" + groups[2] + "::/48" : ip;
+        }
+        String[] octets = ip.split("\\.");
+        return octets.length == 4 ? octets[0] + "." + octets[1] + ".0.0/16" : ip;
+    }
+}
@@ -0,0 +1,357 @@
+package com.usdttrading.service;
+
+import cn.dev33.satoken.stp.StpUtil;
+import cn.hutool.core.util.IdUtil;
+import com.usdttrading.entity.UserSession;
+import com.usdttrading.repository.UserSessionMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 會話活動追蹤服務（寫後）
+ * 每個已登錄請求只在內存中記錄最後活動時間（一次volatile寫），定時把有變化的會話合併成一條批量UPDATE；
+ * 空閒超時和絕對超時直接按內存狀態判斷，只有本地判定失效時才回庫確認（其他節點可能仍在活動）。
+ * 在線會話數由各節點內存計數匯總，不再掃描 user_sessions 表
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SessionActivityTracker {
+
+    private static final String NODE_COUNTS_KEY = "session:active:nodes";
+    private static final int FLUSH_BATCH_SIZE = 500;
+
+    private final UserSessionMapper userSessionMapper;
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${app.session.tracking-enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.session.idle-timeout-minutes:30}")
+    private long idleTimeoutMinutes;
+
+    @Value("${app.session.absolute-timeout-minutes:1440}")
+    private long absoluteTimeoutMinutes;
+
+    @Value("${app.session.flush-interval-ms:5000}")
+    private long flushIntervalMs;
+
+    private final String nodeId = IdUtil.fastSimpleUUID();
+    private final AtomicLong touches = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    /**
+     * Token -> 會話狀態（ConcurrentHashMap按桶加鎖，讀寫熱點分散）
+     */
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * 會話內存狀態；sessionId為null表示未登記會話的Token（如管理端登錄），只做緩存不做校驗
+     */
+    private static final class SessionState {
+        private final String sessionId;
+        private final Long userId;
+        private final long absoluteDeadline;
+        private volatile long lastTouch;
+        private volatile long flushedTouch;
+
+        private SessionState(String sessionId, Long userId, long absoluteDeadline, long lastTouch, long flushedTouch) {
+            this.sessionId = sessionId;
+            this.userId = userId;
+            this.absoluteDeadline = absoluteDeadline;
+            this.lastTouch = lastTouch;
+            this.flushedTouch = flushedTouch;
+        }
+
+        private boolean tracked() {
+            return sessionId != null;
+        }
+
+        private boolean live(long now, long idleMs) {
+            return now - lastTouch < idleMs && (!tracked() || now < absoluteDeadline);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        flush();
+        try {
+            redisTemplate.opsForHash().delete(NODE_COUNTS_KEY, nodeId);
+        } catch (Exception e) {
+            log.debug("移除節點會話計數失敗: error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 登記新會話（登錄成功後調用）
+     *
+     * @param userId 用戶ID
+     * @param token 登錄Token
+     * @param clientIp 客戶端IP
+     * @param userAgent 用戶代理
+     * @param mobile 是否移動設備
+     */
+    public void openSession(Long userId, String token, String clientIp, String userAgent, boolean mobile) {
+        if (!enabled || token == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        UserSession session = new UserSession();
+        session.setUserId(userId);
+        session.setSessionId(IdUtil.fastSimpleUUID());
+        session.setToken(token);
+        session.setDeviceType(mobile ? "mobile" : "web");
+        session.setIpAddress(clientIp);
+        session.setUserAgent(userAgent);
+        session.setIsActive(true);
+        session.setLastActivity(toDateTime(now));
+        long absoluteDeadline = now + absoluteTimeoutMinutes * 60_000L;
+        session.setExpiresAt(toDateTime(expiresAt(now, absoluteDeadline)));
+        userSessionMapper.insert(session);
+        sessions.put(token, new SessionState(session.getSessionId(), userId, absoluteDeadline, now, now));
+    }
+
+    /**
+     * 結束會話（登出時調用）
+     *
+     * @param token 登錄Token
+     */
+    public void closeSession(String token) {
+        if (!enabled || token == null) {
+            return;
+        }
+        SessionState state = sessions.remove(token);
+        String sessionId = state != null ? state.sessionId : null;
+        if (state == null) {
+            UserSession row = userSessionMapper.selectAnyByToken(token);
+            sessionId = row != null ? row.getSessionId() : null;
+        }
+        if (sessionId != null) {
+            userSessionMapper.disableSession(sessionId);
+        }
+    }
+
+    /**
+     * 記錄一次請求活動
+     *
+     * @param token 登錄Token
+     * @return false 會話已空閒超時、絕對超時或已被禁用
+     */
+    public boolean touch(String token) {
+        if (!enabled || token == null) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        long idleMs = idleTimeoutMinutes * 60_000L;
+        SessionState state = sessions.get(token);
+        if (state == null || !state.live(now, idleMs)) {
+            // 本地無狀態或本地判定失效，回庫確認（其他節點的活動已按刷新週期寫入）
+            state = load(token, now, idleMs);
+            if (state == null) {
+                return false;
+            }
+        }
+        state.lastTouch = now;
+        touches.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 本節點在線會話數（僅統計已登記且未失效的會話）
+     */
+    public int getActiveSessionCount() {
+        long now = System.currentTimeMillis();
+        long idleMs = idleTimeoutMinutes * 60_000L;
+        int count = 0;
+        for (SessionState state : sessions.values()) {
+            if (state.tracked() && state.live(now, idleMs)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 本節點在線用戶數
+     */
+    public int getActiveUserCount() {
+        long now = System.currentTimeMillis();
+        long idleMs = idleTimeoutMinutes * 60_000L;
+        Set<Long> users = new HashSet<>();
+        for (SessionState state : sessions.values()) {
+            if (state.tracked() && state.live(now, idleMs)) {
+                users.add(state.userId);
+            }
+        }
+        return users.size();
+    }
+
+    /**
+     * 集群在線會話數：匯總各節點最近上報的內存計數
+     * 負載均衡不保持會話粘性時同一會話可能在多個節點計數，結果為上界
+     */
+    public long getClusterActiveSessionCount() {
+        long staleBefore = System.currentTimeMillis() - flushIntervalMs * 3;
+        long total = 0;
+        try {
+            for (Object value : redisTemplate.opsForHash().values(NODE_COUNTS_KEY)) {
+                String[] parts = String.valueOf(value).split(":");
+                if (parts.length == 2 && Long.parseLong(parts[1]) >= staleBefore) {
+                    total += Long.parseLong(parts[0]);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("讀取集群會話計數失敗: error={}", e.getMessage());
+            return getActiveSessionCount();
+        }
+        return total;
+    }
+
+    /**
+     * 合併刷新活動時間，並清理失效會話
+     */
+    @Scheduled(fixedDelayString = "${app.session.flush-interval-ms:5000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long idleMs = idleTimeoutMinutes * 60_000L;
+        List<UserSession> dirty = new ArrayList<>();
+        List<SessionState> dirtyStates = new ArrayList<>();
+        List<String> idle = new ArrayList<>();
+        List<String> absolute = new ArrayList<>();
+        int active = 0;
+        for (Map.Entry<String, SessionState> entry : sessions.entrySet()) {
+            SessionState state = entry.getValue();
+            if (!state.live(now, idleMs)) {
+                if (sessions.remove(entry.getKey(), state) && state.tracked()) {
+                    (now >= state.absoluteDeadline ? absolute : idle).add(state.sessionId);
+                }
+                continue;
+            }
+            if (!state.tracked()) {
+                continue;
+            }
+            active++;
+            long touched = state.lastTouch;
+            if (touched > state.flushedTouch) {
+                UserSession row = new UserSession();
+                row.setSessionId(state.sessionId);
+                row.setLastActivity(toDateTime(touched));
+                row.setExpiresAt(toDateTime(expiresAt(touched, state.absoluteDeadline)));
+                dirty.add(row);
+                dirtyStates.add(state);
+                state.flushedTouch = touched;
+            }
+        }
+
+        try {
+            for (int i = 0; i < dirty.size(); i += FLUSH_BATCH_SIZE) {
+                List<UserSession> batch = dirty.subList(i, Math.min(dirty.size(), i + FLUSH_BATCH_SIZE));
+                flushedRows.addAndGet(userSessionMapper.batchTouchSessions(batch));
+            }
+            for (int i = 0; i < absolute.size(); i += FLUSH_BATCH_SIZE) {
+                expired.addAndGet(userSessionMapper.batchDisableSessions(
+                        absolute.subList(i, Math.min(absolute.size(), i + FLUSH_BATCH_SIZE))));
+            }
+            LocalDateTime idleBefore = toDateTime(now - idleMs);
+            for (int i = 0; i < idle.size(); i += FLUSH_BATCH_SIZE) {
+                expired.addAndGet(userSessionMapper.disableIdleSessions(
+                        idle.subList(i, Math.min(idle.size(), i + FLUSH_BATCH_SIZE)), idleBefore));
+            }
+        } catch (Exception e) {
+            // 未寫入的活動時間在下一輪重試
+            for (SessionState state : dirtyStates) {
+                state.flushedTouch = 0;
+            }
+            log.error("刷新會話活動失敗: dirty={}, error={}", dirty.size(), e.getMessage());
+        }
+
+        try {
+            redisTemplate.opsForHash().put(NODE_COUNTS_KEY, nodeId, active + ":" + now);
+        } catch (Exception e) {
+            log.debug("上報節點會話計數失敗: error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 獲取追蹤狀態
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("nodeId", nodeId);
+        status.put("trackedTokens", sessions.size());
+        status.put("activeSessions", getActiveSessionCount());
+        status.put("activeUsers", getActiveUserCount());
+        status.put("clusterActiveSessions", getClusterActiveSessionCount());
+        status.put("touches", touches.get());
+        status.put("loads", loads.get());
+        status.put("flushedRows", flushedRows.get());
+        status.put("expired", expired.get());
+        return status;
+    }
+
+    private SessionState load(String token, long now, long idleMs) {
+        loads.incrementAndGet();
+        UserSession row = userSessionMapper.selectAnyByToken(token);
+        if (row == null) {
+            // 未登記的Token（管理端或上線前的登錄）不做校驗，只緩存避免重複回庫
+            SessionState untracked = new SessionState(null, null, Long.MAX_VALUE, now, now);
+            sessions.put(token, untracked);
+            return untracked;
+        }
+        long lastActivity = row.getLastActivity() != null ? toMillis(row.getLastActivity()) : now;
+        long absoluteDeadline = toMillis(row.getCreatedAt() != null ? row.getCreatedAt() : row.getLastActivity())
+                + absoluteTimeoutMinutes * 60_000L;
+        boolean valid = row.isActive()
+                && row.getExpiresAt() != null && toMillis(row.getExpiresAt()) > now
+                && now - lastActivity < idleMs
+                && now < absoluteDeadline;
+        if (!valid) {
+            sessions.remove(token);
+            StpUtil.logoutByTokenValue(token);
+            log.info("會話已失效: userId={}, sessionId={}", row.getUserId(), row.getSessionId());
+            return null;
+        }
+        SessionState state = new SessionState(row.getSessionId(), row.getUserId(), absoluteDeadline, lastActivity, lastActivity);
+        sessions.put(token, state);
+        return state;
+    }
+
+    private long expiresAt(long lastTouch, long absoluteDeadline) {
+        return Math.min(lastTouch + idleTimeoutMinutes * 60_000L, absoluteDeadline);
+    }
+
+    private static LocalDateTime toDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
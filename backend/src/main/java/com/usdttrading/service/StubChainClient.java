@@ -0,0 +1,125 @@
+package com.usdttrading.service;
+
+import com.usdttrading.entity.PlatformWallet;
+import com.usdttrading.entity.Wallet;
+import com.usdttrading.utils.EthAddressUtil;
+import com.usdttrading.utils.TronAddressUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 本地模擬出款鏈客戶端
+ * 不簽名、不連接節點：按時間推算區塊高度，已廣播的交易在下一個區塊打包並隨時間累積確認數，
+ * 可按比例模擬節點拒絕，用於在無外網環境下驗證出款引擎。
+ * 僅在 app.withdrawal.chain-client=stub 時啟用，避免生產環境誤用
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.withdrawal.chain-client", havingValue = "stub")
+public class StubChainClient implements ChainClient {
+
+    @Value("${app.withdrawal.stub.network:TRC20}")
+    private String network;
+
+    @Value("${app.withdrawal.stub.block-interval-ms:3000}")
+    private long blockIntervalMs;
+
+    @Value("${app.withdrawal.stub.network-fee:1}")
+    private BigDecimal networkFee;
+
+    @Value("${app.withdrawal.stub.reject-rate:0}")
+    private double rejectRate;
+
+    /**
+     * 交易哈希 -> 打包高度
+     */
+    private final Map<String, Long> included = new ConcurrentHashMap<>();
+
+    @Override
+    public String getNetwork() {
+        return network;
+    }
+
+    @Override
+    public boolean acceptsAddress(String address) {
+        if ("TRC20".equalsIgnoreCase(network)) {
+            return TronAddressUtil.isValidAddress(address);
+        }
+        return EthAddressUtil.isValidAddress(address);
+    }
+
+    @Override
+    public BigDecimal estimateFee(PlatformWallet from, String toAddress, BigDecimal amount) {
+        return networkFee;
+    }
+
+    @Override
+    public SignedTransfer sign(PlatformWallet from, String toAddress, BigDecimal amount, long nonce, BigDecimal feeLimit) {
+        String payload = from.getAddress() + "|" + toAddress + "|" + amount.stripTrailingZeros().toPlainString() + "|" + nonce;
+        return new SignedTransfer(sha256Hex(payload), payload);
+    }
+
+    @Override
+    public SignedTransfer signSweep(Wallet from, String toAddress, BigDecimal amount, BigDecimal feeLimit) {
+        String payload = "sweep|" + from.getAddress() + "|" + toAddress + "|" + amount.stripTrailingZeros().toPlainString()
+                + "|" + System.nanoTime();
+        return new SignedTransfer(sha256Hex(payload), payload);
+    }
+
+    @Override
+    public BroadcastResult broadcast(String txHash, String payload) {
+        if (included.containsKey(txHash)) {
+            return BroadcastResult.ACCEPTED;
+        }
+        if (rejectRate > 0 && ThreadLocalRandom.current().nextDouble() < rejectRate) {
+            log.info("模擬節點拒絕交易: txHash={}", txHash);
+            return BroadcastResult.REJECTED;
+        }
+        included.putIfAbsent(txHash, currentBlock() + 1);
+        return BroadcastResult.ACCEPTED;
+    }
+
+    @Override
+    public TransferStatus getStatus(String txHash) {
+        Long block = included.get(txHash);
+        if (block == null) {
+            return new TransferStatus(TransferState.NOT_FOUND, null, 0, null);
+        }
+        long head = currentBlock();
+        if (head < block) {
+            return new TransferStatus(TransferState.PENDING, null, 0, null);
+        }
+        return new TransferStatus(TransferState.INCLUDED, block, (int) (head - block + 1), networkFee);
+    }
+
+    private long currentBlock() {
+        return System.currentTimeMillis() / Math.max(1, blockIntervalMs);
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package com.usdttrading.service;
+
+import cn.hutool.json.JSONObject;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.usdttrading.config.BlockchainConfig;
+import com.usdttrading.entity.ChainScanBlock;
+import com.usdttrading.entity.Transaction;
+import com.usdttrading.entity.Wallet;
+import com.usdttrading.repository.ChainScanBlockMapper;
+import com.usdttrading.repository.OrderTransactionMapper;
+import com.usdttrading.repository.TransactionMapper;
+import com.usdttrading.repository.WalletMapper;
+import com.usdttrading.utils.FutureUtils;
+import com.usdttrading.utils.TronAddressUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TRON充值掃描服務
+ * 主節點按游標跟隨鏈頭：區塊頭按區間併發拉取，逐塊拉取交易回執並按內存地址集過濾USDT Transfer事件；
+ * 每輪以一條UPDATE推進全部待確認交易的確認數，達到確認數後入賬。
+ * 通過父哈希校驗檢測區塊重組，回滾分叉點之後未入賬的記錄並從分叉點重掃；
+ * 重組深度超過回溯窗口時無法定位分叉點，停止掃描及入賬並發出告警，等待人工核對
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TronDepositScanner {
+
+    public static final String CHAIN = "TRON";
+    public static final String NETWORK = "TRC20";
+    private static final String LEADER_ROLE = "tron-deposit-scanner";
+    private static final String ORPHAN_REASON = "區塊重組，交易已不在主鏈";
+    private static final String DEEP_REORG_EVENT = "CHAIN_REORG_BEYOND_WINDOW";
+
+    private final TronNodeClient tronNodeClient;
+    private final BlockchainConfig blockchainConfig;
+    private final ChainScanBlockMapper chainScanBlockMapper;
+    private final TransactionMapper transactionMapper;
+    private final OrderTransactionMapper orderTransactionMapper;
+    private final WalletMapper walletMapper;
+    private final NotificationService notificationService;
+    private final AuditLogService auditLogService;
+    private final LeaderElectionService leaderElectionService;
+    private final DepositAddressPool depositAddressPool;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.tron.scanner.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.tron.scanner.start-block:-1}")
+    private long startBlock;
+
+    @Value("${app.tron.scanner.max-blocks-per-cycle:300}")
+    private int maxBlocksPerCycle;
+
+    @Value("${app.tron.scanner.parallelism:16}")
+    private int parallelism;
+
+    @Value("${app.tron.scanner.reorg-window:60}")
+    private int reorgWindow;
+
+    @Value("${app.tron.scanner.token-decimals:6}")
+    private int tokenDecimals;
+
+    @Value("${app.tron.scanner.credit-batch-size:100}")
+    private int creditBatchSize;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong depositsDetected = new AtomicLong();
+    private final AtomicLong reorgs = new AtomicLong();
+
+    /**
+     * 充值地址 -> 用戶ID
+     */
+    private volatile Map<String, Long> addressIndex = new ConcurrentHashMap<>();
+
+    private String contractEvmHex;
+    private volatile long lastHeadBlock = -1;
+    private volatile long lastScannedBlock = -1;
+
+    /**
+     * 停止掃描的原因，非空時不再掃描及入賬，人工核對游標後重啟恢復
+     */
+    private volatile String haltReason;
+
+    @PostConstruct
+    public void init() {
+        contractEvmHex = TronAddressUtil.toEvmHex(TronAddressUtil.toHex(blockchainConfig.getUsdtContractAddress()));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 全量刷新充值地址集
+     */
+    @Scheduled(fixedDelayString = "${app.tron.scanner.address-refresh-interval-ms:300000}")
+    public void refreshAddresses() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Map<String, Long> index = new ConcurrentHashMap<>();
+            long lastId = 0L;
+            int batchSize = 1000;
+            while (true) {
+                List<Wallet> batch = walletMapper.findAddressesAfter(lastId, batchSize);
+                for (Wallet wallet : batch) {
+                    lastId = wallet.getId();
+                    index.put(wallet.getAddress(), wallet.getUserId());
+                }
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+            addressIndex = index;
+            log.debug("充值地址集已刷新: size={}", index.size());
+        } catch (Exception e) {
+            log.error("刷新充值地址集失敗: error={}", e.getMessage());
+        }
+    }
+
+    /**
+     * 掃描一輪
+     */
+    @Scheduled(fixedDelayString = "${app.tron.scanner.poll-interval-ms:3000}")
+    public void scan() {
+        if (!enabled || haltReason != null || !leaderElectionService.isLeader(LEADER_ROLE)) {
+            return;
+        }
+        try {
+            if (addressIndex.isEmpty()) {
+                refreshAddresses();
+            }
+            scanOnce();
+            if (haltReason == null) {
+                creditConfirmedDeposits();
+            }
+        } catch (Exception e) {
+            log.error("充值掃描失敗: error={}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 獲取掃描狀態
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("leader", leaderElectionService.wasLeader(LEADER_ROLE));
+        status.put("nodeUrl", tronNodeClient.getNodeUrl());
+        status.put("headBlock", lastHeadBlock);
+        status.put("scannedBlock", lastScannedBlock);
+        status.put("addresses", addressIndex.size());
+        status.put("depositsDetected", depositsDetected.get());
+        status.put("reorgs", reorgs.get());
+        status.put("halted", haltReason != null);
+        status.put("haltReason", haltReason);
+        return status;
+    }
+
+    private void scanOnce() throws InterruptedException {
+        TronNodeClient.BlockHeader head = tronNodeClient.getNowBlock();
+        lastHeadBlock = head.getNumber();
+
+        ChainScanBlock cursor = chainScanBlockMapper.selectCursor(CHAIN);
+        long from;
+        if (cursor == null) {
+            from = startBlock >= 0 ? startBlock : Math.max(0, head.getNumber() - blockchainConfig.getConfirmationCount());
+        } else {
+            from = cursor.getBlockNumber() + 1;
+        }
+        long to = Math.min(head.getNumber(), from + maxBlocksPerCycle - 1);
+        if (to < from) {
+            advanceConfirmations(head.getNumber());
+            return;
+        }
+
+        List<TronNodeClient.BlockHeader> headers = fetchHeaders(from, to);
+        if (headers.isEmpty()) {
+            return;
+        }
+
+        // 校驗鏈連續性，游標哈希不匹配即發生了重組
+        String expectedParent = cursor != null ? cursor.getBlockHash() : null;
+        int valid = 0;
+        for (TronNodeClient.BlockHeader header : headers) {
+            if (header.getNumber() != from + valid
+                    || (expectedParent != null && !expectedParent.equalsIgnoreCase(header.getParentHash()))) {
+                break;
+            }
+            expectedParent = header.getHash();
+            valid++;
+        }
+        if (valid == 0) {
+            if (cursor != null) {
+                handleReorg(cursor.getBlockNumber());
+            }
+            return;
+        }
+        List<TronNodeClient.BlockHeader> accepted = headers.subList(0, valid);
+
+        Map<Long, List<TronNodeClient.TokenTransfer>> transfers = fetchTransfers(accepted);
+        List<Transaction> deposits = new ArrayList<>();
+        Map<String, Long> addresses = addressIndex;
+        for (TronNodeClient.BlockHeader header : accepted) {
+            for (TronNodeClient.TokenTransfer transfer : transfers.getOrDefault(header.getNumber(), List.of())) {
+                Long userId = addresses.get(transfer.getTo());
+                if (userId == null) {
+                    // 剛從地址池領取、尚未進入全量刷新的地址
+                    userId = depositAddressPool.lookupUser(NETWORK, transfer.getTo());
+                }
+                if (userId != null && transfer.getRawAmount().signum() > 0) {
+                    deposits.add(toDeposit(transfer, userId));
+                }
+            }
+        }
+
+        long scannedTo = accepted.get(accepted.size() - 1).getNumber();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!deposits.isEmpty()) {
+                transactionMapper.upsertChainDeposits(deposits, ORPHAN_REASON);
+            }
+            List<ChainScanBlock> records = new ArrayList<>(accepted.size());
+            for (TronNodeClient.BlockHeader header : accepted) {
+                ChainScanBlock record = new ChainScanBlock();
+                record.setId(IdWorker.getId());
+                record.setChain(CHAIN);
+                record.setBlockNumber(header.getNumber());
+                record.setBlockHash(header.getHash());
+                record.setParentHash(header.getParentHash());
+                records.add(record);
+            }
+            chainScanBlockMapper.upsertBatch(records);
+            chainScanBlockMapper.deleteBelow(CHAIN, scannedTo - reorgWindow);
+            advanceConfirmations(head.getNumber());
+        });
+
+        lastScannedBlock = scannedTo;
+        if (!deposits.isEmpty()) {
+            depositsDetected.addAndGet(deposits.size());
+            log.info("檢測到鏈上充值: blocks={}-{}, count={}", from, scannedTo, deposits.size());
+        }
+    }
+
+    /**
+     * 以一條UPDATE推進所有待確認記錄的確認數
+     */
+    private void advanceConfirmations(long headBlock) {
+        transactionMapper.advanceDepositConfirmations(NETWORK, headBlock);
+        orderTransactionMapper.advanceConfirmations(headBlock, blockchainConfig.getConfirmationCount());
+    }
+
+    /**
+     * 處理區塊重組
+     * 從游標向下比對已保存的哈希與節點當前主鏈，找到共同祖先後回滾其後的記錄；
+     * 窗口內找不到共同祖先時保留全部記錄及游標，停止掃描並告警
+     */
+    private void handleReorg(long cursorBlock) {
+        long windowStart = Math.max(0, cursorBlock - reorgWindow + 1);
+        List<ChainScanBlock> saved = chainScanBlockMapper.selectRecent(CHAIN, windowStart);
+        Map<Long, String> canonical = new HashMap<>();
+        for (long start = windowStart; start <= cursorBlock; start += TronNodeClient.MAX_BLOCK_RANGE) {
+            long end = Math.min(cursorBlock + 1, start + TronNodeClient.MAX_BLOCK_RANGE);
+            for (TronNodeClient.BlockHeader header : tronNodeClient.getBlockHeaders(start, end)) {
+                canonical.put(header.getNumber(), header.getHash());
+            }
+        }
+
+        long forkPoint = windowStart - 1;
+        for (ChainScanBlock block : saved) {
+            if (block.getBlockHash().equalsIgnoreCase(canonical.get(block.getBlockNumber()))) {
+                forkPoint = block.getBlockNumber();
+                break;
+            }
+        }
+        if (forkPoint < windowStart) {
+            haltOnDeepReorg(cursorBlock, windowStart);
+            return;
+        }
+
+        long rollbackTo = forkPoint;
+        int[] orphaned = new int[1];
+        transactionTemplate.executeWithoutResult(status -> {
+            orphaned[0] = transactionMapper.orphanDepositsAbove(NETWORK, rollbackTo, ORPHAN_REASON);
+            orderTransactionMapper.resetAbove(rollbackTo);
+            chainScanBlockMapper.deleteAbove(CHAIN, rollbackTo);
+        });
+        reorgs.incrementAndGet();
+        lastScannedBlock = rollbackTo;
+        log.warn("檢測到區塊重組並已回滾: cursor={}, forkPoint={}, orphanedDeposits={}", cursorBlock, rollbackTo, orphaned[0]);
+    }
+
+    /**
+     * 重組深度超過回溯窗口：不回滾、不推進游標，停止掃描並記錄嚴重告警
+     */
+    private void haltOnDeepReorg(long cursorBlock, long windowStart) {
+        haltReason = "區塊重組深度超過回溯窗口: cursor=" + cursorBlock + ", window=" + reorgWindow;
+        reorgs.incrementAndGet();
+        log.error("{}，已停止充值掃描及入賬，需人工核對", haltReason);
+
+        JSONObject metadata = new JSONObject();
+        metadata.set("chain", CHAIN);
+        metadata.set("cursorBlock", cursorBlock);
+        metadata.set("windowStart", windowStart);
+        metadata.set("reorgWindow", reorgWindow);
+        auditLogService.logSecurityAlert(null, DEEP_REORG_EVENT, "critical", haltReason, metadata.toString(), null, null);
+    }
+
+    /**
+     * 入賬已達確認數的充值，每筆獨立事務並以條件更新防止重複入賬
+     */
+    private void creditConfirmedDeposits() {
+        List<Transaction> confirmed = transactionMapper.selectConfirmedDeposits(
+                NETWORK, blockchainConfig.getConfirmationCount(), creditBatchSize);
+        for (Transaction deposit : confirmed) {
+            try {
+                Boolean credited = transactionTemplate.execute(status -> {
+                    if (transactionMapper.completeDeposit(deposit.getId(), LocalDateTime.now()) == 0) {
+                        return false;
+                    }
+                    if (walletMapper.creditUsdt(deposit.getUserId(), deposit.getAmount()) == 0) {
+                        throw new IllegalStateException("用戶錢包不存在: userId=" + deposit.getUserId());
+                    }
+                    return true;
+                });
+                if (Boolean.TRUE.equals(credited)) {
+                    notificationService.sendTransactionNotification(deposit.getUserId(), deposit.getUserId(), "DEPOSIT",
+                            "USDT充值已到賬: " + deposit.getAmount().stripTrailingZeros().toPlainString() + " USDT");
+                    log.info("鏈上充值已入賬: transactionId={}, userId={}, amount={}",
+                            deposit.getId(), deposit.getUserId(), deposit.getAmount());
+                }
+            } catch (Exception e) {
+                log.error("充值入賬失敗: transactionId={}, error={}", deposit.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 按區間併發拉取區塊頭
+     */
+    private List<TronNodeClient.BlockHeader> fetchHeaders(long from, long to) throws InterruptedException {
+        List<Future<List<TronNodeClient.BlockHeader>>> futures = new ArrayList<>();
+        for (long start = from; start <= to; start += TronNodeClient.MAX_BLOCK_RANGE) {
+            long rangeStart = start;
+            long rangeEnd = Math.min(to + 1, start + TronNodeClient.MAX_BLOCK_RANGE);
+            futures.add(executor.submit(() -> tronNodeClient.getBlockHeaders(rangeStart, rangeEnd)));
+        }
+        List<TronNodeClient.BlockHeader> headers = new ArrayList<>();
+        for (Future<List<TronNodeClient.BlockHeader>> future : futures) {
+            headers.addAll(FutureUtils.await(future));
+        }
+        return headers;
+    }
+
+    /**
+     * 逐塊併發拉取USDT轉賬事件，併發度受parallelism限制
+     */
+    private Map<Long, List<TronNodeClient.TokenTransfer>> fetchTransfers(List<TronNodeClient.BlockHeader> headers)
+            throws InterruptedException {
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        Map<Long, Future<List<TronNodeClient.TokenTransfer>>> futures = new HashMap<>();
+        for (TronNodeClient.BlockHeader header : headers) {
+            futures.put(header.getNumber(), executor.submit(() -> {
+                permits.acquire();
+                try {
+                    return tronNodeClient.getTrc20Transfers(header.getNumber(), contractEvmHex);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+        Map<Long, List<TronNodeClient.TokenTransfer>> result = new HashMap<>();
+        for (Map.Entry<Long, Future<List<TronNodeClient.TokenTransfer>>> entry : futures.entrySet()) {
+            result.put(entry.getKey(), FutureUtils.await(entry.getValue()));
+        }
+        return result;
+    }
+
+    private Transaction toDeposit(TronNodeClient.TokenTransfer transfer, Long userId) {
+        Transaction deposit = new Transaction();
+        deposit.setId(IdWorker.getId());
+        deposit.setUserId(userId);
+        deposit.setTransactionNumber("DEP" + deposit.getId());
+        deposit.setAmount(new BigDecimal(transfer.getRawAmount(), tokenDecimals));
+        deposit.setCurrency("USDT");
+        deposit.setTransactionHash(transfer.getTxHash());
+        deposit.setLogIndex(transfer.getLogIndex());
+        deposit.setFromAddress(transfer.getFrom());
+        deposit.setToAddress(transfer.getTo());
+        deposit.setNetwork(NETWORK);
+        deposit.setBlockNumber(transfer.getBlockNumber());
+        return deposit;
+    }
+}
@@ -0,0 +1,200 @@
+package com.usdttrading.service;
+
+import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpResponse;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.usdttrading.config.BlockchainConfig;
+import com.usdttrading.utils.TronAddressUtil;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * TRON節點HTTP客戶端
+ * 只使用FullNode HTTP接口（getnowblock、getblockbylimitnext、gettransactioninfobyblocknum），
+ * 本地回放節點（TronMockNode）實現同樣的接口即可替換真實節點
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TronNodeClient {
+
+    /**
+     * Transfer(address,address,uint256) 事件簽名
+     */
+    public static final String TRANSFER_TOPIC = "ddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef";
+
+    /**
+     * getblockbylimitnext單次最多返回的區塊數
+     */
+    public static final int MAX_BLOCK_RANGE = 100;
+
+    private final BlockchainConfig blockchainConfig;
+
+    @Value("${app.tron.node-url:}")
+    private String nodeUrlOverride;
+
+    @Value("${app.tron.api-key:}")
+    private String apiKey;
+
+    @Value("${app.tron.request-timeout-ms:10000}")
+    private int requestTimeoutMs;
+
+    /**
+     * 區塊頭
+     */
+    @Data
+    @AllArgsConstructor
+    public static class BlockHeader {
+        private final long number;
+        private final String hash;
+        private final String parentHash;
+        private final long timestamp;
+    }
+
+    /**
+     * TRC20轉賬事件
+     */
+    @Data
+    @AllArgsConstructor
+    public static class TokenTransfer {
+        private final String txHash;
+        private final int logIndex;
+        private final long blockNumber;
+        private final String from;
+        private final String to;
+        private final BigInteger rawAmount;
+    }
+
+    /**
+     * 獲取最新區塊頭
+     */
+    public BlockHeader getNowBlock() {
+        return parseHeader(JSONUtil.parseObj(post("/wallet/getnowblock", "{}")));
+    }
+
+    /**
+     * 獲取區間內的區塊頭
+     *
+     * @param startNum 起始高度（含）
+     * @param endNum 結束高度（不含），區間不超過MAX_BLOCK_RANGE
+     * @return 按高度升序的區塊頭
+     */
+    public List<BlockHeader> getBlockHeaders(long startNum, long endNum) {
+        if (endNum <= startNum) {
+            return Collections.emptyList();
+        }
+        if (endNum - startNum > MAX_BLOCK_RANGE) {
+            throw new IllegalArgumentException("區塊區間過大: " + (endNum - startNum));
+        }
+        JSONObject body = new JSONObject();
+        body.set("startNum", startNum);
+        body.set("endNum", endNum);
+        JSONObject response = JSONUtil.parseObj(post("/wallet/getblockbylimitnext", body.toString()));
+        JSONArray blocks = response.getJSONArray("block");
+        if (blocks == null) {
+            return Collections.emptyList();
+        }
+        List<BlockHeader> headers = new ArrayList<>(blocks.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            headers.add(parseHeader(blocks.getJSONObject(i)));
+        }
+        headers.sort((a, b) -> Long.compare(a.getNumber(), b.getNumber()));
+        return headers;
+    }
+
+    /**
+     * 獲取區塊內指定合約的成功Transfer事件
+     *
+     * @param blockNumber 區塊高度
+     * @param contractEvmHex 合約地址（20字節十六進制，小寫）
+     * @return 轉賬事件
+     */
+    public List<TokenTransfer> getTrc20Transfers(long blockNumber, String contractEvmHex) {
+        JSONObject body = new JSONObject();
+        body.set("num", blockNumber);
+        String response = post("/wallet/gettransactioninfobyblocknum", body.toString()).trim();
+        if (!response.startsWith("[")) {
+            // 空區塊返回 {}
+            return Collections.emptyList();
+        }
+
+        JSONArray infos = JSONUtil.parseArray(response);
+        List<TokenTransfer> transfers = new ArrayList<>();
+        for (int i = 0; i < infos.size(); i++) {
+            JSONObject info = infos.getJSONObject(i);
+            JSONObject receipt = info.getJSONObject("receipt");
+            if (receipt != null && receipt.getStr("result") != null && !"SUCCESS".equals(receipt.getStr("result"))) {
+                continue;
+            }
+            JSONArray logs = info.getJSONArray("log");
+            if (logs == null) {
+                continue;
+            }
+            for (int j = 0; j < logs.size(); j++) {
+                JSONObject entry = logs.getJSONObject(j);
+                JSONArray topics = entry.getJSONArray("topics");
+                if (topics == null || topics.size() < 3
+                        || !contractEvmHex.equalsIgnoreCase(TronAddressUtil.toEvmHex(entry.getStr("address", "")))
+                        || !TRANSFER_TOPIC.equalsIgnoreCase(topics.getStr(0))) {
+                    continue;
+                }
+                String data = entry.getStr("data", "");
+                transfers.add(new TokenTransfer(
+                        info.getStr("id"),
+                        j,
+                        blockNumber,
+                        TronAddressUtil.fromTopic(topics.getStr(1)),
+                        TronAddressUtil.fromTopic(topics.getStr(2)),
+                        data.isEmpty() ? BigInteger.ZERO : new BigInteger(data, 16)));
+            }
+        }
+        return transfers;
+    }
+
+    /**
+     * 當前使用的節點地址
+     */
+    public String getNodeUrl() {
+        String url = nodeUrlOverride == null || nodeUrlOverride.isEmpty() ? blockchainConfig.getNodeUrl() : nodeUrlOverride;
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private String post(String path, String body) {
+        HttpRequest request = HttpRequest.post(getNodeUrl() + path)
+                .body(body, "application/json")
+                .timeout(requestTimeoutMs);
+        if (apiKey != null && !apiKey.isEmpty()) {
+            request.header("TRON-PRO-API-KEY", apiKey);
+        }
+        try (HttpResponse response = request.execute()) {
+            if (!response.isOk()) {
+                throw new IllegalStateException("TRON節點請求失敗: path=" + path + ", status=" + response.getStatus());
+            }
+            return response.body();
+        }
+    }
+
+    private static BlockHeader parseHeader(JSONObject block) {
+        JSONObject raw = block.getJSONObject("block_header").getJSONObject("raw_data");
+        return new BlockHeader(
+                raw.getLong("number", 0L),
+                block.getStr("blockID"),
+                raw.getStr("parentHash"),
+                raw.getLong("timestamp", 0L));
+    }
+}
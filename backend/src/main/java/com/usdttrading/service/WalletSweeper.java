@@ -0,0 +1,545 @@
+package com.usdttrading.service;
+
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.usdttrading.config.BlockchainConfig;
+import com.usdttrading.entity.PlatformWallet;
+import com.usdttrading.entity.Wallet;
+import com.usdttrading.entity.WalletSweep;
+import com.usdttrading.repository.PlatformWalletMapper;
+import com.usdttrading.repository.TransactionMapper;
+import com.usdttrading.repository.WalletMapper;
+import com.usdttrading.repository.WalletSweepMapper;
+import com.usdttrading.utils.FutureUtils;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 資金歸集與冷熱錢包再平衡服務
+ * 主節點定時生成歸集計劃：
+ * 充值地址按地址匯總未歸集的充值，累計達到最小歸集金額才歸集（每個地址一筆轉賬，攤薄手續費），分配到預計餘額最低的熱錢包；
+ * 開啟自動歸集且餘額達到歸集閾值的熱錢包，將超出保留水位的可用餘額合併為一筆轉入冷錢包；
+ * 低於低水位的熱錢包生成補充申請、超過告警閾值的熱錢包生成告警，兩者涉及冷錢包私鑰，只輸出給財務人工處理。
+ * 默認為演練模式（dry-run），只生成計劃不上鏈；關閉後按計劃併發簽名廣播，確認數達標後更新平台錢包賬面餘額
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WalletSweeper {
+
+    private static final String LEADER_ROLE = "wallet-sweeper";
+    private static final String CURRENCY = "USDT";
+
+    public static final String OP_DEPOSIT_SWEEP = WalletSweep.TYPE_DEPOSIT_SWEEP;
+    public static final String OP_HOT_TO_COLD = WalletSweep.TYPE_HOT_TO_COLD;
+    public static final String OP_COLD_REFILL_REQUEST = "COLD_REFILL_REQUEST";
+    public static final String OP_HIGH_BALANCE_ALERT = "HIGH_BALANCE_ALERT";
+
+    private final ObjectProvider<ChainClient> chainClientProvider;
+    private final PlatformWalletMapper platformWalletMapper;
+    private final WalletMapper walletMapper;
+    private final TransactionMapper transactionMapper;
+    private final WalletSweepMapper walletSweepMapper;
+    private final BlockchainConfig blockchainConfig;
+    private final LeaderElectionService leaderElectionService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.treasury.sweeper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.treasury.sweeper.dry-run:true}")
+    private boolean dryRun;
+
+    @Value("${app.treasury.sweeper.parallelism:8}")
+    private int parallelism;
+
+    @Value("${app.treasury.sweeper.min-sweep-amount:100}")
+    private BigDecimal minSweepAmount;
+
+    @Value("${app.treasury.sweeper.max-sweeps-per-cycle:200}")
+    private int maxSweepsPerCycle;
+
+    @Value("${app.treasury.sweeper.hot-retain-ratio:0.5}")
+    private BigDecimal hotRetainRatio;
+
+    @Value("${app.treasury.sweeper.hot-low-water:10000}")
+    private BigDecimal hotLowWater;
+
+    @Value("${app.treasury.sweeper.hot-alert-threshold:1000000}")
+    private BigDecimal hotAlertThreshold;
+
+    @Value("${app.treasury.sweeper.max-network-fee:30}")
+    private BigDecimal maxNetworkFee;
+
+    @Value("${app.treasury.sweeper.rebroadcast-after-seconds:120}")
+    private long rebroadcastAfterSeconds;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong confirmed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * 網絡 -> 鏈客戶端
+     */
+    private Map<String, ChainClient> chainClients = Map.of();
+    private volatile Map<String, Object> lastPlan;
+
+    /**
+     * 歸集計劃中的單項操作
+     */
+    @Data
+    @AllArgsConstructor
+    public static class SweepOperation {
+        private final String type;
+        private final String network;
+        private final String fromAddress;
+        private final Long fromWalletId;
+        private final String toAddress;
+        private final Long toWalletId;
+        private final BigDecimal amount;
+        private final int depositCount;
+        private final Long maxDepositId;
+        private final boolean executable;
+        private final String note;
+    }
+
+    @PostConstruct
+    public void init() {
+        Map<String, ChainClient> clients = new LinkedHashMap<>();
+        chainClientProvider.orderedStream().forEach(client -> clients.put(client.getNetwork().toUpperCase(), client));
+        chainClients = clients;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 定時歸集：演練模式下只記錄計劃
+     */
+    @Scheduled(fixedDelayString = "${app.treasury.sweeper.interval-ms:300000}")
+    public void run() {
+        if (!enabled || chainClients.isEmpty() || !leaderElectionService.isLeader(LEADER_ROLE)) {
+            return;
+        }
+        try {
+            List<SweepOperation> operations = plan();
+            lastPlan = summarize(operations, dryRun);
+            if (dryRun) {
+                log.info("資金歸集計劃（演練）: {}", lastPlan.get("totals"));
+                return;
+            }
+            execute(operations);
+        } catch (Exception e) {
+            log.error("資金歸集失敗: error={}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 跟蹤歸集交易的確認進度
+     */
+    @Scheduled(fixedDelayString = "${app.treasury.sweeper.confirm-interval-ms:5000}")
+    public void trackConfirmations() {
+        if (!enabled || chainClients.isEmpty() || !leaderElectionService.isLeader(LEADER_ROLE)) {
+            return;
+        }
+        for (ChainClient client : chainClients.values()) {
+            try {
+                rebroadcastSigned(client);
+                trackOnce(client);
+            } catch (Exception e) {
+                log.error("歸集確認跟蹤失敗: network={}, error={}", client.getNetwork(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 生成當前歸集計劃（不執行），供財務審閱
+     */
+    public Map<String, Object> previewPlan() {
+        return summarize(plan(), true);
+    }
+
+    /**
+     * 最近一次定時任務生成的計劃
+     */
+    public Map<String, Object> getLastPlan() {
+        return lastPlan;
+    }
+
+    /**
+     * 更新平台錢包的自動歸集設置
+     */
+    public boolean updateAutoCollect(Long walletId, Boolean autoCollect, BigDecimal collectThreshold) {
+        return platformWalletMapper.updateAutoCollectSettings(walletId, autoCollect, collectThreshold) > 0;
+    }
+
+    /**
+     * 獲取歸集服務狀態
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("dryRun", dryRun);
+        status.put("leader", leaderElectionService.wasLeader(LEADER_ROLE));
+        status.put("networks", chainClients.keySet());
+        status.put("executed", executed.get());
+        status.put("confirmed", confirmed.get());
+        status.put("failed", failed.get());
+        return status;
+    }
+
+    /**
+     * 生成歸集計劃
+     */
+    private List<SweepOperation> plan() {
+        List<SweepOperation> operations = new ArrayList<>();
+        List<PlatformWallet> hotWallets = platformWalletMapper.selectActiveByType(CURRENCY, "hot");
+        List<PlatformWallet> coldWallets = platformWalletMapper.selectActiveByType(CURRENCY, "cold");
+
+        for (ChainClient client : chainClients.values()) {
+            String network = client.getNetwork();
+            List<PlatformWallet> hot = filterByNetwork(hotWallets, client);
+            List<PlatformWallet> cold = filterByNetwork(coldWallets, client);
+            if (hot.isEmpty()) {
+                log.warn("沒有可用的熱錢包，跳過歸集計劃: network={}", network);
+                continue;
+            }
+
+            // 每筆歸集分配給預計餘額最低的熱錢包
+            Map<Long, BigDecimal> projected = new HashMap<>();
+            for (PlatformWallet wallet : hot) {
+                projected.put(wallet.getId(), nonNull(wallet.getBalance()));
+            }
+            for (Map<String, Object> candidate : transactionMapper.selectSweepCandidates(network, minSweepAmount, maxSweepsPerCycle)) {
+                String address = (String) candidate.get("address");
+                BigDecimal amount = new BigDecimal(String.valueOf(candidate.get("amount")));
+                Wallet source = walletMapper.findByAddress(address);
+                if (source == null) {
+                    continue;
+                }
+                PlatformWallet target = hot.get(0);
+                for (PlatformWallet wallet : hot) {
+                    if (projected.get(wallet.getId()).compareTo(projected.get(target.getId())) < 0) {
+                        target = wallet;
+                    }
+                }
+                operations.add(new SweepOperation(OP_DEPOSIT_SWEEP, network, address, source.getId(), target.getAddress(),
+                        target.getId(), amount, ((Number) candidate.get("depositCount")).intValue(),
+                        ((Number) candidate.get("maxId")).longValue(), true, null));
+                projected.merge(target.getId(), amount, BigDecimal::add);
+            }
+
+            // 熱錢包超出保留水位的可用餘額合併轉入冷錢包
+            PlatformWallet coldTarget = cold.isEmpty() ? null : cold.get(0);
+            for (PlatformWallet wallet : filterByNetwork(platformWalletMapper.selectWalletsNeedingCollection(), client)) {
+                if (!wallet.isHotWallet() || !CURRENCY.equals(wallet.getCurrency())) {
+                    continue;
+                }
+                BigDecimal retain = wallet.getCollectThreshold().multiply(hotRetainRatio).setScale(8, RoundingMode.DOWN);
+                BigDecimal excess = nonNull(wallet.getBalance()).subtract(nonNull(wallet.getReservedBalance())).subtract(retain);
+                if (excess.signum() <= 0) {
+                    continue;
+                }
+                if (coldTarget == null) {
+                    operations.add(new SweepOperation(OP_HOT_TO_COLD, network, wallet.getAddress(), wallet.getId(), null, null,
+                            excess, 0, null, false, "沒有可用的冷錢包"));
+                    continue;
+                }
+                operations.add(new SweepOperation(OP_HOT_TO_COLD, network, wallet.getAddress(), wallet.getId(),
+                        coldTarget.getAddress(), coldTarget.getId(), excess, 0, null, true, "保留 " + retain.toPlainString()));
+            }
+
+            // 低水位補充、高餘額告警只輸出給財務處理
+            for (PlatformWallet wallet : filterByNetwork(platformWalletMapper.selectLowBalanceWallets(hotLowWater), client)) {
+                if (!wallet.isHotWallet() || !CURRENCY.equals(wallet.getCurrency())) {
+                    continue;
+                }
+                BigDecimal expected = projected.getOrDefault(wallet.getId(), nonNull(wallet.getBalance()));
+                if (expected.compareTo(hotLowWater) < 0) {
+                    operations.add(new SweepOperation(OP_COLD_REFILL_REQUEST, network,
+                            coldTarget != null ? coldTarget.getAddress() : null, coldTarget != null ? coldTarget.getId() : null,
+                            wallet.getAddress(), wallet.getId(), hotLowWater.subtract(expected), 0, null, false,
+                            "熱錢包低於低水位，需從冷錢包補充"));
+                }
+            }
+            for (PlatformWallet wallet : filterByNetwork(platformWalletMapper.selectHighBalanceWallets(hotAlertThreshold), client)) {
+                if (wallet.isHotWallet() && CURRENCY.equals(wallet.getCurrency()) && !wallet.isAutoCollect()) {
+                    operations.add(new SweepOperation(OP_HIGH_BALANCE_ALERT, network, wallet.getAddress(), wallet.getId(),
+                            null, null, nonNull(wallet.getBalance()), 0, null, false, "熱錢包餘額超過告警閾值且未開啟自動歸集"));
+                }
+            }
+        }
+        return operations;
+    }
+
+    /**
+     * 按計劃併發執行可上鏈的操作
+     */
+    private void execute(List<SweepOperation> operations) throws InterruptedException {
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        List<Future<?>> futures = new ArrayList<>();
+        for (SweepOperation operation : operations) {
+            ChainClient client = chainClients.get(operation.getNetwork().toUpperCase());
+            if (!operation.isExecutable() || client == null) {
+                continue;
+            }
+            futures.add(executor.submit(() -> {
+                permits.acquire();
+                try {
+                    WalletSweep sweep = OP_DEPOSIT_SWEEP.equals(operation.getType())
+                            ? signDepositSweep(client, operation)
+                            : signHotToCold(client, operation);
+                    if (sweep != null) {
+                        executed.incrementAndGet();
+                        broadcast(client, sweep);
+                    }
+                } catch (Exception e) {
+                    log.error("歸集操作失敗: type={}, from={}, error={}", operation.getType(), operation.getFromAddress(), e.getMessage());
+                } finally {
+                    permits.release();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            FutureUtils.await(future);
+        }
+    }
+
+    /**
+     * 簽名充值地址歸集，同一事務內標記對應充值已歸集
+     */
+    private WalletSweep signDepositSweep(ChainClient client, SweepOperation operation) {
+        Wallet source = walletMapper.selectById(operation.getFromWalletId());
+        if (source == null) {
+            return null;
+        }
+        ChainClient.SignedTransfer transfer = client.signSweep(source, operation.getToAddress(), operation.getAmount(), maxNetworkFee);
+        WalletSweep sweep = newSweep(operation, transfer);
+        return transactionTemplate.execute(status -> {
+            int marked = transactionMapper.markSwept(operation.getNetwork(), operation.getFromAddress(),
+                    operation.getMaxDepositId(), sweep.getId());
+            if (marked != operation.getDepositCount()) {
+                // 生成計劃後充值記錄有變化，放棄本次歸集，下一輪重新匯總
+                status.setRollbackOnly();
+                return null;
+            }
+            walletSweepMapper.insert(sweep);
+            return sweep;
+        });
+    }
+
+    /**
+     * 簽名熱錢包轉冷錢包，同一事務內預留熱錢包餘額，避免出款引擎分配同一筆資金
+     */
+    private WalletSweep signHotToCold(ChainClient client, SweepOperation operation) {
+        return transactionTemplate.execute(status -> {
+            PlatformWallet wallet = platformWalletMapper.selectByIdForUpdate(operation.getFromWalletId());
+            if (wallet == null || wallet.getAvailableBalance().compareTo(operation.getAmount()) < 0) {
+                return null;
+            }
+            long nonce = wallet.getNextNonce() != null ? wallet.getNextNonce() : 0L;
+            ChainClient.SignedTransfer transfer = client.sign(wallet, operation.getToAddress(), operation.getAmount(),
+                    nonce, maxNetworkFee);
+            WalletSweep sweep = newSweep(operation, transfer);
+            platformWalletMapper.increaseReservedBalance(wallet.getId(), operation.getAmount());
+            platformWalletMapper.allocateNonces(wallet.getId(), 1);
+            walletSweepMapper.insert(sweep);
+            return sweep;
+        });
+    }
+
+    private void broadcast(ChainClient client, WalletSweep sweep) {
+        try {
+            if (client.broadcast(sweep.getTransactionHash(), sweep.getSignedPayload()) == ChainClient.BroadcastResult.ACCEPTED) {
+                walletSweepMapper.markBroadcast(sweep.getId(), LocalDateTime.now());
+            } else {
+                fail(sweep, "節點拒絕歸集交易");
+            }
+        } catch (Exception e) {
+            // 保持SIGNED狀態，確認跟蹤時重播
+            log.warn("歸集交易廣播異常，稍後重試: sweepId={}, error={}", sweep.getId(), e.getMessage());
+        }
+    }
+
+    private void rebroadcastSigned(ChainClient client) {
+        for (WalletSweep sweep : walletSweepMapper.selectByStatus(client.getNetwork(), WalletSweep.STATUS_SIGNED, maxSweepsPerCycle)) {
+            broadcast(client, sweep);
+        }
+    }
+
+    private void trackOnce(ChainClient client) throws InterruptedException {
+        List<WalletSweep> inFlight = walletSweepMapper.selectByStatus(client.getNetwork(), WalletSweep.STATUS_BROADCAST, maxSweepsPerCycle);
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        Map<WalletSweep, Future<ChainClient.TransferStatus>> futures = new LinkedHashMap<>();
+        for (WalletSweep sweep : inFlight) {
+            futures.put(sweep, executor.submit(() -> {
+                permits.acquire();
+                try {
+                    return client.getStatus(sweep.getTransactionHash());
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        LocalDateTime rebroadcastBefore = LocalDateTime.now().minusSeconds(rebroadcastAfterSeconds);
+        for (Map.Entry<WalletSweep, Future<ChainClient.TransferStatus>> entry : futures.entrySet()) {
+            WalletSweep sweep = entry.getKey();
+            try {
+                ChainClient.TransferStatus status = FutureUtils.await(entry.getValue());
+                switch (status.getState()) {
+                    case INCLUDED:
+                        if (status.getConfirmations() >= blockchainConfig.getConfirmationCount()) {
+                            settle(sweep, status);
+                        }
+                        break;
+                    case FAILED:
+                    case EXPIRED:
+                        fail(sweep, "歸集交易未成功上鏈: " + status.getState());
+                        break;
+                    case NOT_FOUND:
+                        if (sweep.getBroadcastAt() != null && sweep.getBroadcastAt().isBefore(rebroadcastBefore)) {
+                            walletSweepMapper.resetBroadcast(sweep.getId());
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                log.warn("查詢歸集交易狀態失敗: sweepId={}, error={}", sweep.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 歸集確認後更新平台錢包賬面餘額
+     */
+    private void settle(WalletSweep sweep, ChainClient.TransferStatus status) {
+        Boolean settled = transactionTemplate.execute(tx -> {
+            if (walletSweepMapper.markConfirmed(sweep.getId(), status.getBlockNumber(), status.getNetworkFee(), LocalDateTime.now()) == 0) {
+                return false;
+            }
+            if (WalletSweep.TYPE_HOT_TO_COLD.equals(sweep.getSweepType())) {
+                platformWalletMapper.decreaseReservedBalance(sweep.getFromWalletId(), sweep.getAmount());
+                if (platformWalletMapper.decreaseBalance(sweep.getFromWalletId(), sweep.getAmount()) == 0) {
+                    log.error("熱錢包賬面餘額不足以扣減已上鏈歸集，需人工對賬: walletId={}, sweepId={}",
+                            sweep.getFromWalletId(), sweep.getId());
+                }
+            }
+            platformWalletMapper.increaseBalance(sweep.getToWalletId(), sweep.getAmount());
+            return true;
+        });
+        if (Boolean.TRUE.equals(settled)) {
+            confirmed.incrementAndGet();
+            log.info("歸集完成: type={}, from={}, to={}, amount={}, txHash={}", sweep.getSweepType(),
+                    sweep.getFromAddress(), sweep.getToAddress(), sweep.getAmount(), sweep.getTransactionHash());
+        }
+    }
+
+    /**
+     * 歸集失敗：充值歸集清除標記等待重新歸集，熱轉冷釋放預留
+     */
+    private void fail(WalletSweep sweep, String reason) {
+        Boolean done = transactionTemplate.execute(tx -> {
+            if (walletSweepMapper.markFailed(sweep.getId(), reason) == 0) {
+                return false;
+            }
+            if (WalletSweep.TYPE_DEPOSIT_SWEEP.equals(sweep.getSweepType())) {
+                transactionMapper.unmarkSwept(sweep.getId());
+            } else {
+                platformWalletMapper.decreaseReservedBalance(sweep.getFromWalletId(), sweep.getAmount());
+            }
+            return true;
+        });
+        if (Boolean.TRUE.equals(done)) {
+            failed.incrementAndGet();
+            log.warn("歸集失敗: sweepId={}, type={}, reason={}", sweep.getId(), sweep.getSweepType(), reason);
+        }
+    }
+
+    private WalletSweep newSweep(SweepOperation operation, ChainClient.SignedTransfer transfer) {
+        WalletSweep sweep = new WalletSweep();
+        sweep.setId(IdWorker.getId());
+        sweep.setSweepType(operation.getType());
+        sweep.setNetwork(operation.getNetwork());
+        sweep.setFromAddress(operation.getFromAddress());
+        sweep.setFromWalletId(operation.getFromWalletId());
+        sweep.setToAddress(operation.getToAddress());
+        sweep.setToWalletId(operation.getToWalletId());
+        sweep.setAmount(operation.getAmount());
+        sweep.setDepositCount(operation.getDepositCount());
+        sweep.setTransactionHash(transfer.getTxHash());
+        sweep.setSignedPayload(transfer.getPayload());
+        sweep.setStatus(WalletSweep.STATUS_SIGNED);
+        return sweep;
+    }
+
+    private Map<String, Object> summarize(List<SweepOperation> operations, boolean dryRunPlan) {
+        Map<String, Map<String, Object>> totals = new LinkedHashMap<>();
+        for (SweepOperation operation : operations) {
+            Map<String, Object> total = totals.computeIfAbsent(operation.getType(), key -> {
+                Map<String, Object> value = new HashMap<>();
+                value.put("count", 0);
+                value.put("amount", BigDecimal.ZERO);
+                return value;
+            });
+            total.put("count", (Integer) total.get("count") + 1);
+            total.put("amount", ((BigDecimal) total.get("amount")).add(operation.getAmount()));
+        }
+        Map<String, Object> plan = new LinkedHashMap<>();
+        plan.put("generatedAt", LocalDateTime.now());
+        plan.put("dryRun", dryRunPlan);
+        plan.put("totals", totals);
+        plan.put("operations", operations);
+        return plan;
+    }
+
+    private static List<PlatformWallet> filterByNetwork(List<PlatformWallet> wallets, ChainClient client) {
+        List<PlatformWallet> result = new ArrayList<>();
+        for (PlatformWallet wallet : wallets) {
+            if (client.acceptsAddress(wallet.getAddress())) {
+                result.add(wallet);
+            }
+        }
+        return result;
+    }
+
+    private static BigDecimal nonNull(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
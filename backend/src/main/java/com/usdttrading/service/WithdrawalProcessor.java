@@ -0,0 +1,502 @@
+package com.usdttrading.service;
+
+import com.usdttrading.config.BlockchainConfig;
+import com.usdttrading.entity.PlatformWallet;
+import com.usdttrading.entity.Withdrawal;
+import com.usdttrading.enums.TransactionStatus;
+import com.usdttrading.repository.PlatformWalletMapper;
+import com.usdttrading.repository.TransactionMapper;
+import com.usdttrading.repository.WalletMapper;
+import com.usdttrading.repository.WithdrawalMapper;
+import com.usdttrading.utils.FutureUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 鏈上出款引擎
+ * 主節點按網絡批量認領已批准的提款：在同一事務內鎖定熱錢包、預留餘額（reserved_balance）、分配出款序號並簽名，
+ * 簽名結果先落庫再廣播，重啟或切主後原樣重播同一筆交易，不會重複出款。
+ * 廣播在虛擬線程上併發執行並以信號量限制在途數量，確認跟蹤獨立輪詢，
+ * 達到確認數後扣減熱錢包餘額與預留、結清用戶凍結；鏈上失敗時釋放預留並退回用戶凍結
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WithdrawalProcessor {
+
+    private static final String LEADER_ROLE = "withdrawal-processor";
+    private static final String CURRENCY = "USDT";
+
+    private final ObjectProvider<ChainClient> chainClientProvider;
+    private final WithdrawalMapper withdrawalMapper;
+    private final PlatformWalletMapper platformWalletMapper;
+    private final WalletMapper walletMapper;
+    private final TransactionMapper transactionMapper;
+    private final BlockchainConfig blockchainConfig;
+    private final NotificationService notificationService;
+    private final LeaderElectionService leaderElectionService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.withdrawal.processor.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.withdrawal.processor.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.withdrawal.processor.max-batches-per-cycle:10}")
+    private int maxBatchesPerCycle;
+
+    @Value("${app.withdrawal.processor.max-in-flight:16}")
+    private int maxInFlight;
+
+    @Value("${app.withdrawal.processor.confirmations:-1}")
+    private int requiredConfirmations;
+
+    @Value("${app.withdrawal.processor.max-network-fee:30}")
+    private BigDecimal maxNetworkFee;
+
+    @Value("${app.withdrawal.processor.max-broadcast-attempts:5}")
+    private int maxBroadcastAttempts;
+
+    @Value("${app.withdrawal.processor.rebroadcast-after-seconds:120}")
+    private long rebroadcastAfterSeconds;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Long> broadcasting = ConcurrentHashMap.newKeySet();
+    private final AtomicLong signed = new AtomicLong();
+    private final AtomicLong broadcasted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong requeued = new AtomicLong();
+
+    /**
+     * 網絡 -> 鏈客戶端
+     */
+    private Map<String, ChainClient> chainClients = Map.of();
+    private Semaphore broadcastPermits;
+    private volatile BigDecimal lastFeeEstimate;
+    private volatile boolean feeSuspended;
+
+    @PostConstruct
+    public void init() {
+        Map<String, ChainClient> clients = new LinkedHashMap<>();
+        chainClientProvider.orderedStream().forEach(client -> clients.put(client.getNetwork().toUpperCase(), client));
+        chainClients = clients;
+        broadcastPermits = new Semaphore(Math.max(1, maxInFlight));
+        if (clients.isEmpty()) {
+            log.warn("未配置出款鏈客戶端，已批准的提款將保持待出款狀態");
+        } else {
+            log.info("出款引擎已加載鏈客戶端: networks={}", clients.keySet());
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 認領、簽名並派發廣播
+     */
+    @Scheduled(fixedDelayString = "${app.withdrawal.processor.poll-interval-ms:2000}")
+    public void process() {
+        if (!enabled || chainClients.isEmpty() || !leaderElectionService.isLeader(LEADER_ROLE)) {
+            return;
+        }
+        for (ChainClient client : chainClients.values()) {
+            try {
+                // 上一批仍在廣播時即認領下一批，積壓超過在途上限的兩倍後停止認領
+                for (int i = 0; i < maxBatchesPerCycle && broadcasting.size() < maxInFlight * 2; i++) {
+                    int claimed = claimAndSign(client);
+                    dispatchBroadcasts(client);
+                    if (claimed < batchSize) {
+                        break;
+                    }
+                }
+            } catch (Exception e) {
+                log.error("出款處理失敗: network={}, error={}", client.getNetwork(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 跟蹤已廣播交易的確認進度
+     */
+    @Scheduled(fixedDelayString = "${app.withdrawal.processor.confirm-interval-ms:3000}")
+    public void trackConfirmations() {
+        if (!enabled || chainClients.isEmpty() || !leaderElectionService.isLeader(LEADER_ROLE)) {
+            return;
+        }
+        for (ChainClient client : chainClients.values()) {
+            try {
+                trackOnce(client);
+            } catch (Exception e) {
+                log.error("出款確認跟蹤失敗: network={}, error={}", client.getNetwork(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 記錄人工出款：交易已在系統外廣播，由確認跟蹤按交易哈希完成結算
+     *
+     * @param withdrawalId 提款ID
+     * @param txHash 鏈上交易哈希
+     * @param fromAddress 出款地址（平台錢包時同步扣減其餘額，可為空）
+     * @return 是否記錄成功
+     */
+    public boolean recordManualPayout(Long withdrawalId, String txHash, String fromAddress) {
+        Withdrawal withdrawal = withdrawalMapper.selectById(withdrawalId);
+        if (withdrawal == null || !withdrawal.isApproved()) {
+            return false;
+        }
+        PlatformWallet source = fromAddress == null || fromAddress.isEmpty() ? null : platformWalletMapper.selectByAddress(fromAddress);
+        BigDecimal payout = payoutOf(withdrawal);
+        Boolean recorded = transactionTemplate.execute(status -> {
+            if (withdrawalMapper.markManualPayout(withdrawalId, source != null ? source.getId() : null, txHash, LocalDateTime.now()) == 0) {
+                return false;
+            }
+            if (source != null) {
+                platformWalletMapper.increaseReservedBalance(source.getId(), payout);
+            }
+            transactionMapper.updateWithdrawalLedger(withdrawal.getWithdrawalNo(), TransactionStatus.CONFIRMING.name(),
+                    txHash, null, null);
+            return true;
+        });
+        return Boolean.TRUE.equals(recorded);
+    }
+
+    /**
+     * 獲取出款引擎狀態
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("leader", leaderElectionService.wasLeader(LEADER_ROLE));
+        status.put("networks", chainClients.keySet());
+        status.put("broadcasting", broadcasting.size());
+        status.put("availablePermits", broadcastPermits.availablePermits());
+        status.put("lastFeeEstimate", lastFeeEstimate);
+        status.put("feeSuspended", feeSuspended);
+        status.put("signed", signed.get());
+        status.put("broadcasted", broadcasted.get());
+        status.put("completed", completed.get());
+        status.put("failed", failed.get());
+        status.put("requeued", requeued.get());
+        return status;
+    }
+
+    /**
+     * 認領一批已批准的提款並簽名
+     * 手續費估算超過上限時暫停本網絡出款，避免在擁堵時支付過高手續費
+     *
+     * @return 本批認領的數量（用於判斷是否繼續認領）
+     */
+    private int claimAndSign(ChainClient client) {
+        String network = client.getNetwork();
+        int[] claimed = new int[1];
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Withdrawal> batch = withdrawalMapper.lockApproved(network, batchSize);
+            claimed[0] = batch.size();
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            List<PlatformWallet> wallets = new ArrayList<>();
+            for (PlatformWallet wallet : platformWalletMapper.lockHotWallets(CURRENCY)) {
+                if (client.acceptsAddress(wallet.getAddress())) {
+                    wallets.add(wallet);
+                }
+            }
+            if (wallets.isEmpty()) {
+                log.warn("沒有可用的出款熱錢包: network={}, pending={}", network, batch.size());
+                claimed[0] = 0;
+                return;
+            }
+
+            BigDecimal fee = client.estimateFee(wallets.get(0), batch.get(0).getToAddress(), payoutOf(batch.get(0)));
+            lastFeeEstimate = fee;
+            feeSuspended = fee != null && fee.compareTo(maxNetworkFee) > 0;
+            if (feeSuspended) {
+                log.warn("網絡手續費超過上限，暫停出款: network={}, estimate={}, limit={}", network, fee, maxNetworkFee);
+                claimed[0] = 0;
+                return;
+            }
+
+            Map<Long, BigDecimal> available = new HashMap<>();
+            for (PlatformWallet wallet : wallets) {
+                available.put(wallet.getId(), availableOf(wallet));
+            }
+            Map<Long, BigDecimal> reserved = new HashMap<>();
+            Map<Long, Integer> nonces = new HashMap<>();
+            int skipped = 0;
+            for (Withdrawal withdrawal : batch) {
+                BigDecimal payout = payoutOf(withdrawal);
+                PlatformWallet source = null;
+                for (PlatformWallet wallet : wallets) {
+                    BigDecimal free = available.get(wallet.getId());
+                    if (free.compareTo(payout) >= 0 && (source == null || free.compareTo(available.get(source.getId())) > 0)) {
+                        source = wallet;
+                    }
+                }
+                if (source == null) {
+                    skipped++;
+                    continue;
+                }
+
+                int offset = nonces.getOrDefault(source.getId(), 0);
+                long nonce = (source.getNextNonce() != null ? source.getNextNonce() : 0L) + offset;
+                ChainClient.SignedTransfer transfer = client.sign(source, withdrawal.getToAddress(), payout, nonce, maxNetworkFee);
+                withdrawalMapper.markSigned(withdrawal.getId(), source.getId(), nonce, transfer.getTxHash(), transfer.getPayload());
+
+                available.put(source.getId(), available.get(source.getId()).subtract(payout));
+                reserved.merge(source.getId(), payout, BigDecimal::add);
+                nonces.put(source.getId(), offset + 1);
+            }
+
+            for (Map.Entry<Long, BigDecimal> entry : reserved.entrySet()) {
+                platformWalletMapper.increaseReservedBalance(entry.getKey(), entry.getValue());
+                platformWalletMapper.allocateNonces(entry.getKey(), nonces.get(entry.getKey()));
+            }
+            signed.addAndGet(batch.size() - skipped);
+            if (skipped > 0) {
+                // 熱錢包可用餘額不足，剩餘提款留待補充資金後處理
+                log.warn("熱錢包可用餘額不足，部分提款暫緩出款: network={}, skipped={}", network, skipped);
+                claimed[0] = 0;
+            }
+        });
+        return claimed[0];
+    }
+
+    /**
+     * 派發待廣播的交易，在途數量受信號量限制
+     */
+    private void dispatchBroadcasts(ChainClient client) {
+        List<Withdrawal> pending = withdrawalMapper.selectUnbroadcast(client.getNetwork(), Math.max(batchSize, maxInFlight * 2));
+        for (Withdrawal withdrawal : pending) {
+            if (!broadcasting.add(withdrawal.getId())) {
+                continue;
+            }
+            executor.submit(() -> {
+                try {
+                    broadcastPermits.acquire();
+                    try {
+                        broadcastOne(client, withdrawal);
+                    } finally {
+                        broadcastPermits.release();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    broadcasting.remove(withdrawal.getId());
+                }
+            });
+        }
+    }
+
+    private void broadcastOne(ChainClient client, Withdrawal withdrawal) {
+        ChainClient.BroadcastResult result;
+        try {
+            result = client.broadcast(withdrawal.getTransactionHash(), withdrawal.getSignedPayload());
+        } catch (Exception e) {
+            // 節點暫時不可用，保持待廣播，下一輪重播
+            withdrawalMapper.incrementBroadcastAttempts(withdrawal.getId());
+            log.warn("提款廣播異常，稍後重試: withdrawalNo={}, error={}", withdrawal.getWithdrawalNo(), e.getMessage());
+            return;
+        }
+
+        if (result == ChainClient.BroadcastResult.ACCEPTED) {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (withdrawalMapper.markBroadcast(withdrawal.getId(), LocalDateTime.now()) > 0) {
+                    transactionMapper.updateWithdrawalLedger(withdrawal.getWithdrawalNo(), TransactionStatus.CONFIRMING.name(),
+                            withdrawal.getTransactionHash(), null, null);
+                }
+            });
+            broadcasted.incrementAndGet();
+            return;
+        }
+
+        int attempts = (withdrawal.getBroadcastAttempts() != null ? withdrawal.getBroadcastAttempts() : 0) + 1;
+        if (attempts >= maxBroadcastAttempts) {
+            failAndRefund(withdrawal, "節點多次拒絕出款交易");
+        } else {
+            withdrawalMapper.incrementBroadcastAttempts(withdrawal.getId());
+            requeue(withdrawal, "節點拒絕出款交易，重新簽名");
+        }
+    }
+
+    private void trackOnce(ChainClient client) throws InterruptedException {
+        List<Withdrawal> inFlight = withdrawalMapper.selectInFlight(client.getNetwork(), batchSize * maxBatchesPerCycle);
+        if (inFlight.isEmpty()) {
+            return;
+        }
+
+        Semaphore permits = new Semaphore(Math.max(1, maxInFlight));
+        Map<Withdrawal, Future<ChainClient.TransferStatus>> futures = new LinkedHashMap<>();
+        for (Withdrawal withdrawal : inFlight) {
+            futures.put(withdrawal, executor.submit(() -> {
+                permits.acquire();
+                try {
+                    return client.getStatus(withdrawal.getTransactionHash());
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+
+        int required = requiredConfirmations > 0 ? requiredConfirmations : blockchainConfig.getConfirmationCount();
+        LocalDateTime rebroadcastBefore = LocalDateTime.now().minusSeconds(rebroadcastAfterSeconds);
+        for (Map.Entry<Withdrawal, Future<ChainClient.TransferStatus>> entry : futures.entrySet()) {
+            Withdrawal withdrawal = entry.getKey();
+            try {
+                ChainClient.TransferStatus status = FutureUtils.await(entry.getValue());
+                switch (status.getState()) {
+                    case INCLUDED:
+                        if (status.getConfirmations() >= required) {
+                            settle(withdrawal, status);
+                        } else {
+                            withdrawalMapper.updateConfirmations(withdrawal.getId(), status.getBlockNumber(), status.getConfirmations());
+                        }
+                        break;
+                    case FAILED:
+                        failAndRefund(withdrawal, "鏈上交易執行失敗");
+                        break;
+                    case EXPIRED:
+                        requeue(withdrawal, "交易已過期未上鏈，重新簽名");
+                        break;
+                    case NOT_FOUND:
+                        if (withdrawal.getSignedPayload() != null && withdrawal.getBroadcastAt().isBefore(rebroadcastBefore)) {
+                            withdrawalMapper.resetBroadcast(withdrawal.getId());
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                log.warn("查詢出款交易狀態失敗: withdrawalNo={}, error={}", withdrawal.getWithdrawalNo(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 結算已確認的出款
+     */
+    private void settle(Withdrawal withdrawal, ChainClient.TransferStatus status) {
+        BigDecimal payout = payoutOf(withdrawal);
+        LocalDateTime now = LocalDateTime.now();
+        Boolean settled = transactionTemplate.execute(tx -> {
+            if (withdrawalMapper.complete(withdrawal.getId(), status.getBlockNumber(), status.getConfirmations(),
+                    status.getNetworkFee(), now) == 0) {
+                return false;
+            }
+            if (withdrawal.getSourceWalletId() != null) {
+                platformWalletMapper.decreaseReservedBalance(withdrawal.getSourceWalletId(), payout);
+                if (platformWalletMapper.decreaseBalance(withdrawal.getSourceWalletId(), payout) == 0) {
+                    log.error("熱錢包賬面餘額不足以扣減已上鏈出款，需人工對賬: walletId={}, withdrawalNo={}",
+                            withdrawal.getSourceWalletId(), withdrawal.getWithdrawalNo());
+                }
+            }
+            if (walletMapper.settleFrozenUsdt(withdrawal.getUserId(), withdrawal.getAmount()) == 0) {
+                log.error("用戶凍結USDT不足以結清已上鏈出款，需人工對賬: userId={}, withdrawalNo={}",
+                        withdrawal.getUserId(), withdrawal.getWithdrawalNo());
+            }
+            transactionMapper.updateWithdrawalLedger(withdrawal.getWithdrawalNo(), TransactionStatus.COMPLETED.name(),
+                    withdrawal.getTransactionHash(), status.getBlockNumber(), now);
+            return true;
+        });
+        if (Boolean.TRUE.equals(settled)) {
+            completed.incrementAndGet();
+            notificationService.sendTransactionNotification(withdrawal.getUserId(), withdrawal.getUserId(), "WITHDRAWAL",
+                    "USDT提現已到賬: " + payoutOf(withdrawal).stripTrailingZeros().toPlainString() + " USDT");
+            log.info("提款出款完成: withdrawalNo={}, txHash={}, block={}",
+                    withdrawal.getWithdrawalNo(), withdrawal.getTransactionHash(), status.getBlockNumber());
+        }
+    }
+
+    /**
+     * 出款失敗：釋放熱錢包預留並退回用戶凍結
+     */
+    private void failAndRefund(Withdrawal withdrawal, String reason) {
+        Boolean refunded = transactionTemplate.execute(status -> {
+            if (withdrawalMapper.fail(withdrawal.getId(), reason, LocalDateTime.now()) == 0) {
+                return false;
+            }
+            releaseReservation(withdrawal);
+            if (walletMapper.releaseFrozenUsdt(withdrawal.getUserId(), withdrawal.getAmount()) == 0) {
+                throw new IllegalStateException("用戶凍結USDT不足以退回: userId=" + withdrawal.getUserId());
+            }
+            transactionMapper.updateWithdrawalLedger(withdrawal.getWithdrawalNo(), TransactionStatus.FAILED.name(),
+                    null, null, null);
+            return true;
+        });
+        if (Boolean.TRUE.equals(refunded)) {
+            failed.incrementAndGet();
+            notificationService.sendTransactionNotification(withdrawal.getUserId(), withdrawal.getUserId(), "WITHDRAWAL",
+                    "USDT提現失敗，金額已退回賬戶: " + withdrawal.getAmount().stripTrailingZeros().toPlainString() + " USDT");
+            log.warn("提款出款失敗並已退回: withdrawalNo={}, reason={}", withdrawal.getWithdrawalNo(), reason);
+        }
+    }
+
+    /**
+     * 放棄當前簽名交易，釋放預留後退回已批准狀態重新出款
+     * 僅用於確定不會上鏈的交易（節點拒絕或已過期）
+     */
+    private void requeue(Withdrawal withdrawal, String reason) {
+        Boolean done = transactionTemplate.execute(status -> {
+            if (withdrawalMapper.requeue(withdrawal.getId(), reason) == 0) {
+                return false;
+            }
+            releaseReservation(withdrawal);
+            return true;
+        });
+        if (Boolean.TRUE.equals(done)) {
+            requeued.incrementAndGet();
+            log.info("提款已退回待出款隊列: withdrawalNo={}, reason={}", withdrawal.getWithdrawalNo(), reason);
+        }
+    }
+
+    private void releaseReservation(Withdrawal withdrawal) {
+        if (withdrawal.getSourceWalletId() != null
+                && platformWalletMapper.decreaseReservedBalance(withdrawal.getSourceWalletId(), payoutOf(withdrawal)) == 0) {
+            log.error("熱錢包預留餘額不足以釋放，需人工對賬: walletId={}, withdrawalNo={}",
+                    withdrawal.getSourceWalletId(), withdrawal.getWithdrawalNo());
+        }
+    }
+
+    private static BigDecimal payoutOf(Withdrawal withdrawal) {
+        return withdrawal.getActualAmount() != null ? withdrawal.getActualAmount() : withdrawal.getAmount();
+    }
+
+    private static BigDecimal availableOf(PlatformWallet wallet) {
+        BigDecimal balance = wallet.getBalance() != null ? wallet.getBalance() : BigDecimal.ZERO;
+        BigDecimal reserved = wallet.getReservedBalance() != null ? wallet.getReservedBalance() : BigDecimal.ZERO;
+        return balance.subtract(reserved);
+    }
+}
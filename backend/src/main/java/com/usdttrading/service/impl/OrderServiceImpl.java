@@ -8,6 +8,7 @@ import com.usdttrading.enums.*;
 import com.usdttrading.repository.*;
 import com.usdttrading.service.OrderService;
 import com.usdttrading.service.AuditLogService;
+import com.usdttrading.service.EventStreamBroadcaster;
 import com.usdttrading.service.NotificationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -40,6 +41,7 @@ public class OrderServiceImpl implements OrderService {
     
     private final AuditLogService auditLogService;
     private final NotificationService notificationService;
+    private final EventStreamBroadcaster eventStreamBroadcaster;
 
     @Override
     public ApiResponse<Page<Map<String, Object>>> getAllOrders(int pageNum, int pageSize, 
@@ -126,6 +128,7 @@ public class OrderServiceImpl implements OrderService {
             order.setCompletedAt(LocalDateTime.now());
             order.setAdminNotes(notes);
             orderMapper.updateById(order);
+            eventStreamBroadcaster.publishOrderStatus(order);
             
             // 處理買入訂單 - 增加用戶USDT餘額
             if (order.getOrderType() == OrderType.BUY) {
@@ -183,6 +186,7 @@ public class OrderServiceImpl implements OrderService {
             order.setCancelReason(reason);
             order.setCancelTime(LocalDateTime.now());
             orderMapper.updateById(order);
+            eventStreamBroadcaster.publishOrderStatus(order);
             
             // 如果是賣出訂單，解凍用戶的USDT
             if (order.getOrderType() == OrderType.SELL) {
@@ -210,6 +214,7 @@ public class OrderServiceImpl implements OrderService {
     }
 
 
+    @Transactional(readOnly = true)
     public ApiResponse<Map<String, Object>> getOrderAnalytics(String period) {
         try {
             LocalDateTime endTime = LocalDateTime.now();
@@ -573,6 +578,7 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public ApiResponse<Map<String, Object>> getOrderStatistics(String period, String type) {
         try {
             LocalDateTime endTime = LocalDateTime.now();
@@ -11,6 +11,7 @@ import com.usdttrading.repository.PriceHistoryMapper;
 import com.usdttrading.repository.SystemConfigMapper;
 import com.usdttrading.service.PriceService;
 import com.usdttrading.service.AuditLogService;
+import com.usdttrading.service.EventStreamBroadcaster;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
@@ -33,6 +34,7 @@ public class PriceServiceImpl implements PriceService {
     private final SystemConfigMapper systemConfigMapper;
     private final AuditLogService auditLogService;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final EventStreamBroadcaster eventStreamBroadcaster;
 
     @Override
     public ApiResponse<Map<String, Object>> getCurrentPrice() {
@@ -82,6 +84,7 @@ public class PriceServiceImpl implements PriceService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public ApiResponse<List<Map<String, Object>>> getPriceHistory(String period, String interval) {
         try {
             LocalDateTime endTime = LocalDateTime.now();
@@ -123,8 +126,9 @@ public class PriceServiceImpl implements PriceService {
             priceHistory.setReason(reason);
             priceHistoryMapper.insert(priceHistory);
 
-            // 清除緩存
+            // 清除緩存並推送行情
             redisTemplate.delete("usdt:current_price");
+            eventStreamBroadcaster.publishPrice(buildPriceData(priceHistory));
 
             // 記錄操作日誌
             auditLogService.logAdminAction(null, "UPDATE_PRICE", 
@@ -180,6 +184,7 @@ public class PriceServiceImpl implements PriceService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public ApiResponse<Page<Map<String, Object>>> getPriceUpdateLogs(int pageNum, int pageSize, 
             String startDate, String endDate) {
         try {
@@ -235,8 +240,9 @@ public class PriceServiceImpl implements PriceService {
                 priceHistory.setSource("EXTERNAL_API");
                 priceHistoryMapper.insert(priceHistory);
                 
-                // 清除緩存
+                // 清除緩存並推送行情
                 redisTemplate.delete("usdt:current_price");
+                eventStreamBroadcaster.publishPrice(buildPriceData(priceHistory));
                 
                 Map<String, Object> result = new HashMap<>();
                 result.put("success", true);
@@ -278,6 +284,7 @@ public class PriceServiceImpl implements PriceService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public ApiResponse<Map<String, Object>> getPriceStatistics(String period) {
         try {
             LocalDateTime endTime = LocalDateTime.now();
@@ -8,13 +8,17 @@ import com.usdttrading.enums.*;
 import com.usdttrading.repository.*;
 import com.usdttrading.service.TradingService;
 import com.usdttrading.service.AuditLogService;
+import com.usdttrading.service.EntityCache;
+import com.usdttrading.service.EventStreamBroadcaster;
 import com.usdttrading.service.NotificationService;
+import com.usdttrading.service.OrderExpiryService;
 import com.usdttrading.utils.ValidationUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -37,14 +41,15 @@ import java.util.concurrent.TimeUnit;
 public class TradingServiceImpl implements TradingService {
 
     private final OrderMapper orderMapper;
-    private final UserMapper userMapper;
-    private final UserKycMapper userKycMapper;
     private final WalletMapper walletMapper;
     private final PriceHistoryMapper priceHistoryMapper;
     private final SystemConfigMapper systemConfigMapper;
     
     private final AuditLogService auditLogService;
+    private final EntityCache entityCache;
     private final NotificationService notificationService;
+    private final OrderExpiryService orderExpiryService;
+    private final EventStreamBroadcaster eventStreamBroadcaster;
     private final ValidationUtils validationUtils;
     private final RedisTemplate<String, Object> redisTemplate;
 
@@ -102,7 +107,7 @@ public class TradingServiceImpl implements TradingService {
             String paymentMethod, String clientIp, String userAgent) {
         try {
             // 驗證用戶狀態
-            User user = userMapper.selectById(userId);
+            User user = entityCache.getUser(userId);
             if (user == null) {
                 return ApiResponse.error("用戶不存在");
             }
@@ -112,7 +117,7 @@ public class TradingServiceImpl implements TradingService {
             }
             
             // 檢查KYC狀態
-            UserKyc userKyc = userKycMapper.selectByUserId(userId);
+            UserKyc userKyc = entityCache.getUserKyc(userId);
             if (userKyc == null || userKyc.getStatus() != KycStatus.APPROVED) {
                 return ApiResponse.error("請先完成KYC身份驗證");
             }
@@ -151,6 +156,7 @@ public class TradingServiceImpl implements TradingService {
             order.setPrice(buyPrice);
             order.setPaymentMethod(paymentMethod);
             order.setOrderStatus(OrderStatus.PENDING);
+            order.setPaymentDeadline(LocalDateTime.now().plusMinutes(getSystemConfigInt("trade.payment_timeout_minutes", 30)));
             order.setClientIp(clientIp);
             order.setUserAgent(userAgent);
             
@@ -159,6 +165,8 @@ public class TradingServiceImpl implements TradingService {
             order.setOrderNumber(orderNo);
             
             orderMapper.insert(order);
+            orderExpiryService.register(order);
+            eventStreamBroadcaster.publishOrderStatus(order);
             
             // 記錄交易頻率
             if (todayTrades == null) {
@@ -198,7 +206,7 @@ public class TradingServiceImpl implements TradingService {
             String receivingAccount, String receivingBank, String clientIp, String userAgent) {
         try {
             // 驗證用戶狀態
-            User user = userMapper.selectById(userId);
+            User user = entityCache.getUser(userId);
             if (user == null) {
                 return ApiResponse.error("用戶不存在");
             }
@@ -208,7 +216,7 @@ public class TradingServiceImpl implements TradingService {
             }
             
             // 檢查KYC狀態
-            UserKyc userKyc = userKycMapper.selectByUserId(userId);
+            UserKyc userKyc = entityCache.getUserKyc(userId);
             if (userKyc == null || userKyc.getStatus() != KycStatus.APPROVED) {
                 return ApiResponse.error("請先完成KYC身份驗證");
             }
@@ -250,6 +258,7 @@ public class TradingServiceImpl implements TradingService {
             order.setReceivingAccount(receivingAccount);
             order.setReceivingBank(receivingBank);
             order.setOrderStatus(OrderStatus.PENDING);
+            order.setPaymentDeadline(LocalDateTime.now().plusMinutes(getSystemConfigInt("trade.payment_timeout_minutes", 30)));
             order.setClientIp(clientIp);
             order.setUserAgent(userAgent);
             
@@ -258,6 +267,8 @@ public class TradingServiceImpl implements TradingService {
             order.setOrderNumber(orderNo);
             
             orderMapper.insert(order);
+            orderExpiryService.register(order);
+            eventStreamBroadcaster.publishOrderStatus(order);
             
             // 記錄審計日誌
             auditLogService.logUserAction(userId, "CREATE_SELL_ORDER", 
@@ -307,11 +318,16 @@ public class TradingServiceImpl implements TradingService {
                 return ApiResponse.error("只有買入訂單可以確認支付");
             }
             
-            // 更新訂單狀態
+            // 條件更新訂單狀態，並發過期或取消時不覆蓋
+            String proof = paymentProof != null ? paymentProof.toString() : null;
+            LocalDateTime now = LocalDateTime.now();
+            if (orderMapper.confirmPayment(orderId, userId, proof, now) == 0) {
+                return ApiResponse.error("訂單狀態已變更，請刷新後重試");
+            }
             order.setOrderStatus(OrderStatus.PROCESSING);
-            order.setPaymentProof(paymentProof != null ? paymentProof.toString() : null);
-            order.setPaymentConfirmTime(LocalDateTime.now());
-            orderMapper.updateById(order);
+            order.setPaymentProof(proof);
+            order.setPaymentConfirmTime(now);
+            eventStreamBroadcaster.publishOrderStatus(order);
             
             // 記錄審計日誌
             auditLogService.logUserAction(userId, "CONFIRM_PAYMENT", 
@@ -346,22 +362,26 @@ public class TradingServiceImpl implements TradingService {
                 return ApiResponse.error("當前狀態不允許取消訂單");
             }
             
-            // 更新訂單狀態
-            order.setOrderStatus(OrderStatus.CANCELLED);
-            order.setCancelReason(reason);
-            order.setCancelTime(LocalDateTime.now());
-            orderMapper.updateById(order);
+            // 條件更新訂單狀態，與過期任務並發時只有一方成功，凍結USDT不會重複解凍
+            LocalDateTime now = LocalDateTime.now();
+            if (orderMapper.cancelOrder(orderId, userId, reason, now) == 0) {
+                return ApiResponse.error("訂單狀態已變更，請刷新後重試");
+            }
             
             // 如果是賣出訂單，解凍USDT
-            if (order.getOrderType() == OrderType.SELL) {
-                Wallet wallet = walletMapper.selectByUserId(userId);
-                if (wallet != null) {
-                    wallet.setUsdtBalance(wallet.getUsdtBalance().add(order.getUsdtAmount()));
-                    wallet.setFrozenUsdt(wallet.getFrozenUsdt().subtract(order.getUsdtAmount()));
-                    walletMapper.updateById(wallet);
-                }
+            if (order.getOrderType() == OrderType.SELL
+                    && walletMapper.releaseFrozenUsdt(userId, order.getUsdtAmount()) == 0) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                log.error("取消訂單時解凍失敗: orderId={}, userId={}, amount={}", orderId, userId, order.getUsdtAmount());
+                return ApiResponse.error("解凍訂單金額失敗");
             }
             
+            order.setOrderStatus(OrderStatus.CANCELLED);
+            order.setCancelReason(reason);
+            order.setCancelTime(now);
+            orderExpiryService.cancel(orderId);
+            eventStreamBroadcaster.publishOrderStatus(order);
+            
             // 記錄審計日誌
             auditLogService.logUserAction(userId, "CANCEL_ORDER", 
                 "取消訂單: " + order.getOrderNumber() + ", 原因: " + reason, clientIp, "");
@@ -485,7 +505,7 @@ public class TradingServiceImpl implements TradingService {
     @Override
     public ApiResponse<Map<String, Object>> getTradingLimits(Long userId) {
         try {
-            UserKyc userKyc = userKycMapper.selectByUserId(userId);
+            UserKyc userKyc = entityCache.getUserKyc(userId);
             Map<String, Object> limits = new HashMap<>();
             
             if (userKyc == null || userKyc.getStatus() != KycStatus.APPROVED) {
@@ -7,13 +7,20 @@ import com.usdttrading.entity.*;
 import com.usdttrading.enums.*;
 import com.usdttrading.repository.*;
 import com.usdttrading.service.WalletService;
+import com.usdttrading.service.AddressValidationService;
 import com.usdttrading.service.AuditLogService;
+import com.usdttrading.service.EntityCache;
+import com.usdttrading.service.DepositAddressPool;
 import com.usdttrading.service.NotificationService;
+import com.usdttrading.service.SanctionsScreeningService;
+import com.usdttrading.service.SecurityCorrelationEngine;
+import com.usdttrading.service.WithdrawalProcessor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -36,19 +43,24 @@ import java.util.concurrent.TimeUnit;
 public class WalletServiceImpl implements WalletService {
 
     private final WalletMapper walletMapper;
-    private final UserMapper userMapper;
-    private final UserKycMapper userKycMapper;
     private final TransactionMapper transactionMapper;
+    private final WithdrawalMapper withdrawalMapper;
     private final SystemConfigMapper systemConfigMapper;
     
     private final AuditLogService auditLogService;
+    private final EntityCache entityCache;
     private final NotificationService notificationService;
+    private final SanctionsScreeningService sanctionsScreeningService;
+    private final WithdrawalProcessor withdrawalProcessor;
+    private final DepositAddressPool depositAddressPool;
+    private final AddressValidationService addressValidationService;
+    private final SecurityCorrelationEngine securityCorrelationEngine;
     private final RedisTemplate<String, Object> redisTemplate;
 
     @Override
     public ApiResponse<Map<String, Object>> getWalletBalance(Long userId) {
         try {
-            Wallet wallet = walletMapper.selectByUserId(userId);
+            Wallet wallet = entityCache.getWallet(userId);
             
             Map<String, Object> balance = new HashMap<>();
             if (wallet != null) {
@@ -128,17 +140,38 @@ public class WalletServiceImpl implements WalletService {
             String toAddress, String network, String authCode, String clientIp, String userAgent) {
         try {
             // 驗證用戶狀態
-            User user = userMapper.selectById(userId);
+            User user = entityCache.getUser(userId);
             if (user == null || user.getStatus() != UserStatus.ACTIVE) {
                 return ApiResponse.error("用戶狀態異常");
             }
             
+            // 賬號被安全鎖定期間不允許提現
+            if (user.isAccountLocked()) {
+                return ApiResponse.error("賬號已被安全鎖定，請稍後重試或聯繫客服");
+            }
+            
             // 檢查KYC狀態
-            UserKyc userKyc = userKycMapper.selectByUserId(userId);
+            UserKyc userKyc = entityCache.getUserKyc(userId);
             if (userKyc == null || userKyc.getStatus() != KycStatus.APPROVED) {
                 return ApiResponse.error("請先完成KYC身份驗證");
             }
             
+            // 校驗提現地址格式及校驗和，避免到廣播階段才失敗
+            AddressValidationService.ValidationResult validation = addressValidationService.validate(toAddress, network);
+            if (!validation.isValid()) {
+                return ApiResponse.error("提現地址無效: " + validation.getReason());
+            }
+            
+            // 篩查提現對手方地址
+            SanctionsScreeningService.ScreeningResult screening = sanctionsScreeningService.screenAddress(toAddress);
+            if (screening.isAmlHit()) {
+                log.warn("提現地址命中制裁名單: userId={}, toAddress={}, matches={}",
+                        userId, toAddress, screening.getMatches());
+                auditLogService.logUserAction(userId, "WITHDRAWAL_SCREENING_HIT",
+                    "提現地址命中制裁名單: " + toAddress, clientIp, "");
+                return ApiResponse.error("提現地址未通過合規檢查");
+            }
+            
             // 檢查USDT餘額
             Wallet wallet = walletMapper.selectByUserId(userId);
             if (wallet == null || wallet.getUsdtBalance().compareTo(amount) < 0) {
@@ -160,10 +193,17 @@ public class WalletServiceImpl implements WalletService {
                 return ApiResponse.error("今日提現次數已達上限");
             }
             
-            // 凍結提現金額
-            wallet.setUsdtBalance(wallet.getUsdtBalance().subtract(amount));
-            wallet.setFrozenUsdt(wallet.getFrozenUsdt().add(amount));
-            walletMapper.updateById(wallet);
+            // 扣除提現手續費後的實際到賬金額
+            BigDecimal fee = new BigDecimal(getSystemConfigValue("wallet.withdrawal_fee", "1"));
+            BigDecimal actualAmount = amount.subtract(fee);
+            if (actualAmount.signum() <= 0) {
+                return ApiResponse.error("提現金額不足以支付手續費");
+            }
+            
+            // 凍結提現金額，並發提現時以條件更新為準，餘額不足則不創建提現單
+            if (walletMapper.freezeUsdt(userId, amount) == 0) {
+                return ApiResponse.error("USDT餘額不足");
+            }
             
             // 創建提現交易記錄
             Transaction transaction = new Transaction();
@@ -182,6 +222,22 @@ public class WalletServiceImpl implements WalletService {
             
             transactionMapper.insert(transaction);
             
+            // 創建出款單，與交易記錄共用單號，審核通過後由出款引擎處理
+            Withdrawal withdrawal = new Withdrawal();
+            withdrawal.setWithdrawalNo(transactionNo);
+            withdrawal.setUserId(userId);
+            withdrawal.setWalletId(wallet.getId());
+            withdrawal.setAmount(amount);
+            withdrawal.setFee(fee);
+            withdrawal.setActualAmount(actualAmount);
+            withdrawal.setToAddress(toAddress);
+            withdrawal.setNetwork(network != null ? network.toUpperCase() : null);
+            withdrawal.setStatus(WithdrawalStatus.PENDING);
+            withdrawal.setReviewLevel("manual");
+            withdrawal.setIpAddress(clientIp);
+            withdrawal.setUserAgent(userAgent);
+            withdrawalMapper.insert(withdrawal);
+            
             // 記錄提現頻率
             if (dailyWithdrawals == null) {
                 redisTemplate.opsForValue().set(rateKey, 1, getSecondsUntilMidnight(), TimeUnit.SECONDS);
@@ -189,6 +245,9 @@ public class WalletServiceImpl implements WalletService {
                 redisTemplate.opsForValue().increment(rateKey);
             }
             
+            // 提交關聯引擎，頻繁提現時自動鎖定賬號
+            securityCorrelationEngine.onWithdrawal(userId, amount, clientIp, userAgent);
+            
             // 記錄審計日誌
             auditLogService.logUserAction(userId, "REQUEST_WITHDRAWAL", 
                 "申請提現: " + transactionNo + ", 金額: " + amount, clientIp, "");
@@ -200,11 +259,16 @@ public class WalletServiceImpl implements WalletService {
             Map<String, Object> result = new HashMap<>();
             result.put("transactionId", transaction.getId());
             result.put("transactionNumber", transactionNo);
+            result.put("withdrawalId", withdrawal.getId());
             result.put("amount", amount);
+            result.put("fee", fee);
+            result.put("actualAmount", actualAmount);
             result.put("status", transaction.getStatus());
             
             return ApiResponse.success("提現申請提交成功", result);
         } catch (Exception e) {
+            // 凍結成功後寫入失敗時回滾凍結，避免餘額凍結卻沒有提現單
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             log.error("申請提現失敗: userId={}, amount={}", userId, amount, e);
             return ApiResponse.error("提現申請失敗");
         }
@@ -215,7 +279,7 @@ public class WalletServiceImpl implements WalletService {
             String paymentMethod, String clientIp) {
         try {
             // 驗證用戶狀態
-            User user = userMapper.selectById(userId);
+            User user = entityCache.getUser(userId);
             if (user == null || user.getStatus() != UserStatus.ACTIVE) {
                 return ApiResponse.error("用戶狀態異常");
             }
@@ -418,7 +482,7 @@ public class WalletServiceImpl implements WalletService {
     }
     
     private ApiResponse<Map<String, Object>> checkWithdrawalLimits(Long userId, BigDecimal amount) {
-        UserKyc userKyc = userKycMapper.selectByUserId(userId);
+        UserKyc userKyc = entityCache.getUserKyc(userId);
         int kycLevel = userKyc != null && userKyc.getLevel() != null ? userKyc.getLevel() : 1;
         
         BigDecimal maxSingleWithdrawal;
@@ -585,25 +649,28 @@ public class WalletServiceImpl implements WalletService {
     @Override
     public ApiResponse<Map<String, Object>> getWalletAddress(Long userId, String currency) {
         try {
-            Wallet wallet = walletMapper.selectByUserId(userId);
+            Wallet wallet = entityCache.getWallet(userId);
             
             Map<String, Object> address = new HashMap<>();
             if (wallet != null) {
-                // 模擬錢包地址生成（實際應該從區塊鏈服務獲取）
+                String network;
                 switch (currency.toUpperCase()) {
                     case "USDT":
-                        address.put("address", "TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t");
-                        address.put("network", "TRC20");
-                        address.put("qrCode", "data:image/png;base64,iVBORw0KGgoAAAANSUhEUgAA...");
+                        network = DepositAddressPool.NETWORK_TRC20;
                         break;
                     case "ETH":
-                        address.put("address", "0x742d35Cc6634C0532925a3b8D8C9C0Cc12fd");
-                        address.put("network", "ERC20");
-                        address.put("qrCode", "data:image/png;base64,iVBORw0KGgoAAAANSUhEUgAA...");
+                        network = DepositAddressPool.NETWORK_ERC20;
                         break;
                     default:
                         return ApiResponse.error("不支持的幣種");
                 }
+                // 地址由地址池預先推導，這裡只做原子領取
+                String depositAddress = depositAddressPool.claimAddress(userId, network);
+                if (depositAddress == null) {
+                    return ApiResponse.error("充值地址暫不可用，請稍後再試");
+                }
+                address.put("address", depositAddress);
+                address.put("network", network);
                 address.put("userId", userId);
                 address.put("currency", currency);
             }
@@ -639,7 +706,7 @@ public class WalletServiceImpl implements WalletService {
     @Override
     public ApiResponse<Map<String, Object>> getWithdrawInfo(Long userId, String currency, String network) {
         try {
-            UserKyc userKyc = userKycMapper.selectByUserId(userId);
+            UserKyc userKyc = entityCache.getUserKyc(userId);
             Map<String, Object> info = new HashMap<>();
             
             if (userKyc == null || userKyc.getStatus() != KycStatus.APPROVED) {
@@ -683,20 +750,7 @@ public class WalletServiceImpl implements WalletService {
     @Override
     public ApiResponse<Map<String, Object>> validateAddress(String address, String network) {
         try {
-            Map<String, Object> result = new HashMap<>();
-            boolean isValid = isValidAddress(address, network);
-            
-            result.put("isValid", isValid);
-            result.put("address", address);
-            result.put("network", network);
-            
-            if (isValid) {
-                result.put("message", "地址格式正確");
-            } else {
-                result.put("message", "地址格式無效");
-            }
-            
-            return ApiResponse.success("地址驗證完成", result);
+            return ApiResponse.success("地址驗證完成", addressValidationService.validate(address, network).toMap());
         } catch (Exception e) {
             log.error("驗證錢包地址失敗: address={}, network={}", address, network, e);
             return ApiResponse.error("地址驗證失敗");
@@ -711,17 +765,84 @@ public class WalletServiceImpl implements WalletService {
     }
 
     @Override
+    @Transactional
     public ApiResponse<String> reviewWithdrawal(Long withdrawalId, Long reviewerId, Boolean approved, 
             String comment, String clientIp) {
-        // 管理員審核提現申請
-        return ApiResponse.success("提現審核完成");
+        try {
+            Withdrawal withdrawal = withdrawalMapper.selectById(withdrawalId);
+            if (withdrawal == null) {
+                return ApiResponse.error("提現記錄不存在");
+            }
+            if (!withdrawal.isPending() && !withdrawal.isReviewing()) {
+                return ApiResponse.error("提現申請狀態不允許審核");
+            }
+            
+            LocalDateTime now = LocalDateTime.now();
+            if (Boolean.TRUE.equals(approved)) {
+                // 審核通過後只更新狀態，鏈上出款由出款引擎批量處理
+                if (withdrawalMapper.approve(withdrawalId, reviewerId, comment, now) == 0) {
+                    return ApiResponse.error("提現申請已被處理");
+                }
+                transactionMapper.updateWithdrawalLedger(withdrawal.getWithdrawalNo(),
+                    TransactionStatus.PROCESSING.name(), null, null, null);
+                auditLogService.logAdminAction(reviewerId, "APPROVE_WITHDRAWAL", "withdrawal",
+                    String.valueOf(withdrawalId), "審核通過提現: " + withdrawal.getWithdrawalNo() + ", IP: " + clientIp);
+                notificationService.sendTransactionNotification(reviewerId, withdrawal.getUserId(), "WITHDRAWAL",
+                    "提現申請已審核通過，正在出款: " + withdrawal.getWithdrawalNo());
+                return ApiResponse.success("提現審核通過");
+            }
+            
+            if (withdrawalMapper.reject(withdrawalId, reviewerId, comment, now) == 0) {
+                return ApiResponse.error("提現申請已被處理");
+            }
+            if (walletMapper.releaseFrozenUsdt(withdrawal.getUserId(), withdrawal.getAmount()) == 0) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                log.error("拒絕提現時解凍失敗: withdrawalId={}, userId={}", withdrawalId, withdrawal.getUserId());
+                return ApiResponse.error("解凍提現金額失敗");
+            }
+            transactionMapper.updateWithdrawalLedger(withdrawal.getWithdrawalNo(),
+                TransactionStatus.REJECTED.name(), null, null, null);
+            auditLogService.logAdminAction(reviewerId, "REJECT_WITHDRAWAL", "withdrawal",
+                String.valueOf(withdrawalId), "拒絕提現: " + withdrawal.getWithdrawalNo() + ", 原因: " + comment + ", IP: " + clientIp);
+            notificationService.sendTransactionNotification(reviewerId, withdrawal.getUserId(), "WITHDRAWAL",
+                "提現申請未通過審核，金額已退回賬戶: " + withdrawal.getWithdrawalNo());
+            return ApiResponse.success("提現已拒絕");
+        } catch (Exception e) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            log.error("審核提現失敗: withdrawalId={}", withdrawalId, e);
+            return ApiResponse.error("審核提現失敗");
+        }
     }
 
     @Override
     public ApiResponse<String> processWithdrawal(Long withdrawalId, Long adminId, 
             Map<String, String> transactionInfo, String clientIp) {
-        // 管理員處理提現
-        return ApiResponse.success("提現處理完成");
+        try {
+            Withdrawal withdrawal = withdrawalMapper.selectById(withdrawalId);
+            if (withdrawal == null) {
+                return ApiResponse.error("提現記錄不存在");
+            }
+            if (!withdrawal.isApproved()) {
+                return ApiResponse.error("只有已審核通過且未出款的提現可以手動處理");
+            }
+            
+            // 未提供交易哈希時由出款引擎自動出款
+            String txHash = transactionInfo != null ? transactionInfo.get("transactionHash") : null;
+            if (txHash == null || txHash.isBlank()) {
+                return ApiResponse.success("提現已在自動出款隊列中");
+            }
+            
+            String fromAddress = transactionInfo.get("fromAddress");
+            if (!withdrawalProcessor.recordManualPayout(withdrawalId, txHash.trim(), fromAddress)) {
+                return ApiResponse.error("提現申請已被處理");
+            }
+            auditLogService.logAdminAction(adminId, "MANUAL_WITHDRAWAL_PAYOUT", "withdrawal",
+                String.valueOf(withdrawalId), "人工出款: " + withdrawal.getWithdrawalNo() + ", txHash: " + txHash + ", IP: " + clientIp);
+            return ApiResponse.success("人工出款已記錄，等待鏈上確認");
+        } catch (Exception e) {
+            log.error("處理提現失敗: withdrawalId={}", withdrawalId, e);
+            return ApiResponse.error("處理提現失敗");
+        }
     }
 
     @Override
@@ -735,20 +856,4 @@ public class WalletServiceImpl implements WalletService {
         
         return ApiResponse.success("獲取錢包統計成功", stats);
     }
-
-    // 輔助方法
-    private boolean isValidAddress(String address, String network) {
-        if (address == null || address.length() < 20) {
-            return false;
-        }
-        
-        switch (network.toUpperCase()) {
-            case "TRC20":
-                return address.startsWith("T") && address.length() == 34;
-            case "ERC20":
-                return address.startsWith("0x") && address.length() == 42;
-            default:
-                return false;
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,148 @@
+package com.usdttrading.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * 盲索引工具類
+ * 對加密存儲的敏感標識（證件號、銀行賬號、手機號）計算帶密鑰的HMAC-SHA256，
+ * 相同明文得到相同索引值，可建立普通B-tree索引做等值查詢，而不泄露明文。
+ * 索引密鑰獨立配置且不隨主密鑰輪換，主密鑰輪換後存量索引仍然有效
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Component
+public class BlindIndexUtil {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MIN_KEY_BYTES = 32;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * 字段類型，參與HMAC輸入做域分隔，避免不同字段間的索引值可比對
+     */
+    public enum Field {
+        ID_NUMBER("id"),
+        BANK_ACCOUNT("bank"),
+        PHONE_NUMBER("phone");
+
+        private final String domain;
+
+        Field(String domain) {
+            this.domain = domain;
+        }
+    }
+
+    @Value("${app.encryption.blind-index-key:}")
+    private String blindIndexKeyBase64;
+
+    private SecretKeySpec indexKey;
+
+    private final ThreadLocal<Mac> macCache = ThreadLocal.withInitial(this::newMac);
+
+    /**
+     * 載入盲索引密鑰，未配置時拒絕啟動：臨時密鑰計算的索引在重啟後全部失效，等值查詢將靜默查不到數據
+     */
+    @PostConstruct
+    public void init() {
+        if (blindIndexKeyBase64 == null || blindIndexKeyBase64.isEmpty()) {
+            throw new IllegalStateException("未配置盲索引密鑰: app.encryption.blind-index-key");
+        }
+        byte[] keyBytes = Base64.getDecoder().decode(blindIndexKeyBase64);
+        if (keyBytes.length < MIN_KEY_BYTES) {
+            throw new IllegalStateException("盲索引密鑰長度不足" + MIN_KEY_BYTES + "字節");
+        }
+        indexKey = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+        log.info("盲索引密鑰已從配置載入");
+    }
+
+    /**
+     * 計算盲索引
+     *
+     * @param field 字段類型
+     * @param plaintext 明文
+     * @return 64位十六進制索引值；明文為空時返回null
+     */
+    public String compute(Field field, String plaintext) {
+        String normalized = normalize(field, plaintext);
+        if (normalized == null || normalized.isEmpty()) {
+            return null;
+        }
+
+        Mac mac = macCache.get();
+        mac.update(field.domain.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        byte[] digest = mac.doFinal(normalized.getBytes(StandardCharsets.UTF_8));
+        return toHex(digest);
+    }
+
+    /**
+     * 證件號盲索引
+     */
+    public String idNumber(String idNumber) {
+        return compute(Field.ID_NUMBER, idNumber);
+    }
+
+    /**
+     * 銀行賬號盲索引
+     */
+    public String bankAccount(String bankAccount) {
+        return compute(Field.BANK_ACCOUNT, bankAccount);
+    }
+
+    /**
+     * 手機號盲索引
+     */
+    public String phoneNumber(String phoneNumber) {
+        return compute(Field.PHONE_NUMBER, phoneNumber);
+    }
+
+    /**
+     * 規範化明文，保證格式差異（空格、連字符、大小寫）不影響索引值
+     */
+    private String normalize(Field field, String value) {
+        if (value == null) {
+            return null;
+        }
+        switch (field) {
+            case ID_NUMBER:
+                return value.replaceAll("[\\s-]", "").toUpperCase(Locale.ROOT);
+            case BANK_ACCOUNT:
+            case PHONE_NUMBER:
+                return value.replaceAll("\\D", "");
+            default:
+                return value.trim();
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(indexKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("初始化盲索引HMAC失敗", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0x0F];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0x0F];
+        }
+        return new String(chars);
+    }
+}
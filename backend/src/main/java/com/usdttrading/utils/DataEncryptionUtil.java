@@ -2,21 +2,32 @@ package com.usdttrading.utils;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 數據加密工具類
  * 支援AES-256-GCM加密，用於敏感數據的加密存儲
+ * Cipher實例按線程緩存重用，避免每個字段都做Provider查找；
+ * 管理端查看時可使用短TTL、有容量上限的解密結果緩存，條目過期後即移除
  * 
  * @author BackendAgent
  * @version 1.0.0
@@ -32,14 +43,49 @@ public class DataEncryptionUtil {
     private static final int GCM_TAG_LENGTH = 16;
     private static final int KEY_LENGTH = 256;
 
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    /**
+     * 每個線程緩存一個Cipher實例，GCM每次init都使用新IV，實例本身可安全重用
+     */
+    private static final ThreadLocal<Cipher> CIPHER_CACHE = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("初始化Cipher失敗", e);
+        }
+    });
+
     @Value("${app.encryption.master-key:}")
     private String masterKeyBase64;
 
     @Value("${app.encryption.enabled:true}")
     private boolean encryptionEnabled;
 
+    @Value("${app.encryption.master-key-id:default}")
+    private String masterKeyId;
+
+    /**
+     * 已輪換的歷史主密鑰，格式：keyId:base64,keyId:base64
+     */
+    @Value("${app.encryption.retired-master-keys:}")
+    private String retiredMasterKeys;
+
+    @Value("${app.encryption.decrypt-cache-ttl-seconds:30}")
+    private long decryptCacheTtlSeconds;
+
+    @Value("${app.encryption.decrypt-cache-max-entries:2048}")
+    private int decryptCacheMaxEntries;
+
     private SecretKey masterKey;
 
+    private final Map<String, SecretKey> retiredKeys = new ConcurrentHashMap<>();
+
+    /**
+     * 解密結果緩存，鍵為密文，值為明文及過期時間
+     */
+    private final Map<String, CachedPlaintext> decryptCache = new ConcurrentHashMap<>();
+
     /**
      * 初始化主密鑰
      */
@@ -61,6 +107,63 @@ public class DataEncryptionUtil {
             masterKey = generateSecretKey();
             log.warn("未配置主密鑰，已生成臨時密鑰。生產環境請配置固定密鑰！");
         }
+
+        if (retiredMasterKeys != null && !retiredMasterKeys.isEmpty()) {
+            for (String entry : retiredMasterKeys.split(",")) {
+                int separator = entry.indexOf(':');
+                if (separator <= 0) {
+                    continue;
+                }
+                try {
+                    byte[] keyBytes = Base64.getDecoder().decode(entry.substring(separator + 1).trim());
+                    retiredKeys.put(entry.substring(0, separator).trim(), new SecretKeySpec(keyBytes, ALGORITHM));
+                } catch (IllegalArgumentException e) {
+                    log.error("載入歷史主密鑰失敗: keyId={}", entry.substring(0, separator).trim());
+                }
+            }
+            log.info("已載入歷史主密鑰: count={}", retiredKeys.size());
+        }
+    }
+
+    /**
+     * 獲取當前主密鑰ID
+     *
+     * @return 主密鑰ID
+     */
+    public String getMasterKeyId() {
+        return masterKeyId;
+    }
+
+    /**
+     * 使用當前主密鑰包裝數據密鑰（信封加密）
+     *
+     * @param dataKey 數據密鑰
+     * @return 包裝後的密鑰（包含IV）
+     */
+    public byte[] wrapKey(SecretKey dataKey) {
+        if (masterKey == null) {
+            initializeMasterKey();
+        }
+        return encrypt(dataKey.getEncoded(), masterKey);
+    }
+
+    /**
+     * 使用指定主密鑰解包數據密鑰
+     *
+     * @param wrappedKey 包裝後的密鑰
+     * @param keyId 包裝時使用的主密鑰ID
+     * @return 數據密鑰
+     */
+    public SecretKey unwrapKey(byte[] wrappedKey, String keyId) {
+        if (masterKey == null) {
+            initializeMasterKey();
+        }
+
+        SecretKey keyEncryptionKey = keyId == null || keyId.equals(masterKeyId) ? masterKey : retiredKeys.get(keyId);
+        if (keyEncryptionKey == null) {
+            throw new IllegalStateException("未找到主密鑰: " + keyId);
+        }
+        return new SecretKeySpec(decrypt(wrappedKey, keyEncryptionKey), ALGORITHM);
     }
 
     /**
@@ -102,7 +205,7 @@ public class DataEncryptionUtil {
             byte[] plaintextBytes = plaintext.getBytes(StandardCharsets.UTF_8);
             return Base64.getEncoder().encodeToString(encrypt(plaintextBytes, masterKey));
         } catch (Exception e) {
-            log.error("字符串加密失敗: plaintext={}", plaintext, e);
+            log.error("字符串加密失敗: length={}", plaintext.length(), e);
             throw new RuntimeException("加密失敗", e);
         }
     }
@@ -132,7 +235,7 @@ public class DataEncryptionUtil {
             byte[] decryptedBytes = decrypt(encryptedBytes, masterKey);
             return new String(decryptedBytes, StandardCharsets.UTF_8);
         } catch (Exception e) {
-            log.error("字符串解密失敗: encryptedBase64={}", encryptedBase64, e);
+            log.error("字符串解密失敗: length={}", encryptedBase64.length(), e);
             throw new RuntimeException("解密失敗", e);
         }
     }
@@ -146,22 +249,20 @@ public class DataEncryptionUtil {
      */
     public byte[] encrypt(byte[] plaintext, SecretKey key) {
         try {
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            
+            Cipher cipher = CIPHER_CACHE.get();
+
             // 生成隨機IV
             byte[] iv = new byte[GCM_IV_LENGTH];
-            new SecureRandom().nextBytes(iv);
-            
+            SECURE_RANDOM.nextBytes(iv);
+
             GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv);
             cipher.init(Cipher.ENCRYPT_MODE, key, parameterSpec);
-            
-            byte[] encryptedText = cipher.doFinal(plaintext);
-            
-            // 將IV和加密數據合併
-            byte[] encryptedWithIv = new byte[GCM_IV_LENGTH + encryptedText.length];
+
+            // 將IV和加密數據合併，密文和認證標籤直接寫入IV之後
+            byte[] encryptedWithIv = new byte[GCM_IV_LENGTH + plaintext.length + GCM_TAG_LENGTH];
             System.arraycopy(iv, 0, encryptedWithIv, 0, GCM_IV_LENGTH);
-            System.arraycopy(encryptedText, 0, encryptedWithIv, GCM_IV_LENGTH, encryptedText.length);
-            
+            cipher.doFinal(plaintext, 0, plaintext.length, encryptedWithIv, GCM_IV_LENGTH);
+
             return encryptedWithIv;
         } catch (Exception e) {
             log.error("字節數組加密失敗", e);
@@ -178,25 +279,161 @@ public class DataEncryptionUtil {
      */
     public byte[] decrypt(byte[] encryptedWithIv, SecretKey key) {
         try {
-            // 提取IV
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            System.arraycopy(encryptedWithIv, 0, iv, 0, GCM_IV_LENGTH);
-            
-            // 提取加密數據
-            byte[] encryptedText = new byte[encryptedWithIv.length - GCM_IV_LENGTH];
-            System.arraycopy(encryptedWithIv, GCM_IV_LENGTH, encryptedText, 0, encryptedText.length);
-            
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, iv);
+            if (encryptedWithIv.length < GCM_IV_LENGTH + GCM_TAG_LENGTH) {
+                throw new IllegalArgumentException("密文長度不足");
+            }
+
+            // 直接引用IV和密文所在區間，避免拷貝
+            Cipher cipher = CIPHER_CACHE.get();
+            GCMParameterSpec parameterSpec = new GCMParameterSpec(GCM_TAG_LENGTH * 8, encryptedWithIv, 0, GCM_IV_LENGTH);
             cipher.init(Cipher.DECRYPT_MODE, key, parameterSpec);
-            
-            return cipher.doFinal(encryptedText);
+
+            return cipher.doFinal(encryptedWithIv, GCM_IV_LENGTH, encryptedWithIv.length - GCM_IV_LENGTH);
         } catch (Exception e) {
             log.error("字節數組解密失敗", e);
             throw new RuntimeException("解密失敗", e);
         }
     }
 
+    /**
+     * 批量加密字符串
+     *
+     * @param plaintexts 明文集合（元素可為null）
+     * @return 與輸入順序一致的密文列表
+     */
+    public List<String> encryptAll(Collection<String> plaintexts) {
+        List<String> result = new ArrayList<>(plaintexts.size());
+        for (String plaintext : plaintexts) {
+            result.add(encrypt(plaintext));
+        }
+        return result;
+    }
+
+    /**
+     * 批量解密字符串
+     *
+     * @param ciphertexts 密文集合（元素可為null）
+     * @return 與輸入順序一致的明文列表
+     */
+    public List<String> decryptAll(Collection<String> ciphertexts) {
+        List<String> result = new ArrayList<>(ciphertexts.size());
+        for (String ciphertext : ciphertexts) {
+            result.add(decrypt(ciphertext));
+        }
+        return result;
+    }
+
+    /**
+     * 按字段名批量加密
+     *
+     * @param fields 字段名到明文的映射
+     * @return 字段名到密文的映射（保持輸入順序）
+     */
+    public <K> Map<K, String> encryptAll(Map<K, String> fields) {
+        Map<K, String> result = new LinkedHashMap<>();
+        fields.forEach((name, value) -> result.put(name, encrypt(value)));
+        return result;
+    }
+
+    /**
+     * 按字段名批量解密
+     *
+     * @param fields 字段名到密文的映射
+     * @return 字段名到明文的映射（保持輸入順序）
+     */
+    public <K> Map<K, String> decryptAll(Map<K, String> fields) {
+        Map<K, String> result = new LinkedHashMap<>();
+        fields.forEach((name, value) -> result.put(name, decrypt(value)));
+        return result;
+    }
+
+    /**
+     * 解密字符串並短時間緩存結果，用於管理端列表/詳情等重複查看的場景
+     *
+     * @param encryptedBase64 加密的Base64字符串
+     * @return 解密後的明文
+     */
+    public String decryptCached(String encryptedBase64) {
+        if (!encryptionEnabled || encryptedBase64 == null || encryptedBase64.isEmpty() || decryptCacheTtlSeconds <= 0) {
+            return decrypt(encryptedBase64);
+        }
+
+        long now = System.currentTimeMillis();
+        CachedPlaintext cached = decryptCache.get(encryptedBase64);
+        if (cached != null) {
+            if (!cached.isExpired(now)) {
+                return cached.value;
+            }
+            decryptCache.remove(encryptedBase64, cached);
+        }
+
+        String plaintext = decrypt(encryptedBase64);
+        if (decryptCache.size() >= decryptCacheMaxEntries) {
+            evictDecryptCache(now, true);
+        }
+        decryptCache.put(encryptedBase64, new CachedPlaintext(plaintext, now + decryptCacheTtlSeconds * 1000));
+        return plaintext;
+    }
+
+    /**
+     * 批量解密並緩存
+     *
+     * @param fields 字段名到密文的映射
+     * @return 字段名到明文的映射（保持輸入順序）
+     */
+    public <K> Map<K, String> decryptAllCached(Map<K, String> fields) {
+        Map<K, String> result = new LinkedHashMap<>();
+        fields.forEach((name, value) -> result.put(name, decryptCached(value)));
+        return result;
+    }
+
+    /**
+     * 清空解密緩存
+     */
+    public void clearDecryptCache() {
+        decryptCache.clear();
+    }
+
+    /**
+     * 定時清理過期的解密緩存
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void purgeExpiredDecryptCache() {
+        if (!decryptCache.isEmpty()) {
+            evictDecryptCache(System.currentTimeMillis(), false);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        clearDecryptCache();
+    }
+
+    /**
+     * 清理緩存：移除過期條目；容量超限時整體清空以控制明文駐留
+     */
+    private void evictDecryptCache(long now, boolean overCapacity) {
+        decryptCache.values().removeIf(entry -> overCapacity || entry.isExpired(now));
+    }
+
+    /**
+     * 緩存的明文
+     */
+    private static final class CachedPlaintext {
+
+        private final String value;
+        private final long expiresAt;
+
+        private CachedPlaintext(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
     /**
      * 對敏感字段進行脫敏處理
      *
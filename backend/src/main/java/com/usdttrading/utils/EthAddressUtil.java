@@ -0,0 +1,97 @@
+package com.usdttrading.utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 以太坊地址工具類
+ * 由公鑰計算地址並按EIP-55生成大小寫校驗和
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+public final class EthAddressUtil {
+
+    private EthAddressUtil() {
+    }
+
+    /**
+     * 由未壓縮公鑰（X||Y，64字節）計算EIP-55格式地址
+     *
+     * @param uncompressedPublicKey 未壓縮公鑰
+     * @return 0x開頭的校驗和地址
+     */
+    public static String fromPublicKey(byte[] uncompressedPublicKey) {
+        byte[] body = HdPublicKeyDeriver.addressBody(uncompressedPublicKey);
+        StringBuilder hex = new StringBuilder(40);
+        for (byte b : body) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return toChecksumAddress(hex.toString());
+    }
+
+    /**
+     * 校驗以太坊地址格式及EIP-55校驗和
+     * 全小寫或全大寫地址不帶校驗和，按EIP-55視為有效；大小寫混合時必須與校驗和一致
+     *
+     * @param address 0x開頭的地址
+     * @return 是否有效
+     */
+    public static boolean isValidAddress(String address) {
+        if (!isHexAddress(address)) {
+            return false;
+        }
+        return !hasChecksum(address) || toChecksumAddress(address).equals(address);
+    }
+
+    /**
+     * 地址是否為0x開頭的40位十六進制
+     */
+    public static boolean isHexAddress(String address) {
+        if (address == null || address.length() != 42 || address.charAt(0) != '0'
+                || (address.charAt(1) != 'x' && address.charAt(1) != 'X')) {
+            return false;
+        }
+        for (int i = 2; i < 42; i++) {
+            if (Character.digit(address.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 地址是否帶EIP-55大小寫校驗和（同時含大寫和小寫字母）
+     */
+    public static boolean hasChecksum(String address) {
+        boolean upper = false;
+        boolean lower = false;
+        for (int i = 2; i < address.length(); i++) {
+            char c = address.charAt(i);
+            upper |= c >= 'A' && c <= 'F';
+            lower |= c >= 'a' && c <= 'f';
+        }
+        return upper && lower;
+    }
+
+    /**
+     * 生成EIP-55校驗和地址
+     *
+     * @param address 40位十六進制地址（可帶0x前綴，大小寫不限）
+     * @return 0x開頭的校驗和地址
+     */
+    public static String toChecksumAddress(String address) {
+        String lower = (address.startsWith("0x") || address.startsWith("0X") ? address.substring(2) : address).toLowerCase();
+        if (lower.length() != 40) {
+            throw new IllegalArgumentException("無效的以太坊地址: " + address);
+        }
+        byte[] hash = Keccak256.hash(lower.getBytes(StandardCharsets.US_ASCII));
+        StringBuilder out = new StringBuilder("0x");
+        for (int i = 0; i < 40; i++) {
+            char c = lower.charAt(i);
+            int nibble = (hash[i / 2] >> (i % 2 == 0 ? 4 : 0)) & 0xF;
+            out.append(Character.isLetter(c) && nibble >= 8 ? Character.toUpperCase(c) : c);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,114 @@
+package com.usdttrading.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 流式導出寫入器
+ * 逐行寫入目標輸出流，不在內存中保留已寫入的行；寫入器不關閉目標流，由調用方負責
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+public interface ExportWriter {
+
+    DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 導出格式
+     */
+    enum Format {
+        CSV("csv", "text/csv; charset=UTF-8"),
+        XLSX("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * 解析格式名稱，excel視為xlsx
+         */
+        public static Format of(String name) {
+            String value = name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+            switch (value) {
+                case "csv":
+                    return CSV;
+                case "xlsx":
+                case "excel":
+                    return XLSX;
+                default:
+                    throw new IllegalArgumentException("不支持的導出格式: " + name);
+            }
+        }
+
+        /**
+         * 在輸出流上創建寫入器
+         */
+        public ExportWriter open(OutputStream out, String sheetName) {
+            return this == CSV ? new CsvExportWriter(out) : new XlsxExportWriter(out, sheetName);
+        }
+    }
+
+    /**
+     * 寫入表頭
+     */
+    void writeHeader(List<String> titles) throws IOException;
+
+    /**
+     * 寫入一行，值與表頭順序一致
+     */
+    void writeRow(List<Object> values) throws IOException;
+
+    /**
+     * 寫入結尾並刷新，之後不可再寫入
+     */
+    void finish() throws IOException;
+
+    /**
+     * 值轉為導出文本：時間為本地時間文本，小數不使用科學計數法
+     */
+    static String text(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime().format(DATE_TIME_FORMAT);
+        }
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).format(DATE_TIME_FORMAT);
+        }
+        if (value instanceof java.sql.Date) {
+            return ((java.sql.Date) value).toLocalDate().toString();
+        }
+        if (value instanceof LocalDate) {
+            return value.toString();
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? "是" : "否";
+        }
+        return value.toString();
+    }
+}
@@ -1,12 +1,12 @@
 package com.usdttrading.utils;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
@@ -26,8 +26,11 @@ import java.util.regex.Pattern;
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class FileProcessingUtil {
 
+    private final ImageAnalysisUtil imageAnalysisUtil;
+
     private static final int MAX_IMAGE_WIDTH = 1920;
     private static final int MAX_IMAGE_HEIGHT = 1080;
     private static final int MIN_IMAGE_WIDTH = 300;
@@ -150,14 +153,15 @@ public class FileProcessingUtil {
      */
     public int assessImageQuality(byte[] imageBytes) {
         try {
-            BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageBytes));
-            if (image == null) {
+            // 子採樣解碼縮略圖並單次遍歷計算統計數據
+            ImageAnalysisUtil.ImageMetrics metrics = imageAnalysisUtil.analyze(imageBytes);
+            if (metrics == null) {
                 return 1;
             }
 
             int score = 10;
-            int width = image.getWidth();
-            int height = image.getHeight();
+            int width = metrics.getWidth();
+            int height = metrics.getHeight();
 
             // 尺寸評估
             if (width < MIN_IMAGE_WIDTH || height < MIN_IMAGE_HEIGHT) {
@@ -181,9 +185,12 @@ public class FileProcessingUtil {
             }
 
             // 亮度和對比度評估
-            int brightnessScore = assessImageBrightness(image);
+            int brightnessScore = assessImageBrightness(metrics);
             score += (brightnessScore - 5); // -4 到 +4 的調整
 
+            // 清晰度評估
+            score -= assessImageBlurPenalty(metrics);
+
             return Math.max(1, Math.min(10, score));
 
         } catch (Exception e) {
@@ -195,46 +202,51 @@ public class FileProcessingUtil {
     /**
      * 評估圖片亮度
      *
-     * @param image 圖片
+     * @param metrics 圖片分析結果
      * @return 亮度評分 (1-10)
      */
-    private int assessImageBrightness(BufferedImage image) {
-        long totalBrightness = 0;
-        int pixelCount = 0;
-
-        int width = image.getWidth();
-        int height = image.getHeight();
-
-        // 採樣評估，避免處理所有像素
-        int stepX = Math.max(1, width / 100);
-        int stepY = Math.max(1, height / 100);
-
-        for (int x = 0; x < width; x += stepX) {
-            for (int y = 0; y < height; y += stepY) {
-                int rgb = image.getRGB(x, y);
-                int r = (rgb >> 16) & 0xFF;
-                int g = (rgb >> 8) & 0xFF;
-                int b = rgb & 0xFF;
-
-                // 計算亮度 (使用標準權重)
-                int brightness = (int) (0.299 * r + 0.587 * g + 0.114 * b);
-                totalBrightness += brightness;
-                pixelCount++;
-            }
-        }
-
-        int averageBrightness = (int) (totalBrightness / pixelCount);
+    private int assessImageBrightness(ImageAnalysisUtil.ImageMetrics metrics) {
+        int averageBrightness = (int) metrics.getMeanBrightness();
 
+        int score;
         // 理想亮度範圍是 80-180
         if (averageBrightness >= 80 && averageBrightness <= 180) {
-            return 8; // 良好亮度
+            score = 8; // 良好亮度
         } else if (averageBrightness >= 60 && averageBrightness <= 200) {
-            return 6; // 可接受亮度
+            score = 6; // 可接受亮度
         } else if (averageBrightness < 40 || averageBrightness > 220) {
-            return 2; // 亮度很差
+            score = 2; // 亮度很差
         } else {
-            return 4; // 亮度一般
+            score = 4; // 亮度一般
+        }
+
+        // 對比度過低（灰濛濛）或大面積過曝/欠曝
+        if (metrics.getContrast() < 20) {
+            score -= 2;
+        }
+        if (metrics.getBrightRatio() > 0.3 || metrics.getDarkRatio() > 0.3) {
+            score -= 1;
+        }
+
+        return Math.max(1, score);
+    }
+
+    /**
+     * 評估圖片模糊程度
+     *
+     * @param metrics 圖片分析結果
+     * @return 模糊扣分 (0-3)
+     */
+    private int assessImageBlurPenalty(ImageAnalysisUtil.ImageMetrics metrics) {
+        double laplacianVariance = metrics.getLaplacianVariance();
+        if (laplacianVariance < 30) {
+            return 3; // 嚴重模糊
+        } else if (laplacianVariance < 80) {
+            return 2; // 明顯模糊
+        } else if (laplacianVariance < 150) {
+            return 1; // 輕微模糊
         }
+        return 0;
     }
 
     /**
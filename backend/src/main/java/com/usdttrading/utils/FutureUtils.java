@@ -0,0 +1,30 @@
+package com.usdttrading.utils;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Future等待工具
+ * 鏈上批量查詢由虛擬線程並發提交，匯總時統一解包異常
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+public final class FutureUtils {
+
+    private FutureUtils() {
+    }
+
+    /**
+     * 等待任務完成；任務拋出的運行時異常原樣拋出，受檢異常包裝為IllegalStateException
+     */
+    public static <T> T await(Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+    }
+}
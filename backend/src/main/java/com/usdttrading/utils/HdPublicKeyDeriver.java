@@ -0,0 +1,185 @@
+package com.usdttrading.utils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+/**
+ * BIP32擴展公鑰（xpub）子公鑰推導
+ * 只做非硬化推導（CKDpub），服務端只持有賬戶級擴展公鑰（如 m/44'/195'/0'），私鑰留在離線簽名端；
+ * 推導結果為64字節未壓縮公鑰（X||Y），由TronAddressUtil、EthAddressUtil計算地址
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+public final class HdPublicKeyDeriver {
+
+    private static final BigInteger P = new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEFFFFFC2F", 16);
+    private static final BigInteger N = new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEBAAEDCE6AF48A03BBFD25E8CD0364141", 16);
+    private static final BigInteger[] G = {
+            new BigInteger("79BE667EF9DCBBAC55A06295CE870B07029BFCDB2DCE28D959F2815B16F81798", 16),
+            new BigInteger("483ADA7726A3C4655DA4FBFC0E1108A8FD17B448A68554199C47D08FFB10D4B8", 16)
+    };
+    private static final BigInteger SEVEN = BigInteger.valueOf(7);
+
+    private static final int XPUB_VERSION = 0x0488B21E;
+    private static final int TPUB_VERSION = 0x043587CF;
+    private static final int HARDENED = 0x80000000;
+
+    private final BigInteger[] point;
+    private final byte[] chainCode;
+
+    private HdPublicKeyDeriver(BigInteger[] point, byte[] chainCode) {
+        this.point = point;
+        this.chainCode = chainCode;
+    }
+
+    /**
+     * 解析Base58Check編碼的擴展公鑰
+     *
+     * @param xpub 擴展公鑰（xpub/tpub）
+     * @return 推導節點
+     */
+    public static HdPublicKeyDeriver fromExtendedKey(String xpub) {
+        byte[] data = TronAddressUtil.decodeCheckPayload(xpub);
+        if (data == null || data.length != 78) {
+            throw new IllegalArgumentException("無效的擴展公鑰");
+        }
+        int version = ByteBuffer.wrap(data, 0, 4).getInt();
+        if (version != XPUB_VERSION && version != TPUB_VERSION) {
+            throw new IllegalArgumentException("不支持的擴展公鑰版本: " + Integer.toHexString(version));
+        }
+        byte[] chainCode = Arrays.copyOfRange(data, 13, 45);
+        BigInteger[] point = decompress(Arrays.copyOfRange(data, 45, 78));
+        return new HdPublicKeyDeriver(point, chainCode);
+    }
+
+    /**
+     * 推導非硬化子節點
+     *
+     * @param index 子索引（0 ~ 2^31-1）
+     * @return 子節點
+     */
+    public HdPublicKeyDeriver derive(int index) {
+        if ((index & HARDENED) != 0) {
+            throw new IllegalArgumentException("擴展公鑰不能推導硬化子節點: " + index);
+        }
+        byte[] data = ByteBuffer.allocate(37).put(compress(point)).putInt(index).array();
+        byte[] i = hmacSha512(chainCode, data);
+        BigInteger tweak = new BigInteger(1, Arrays.copyOfRange(i, 0, 32));
+        if (tweak.compareTo(N) >= 0) {
+            // 概率可忽略（約2^-127），按BIP32應跳過該索引
+            throw new IllegalStateException("無效的子節點索引: " + index);
+        }
+        BigInteger[] child = add(multiply(G, tweak), point);
+        if (child == null) {
+            throw new IllegalStateException("無效的子節點索引: " + index);
+        }
+        return new HdPublicKeyDeriver(child, Arrays.copyOfRange(i, 32, 64));
+    }
+
+    /**
+     * 未壓縮公鑰（X||Y，64字節）
+     */
+    public byte[] getUncompressedPublicKey() {
+        byte[] out = new byte[64];
+        System.arraycopy(toBytes32(point[0]), 0, out, 0, 32);
+        System.arraycopy(toBytes32(point[1]), 0, out, 32, 32);
+        return out;
+    }
+
+    /**
+     * 壓縮公鑰（33字節）
+     */
+    public byte[] getCompressedPublicKey() {
+        return compress(point);
+    }
+
+    /**
+     * 由未壓縮公鑰計算20字節地址主體（Keccak-256後20字節）
+     */
+    public static byte[] addressBody(byte[] uncompressedPublicKey) {
+        byte[] hash = Keccak256.hash(uncompressedPublicKey);
+        return Arrays.copyOfRange(hash, 12, 32);
+    }
+
+    private static BigInteger[] decompress(byte[] encoded) {
+        if (encoded.length != 33 || (encoded[0] != 0x02 && encoded[0] != 0x03)) {
+            throw new IllegalArgumentException("無效的壓縮公鑰");
+        }
+        BigInteger x = new BigInteger(1, Arrays.copyOfRange(encoded, 1, 33));
+        BigInteger ySquared = x.modPow(BigInteger.valueOf(3), P).add(SEVEN).mod(P);
+        BigInteger y = ySquared.modPow(P.add(BigInteger.ONE).shiftRight(2), P);
+        if (!y.multiply(y).mod(P).equals(ySquared)) {
+            throw new IllegalArgumentException("公鑰不在secp256k1曲線上");
+        }
+        if (y.testBit(0) != (encoded[0] == 0x03)) {
+            y = P.subtract(y);
+        }
+        return new BigInteger[]{x, y};
+    }
+
+    private static byte[] compress(BigInteger[] point) {
+        byte[] out = new byte[33];
+        out[0] = (byte) (point[1].testBit(0) ? 0x03 : 0x02);
+        System.arraycopy(toBytes32(point[0]), 0, out, 1, 32);
+        return out;
+    }
+
+    /**
+     * 仿射坐標點加法，null表示無窮遠點
+     */
+    private static BigInteger[] add(BigInteger[] a, BigInteger[] b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        BigInteger lambda;
+        if (a[0].equals(b[0])) {
+            if (!a[1].equals(b[1]) || a[1].signum() == 0) {
+                return null;
+            }
+            lambda = a[0].pow(2).multiply(BigInteger.valueOf(3)).multiply(a[1].shiftLeft(1).modInverse(P)).mod(P);
+        } else {
+            lambda = b[1].subtract(a[1]).multiply(b[0].subtract(a[0]).modInverse(P)).mod(P);
+        }
+        BigInteger x = lambda.pow(2).subtract(a[0]).subtract(b[0]).mod(P);
+        BigInteger y = lambda.multiply(a[0].subtract(x)).subtract(a[1]).mod(P);
+        return new BigInteger[]{x, y};
+    }
+
+    private static BigInteger[] multiply(BigInteger[] point, BigInteger scalar) {
+        BigInteger[] result = null;
+        for (int i = scalar.bitLength() - 1; i >= 0; i--) {
+            result = add(result, result);
+            if (scalar.testBit(i)) {
+                result = add(result, point);
+            }
+        }
+        return result;
+    }
+
+    private static byte[] toBytes32(BigInteger value) {
+        byte[] raw = value.toByteArray();
+        byte[] out = new byte[32];
+        int length = Math.min(raw.length, 32);
+        System.arraycopy(raw, raw.length - length, out, 32 - length, length);
+        return out;
+    }
+
+    private static byte[] hmacSha512(byte[] key, byte[] data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA512");
+            mac.init(new SecretKeySpec(key, "HmacSHA512"));
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA512不可用", e);
+        }
+    }
+}
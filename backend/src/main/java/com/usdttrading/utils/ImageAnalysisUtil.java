@@ -0,0 +1,310 @@
+package com.usdttrading.utils;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * 圖片分析引擎
+ * 直接讀取Raster/DataBuffer數組，在縮略圖上單次遍歷計算亮度、對比度、清晰度（拉普拉斯方差）及直方圖
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Component
+public class ImageAnalysisUtil {
+
+    /**
+     * 分析用縮略圖的最大邊長
+     */
+    public static final int DEFAULT_ANALYSIS_EDGE = 512;
+
+    // 亮度權重 (ITU-R BT.601)，放大 1024 倍以整數運算
+    private static final int LUMA_R = 306;
+    private static final int LUMA_G = 601;
+    private static final int LUMA_B = 117;
+
+    private static final int DARK_THRESHOLD = 40;
+    private static final int BRIGHT_THRESHOLD = 220;
+
+    /**
+     * 圖片分析結果
+     */
+    @Data
+    public static class ImageMetrics {
+
+        /**
+         * 原始寬度
+         */
+        private int width;
+
+        /**
+         * 原始高度
+         */
+        private int height;
+
+        /**
+         * 實際分析的寬度
+         */
+        private int sampleWidth;
+
+        /**
+         * 實際分析的高度
+         */
+        private int sampleHeight;
+
+        /**
+         * 平均亮度 (0-255)
+         */
+        private double meanBrightness;
+
+        /**
+         * 對比度（亮度標準差）
+         */
+        private double contrast;
+
+        /**
+         * 拉普拉斯方差，數值越低越模糊
+         */
+        private double laplacianVariance;
+
+        /**
+         * 過暗像素比例
+         */
+        private double darkRatio;
+
+        /**
+         * 過曝像素比例
+         */
+        private double brightRatio;
+
+        /**
+         * 亮度中位數
+         */
+        private int medianBrightness;
+
+        /**
+         * 亮度直方圖 (256 級)
+         */
+        private int[] histogram;
+    }
+
+    /**
+     * 分析圖片字節數組（子採樣解碼，不解碼全分辨率圖片）
+     *
+     * @param imageBytes 圖片字節數組
+     * @return 分析結果，無法解碼時返回null
+     */
+    public ImageMetrics analyze(byte[] imageBytes) {
+        return analyze(imageBytes, DEFAULT_ANALYSIS_EDGE);
+    }
+
+    /**
+     * 分析圖片字節數組
+     *
+     * @param imageBytes 圖片字節數組
+     * @param maxEdge 分析用縮略圖的最大邊長
+     * @return 分析結果，無法解碼時返回null
+     */
+    public ImageMetrics analyze(byte[] imageBytes, int maxEdge) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(imageBytes))) {
+            if (input == null) {
+                return null;
+            }
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = subsamplingStep(width, height, maxEdge);
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+
+                BufferedImage sample = reader.read(0, param);
+                ImageMetrics metrics = analyzeRaster(sample);
+                metrics.setWidth(width);
+                metrics.setHeight(height);
+                return metrics;
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            log.warn("圖片分析解碼失敗: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 計算子採樣步長
+     */
+    private int subsamplingStep(int width, int height, int maxEdge) {
+        int longest = Math.max(width, height);
+        if (maxEdge <= 0 || longest <= maxEdge) {
+            return 1;
+        }
+        return (longest + maxEdge - 1) / maxEdge;
+    }
+
+    /**
+     * 單次遍歷Raster計算所有統計數據
+     * 每完成一行亮度即對上一行計算拉普拉斯響應，無需第二次遍歷
+     */
+    private ImageMetrics analyzeRaster(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        int[] histogram = new int[256];
+        // 三行滾動緩衝區，用於3x3拉普拉斯
+        int[][] rows = new int[3][width];
+        int[] rgbRow = null;
+
+        long sum = 0;
+        long sumSq = 0;
+        long lapCount = 0;
+        double lapSum = 0;
+        double lapSumSq = 0;
+
+        Raster raster = image.getRaster();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        int type = image.getType();
+        // 僅在像素緊密排列（非子圖、無偏移）時直接讀取底層數組
+        boolean packed = raster.getParent() == null && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0 && dataBuffer.getOffset() == 0;
+        boolean directByte = packed && dataBuffer instanceof DataBufferByte && dataBuffer.getNumBanks() == 1
+                && (type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR
+                    || type == BufferedImage.TYPE_BYTE_GRAY);
+        boolean directInt = packed && dataBuffer instanceof DataBufferInt && dataBuffer.getNumBanks() == 1
+                && (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB
+                    || type == BufferedImage.TYPE_INT_BGR);
+
+        byte[] bytes = directByte ? ((DataBufferByte) dataBuffer).getData() : null;
+        int[] ints = directInt ? ((DataBufferInt) dataBuffer).getData() : null;
+        int pixelStride = type == BufferedImage.TYPE_4BYTE_ABGR ? 4 : (type == BufferedImage.TYPE_BYTE_GRAY ? 1 : 3);
+
+        for (int y = 0; y < height; y++) {
+            int[] lum = rows[y % 3];
+
+            if (directByte) {
+                int offset = y * width * pixelStride;
+                for (int x = 0; x < width; x++, offset += pixelStride) {
+                    if (pixelStride == 1) {
+                        lum[x] = bytes[offset] & 0xFF;
+                    } else {
+                        // BGR / ABGR 排列
+                        int base = pixelStride == 4 ? offset + 1 : offset;
+                        int b = bytes[base] & 0xFF;
+                        int g = bytes[base + 1] & 0xFF;
+                        int r = bytes[base + 2] & 0xFF;
+                        lum[x] = (LUMA_R * r + LUMA_G * g + LUMA_B * b) >> 10;
+                    }
+                }
+            } else if (directInt) {
+                int offset = y * width;
+                boolean bgr = type == BufferedImage.TYPE_INT_BGR;
+                for (int x = 0; x < width; x++) {
+                    int p = ints[offset + x];
+                    int c0 = (p >> 16) & 0xFF;
+                    int g = (p >> 8) & 0xFF;
+                    int c2 = p & 0xFF;
+                    int r = bgr ? c2 : c0;
+                    int b = bgr ? c0 : c2;
+                    lum[x] = (LUMA_R * r + LUMA_G * g + LUMA_B * b) >> 10;
+                }
+            } else {
+                // 其他顏色模型（調色板、16位等）按行批量轉換
+                if (rgbRow == null) {
+                    rgbRow = new int[width];
+                }
+                image.getRGB(0, y, width, 1, rgbRow, 0, width);
+                for (int x = 0; x < width; x++) {
+                    int p = rgbRow[x];
+                    lum[x] = (LUMA_R * ((p >> 16) & 0xFF) + LUMA_G * ((p >> 8) & 0xFF) + LUMA_B * (p & 0xFF)) >> 10;
+                }
+            }
+
+            for (int x = 0; x < width; x++) {
+                int v = Math.min(255, lum[x]);
+                histogram[v]++;
+                sum += v;
+                sumSq += (long) v * v;
+            }
+
+            // 當前行就緒後，計算上一行的拉普拉斯響應
+            if (y >= 2 && width >= 3) {
+                int[] above = rows[(y - 2) % 3];
+                int[] center = rows[(y - 1) % 3];
+                for (int x = 1; x < width - 1; x++) {
+                    int lap = above[x] + lum[x] + center[x - 1] + center[x + 1] - 4 * center[x];
+                    lapSum += lap;
+                    lapSumSq += (double) lap * lap;
+                    lapCount++;
+                }
+            }
+        }
+
+        long pixelCount = (long) width * height;
+        ImageMetrics metrics = new ImageMetrics();
+        metrics.setSampleWidth(width);
+        metrics.setSampleHeight(height);
+        metrics.setHistogram(histogram);
+
+        if (pixelCount == 0) {
+            return metrics;
+        }
+
+        double mean = (double) sum / pixelCount;
+        double variance = Math.max(0, (double) sumSq / pixelCount - mean * mean);
+        metrics.setMeanBrightness(mean);
+        metrics.setContrast(Math.sqrt(variance));
+
+        if (lapCount > 0) {
+            double lapMean = lapSum / lapCount;
+            metrics.setLaplacianVariance(Math.max(0, lapSumSq / lapCount - lapMean * lapMean));
+        }
+
+        long dark = 0;
+        long bright = 0;
+        long cumulative = 0;
+        int median = -1;
+        for (int i = 0; i < 256; i++) {
+            if (i < DARK_THRESHOLD) {
+                dark += histogram[i];
+            } else if (i > BRIGHT_THRESHOLD) {
+                bright += histogram[i];
+            }
+            cumulative += histogram[i];
+            if (median < 0 && cumulative * 2 >= pixelCount) {
+                median = i;
+            }
+        }
+        metrics.setDarkRatio((double) dark / pixelCount);
+        metrics.setBrightRatio((double) bright / pixelCount);
+        metrics.setMedianBrightness(Math.max(median, 0));
+
+        return metrics;
+    }
+}
@@ -1,9 +1,13 @@
 package com.usdttrading.utils;
 
+import cn.hutool.core.lang.Validator;
+import cn.hutool.core.net.NetUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.crypto.digest.DigestUtil;
 import javax.servlet.http.HttpServletRequest;
 
+import java.util.Set;
+
 import org.springframework.stereotype.Service;
 
 /**
@@ -60,6 +64,68 @@ public class RequestUtils {
         return StrUtil.isNotBlank(remoteAddr) ? remoteAddr : "unknown";
     }
 
+    /**
+     * 按可信代理列表獲取客戶端IP
+     * 直連地址不是可信代理時忽略所有轉發頭；否則從X-Forwarded-For右側向左跳過可信代理，
+     * 取第一個非代理地址，客戶端自行附加在左側的偽造值不會被採用。
+     * 可信代理可以是單個地址，也可以是IPv4 CIDR網段（容器網絡中代理地址不固定）
+     */
+    public static String getTrustedClientIp(HttpServletRequest request, Set<String> trustedProxies) {
+        if (request == null) {
+            return "unknown";
+        }
+
+        String remoteAddr = request.getRemoteAddr();
+        if (StrUtil.isBlank(remoteAddr)) {
+            return "unknown";
+        }
+        if (trustedProxies == null || !isTrustedProxy(remoteAddr, trustedProxies)) {
+            return remoteAddr;
+        }
+
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (StrUtil.isBlank(forwardedFor)) {
+            return remoteAddr;
+        }
+        String[] hops = forwardedFor.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (!isValidIp(hop)) {
+                break;
+            }
+            if (!isTrustedProxy(hop, trustedProxies)) {
+                return hop;
+            }
+        }
+        return remoteAddr;
+    }
+
+    /**
+     * 地址是否屬於可信代理列表（精確地址或IPv4 CIDR）
+     */
+    private static boolean isTrustedProxy(String address, Set<String> trustedProxies) {
+        if (trustedProxies.contains(address)) {
+            return true;
+        }
+        for (String entry : trustedProxies) {
+            if (entry.indexOf('/') > 0 && isIpv4InRange(address, entry)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIpv4InRange(String address, String cidr) {
+        if (!Validator.isIpv4(address)) {
+            return false;
+        }
+        try {
+            return NetUtil.isInRange(address, cidr);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
     /**
      * 檢查IP是否有效
      */
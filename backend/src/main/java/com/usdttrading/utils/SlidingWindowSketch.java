@@ -0,0 +1,128 @@
+package com.usdttrading.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * 滑動窗口Count-Min Sketch
+ * 窗口切分為若干時間桶，每個桶是一個depth×width的計數矩陣，過期的桶在被複用時清零；
+ * 估算值為窗口內各桶計數之和在各行中的最小值，只會高估不會低估，內存固定為buckets×depth×width個int。
+ * 哈希使用進程內隨機種子，外部無法預先構造碰撞的鍵
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+public class SlidingWindowSketch {
+
+    private final int depth;
+    private final int width;
+    private final long bucketMillis;
+    private final int[][] counts;
+    private final long[] slots;
+    private final long seed;
+
+    /**
+     * @param windowMillis 窗口長度
+     * @param buckets 窗口切分的桶數
+     * @param depth 哈希行數
+     * @param width 每行計數器個數
+     */
+    public SlidingWindowSketch(long windowMillis, int buckets, int depth, int width) {
+        if (windowMillis <= 0 || buckets <= 0 || depth <= 0 || width <= 0) {
+            throw new IllegalArgumentException("窗口、桶數、行數及寬度必須大於0");
+        }
+        this.depth = depth;
+        this.width = width;
+        this.bucketMillis = Math.max(1, windowMillis / buckets);
+        this.counts = new int[buckets][depth * width];
+        this.slots = new long[buckets];
+        Arrays.fill(slots, Long.MIN_VALUE);
+        this.seed = new SecureRandom().nextLong();
+    }
+
+    /**
+     * 累加計數並返回累加後的窗口估算值
+     */
+    public synchronized long add(String key, int count, long nowMillis) {
+        long slot = nowMillis / bucketMillis;
+        int[] bucket = bucket(slot);
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + index(h1, h2, row);
+            bucket[index] = (int) Math.min(Integer.MAX_VALUE, (long) bucket[index] + count);
+        }
+        return estimate(hash, slot);
+    }
+
+    /**
+     * 窗口內的估算值
+     */
+    public synchronized long estimate(String key, long nowMillis) {
+        return estimate(hash(key), nowMillis / bucketMillis);
+    }
+
+    /**
+     * 佔用的計數器字節數
+     */
+    public long sizeInBytes() {
+        return (long) counts.length * depth * width * Integer.BYTES;
+    }
+
+    private long estimate(long hash, long slot) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = row * width + index(h1, h2, row);
+            long sum = 0;
+            for (int b = 0; b < counts.length; b++) {
+                if (slots[b] > slot - counts.length && slots[b] <= slot) {
+                    sum += counts[b][index];
+                }
+            }
+            min = Math.min(min, sum);
+        }
+        return min;
+    }
+
+    /**
+     * 取當前時間所在的桶，桶內是舊時段的數據時先清零
+     */
+    private int[] bucket(long slot) {
+        int b = (int) Math.floorMod(slot, (long) counts.length);
+        if (slots[b] != slot) {
+            Arrays.fill(counts[b], 0);
+            slots[b] = slot;
+        }
+        return counts[b];
+    }
+
+    /**
+     * 雙重哈希（h1 + i·h2）派生各行位置
+     */
+    private int index(int h1, int h2, int row) {
+        int combined = h1 + row * h2;
+        return Math.floorMod(combined, width);
+    }
+
+    /**
+     * 帶種子的64位FNV-1a，再經SplitMix64混合
+     */
+    private long hash(String key) {
+        long h = 0xcbf29ce484222325L ^ seed;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 30;
+        h *= 0xbf58476d1ce4e5b9L;
+        h ^= h >>> 27;
+        h *= 0x94d049bb133111ebL;
+        h ^= h >>> 31;
+        return h;
+    }
+}
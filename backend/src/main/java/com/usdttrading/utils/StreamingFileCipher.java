@@ -0,0 +1,567 @@
+package com.usdttrading.utils;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * 分段流式文件加密工具類
+ * <p>
+ * 文件格式：固定長度文件頭 + 若干定長加密段。
+ * 文件頭包含魔數、版本、段大小、主密鑰ID、被主密鑰包裝的文檔數據密鑰及隨機nonce前綴；
+ * 每段獨立使用AES-256-GCM加密並帶有自己的認證標籤，nonce由前綴、段序號和末段標記組成，
+ * 可防止段的重排和截斷。因此支持上傳時流式加密、讀取時流式或隨機位置解密，
+ * 主密鑰輪換時只需原地重寫文件頭。
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StreamingFileCipher {
+
+    /**
+     * 加密算法標識（記錄在KycDocument.encryptionAlgorithm）
+     */
+    public static final String ALGORITHM_NAME = "AES-256-GCM-SEGMENTED";
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final byte[] MAGIC = {'K', 'Y', 'C', 'E'};
+    private static final byte VERSION = 1;
+    private static final int TAG_LENGTH = 16;
+    private static final int KEY_ID_MAX_LENGTH = 32;
+    private static final int WRAPPED_KEY_LENGTH = 12 + 32 + TAG_LENGTH;
+    private static final int NONCE_PREFIX_LENGTH = 7;
+    private static final int MIN_SEGMENT_SIZE = 4 * 1024;
+    private static final int MAX_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * 文件頭長度：魔數(4) + 版本(1) + 段大小(4) + 密鑰ID長度(1) + 密鑰ID(32) + 包裝密鑰(60) + nonce前綴(7)
+     */
+    public static final int HEADER_LENGTH = MAGIC.length + 1 + 4 + 1 + KEY_ID_MAX_LENGTH
+            + WRAPPED_KEY_LENGTH + NONCE_PREFIX_LENGTH;
+
+    private final DataEncryptionUtil dataEncryptionUtil;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Value("${app.file.encryption-segment-size:65536}")
+    private int segmentSize;
+
+    /**
+     * 文件頭
+     */
+    private static final class Header {
+        private int segmentSize;
+        private String keyId;
+        private byte[] wrappedKey;
+        private byte[] noncePrefix;
+
+        private ByteBuffer encode() {
+            byte[] keyIdBytes = keyId.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH);
+            buffer.put(MAGIC);
+            buffer.put(VERSION);
+            buffer.putInt(segmentSize);
+            buffer.put((byte) keyIdBytes.length);
+            buffer.put(Arrays.copyOf(keyIdBytes, KEY_ID_MAX_LENGTH));
+            buffer.put(wrappedKey);
+            buffer.put(noncePrefix);
+            buffer.flip();
+            return buffer;
+        }
+
+        private static Header decode(ByteBuffer buffer) throws IOException {
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("不是分段加密文件格式");
+            }
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IOException("不支持的加密文件版本: " + version);
+            }
+
+            Header header = new Header();
+            header.segmentSize = buffer.getInt();
+            if (header.segmentSize < MIN_SEGMENT_SIZE || header.segmentSize > MAX_SEGMENT_SIZE) {
+                throw new IOException("加密文件段大小無效: " + header.segmentSize);
+            }
+            int keyIdLength = buffer.get() & 0xFF;
+            byte[] keyIdBytes = new byte[KEY_ID_MAX_LENGTH];
+            buffer.get(keyIdBytes);
+            header.keyId = new String(keyIdBytes, 0, Math.min(keyIdLength, KEY_ID_MAX_LENGTH), StandardCharsets.UTF_8);
+            header.wrappedKey = new byte[WRAPPED_KEY_LENGTH];
+            buffer.get(header.wrappedKey);
+            header.noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+            buffer.get(header.noncePrefix);
+            return header;
+        }
+    }
+
+    /**
+     * 獲取新文件將使用的主密鑰ID
+     *
+     * @return 主密鑰ID
+     */
+    public String currentKeyId() {
+        return dataEncryptionUtil.getMasterKeyId();
+    }
+
+    /**
+     * 判斷文件是否為分段加密格式
+     *
+     * @param path 文件路徑
+     * @return 是否為分段加密格式
+     * @throws IOException IO異常
+     */
+    public boolean isEncryptedFormat(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_LENGTH) {
+                return false;
+            }
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+            readFully(channel, magic, 0);
+            return Arrays.equals(magic.array(), MAGIC);
+        }
+    }
+
+    /**
+     * 創建流式加密輸出流，為每個文件生成獨立的數據密鑰
+     * 寫入完成後必須調用close()以寫出最後一段
+     *
+     * @param out 密文輸出流
+     * @return 明文輸入端
+     * @throws IOException IO異常
+     */
+    public OutputStream newEncryptingStream(OutputStream out) throws IOException {
+        String keyId = dataEncryptionUtil.getMasterKeyId();
+        if (keyId.getBytes(StandardCharsets.UTF_8).length > KEY_ID_MAX_LENGTH) {
+            throw new IllegalStateException("主密鑰ID過長: " + keyId);
+        }
+
+        SecretKey dataKey = DataEncryptionUtil.generateSecretKey();
+        Header header = new Header();
+        header.segmentSize = Math.max(MIN_SEGMENT_SIZE, Math.min(segmentSize, MAX_SEGMENT_SIZE));
+        header.keyId = keyId;
+        header.wrappedKey = dataEncryptionUtil.wrapKey(dataKey);
+        header.noncePrefix = new byte[NONCE_PREFIX_LENGTH];
+        secureRandom.nextBytes(header.noncePrefix);
+
+        out.write(header.encode().array());
+        return new SegmentEncryptingOutputStream(out, header, dataKey);
+    }
+
+    /**
+     * 計算加密文件的明文長度（無需解密）
+     *
+     * @param path 文件路徑
+     * @return 明文長度
+     * @throws IOException IO異常
+     */
+    public long plaintextLength(Path path) throws IOException {
+        try (SegmentReader reader = new SegmentReader(path)) {
+            return reader.plaintextLength;
+        }
+    }
+
+    /**
+     * 解密指定明文區間並寫入輸出流，只解密覆蓋該區間的段
+     *
+     * @param path 文件路徑
+     * @param offset 明文起始偏移
+     * @param length 明文長度
+     * @param out 輸出流
+     * @throws IOException IO異常（包括認證失敗）
+     */
+    public void decryptRange(Path path, long offset, long length, OutputStream out) throws IOException {
+        try (SegmentReader reader = new SegmentReader(path)) {
+            if (offset < 0 || offset + length > reader.plaintextLength) {
+                throw new EOFException("請求區間超出文件長度");
+            }
+
+            int segSize = reader.header.segmentSize;
+            long segmentIndex = offset / segSize;
+            int skip = (int) (offset % segSize);
+            long remaining = length;
+
+            while (remaining > 0) {
+                int plainLength = reader.decryptSegment(segmentIndex);
+                int n = (int) Math.min(plainLength - skip, remaining);
+                out.write(reader.plain, skip, n);
+                remaining -= n;
+                skip = 0;
+                segmentIndex++;
+            }
+        }
+    }
+
+    /**
+     * 打開流式解密輸入流，逐段解密，內存佔用固定為一個段大小
+     *
+     * @param path 文件路徑
+     * @return 明文輸入流
+     * @throws IOException IO異常
+     */
+    public InputStream openDecryptingStream(Path path) throws IOException {
+        return new SegmentDecryptingInputStream(new SegmentReader(path));
+    }
+
+    /**
+     * 使用當前主密鑰重新包裝文件的數據密鑰（主密鑰輪換）
+     * 新文件頭及原密文段寫入同目錄臨時文件，落盤後原子替換原文件，
+     * 中途崩潰時原文件保持完整，不會出現新舊文件頭混合
+     *
+     * @param path 文件路徑
+     * @return 是否發生了重新包裝
+     * @throws IOException IO異常
+     */
+    public boolean rewrapKey(Path path) throws IOException {
+        Path temp;
+        try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH);
+            readFully(source, buffer, 0);
+            buffer.flip();
+            Header header = Header.decode(buffer);
+
+            String currentKeyId = dataEncryptionUtil.getMasterKeyId();
+            if (currentKeyId.equals(header.keyId)) {
+                return false;
+            }
+
+            SecretKey dataKey = dataEncryptionUtil.unwrapKey(header.wrappedKey, header.keyId);
+            header.keyId = currentKeyId;
+            header.wrappedKey = dataEncryptionUtil.wrapKey(dataKey);
+
+            temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName() + ".", ".rewrap");
+            try {
+                writeWithHeader(source, header, temp);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+        }
+
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        syncDirectory(path.toAbsolutePath().getParent());
+        return true;
+    }
+
+    /**
+     * 寫入新文件頭及原文件的密文段並落盤
+     */
+    private static void writeWithHeader(FileChannel source, Header header, Path target) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            ByteBuffer encoded = header.encode();
+            while (encoded.hasRemaining()) {
+                channel.write(encoded);
+            }
+            long position = HEADER_LENGTH;
+            long size = source.size();
+            while (position < size) {
+                long copied = source.transferTo(position, size - position, channel);
+                if (copied <= 0) {
+                    throw new EOFException("加密文件已截斷");
+                }
+                position += copied;
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * 讀取文件頭中的主密鑰ID
+     *
+     * @param path 文件路徑
+     * @return 主密鑰ID
+     * @throws IOException IO異常
+     */
+    public String readKeyId(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH);
+            readFully(channel, buffer, 0);
+            buffer.flip();
+            return Header.decode(buffer).keyId;
+        }
+    }
+
+    /**
+     * 構造段nonce：前綴(7) + 段序號(4) + 末段標記(1)
+     */
+    private static GCMParameterSpec segmentNonce(byte[] noncePrefix, long segmentIndex, boolean last) {
+        if (segmentIndex > 0xFFFFFFFFL) {
+            throw new IllegalStateException("加密文件段數超出限制");
+        }
+        byte[] nonce = new byte[NONCE_PREFIX_LENGTH + 5];
+        System.arraycopy(noncePrefix, 0, nonce, 0, NONCE_PREFIX_LENGTH);
+        nonce[7] = (byte) (segmentIndex >>> 24);
+        nonce[8] = (byte) (segmentIndex >>> 16);
+        nonce[9] = (byte) (segmentIndex >>> 8);
+        nonce[10] = (byte) segmentIndex;
+        nonce[11] = (byte) (last ? 1 : 0);
+        return new GCMParameterSpec(TAG_LENGTH * 8, nonce);
+    }
+
+    /**
+     * 目錄落盤，保證替換後的目錄項在崩潰後仍然可見；不支持目錄同步的平台忽略
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.debug("目錄同步失敗: dir={}, error={}", directory, e.getMessage());
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("加密文件已截斷");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * 分段加密輸出流
+     * 緩衝一個段的明文；只有在後續還有數據時才寫出滿段，以便在close時將最後一段標記為末段
+     */
+    private static final class SegmentEncryptingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final Header header;
+        private final SecretKey dataKey;
+        private final Cipher cipher;
+        private final byte[] buffer;
+        private final byte[] cipherBuffer;
+        private int buffered;
+        private long segmentIndex;
+        private boolean closed;
+
+        private SegmentEncryptingOutputStream(OutputStream out, Header header, SecretKey dataKey) throws IOException {
+            this.out = out;
+            this.header = header;
+            this.dataKey = dataKey;
+            this.buffer = new byte[header.segmentSize];
+            this.cipherBuffer = new byte[header.segmentSize + TAG_LENGTH];
+            try {
+                this.cipher = Cipher.getInstance(TRANSFORMATION);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("初始化加密器失敗", e);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("加密輸出流已關閉");
+            }
+            while (len > 0) {
+                if (buffered == buffer.length) {
+                    writeSegment(false);
+                }
+                int n = Math.min(len, buffer.length - buffered);
+                System.arraycopy(b, off, buffer, buffered, n);
+                buffered += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                writeSegment(true);
+                out.flush();
+            } finally {
+                out.close();
+            }
+        }
+
+        private void writeSegment(boolean last) throws IOException {
+            try {
+                cipher.init(Cipher.ENCRYPT_MODE, dataKey, segmentNonce(header.noncePrefix, segmentIndex, last));
+                int written = cipher.doFinal(buffer, 0, buffered, cipherBuffer, 0);
+                out.write(cipherBuffer, 0, written);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("文件段加密失敗", e);
+            }
+            segmentIndex++;
+            buffered = 0;
+        }
+    }
+
+    /**
+     * 段讀取器，持有文件通道、解包後的數據密鑰和單段緩衝區
+     */
+    private final class SegmentReader implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final Header header;
+        private final SecretKey dataKey;
+        private final Cipher cipher;
+        private final ByteBuffer cipherBuffer;
+        private final byte[] plain;
+        private final long segmentCount;
+        private final long plaintextLength;
+
+        private SegmentReader(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_LENGTH);
+                readFully(channel, headerBuffer, 0);
+                headerBuffer.flip();
+                this.header = Header.decode(headerBuffer);
+
+                long cipherLength = channel.size() - HEADER_LENGTH;
+                long segmentCipherSize = header.segmentSize + TAG_LENGTH;
+                this.segmentCount = Math.max(1, (cipherLength + segmentCipherSize - 1) / segmentCipherSize);
+                this.plaintextLength = cipherLength - segmentCount * TAG_LENGTH;
+                if (plaintextLength < 0) {
+                    throw new IOException("加密文件已截斷");
+                }
+
+                this.dataKey = dataEncryptionUtil.unwrapKey(header.wrappedKey, header.keyId);
+                this.cipher = Cipher.getInstance(TRANSFORMATION);
+                this.cipherBuffer = ByteBuffer.allocate(header.segmentSize + TAG_LENGTH);
+                this.plain = new byte[header.segmentSize];
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            } catch (GeneralSecurityException e) {
+                channel.close();
+                throw new IOException("初始化解密器失敗", e);
+            }
+        }
+
+        /**
+         * 解密指定段到plain緩衝區
+         *
+         * @return 該段明文長度
+         */
+        private int decryptSegment(long segmentIndex) throws IOException {
+            if (segmentIndex >= segmentCount) {
+                throw new EOFException("加密文件段序號越界");
+            }
+
+            long segmentCipherSize = header.segmentSize + TAG_LENGTH;
+            long position = HEADER_LENGTH + segmentIndex * segmentCipherSize;
+            int cipherLength = (int) Math.min(segmentCipherSize, channel.size() - position);
+
+            cipherBuffer.clear();
+            cipherBuffer.limit(cipherLength);
+            readFully(channel, cipherBuffer, position);
+
+            try {
+                boolean last = segmentIndex == segmentCount - 1;
+                cipher.init(Cipher.DECRYPT_MODE, dataKey, segmentNonce(header.noncePrefix, segmentIndex, last));
+                return cipher.doFinal(cipherBuffer.array(), 0, cipherLength, plain, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("文件段解密或認證失敗: segment=" + segmentIndex, e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * 順序解密輸入流
+     */
+    private static final class SegmentDecryptingInputStream extends InputStream {
+
+        private final SegmentReader reader;
+        private long nextSegment;
+        private int position;
+        private int limit;
+
+        private SegmentDecryptingInputStream(SegmentReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return reader.plain[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int n = Math.min(len, limit - position);
+            System.arraycopy(reader.plain, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return limit - position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+
+        private boolean fill() throws IOException {
+            while (position >= limit) {
+                if (nextSegment >= reader.segmentCount) {
+                    return false;
+                }
+                limit = reader.decryptSegment(nextSegment++);
+                position = 0;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.usdttrading.utils;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 哈希時間輪
+ * 大量定時任務（SLA、訂單過期等）以O(1)插入，由單一線程按刻度推進觸發，
+ * 同一鍵重複調度時以新的到期時間為準
+ *
+ * @param <K> 任務鍵類型
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+public class TimerWheel<K> {
+
+    private final long tickMillis;
+    private final Queue<Timeout<K>>[] buckets;
+    private final int mask;
+    private final Queue<Timeout<K>> pending = new ConcurrentLinkedQueue<>();
+    private final Map<K, Timeout<K>> scheduled = new ConcurrentHashMap<>();
+    private final Consumer<K> handler;
+    private final Executor dispatcher;
+    private final String name;
+
+    private volatile boolean running;
+    private Thread worker;
+    private long startTime;
+    private long tick;
+
+    /**
+     * 定時任務
+     */
+    private static final class Timeout<K> {
+        private final K key;
+        private final long deadline;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+
+        private Timeout(K key, long deadline) {
+            this.key = key;
+            this.deadline = deadline;
+        }
+    }
+
+    /**
+     * @param name 名稱（用於線程名及日誌）
+     * @param tickMillis 刻度時長
+     * @param wheelSize 槽數量（取2的冪）
+     * @param handler 到期處理
+     * @param dispatcher 處理執行器，避免慢任務阻塞刻度推進
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(String name, long tickMillis, int wheelSize, Consumer<K> handler, Executor dispatcher) {
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.name = name;
+        this.tickMillis = tickMillis;
+        this.buckets = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.mask = size - 1;
+        this.handler = handler;
+        this.dispatcher = dispatcher;
+    }
+
+    /**
+     * 啟動時間輪
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        startTime = System.nanoTime();
+        worker = new Thread(this::run, name + "-timer-wheel");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 停止時間輪
+     */
+    public synchronized void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+        scheduled.clear();
+    }
+
+    /**
+     * 調度任務
+     *
+     * @param key 任務鍵
+     * @param deadlineEpochMillis 到期時間（epoch毫秒）
+     */
+    public void schedule(K key, long deadlineEpochMillis) {
+        Timeout<K> existing = scheduled.get(key);
+        if (existing != null && existing.deadline == deadlineEpochMillis && !existing.cancelled) {
+            return;
+        }
+        Timeout<K> timeout = new Timeout<>(key, deadlineEpochMillis);
+        Timeout<K> previous = scheduled.put(key, timeout);
+        if (previous != null) {
+            previous.cancelled = true;
+        }
+        pending.add(timeout);
+    }
+
+    /**
+     * 取消任務
+     */
+    public void cancel(K key) {
+        Timeout<K> timeout = scheduled.remove(key);
+        if (timeout != null) {
+            timeout.cancelled = true;
+        }
+    }
+
+    /**
+     * 取消全部任務（如節點失去主節點身份時）
+     */
+    public void clear() {
+        scheduled.values().forEach(timeout -> timeout.cancelled = true);
+        scheduled.clear();
+    }
+
+    /**
+     * 是否已調度
+     */
+    public boolean isScheduled(K key) {
+        return scheduled.containsKey(key);
+    }
+
+    /**
+     * 已調度任務數
+     */
+    public int size() {
+        return scheduled.size();
+    }
+
+    private void run() {
+        while (running) {
+            long nextTickNanos = startTime + TimeUnit.MILLISECONDS.toNanos((tick + 1) * tickMillis);
+            long sleepNanos = nextTickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+
+            transferPending();
+            expireBucket(buckets[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    /**
+     * 將新任務放入對應槽位
+     */
+    private void transferPending() {
+        long now = System.currentTimeMillis();
+        Timeout<K> timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            long ticksAhead = Math.max(0, (timeout.deadline - now + tickMillis - 1) / tickMillis);
+            timeout.remainingRounds = ticksAhead / buckets.length;
+            buckets[(int) ((tick + ticksAhead) & mask)].add(timeout);
+        }
+    }
+
+    private void expireBucket(Queue<Timeout<K>> bucket) {
+        Iterator<Timeout<K>> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout<K> timeout = iterator.next();
+            if (timeout.cancelled) {
+                iterator.remove();
+            } else if (timeout.remainingRounds <= 0) {
+                iterator.remove();
+                if (scheduled.remove(timeout.key, timeout)) {
+                    fire(timeout.key);
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+
+    private void fire(K key) {
+        try {
+            dispatcher.execute(() -> {
+                try {
+                    handler.accept(key);
+                } catch (Exception e) {
+                    log.error("時間輪任務執行失敗: wheel={}, key={}", name, key, e);
+                }
+            });
+        } catch (Exception e) {
+            log.error("時間輪任務派發失敗: wheel={}, key={}", name, key, e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.usdttrading.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+
+/**
+ * 事務工具類
+ * 推送、緩存更新等副作用延後到事務提交後執行，回滾時不會對外暴露未提交的數據
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+public final class TransactionUtils {
+
+    private TransactionUtils() {
+    }
+
+    /**
+     * 當前有事務時在提交後執行，否則立即執行；執行異常交由調用方處理，不向外拋出
+     *
+     * @param action 待執行的操作
+     * @param onError 異常處理
+     */
+    public static void afterCommit(Runnable action, Consumer<Exception> onError) {
+        Runnable guarded = () -> {
+            try {
+                action.run();
+            } catch (Exception e) {
+                onError.accept(e);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    guarded.run();
+                }
+            });
+        } else {
+            guarded.run();
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.usdttrading.utils;
+
+import java.math.BigInteger;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * TRON地址工具類
+ * Base58Check地址（T開頭）與節點接口使用的十六進制地址（41前綴）互相轉換，
+ * 以及從TRC20事件topic中解析地址
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+public final class TronAddressUtil {
+
+    private static final char[] ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz".toCharArray();
+    private static final int[] INDEXES = new int[128];
+    private static final byte ADDRESS_PREFIX = 0x41;
+    private static final int ADDRESS_LENGTH = 21;
+    private static final int ENCODED_LENGTH = 34;
+
+    /**
+     * 地址校驗用的線程內緩衝（25字節解碼結果、32字節摘要、SHA-256實例），校驗過程不分配對象
+     */
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    static {
+        Arrays.fill(INDEXES, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            INDEXES[ALPHABET[i]] = i;
+        }
+    }
+
+    private TronAddressUtil() {
+    }
+
+    /**
+     * Base58Check地址轉十六進制（含41前綴，小寫）
+     *
+     * @param base58 Base58Check地址
+     * @return 十六進制地址，格式或校驗和錯誤時返回null
+     */
+    public static String toHex(String base58) {
+        byte[] raw = decodeCheck(base58);
+        return raw == null ? null : toHexString(raw);
+    }
+
+    /**
+     * 十六進制地址轉Base58Check
+     * 接受41前綴的21字節地址或無前綴的20字節地址（EVM日誌格式）
+     *
+     * @param hex 十六進制地址
+     * @return Base58Check地址
+     */
+    public static String fromHex(String hex) {
+        String value = strip0x(hex);
+        byte[] bytes = fromHexString(value);
+        if (bytes.length == ADDRESS_LENGTH - 1) {
+            byte[] prefixed = new byte[ADDRESS_LENGTH];
+            prefixed[0] = ADDRESS_PREFIX;
+            System.arraycopy(bytes, 0, prefixed, 1, bytes.length);
+            bytes = prefixed;
+        }
+        if (bytes.length != ADDRESS_LENGTH || bytes[0] != ADDRESS_PREFIX) {
+            throw new IllegalArgumentException("無效的TRON地址: " + hex);
+        }
+        return encodeCheck(bytes);
+    }
+
+    /**
+     * 從32字節事件topic中解析地址（取低20字節）
+     *
+     * @param topic topic十六進制
+     * @return Base58Check地址
+     */
+    public static String fromTopic(String topic) {
+        String value = strip0x(topic);
+        if (value.length() < 40) {
+            throw new IllegalArgumentException("無效的地址topic: " + topic);
+        }
+        return fromHex(value.substring(value.length() - 40));
+    }
+
+    /**
+     * 十六進制地址去掉41前綴，用於與合約日誌中的20字節地址比較
+     *
+     * @param hex 十六進制地址
+     * @return 20字節十六進制（小寫）
+     */
+    public static String toEvmHex(String hex) {
+        String value = strip0x(hex).toLowerCase();
+        return value.length() == ADDRESS_LENGTH * 2 ? value.substring(2) : value;
+    }
+
+    /**
+     * 解碼Base58Check並校驗（雙重SHA-256前4字節）
+     *
+     * @param base58 Base58Check字符串
+     * @return 地址字節，格式或校驗和錯誤時返回null
+     */
+    public static byte[] decodeCheck(String base58) {
+        byte[] payload = decodeCheckPayload(base58);
+        if (payload == null || payload.length != ADDRESS_LENGTH) {
+            return null;
+        }
+        return payload[0] == ADDRESS_PREFIX ? payload : null;
+    }
+
+    /**
+     * 校驗Base58Check地址（41前綴、雙重SHA-256校驗和）
+     * 定長解碼到線程內緩衝區，不創建BigInteger或中間數組，適合批量校驗
+     *
+     * @param base58 Base58Check地址
+     * @return 是否有效
+     */
+    public static boolean isValidAddress(String base58) {
+        if (base58 == null || base58.length() != ENCODED_LENGTH) {
+            return false;
+        }
+        Scratch scratch = SCRATCH.get();
+        byte[] buf = scratch.decoded;
+        Arrays.fill(buf, (byte) 0);
+        for (int i = 0; i < ENCODED_LENGTH; i++) {
+            char c = base58.charAt(i);
+            int carry = c < 128 ? INDEXES[c] : -1;
+            if (carry < 0) {
+                return false;
+            }
+            for (int j = buf.length - 1; j >= 0; j--) {
+                carry += (buf[j] & 0xFF) * 58;
+                buf[j] = (byte) carry;
+                carry >>>= 8;
+            }
+            if (carry != 0) {
+                return false;
+            }
+        }
+        if (buf[0] != ADDRESS_PREFIX) {
+            return false;
+        }
+        MessageDigest digest = scratch.digest;
+        byte[] hash = scratch.hash;
+        try {
+            digest.update(buf, 0, ADDRESS_LENGTH);
+            digest.digest(hash, 0, hash.length);
+            digest.update(hash, 0, hash.length);
+            digest.digest(hash, 0, hash.length);
+        } catch (DigestException e) {
+            throw new IllegalStateException("SHA-256摘要失敗", e);
+        }
+        for (int i = 0; i < 4; i++) {
+            if (hash[i] != buf[ADDRESS_LENGTH + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 解碼任意長度的Base58Check數據並校驗（如BIP32擴展公鑰）
+     *
+     * @param base58 Base58Check字符串
+     * @return 去掉校驗和的數據，格式或校驗和錯誤時返回null
+     */
+    public static byte[] decodeCheckPayload(String base58) {
+        byte[] decoded = decodeBase58(base58);
+        if (decoded == null || decoded.length <= 4) {
+            return null;
+        }
+        byte[] payload = Arrays.copyOfRange(decoded, 0, decoded.length - 4);
+        byte[] checksum = Arrays.copyOfRange(decoded, decoded.length - 4, decoded.length);
+        byte[] hash = doubleSha256(payload);
+        for (int i = 0; i < 4; i++) {
+            if (hash[i] != checksum[i]) {
+                return null;
+            }
+        }
+        return payload;
+    }
+
+    /**
+     * 由未壓縮公鑰（X||Y，64字節）計算Base58Check地址
+     *
+     * @param uncompressedPublicKey 未壓縮公鑰
+     * @return Base58Check地址
+     */
+    public static String fromPublicKey(byte[] uncompressedPublicKey) {
+        byte[] body = HdPublicKeyDeriver.addressBody(uncompressedPublicKey);
+        byte[] prefixed = new byte[ADDRESS_LENGTH];
+        prefixed[0] = ADDRESS_PREFIX;
+        System.arraycopy(body, 0, prefixed, 1, body.length);
+        return encodeCheck(prefixed);
+    }
+
+    /**
+     * 編碼Base58Check
+     */
+    public static String encodeCheck(byte[] payload) {
+        byte[] hash = doubleSha256(payload);
+        byte[] data = Arrays.copyOf(payload, payload.length + 4);
+        System.arraycopy(hash, 0, data, payload.length, 4);
+        return encodeBase58(data);
+    }
+
+    /**
+     * 雙重SHA-256
+     */
+    public static byte[] doubleSha256(byte[] data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] first = digest.digest(data);
+            digest.reset();
+            return digest.digest(first);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    private static String encodeBase58(byte[] input) {
+        int zeros = 0;
+        while (zeros < input.length && input[zeros] == 0) {
+            zeros++;
+        }
+        StringBuilder sb = new StringBuilder();
+        BigInteger value = new BigInteger(1, input);
+        BigInteger base = BigInteger.valueOf(58);
+        while (value.signum() > 0) {
+            BigInteger[] divRem = value.divideAndRemainder(base);
+            sb.append(ALPHABET[divRem[1].intValue()]);
+            value = divRem[0];
+        }
+        for (int i = 0; i < zeros; i++) {
+            sb.append(ALPHABET[0]);
+        }
+        return sb.reverse().toString();
+    }
+
+    private static byte[] decodeBase58(String input) {
+        if (input == null || input.isEmpty()) {
+            return null;
+        }
+        BigInteger value = BigInteger.ZERO;
+        BigInteger base = BigInteger.valueOf(58);
+        int zeros = 0;
+        boolean leading = true;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            int digit = c < 128 ? INDEXES[c] : -1;
+            if (digit < 0) {
+                return null;
+            }
+            if (leading && digit == 0) {
+                zeros++;
+            } else {
+                leading = false;
+            }
+            value = value.multiply(base).add(BigInteger.valueOf(digit));
+        }
+        byte[] bytes = value.toByteArray();
+        int offset = bytes.length > 1 && bytes[0] == 0 ? 1 : 0;
+        if (value.signum() == 0) {
+            offset = bytes.length;
+        }
+        byte[] result = new byte[zeros + bytes.length - offset];
+        System.arraycopy(bytes, offset, result, zeros, bytes.length - offset);
+        return result;
+    }
+
+    private static final class Scratch {
+        private final byte[] decoded = new byte[ADDRESS_LENGTH + 4];
+        private final byte[] hash = new byte[32];
+        private final MessageDigest digest;
+
+        private Scratch() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256不可用", e);
+            }
+        }
+    }
+
+    private static String strip0x(String hex) {
+        if (hex == null) {
+            throw new IllegalArgumentException("地址為空");
+        }
+        return hex.startsWith("0x") || hex.startsWith("0X") ? hex.substring(2) : hex;
+    }
+
+    private static String toHexString(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static byte[] fromHexString(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("無效的十六進制: " + hex);
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int hi = Character.digit(hex.charAt(i * 2), 16);
+            int lo = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (hi < 0 || lo < 0) {
+                throw new IllegalArgumentException("無效的十六進制: " + hex);
+            }
+            bytes[i] = (byte) ((hi << 4) | lo);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,169 @@
+package com.usdttrading.utils;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地TRON回放節點
+ * 按錄製文件逐塊“出塊”，提供與FullNode相同的HTTP接口，用於在無外網環境下驗證充值掃描。
+ * 錄製文件格式：{"blocks":[{"block":{getblock原始響應}, "transactionInfo":[gettransactioninfobyblocknum原始響應]}]}；
+ * 出現與已出塊高度相同的條目時，截斷該高度及以上的區塊並替換，用於模擬區塊重組
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@Slf4j
+public class TronMockNode {
+
+    private final int port;
+    private final Path recording;
+    private final long blockIntervalMillis;
+    private final int initialBlocks;
+
+    private final List<JSONObject> entries = new ArrayList<>();
+    private final NavigableMap<Long, JSONObject> chain = new TreeMap<>();
+    private int released;
+
+    private HttpServer server;
+    private ScheduledExecutorService producer;
+
+    /**
+     * @param port 監聽端口
+     * @param recording 錄製文件
+     * @param blockIntervalMillis 出塊間隔，不大於0時只通過produce手動出塊
+     * @param initialBlocks 啟動時已出塊數量
+     */
+    public TronMockNode(int port, Path recording, long blockIntervalMillis, int initialBlocks) {
+        this.port = port;
+        this.recording = recording;
+        this.blockIntervalMillis = blockIntervalMillis;
+        this.initialBlocks = initialBlocks;
+    }
+
+    /**
+     * 啟動節點
+     */
+    public void start() throws IOException {
+        JSONArray blocks = JSONUtil.parseObj(Files.readString(recording, StandardCharsets.UTF_8)).getJSONArray("blocks");
+        for (int i = 0; i < blocks.size(); i++) {
+            entries.add(blocks.getJSONObject(i));
+        }
+        for (int i = 0; i < Math.min(initialBlocks, entries.size()); i++) {
+            releaseNext();
+        }
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/wallet/getnowblock", exchange -> respond(exchange, getNowBlock()));
+        server.createContext("/wallet/getblockbylimitnext", exchange -> respond(exchange, getBlockRange(readBody(exchange))));
+        server.createContext("/wallet/gettransactioninfobyblocknum", exchange -> respond(exchange, getTransactionInfo(readBody(exchange))));
+        server.start();
+
+        if (blockIntervalMillis > 0) {
+            producer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "tron-mock-node");
+                thread.setDaemon(true);
+                return thread;
+            });
+            producer.scheduleAtFixedRate(this::releaseNext, blockIntervalMillis, blockIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+        log.info("TRON回放節點已啟動: port={}, recorded={}, released={}", port, entries.size(), released);
+    }
+
+    /**
+     * 停止節點
+     */
+    public void stop() {
+        if (producer != null) {
+            producer.shutdownNow();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * 手動出塊
+     *
+     * @param count 出塊數量
+     */
+    public void produce(int count) {
+        for (int i = 0; i < count; i++) {
+            releaseNext();
+        }
+    }
+
+    private synchronized void releaseNext() {
+        if (released >= entries.size()) {
+            return;
+        }
+        JSONObject entry = entries.get(released++);
+        long number = blockNumber(entry.getJSONObject("block"));
+        chain.tailMap(number, true).clear();
+        chain.put(number, entry);
+    }
+
+    private synchronized String getNowBlock() {
+        return chain.isEmpty() ? "{}" : chain.lastEntry().getValue().getJSONObject("block").toString();
+    }
+
+    private synchronized String getBlockRange(JSONObject request) {
+        long start = request.getLong("startNum", 0L);
+        long end = request.getLong("endNum", start);
+        JSONArray blocks = new JSONArray();
+        for (Map.Entry<Long, JSONObject> entry : chain.subMap(start, true, end, false).entrySet()) {
+            blocks.add(entry.getValue().getJSONObject("block"));
+        }
+        JSONObject response = new JSONObject();
+        response.set("block", blocks);
+        return response.toString();
+    }
+
+    private synchronized String getTransactionInfo(JSONObject request) {
+        JSONObject entry = chain.get(request.getLong("num", -1L));
+        if (entry == null || entry.getJSONArray("transactionInfo") == null || entry.getJSONArray("transactionInfo").isEmpty()) {
+            return "{}";
+        }
+        return entry.getJSONArray("transactionInfo").toString();
+    }
+
+    private static long blockNumber(JSONObject block) {
+        return block.getJSONObject("block_header").getJSONObject("raw_data").getLong("number", 0L);
+    }
+
+    private static JSONObject readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return body.isBlank() ? new JSONObject() : JSONUtil.parseObj(body);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package com.usdttrading.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 制裁/黑名單內存索引（構建後不可變）
+ * Bloom過濾器做精確匹配預檢，哈希表存放證件號、地址及規範化姓名，
+ * 姓名模糊匹配使用n-gram倒排索引（中日韓文字用二元組，拉丁字母用三元組）並以前綴過濾減少候選
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+public final class WatchlistIndex {
+
+    /**
+     * 名單條目類型
+     */
+    public enum EntryType {
+        NAME,
+        ID,
+        ADDRESS
+    }
+
+    /**
+     * 名單條目
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Entry {
+        private String entryId;
+        private String listName;
+        private EntryType type;
+        private String value;
+    }
+
+    /**
+     * 匹配結果
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Match {
+        private String entryId;
+        private String listName;
+        private EntryType type;
+        private String matchedValue;
+        private double score;
+        private boolean exact;
+    }
+
+    private final BloomFilter bloomFilter;
+    private final Map<String, Entry> exactIndex;
+    private final Entry[] names;
+    private final int[][] nameGrams;
+    private final Map<String, Integer> gramIds;
+    private final int[][] postings;
+    private final int entryCount;
+
+    private WatchlistIndex(BloomFilter bloomFilter, Map<String, Entry> exactIndex, Entry[] names,
+                           int[][] nameGrams, Map<String, Integer> gramIds, int[][] postings, int entryCount) {
+        this.bloomFilter = bloomFilter;
+        this.exactIndex = exactIndex;
+        this.names = names;
+        this.nameGrams = nameGrams;
+        this.gramIds = gramIds;
+        this.postings = postings;
+        this.entryCount = entryCount;
+    }
+
+    /**
+     * 空索引
+     */
+    public static WatchlistIndex empty() {
+        return build(Collections.emptyList());
+    }
+
+    /**
+     * 構建索引
+     *
+     * @param entries 名單條目
+     * @return 索引
+     */
+    public static WatchlistIndex build(List<Entry> entries) {
+        Map<String, Entry> exactIndex = new HashMap<>(Math.max(16, entries.size() * 2));
+        List<Entry> nameEntries = new ArrayList<>();
+        for (Entry entry : entries) {
+            String key = exactKey(entry.getType(), entry.getValue());
+            if (key == null) {
+                continue;
+            }
+            exactIndex.putIfAbsent(key, entry);
+            if (entry.getType() == EntryType.NAME) {
+                nameEntries.add(entry);
+            }
+        }
+
+        BloomFilter bloomFilter = new BloomFilter(exactIndex.size(), 0.01);
+        for (String key : exactIndex.keySet()) {
+            bloomFilter.put(key);
+        }
+
+        // 姓名n-gram倒排索引
+        Map<String, Integer> gramIds = new HashMap<>();
+        List<int[]> postingBuilders = new ArrayList<>();
+        int[] postingSizes = new int[16];
+        Entry[] names = nameEntries.toArray(new Entry[0]);
+        int[][] nameGrams = new int[names.length][];
+
+        for (int nameId = 0; nameId < names.length; nameId++) {
+            List<String> grams = grams(normalizeName(names[nameId].getValue()));
+            int[] ids = new int[grams.size()];
+            for (int i = 0; i < grams.size(); i++) {
+                Integer gramId = gramIds.get(grams.get(i));
+                if (gramId == null) {
+                    gramId = gramIds.size();
+                    gramIds.put(grams.get(i), gramId);
+                    postingBuilders.add(new int[4]);
+                    if (gramId >= postingSizes.length) {
+                        postingSizes = Arrays.copyOf(postingSizes, postingSizes.length * 2);
+                    }
+                }
+                ids[i] = gramId;
+
+                int[] posting = postingBuilders.get(gramId);
+                int size = postingSizes[gramId];
+                if (size == posting.length) {
+                    posting = Arrays.copyOf(posting, size * 2);
+                    postingBuilders.set(gramId, posting);
+                }
+                posting[size] = nameId;
+                postingSizes[gramId] = size + 1;
+            }
+            Arrays.sort(ids);
+            nameGrams[nameId] = ids;
+        }
+
+        int[][] postings = new int[postingBuilders.size()][];
+        for (int gramId = 0; gramId < postings.length; gramId++) {
+            postings[gramId] = Arrays.copyOf(postingBuilders.get(gramId), postingSizes[gramId]);
+        }
+
+        return new WatchlistIndex(bloomFilter, exactIndex, names, nameGrams, gramIds, postings, entries.size());
+    }
+
+    /**
+     * 精確匹配
+     *
+     * @param type 類型
+     * @param value 待查值
+     * @return 命中條目，未命中返回null
+     */
+    public Entry matchExact(EntryType type, String value) {
+        String key = exactKey(type, value);
+        if (key == null || !bloomFilter.mightContain(key)) {
+            return null;
+        }
+        return exactIndex.get(key);
+    }
+
+    /**
+     * 姓名模糊匹配（Dice係數）
+     *
+     * @param name 姓名
+     * @param threshold 相似度閾值（0-1）
+     * @param limit 最多返回條數
+     * @return 按相似度降序的匹配結果
+     */
+    public List<Match> matchName(String name, double threshold, int limit) {
+        String normalized = normalizeName(name);
+        if (normalized.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Match> matches = new ArrayList<>();
+        Entry exact = matchExact(EntryType.NAME, name);
+        if (exact != null) {
+            matches.add(new Match(exact.getEntryId(), exact.getListName(), EntryType.NAME, exact.getValue(), 1.0, true));
+        }
+
+        List<String> grams = grams(normalized);
+        int[] queryIds = new int[grams.size()];
+        int known = 0;
+        for (String gram : grams) {
+            Integer gramId = gramIds.get(gram);
+            if (gramId != null) {
+                queryIds[known++] = gramId;
+            }
+        }
+        int unknown = grams.size() - known;
+        queryIds = Arrays.copyOf(queryIds, known);
+
+        // 前綴過濾：Dice >= t 時至少需要共享 ceil(t*q/(2-t)) 個gram，
+        // 候選必然出現在最稀有的 q-minShared+1 個gram之中（未收錄的gram視為最稀有）
+        int q = grams.size();
+        int minShared = Math.max(1, (int) Math.ceil(threshold * q / (2 - threshold)));
+        int prefixLength = q - minShared + 1 - unknown;
+        if (prefixLength > 0 && known > 0) {
+            int[] byRarity = queryIds.clone();
+            sortByPostingSize(byRarity);
+
+            int[] sortedQuery = queryIds.clone();
+            Arrays.sort(sortedQuery);
+
+            Set<Integer> seen = new HashSet<>();
+            for (int p = 0; p < Math.min(prefixLength, known); p++) {
+                for (int nameId : postings[byRarity[p]]) {
+                    if (!seen.add(nameId)) {
+                        continue;
+                    }
+                    int shared = intersectionSize(sortedQuery, nameGrams[nameId]);
+                    double score = 2.0 * shared / (q + nameGrams[nameId].length);
+                    if (score >= threshold) {
+                        Entry entry = names[nameId];
+                        if (exact == null || !exact.getEntryId().equals(entry.getEntryId())) {
+                            matches.add(new Match(entry.getEntryId(), entry.getListName(), EntryType.NAME,
+                                    entry.getValue(), score, false));
+                        }
+                    }
+                }
+            }
+        }
+
+        matches.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * 條目總數
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * 可做模糊匹配的姓名數
+     */
+    public int nameCount() {
+        return names.length;
+    }
+
+    /**
+     * 規範化姓名：NFKC、小寫、去除標點，拉丁名按詞排序以忽略姓名順序
+     */
+    public static String normalizeName(String name) {
+        if (name == null) {
+            return "";
+        }
+        String value = Normalizer.normalize(name, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        StringBuilder cleaned = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); ) {
+            int cp = value.codePointAt(i);
+            cleaned.appendCodePoint(Character.isLetterOrDigit(cp) ? cp : ' ');
+            i += Character.charCount(cp);
+        }
+        String collapsed = cleaned.toString().trim();
+        if (collapsed.isEmpty()) {
+            return "";
+        }
+        if (containsCjk(collapsed)) {
+            return collapsed.replace(" ", "");
+        }
+        String[] tokens = collapsed.split("\\s+");
+        Arrays.sort(tokens);
+        return String.join(" ", tokens);
+    }
+
+    /**
+     * 生成n-gram：中日韓文字用二元組，其他用帶邊界的三元組（去重）
+     */
+    static List<String> grams(String normalized) {
+        if (normalized.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int n = containsCjk(normalized) ? 2 : 3;
+        String padded = n == 3 ? " " + normalized + " " : normalized;
+        int[] codePoints = padded.codePoints().toArray();
+        List<String> grams = new ArrayList<>();
+        if (codePoints.length < n) {
+            grams.add(padded);
+            return grams;
+        }
+        Set<String> unique = new LinkedHashSet<>();
+        for (int i = 0; i + n <= codePoints.length; i++) {
+            unique.add(new String(codePoints, i, n));
+        }
+        grams.addAll(unique);
+        return grams;
+    }
+
+    private static boolean containsCjk(String value) {
+        return value.codePoints().anyMatch(cp -> {
+            Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+            return script == Character.UnicodeScript.HAN
+                    || script == Character.UnicodeScript.HIRAGANA
+                    || script == Character.UnicodeScript.KATAKANA
+                    || script == Character.UnicodeScript.HANGUL;
+        });
+    }
+
+    /**
+     * 生成精確匹配鍵（類型前綴 + 規範化值）
+     */
+    private static String exactKey(EntryType type, String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String normalized;
+        switch (type) {
+            case ID:
+                normalized = value.replaceAll("[\\s-]", "").toUpperCase(Locale.ROOT);
+                break;
+            case ADDRESS:
+                normalized = value.trim();
+                // EVM地址大小寫不敏感，TRON Base58地址區分大小寫
+                if (normalized.startsWith("0x") || normalized.startsWith("0X")) {
+                    normalized = normalized.toLowerCase(Locale.ROOT);
+                }
+                break;
+            default:
+                normalized = normalizeName(value);
+        }
+        return normalized.isEmpty() ? null : type.name().charAt(0) + ":" + normalized;
+    }
+
+    /**
+     * 按倒排表長度升序排列gram（插入排序，查詢gram數量很少）
+     */
+    private void sortByPostingSize(int[] ids) {
+        for (int i = 1; i < ids.length; i++) {
+            int current = ids[i];
+            int size = postings[current].length;
+            int j = i - 1;
+            while (j >= 0 && postings[ids[j]].length > size) {
+                ids[j + 1] = ids[j];
+                j--;
+            }
+            ids[j + 1] = current;
+        }
+    }
+
+    private static int intersectionSize(int[] a, int[] b) {
+        int i = 0;
+        int j = 0;
+        int shared = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * 緊湊Bloom過濾器（雙重哈希）
+     */
+    static final class BloomFilter {
+
+        private final long[] bits;
+        private final int bitCount;
+        private final int hashCount;
+
+        BloomFilter(int expectedInsertions, double falsePositiveRate) {
+            int n = Math.max(1, expectedInsertions);
+            long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bitCount = (int) Math.max(64, Math.min(m, Integer.MAX_VALUE - 63));
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+            this.bits = new long[(bitCount + 63) >>> 6];
+        }
+
+        void put(String key) {
+            long hash = hash64(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                int combined = h1 + i * h2;
+                int index = (combined & Integer.MAX_VALUE) % bitCount;
+                bits[index >>> 6] |= 1L << index;
+            }
+        }
+
+        boolean mightContain(String key) {
+            long hash = hash64(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                int combined = h1 + i * h2;
+                int index = (combined & Integer.MAX_VALUE) % bitCount;
+                if ((bits[index >>> 6] & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * FNV-1a 64位哈希並做一次位混合
+         */
+        private static long hash64(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b & 0xff;
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
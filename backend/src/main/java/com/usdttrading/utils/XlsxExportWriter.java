@@ -0,0 +1,227 @@
+package com.usdttrading.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * XLSX流式寫入器
+ * 直接按SpreadsheetML生成工作表XML寫入zip條目，文本使用內聯字符串（不建共享字符串表），
+ * 因此內存佔用與行數無關。單個工作表寫滿後自動續寫到新工作表並重複表頭；
+ * 工作簿、關係及內容類型等元數據在結尾寫入
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+public class XlsxExportWriter implements ExportWriter {
+
+    /**
+     * 每個工作表的數據行上限（Excel單表上限為1048576行）
+     */
+    static final int MAX_ROWS_PER_SHEET = 1_000_000;
+
+    /**
+     * 超過15位有效數字的數值在Excel中會丟失精度，改以文本寫入
+     */
+    private static final int MAX_NUMERIC_PRECISION = 15;
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+    private static final String MAIN_NS = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String REL_NS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String PACKAGE_REL_NS = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+    private final ZipOutputStream zip;
+    private final BufferedWriter writer;
+    private final String sheetName;
+    private final List<String> sheets = new ArrayList<>();
+    private List<String> header;
+    private int sheetRows;
+    private boolean sheetOpen;
+    private boolean finished;
+
+    public XlsxExportWriter(OutputStream out, String sheetName) {
+        this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+        this.writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 64 * 1024);
+        this.sheetName = sanitizeSheetName(sheetName);
+    }
+
+    @Override
+    public void writeHeader(List<String> titles) throws IOException {
+        this.header = List.copyOf(titles);
+        openSheet();
+    }
+
+    @Override
+    public void writeRow(List<Object> values) throws IOException {
+        if (!sheetOpen) {
+            openSheet();
+        } else if (sheetRows >= MAX_ROWS_PER_SHEET) {
+            closeSheet();
+            openSheet();
+        }
+        writeCells(values);
+        sheetRows++;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (!sheetOpen && sheets.isEmpty()) {
+            openSheet();
+        }
+        if (sheetOpen) {
+            closeSheet();
+        }
+        writeEntry("[Content_Types].xml", contentTypes());
+        writeEntry("_rels/.rels", XML_DECLARATION
+                + "<Relationships xmlns=\"" + PACKAGE_REL_NS + "\">"
+                + "<Relationship Id=\"rId1\" Type=\"" + REL_NS + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>");
+        writeEntry("xl/workbook.xml", workbook());
+        writeEntry("xl/_rels/workbook.xml.rels", workbookRels());
+        zip.finish();
+        zip.flush();
+        finished = true;
+    }
+
+    private void openSheet() throws IOException {
+        String suffix = sheets.isEmpty() ? "" : "_" + (sheets.size() + 1);
+        sheets.add(sheetName.substring(0, Math.min(sheetName.length(), 31 - suffix.length())) + suffix);
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheets.size() + ".xml"));
+        writer.write(XML_DECLARATION);
+        writer.write("<worksheet xmlns=\"" + MAIN_NS + "\"><sheetData>");
+        sheetOpen = true;
+        sheetRows = 0;
+        if (header != null) {
+            writeCells(header);
+        }
+    }
+
+    private void closeSheet() throws IOException {
+        writer.write("</sheetData></worksheet>");
+        writer.flush();
+        zip.closeEntry();
+        sheetOpen = false;
+    }
+
+    private void writeCells(List<?> values) throws IOException {
+        writer.write("<row>");
+        for (Object value : values) {
+            if (value == null) {
+                writer.write("<c/>");
+            } else if (isNumeric(value)) {
+                writer.write("<c><v>");
+                writer.write(ExportWriter.text(value));
+                writer.write("</v></c>");
+            } else {
+                writer.write("<c t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+                writeEscaped(ExportWriter.text(value));
+                writer.write("</t></is></c>");
+            }
+        }
+        writer.write("</row>");
+    }
+
+    private static boolean isNumeric(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return Math.abs(((Number) value).longValue()) < 1_000_000_000_000_000L;
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).precision() <= MAX_NUMERIC_PRECISION;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            return !Double.isNaN(d) && !Double.isInfinite(d);
+        }
+        return false;
+    }
+
+    /**
+     * XML轉義，並去除XML 1.0不允許的控制字符
+     */
+    private void writeEscaped(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    writer.write("&amp;");
+                    break;
+                case '<':
+                    writer.write("&lt;");
+                    break;
+                case '>':
+                    writer.write("&gt;");
+                    break;
+                case '"':
+                    writer.write("&quot;");
+                    break;
+                default:
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        writer.write(c);
+                    }
+            }
+        }
+    }
+
+    private void writeEntry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        writer.write(content);
+        writer.flush();
+        zip.closeEntry();
+    }
+
+    private String contentTypes() {
+        StringBuilder xml = new StringBuilder(XML_DECLARATION)
+                .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+                .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+                .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+                .append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+        for (int i = 1; i <= sheets.size(); i++) {
+            xml.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                    .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        return xml.append("</Types>").toString();
+    }
+
+    private String workbook() {
+        StringBuilder xml = new StringBuilder(XML_DECLARATION)
+                .append("<workbook xmlns=\"").append(MAIN_NS).append("\" xmlns:r=\"").append(REL_NS).append("\"><sheets>");
+        for (int i = 1; i <= sheets.size(); i++) {
+            xml.append("<sheet name=\"").append(escapeAttribute(sheets.get(i - 1)))
+                    .append("\" sheetId=\"").append(i).append("\" r:id=\"rId").append(i).append("\"/>");
+        }
+        return xml.append("</sheets></workbook>").toString();
+    }
+
+    private String workbookRels() {
+        StringBuilder xml = new StringBuilder(XML_DECLARATION)
+                .append("<Relationships xmlns=\"").append(PACKAGE_REL_NS).append("\">");
+        for (int i = 1; i <= sheets.size(); i++) {
+            xml.append("<Relationship Id=\"rId").append(i).append("\" Type=\"").append(REL_NS)
+                    .append("/worksheet\" Target=\"worksheets/sheet").append(i).append(".xml\"/>");
+        }
+        return xml.append("</Relationships>").toString();
+    }
+
+    private static String escapeAttribute(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /**
+     * 工作表名稱最多31個字符，且不能包含 \ / ? * [ ] :
+     */
+    private static String sanitizeSheetName(String name) {
+        String value = name == null || name.isBlank() ? "Sheet" : name.replaceAll("[\\\\/?*\\[\\]:]", "_");
+        return value.length() > 31 ? value.substring(0, 31) : value;
+    }
+}
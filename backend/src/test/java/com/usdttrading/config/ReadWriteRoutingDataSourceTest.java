@@ -0,0 +1,199 @@
+package com.usdttrading.config;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.alibaba.druid.pool.DruidPooledConnection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 讀寫分離路由測試（只讀事務分配從庫、寫後讀主庫、延遲檢查及故障回退）
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private DruidDataSource primary;
+    private DruidPooledConnection primaryConnection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = mock(DruidDataSource.class);
+        primaryConnection = mock(DruidPooledConnection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void routesReadOnlyTransactionsRoundRobinAcrossHealthyReplicas() throws SQLException {
+        DruidDataSource first = replica("replica-1", 0L);
+        DruidDataSource second = replica("replica-2", 1L);
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, List.of(first, second), 5);
+        dataSource.checkReplicas();
+
+        readOnlyTransaction();
+        DruidPooledConnection a = (DruidPooledConnection) dataSource.getConnection();
+        DruidPooledConnection b = (DruidPooledConnection) dataSource.getConnection();
+        DruidPooledConnection c = (DruidPooledConnection) dataSource.getConnection();
+
+        assertSame(first.getConnection(), a);
+        assertSame(second.getConnection(), b);
+        assertSame(first.getConnection(), c);
+        assertEquals(3L, dataSource.getStatus().get("replicaRoutes"));
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void keepsRequestOnPrimaryAfterWrite() throws SQLException {
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, List.of(replica("replica-1", 0L)), 5);
+        dataSource.checkReplicas();
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        assertSame(primaryConnection, dataSource.getConnection());
+
+        readOnlyTransaction();
+        assertSame(primaryConnection, dataSource.getConnection());
+
+        assertEquals(1L, dataSource.getStatus().get("primaryRoutes"));
+        assertEquals(1L, dataSource.getStatus().get("stickyRoutes"));
+        assertEquals(0L, dataSource.getStatus().get("replicaRoutes"));
+    }
+
+    @Test
+    void writesOutsideRequestDoNotPinLaterReads() throws SQLException {
+        RequestContextHolder.resetRequestAttributes();
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, List.of(replica("replica-1", 0L)), 5);
+        dataSource.checkReplicas();
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        dataSource.getConnection();
+        readOnlyTransaction();
+        dataSource.getConnection();
+
+        assertEquals(1L, dataSource.getStatus().get("replicaRoutes"));
+        assertEquals(0L, dataSource.getStatus().get("stickyRoutes"));
+    }
+
+    /**
+     * 延遲為空表示複製未運行；閾值5秒，等於閾值仍可用
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "0,  true",
+            "5,  true",
+            "6,  false",
+            "  , false"
+    })
+    void admitsReplicaOnlyWithinLagThreshold(Long lagSeconds, boolean healthy) throws SQLException {
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, List.of(replica("replica-1", lagSeconds)), 5);
+
+        dataSource.checkReplicas();
+
+        assertEquals(healthy ? 1 : 0, dataSource.getStatus().get("healthyReplicas"));
+        Map<?, ?> state = (Map<?, ?>) ((Map<?, ?>) dataSource.getStatus().get("replicaStates")).get("replica-1");
+        assertEquals(healthy, state.get("healthy"));
+        assertEquals(lagSeconds, state.get("lagSeconds"));
+    }
+
+    @Test
+    void fallsBackToLegacyReplicationStatement() throws SQLException {
+        DruidDataSource legacy = mock(DruidDataSource.class);
+        when(legacy.getName()).thenReturn("replica-legacy");
+        DruidPooledConnection connection = mock(DruidPooledConnection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet rs = lagResult("Seconds_Behind_Master", 2L);
+        when(legacy.getConnection(anyLong())).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery("SHOW REPLICA STATUS")).thenThrow(new SQLException("You have an error in your SQL syntax"));
+        when(statement.executeQuery("SHOW SLAVE STATUS")).thenReturn(rs);
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, List.of(legacy), 5);
+
+        dataSource.checkReplicas();
+
+        assertEquals(1, dataSource.getStatus().get("healthyReplicas"));
+        verify(connection).close();
+    }
+
+    @Test
+    void fallsBackToPrimaryAndEvictsReplicaOnConnectFailure() throws SQLException {
+        DruidDataSource broken = replica("replica-1", 0L);
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, List.of(broken), 5);
+        dataSource.checkReplicas();
+        when(broken.getConnection()).thenThrow(new SQLException("Communications link failure"));
+
+        readOnlyTransaction();
+        assertSame(primaryConnection, dataSource.getConnection());
+        assertSame(primaryConnection, dataSource.getConnection());
+
+        verify(broken).getConnection();
+        assertEquals(0, dataSource.getStatus().get("healthyReplicas"));
+        assertEquals(2L, dataSource.getStatus().get("fallbacks"));
+    }
+
+    @Test
+    void unwrapsToPrimaryPool() throws SQLException {
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, List.of(), 5);
+        when(primary.unwrap(DruidDataSource.class)).thenReturn(primary);
+
+        assertSame(dataSource, dataSource.unwrap(ReadWriteRoutingDataSource.class));
+        assertSame(primary, dataSource.unwrap(DruidDataSource.class));
+    }
+
+    private static void readOnlyTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    }
+
+    /**
+     * 模擬從庫：檢查連接返回給定延遲，路由連接為獨立的模擬連接
+     */
+    private static DruidDataSource replica(String name, Long lagSeconds) throws SQLException {
+        DruidDataSource replica = mock(DruidDataSource.class);
+        when(replica.getName()).thenReturn(name);
+        DruidPooledConnection checkConnection = mock(DruidPooledConnection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet rs = lagResult("Seconds_Behind_Source", lagSeconds);
+        when(replica.getConnection(anyLong())).thenReturn(checkConnection);
+        when(checkConnection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery("SHOW REPLICA STATUS")).thenReturn(rs);
+        when(replica.getConnection()).thenReturn(mock(DruidPooledConnection.class));
+        return replica;
+    }
+
+    private static ResultSet lagResult(String column, Long lagSeconds) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(true);
+        when(rs.getLong(column)).thenReturn(lagSeconds != null ? lagSeconds : 0L);
+        when(rs.wasNull()).thenReturn(lagSeconds == null);
+        return rs;
+    }
+}
@@ -0,0 +1,130 @@
+package com.usdttrading.config;
+
+import com.usdttrading.entity.User;
+import com.usdttrading.entity.Wallet;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Redis值類型化序列化器測試
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class TypedRedisSerializerTest {
+
+    private final TypedRedisSerializer serializer = new TypedRedisSerializer(List.of(Wallet.class));
+
+    @Test
+    void writesIntegersAsIncrCompatibleText() {
+        assertArrayEquals("42".getBytes(StandardCharsets.US_ASCII), serializer.serialize(42));
+        assertArrayEquals("-7".getBytes(StandardCharsets.US_ASCII), serializer.serialize(-7L));
+
+        assertEquals(42, serializer.deserialize(serializer.serialize(42)));
+        assertEquals(-7, serializer.deserialize(serializer.serialize(-7L)));
+        assertEquals(9_000_000_000L, serializer.deserialize(serializer.serialize(9_000_000_000L)));
+        // INCR之後Redis中的值
+        assertEquals(6, serializer.deserialize("6".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void writesStringsAsJsonText() {
+        // 驗證碼比對腳本按字節比較，編碼不能依賴部署版本
+        assertArrayEquals("\"482913\"".getBytes(StandardCharsets.UTF_8), serializer.serialize("482913"));
+        assertArrayEquals("\"設備 \\\"A\\\"\"".getBytes(StandardCharsets.UTF_8), serializer.serialize("設備 \"A\""));
+        assertEquals("設備 \"A\"", serializer.deserialize(serializer.serialize("設備 \"A\"")));
+    }
+
+    @Test
+    void roundTripsScalars() {
+        assertEquals("USDT", serializer.deserialize(serializer.serialize("USDT")));
+        assertEquals("12345", serializer.deserialize(serializer.serialize("12345")));
+        assertEquals(Boolean.TRUE, serializer.deserialize(serializer.serialize(Boolean.TRUE)));
+        assertEquals(new BigDecimal("31.2500"), serializer.deserialize(serializer.serialize(new BigDecimal("31.2500"))));
+    }
+
+    @Test
+    void roundTripsMapsWithOriginalValueTypes() {
+        LocalDateTime lastUpdate = LocalDateTime.of(2025, 8, 19, 10, 30, 15);
+        Map<String, Object> price = new LinkedHashMap<>();
+        price.put("buyPrice", new BigDecimal("31.25"));
+        price.put("sellPrice", new BigDecimal("30.75"));
+        price.put("lastUpdate", lastUpdate);
+        price.put("count", 3L);
+
+        Object restored = serializer.deserialize(serializer.serialize(price));
+
+        assertInstanceOf(Map.class, restored);
+        Map<?, ?> map = (Map<?, ?>) restored;
+        assertEquals(new BigDecimal("31.25"), map.get("buyPrice"));
+        assertEquals(new BigDecimal("30.75"), map.get("sellPrice"));
+        assertEquals(lastUpdate, map.get("lastUpdate"));
+        assertEquals(3L, map.get("count"));
+    }
+
+    @Test
+    void roundTripsRegisteredEntities() {
+        Wallet wallet = new Wallet();
+        wallet.setId(1001L);
+        wallet.setUserId(42L);
+        wallet.setUsdtBalance(new BigDecimal("1500.123456"));
+        wallet.setFrozenUsdt(new BigDecimal("20.000000"));
+
+        Object restored = serializer.deserialize(serializer.serialize(wallet));
+
+        assertInstanceOf(Wallet.class, restored);
+        Wallet copy = (Wallet) restored;
+        assertEquals(1001L, copy.getId());
+        assertEquals(42L, copy.getUserId());
+        assertEquals(new BigDecimal("1500.123456"), copy.getUsdtBalance());
+        assertEquals(new BigDecimal("20.000000"), copy.getFrozenUsdt());
+    }
+
+    @Test
+    void readsLegacyJsonText() {
+        Object restored = serializer.deserialize("{\"buyPrice\":31.25,\"source\":\"legacy\"}".getBytes(StandardCharsets.UTF_8));
+
+        assertInstanceOf(Map.class, restored);
+        Map<?, ?> map = (Map<?, ?>) restored;
+        assertEquals(new BigDecimal("31.25"), map.get("buyPrice"));
+        assertEquals("legacy", map.get("source"));
+        assertEquals("legacy", serializer.deserialize("\"legacy\"".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void entityFingerprintMismatchIsMissButOtherValuesStayReadable() {
+        // 模擬實體字段變化後的新版本節點
+        TypedRedisSerializer upgraded = new TypedRedisSerializer(List.of(Wallet.class, User.class));
+        Wallet wallet = new Wallet();
+        wallet.setUserId(42L);
+        Map<String, Object> device = new LinkedHashMap<>();
+        device.put("ip", "203.0.113.7");
+        device.put("loginTime", LocalDateTime.of(2025, 8, 19, 8, 0));
+
+        assertNull(upgraded.deserialize(serializer.serialize(wallet)));
+        assertEquals("refresh-token-value", upgraded.deserialize(serializer.serialize("refresh-token-value")));
+        assertArrayEquals(serializer.serialize("482913"), upgraded.serialize("482913"));
+        assertEquals(device, upgraded.deserialize(serializer.serialize(device)));
+        assertEquals(new BigDecimal("1.50"), upgraded.deserialize(serializer.serialize(new BigDecimal("1.50"))));
+        assertEquals(5, upgraded.deserialize(serializer.serialize(5)));
+    }
+
+    @Test
+    void mapsNullToEmpty() {
+        assertArrayEquals(new byte[0], serializer.serialize(null));
+        assertNull(serializer.deserialize(new byte[0]));
+        assertNull(serializer.deserialize(null));
+    }
+}
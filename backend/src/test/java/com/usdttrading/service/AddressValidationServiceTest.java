@@ -0,0 +1,150 @@
+package com.usdttrading.service;
+
+import com.usdttrading.utils.TronAddressUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 鏈上地址校驗及結果緩存測試
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class AddressValidationServiceTest {
+
+    private static final String USDT_CONTRACT = "TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t";
+
+    private AddressValidationService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AddressValidationService();
+        ReflectionTestUtils.setField(service, "cacheSize", 20000);
+        ReflectionTestUtils.setField(service, "batchMaxSize", 3);
+        service.init();
+    }
+
+    /**
+     * EIP-55規範中的示例地址及其全小寫、全大寫形式
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "TRC20, TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t,         TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t,         true",
+            "ERC20, 0x5aAeb6053F3E94C9b9A09f33669435E7Ef1BeAed, 0x5aAeb6053F3E94C9b9A09f33669435E7Ef1BeAed, true",
+            "ERC20, 0xfB6916095ca1df60bB79Ce92cE3Ea74c37c5d359, 0xfB6916095ca1df60bB79Ce92cE3Ea74c37c5d359, true",
+            "ERC20, 0xdbf03b407c01e7cd3cbea99509d93f8dddc8c6fb, 0xdbF03B407c01E7cD3CBea99509d93f8DDDC8C6FB, false",
+            "ERC20, 0xD1220A0CF47C7B9BE7A2E6BA89F429762E7B9ADB, 0xD1220A0cf47c7B9Be7A2E6BA89F429762e7b9aDb, false",
+            "erc20, 0xD1220A0cf47c7B9Be7A2E6BA89F429762e7b9aDb, 0xD1220A0cf47c7B9Be7A2E6BA89F429762e7b9aDb, true"
+    })
+    void acceptsValidAddresses(String network, String address, String normalized, boolean checksummed) {
+        AddressValidationService.ValidationResult result = service.validate(address, network);
+
+        assertTrue(result.isValid());
+        assertEquals(normalized, result.getNormalizedAddress());
+        assertEquals(checksummed, result.isChecksummed());
+        assertNull(result.getReason());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "TRC20, TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6u,         TRON地址校驗和錯誤",
+            "TRC20, TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6,          TRON地址應為T開頭的34位字符",
+            "TRC20, AR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t,         TRON地址應為T開頭的34位字符",
+            "TRC20, TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj0t,         TRON地址校驗和錯誤",
+            "ERC20, 0x5aAeb6053F3E94C9b9A09f33669435E7Ef1BeAeD, 以太坊地址EIP-55校驗和錯誤",
+            "ERC20, 0x5aAeb6053F3E94C9b9A09f33669435E7Ef1BeAe,  以太坊地址應為0x開頭的40位十六進制",
+            "ERC20, 0x5aAeb6053F3E94C9b9A09f33669435E7Ef1BeAeg, 以太坊地址應為0x開頭的40位十六進制",
+            "BEP20, 0x5aAeb6053F3E94C9b9A09f33669435E7Ef1BeAed, 不支持的網絡類型"
+    })
+    void rejectsInvalidAddresses(String network, String address, String reason) {
+        AddressValidationService.ValidationResult result = service.validate(address, network);
+
+        assertFalse(result.isValid());
+        assertNull(result.getNormalizedAddress());
+        assertEquals(reason, result.getReason());
+        assertEquals(reason, result.toMap().get("message"));
+    }
+
+    @Test
+    void acceptsAddressesDerivedFromHex() {
+        for (int i = 1; i <= 50; i++) {
+            String hex = String.format("%040x", i * 0x9E3779B97F4A7C15L);
+            assertTrue(service.isValid(TronAddressUtil.fromHex(hex), "TRC20"));
+        }
+    }
+
+    @Test
+    void servesRepeatedLookupsFromCache() {
+        AddressValidationService.ValidationResult first = service.validate(USDT_CONTRACT, "TRC20");
+        AddressValidationService.ValidationResult second = service.validate(USDT_CONTRACT, " trc20 ");
+
+        assertSame(first, second);
+        assertEquals(1L, service.getStatus().get("hits"));
+        assertEquals(1L, service.getStatus().get("misses"));
+        assertEquals(1, service.getStatus().get("cacheSize"));
+        // 網絡不同則結果不同，分開緩存
+        assertFalse(service.isValid(USDT_CONTRACT, "ERC20"));
+        assertEquals(2, service.getStatus().get("cacheSize"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesAtCapacity() {
+        ReflectionTestUtils.setField(service, "cacheSize", 32);
+        service.init();
+
+        for (int i = 0; i < 500; i++) {
+            service.validate(TronAddressUtil.fromHex(String.format("%040x", i)), "TRC20");
+        }
+
+        int size = (Integer) service.getStatus().get("cacheSize");
+        assertTrue(size <= 32, "cache grew to " + size);
+        assertEquals(500L, service.getStatus().get("misses"));
+    }
+
+    @Test
+    void rejectsMissingAddressWithoutCaching() {
+        assertEquals("地址不能為空", service.validate("", "TRC20").getReason());
+        assertEquals("地址不能為空", service.validate(null, "TRC20").getReason());
+        assertEquals(0, service.getStatus().get("cacheSize"));
+    }
+
+    @Test
+    void validatesBatchInRequestOrder() {
+        List<AddressValidationService.AddressQuery> queries = List.of(
+                new AddressValidationService.AddressQuery("0x5aAeb6053F3E94C9b9A09f33669435E7Ef1BeAeD", "ERC20"),
+                new AddressValidationService.AddressQuery(USDT_CONTRACT, "TRC20"),
+                new AddressValidationService.AddressQuery(USDT_CONTRACT, "TRC20"));
+
+        List<Boolean> valid = new ArrayList<>();
+        for (AddressValidationService.ValidationResult result : service.validateBatch(queries)) {
+            valid.add(result.isValid());
+        }
+
+        assertEquals(List.of(false, true, true), valid);
+        assertEquals(1L, service.getStatus().get("hits"));
+    }
+
+    @Test
+    void rejectsOversizedBatch() {
+        List<AddressValidationService.AddressQuery> queries = Collections.nCopies(4,
+                new AddressValidationService.AddressQuery(USDT_CONTRACT, "TRC20"));
+
+        assertThrows(IllegalArgumentException.class, () -> service.validateBatch(queries));
+        assertEquals(0L, service.getStatus().get("misses"));
+    }
+}
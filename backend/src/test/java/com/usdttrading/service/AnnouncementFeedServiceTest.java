@@ -0,0 +1,184 @@
+package com.usdttrading.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.usdttrading.entity.Announcement;
+import com.usdttrading.repository.AnnouncementMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 公告流快照測試（受眾劃分、發布邊界重算及跨節點刷新）
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class AnnouncementFeedServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private AnnouncementMapper announcementMapper;
+    private StringRedisTemplate stringRedisTemplate;
+    private AnnouncementFeedService feedService;
+    private List<Announcement> candidates;
+
+    @BeforeEach
+    void setUp() {
+        announcementMapper = mock(AnnouncementMapper.class);
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        feedService = new AnnouncementFeedService(announcementMapper, objectMapper, stringRedisTemplate,
+                mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(feedService, "candidateLimit", 500);
+        ReflectionTestUtils.setField(feedService, "feedSize", 50);
+
+        LocalDateTime published = LocalDateTime.now().minusDays(1);
+        candidates = new ArrayList<>();
+        candidates.add(announcement(1L, "all", "系統維護通知", true, published, null));
+        candidates.add(announcement(2L, "users", "提現手續費調整", false, published, null));
+        candidates.add(announcement(3L, "vip", "VIP專屬費率", true, published, null));
+        candidates.add(announcement(4L, "admins", "後台升級", false, published, null));
+        candidates.add(announcement(5L, "all", "已過期活動", false, published, published.plusHours(1)));
+        when(announcementMapper.selectFeedCandidates(500)).thenAnswer(invocation -> new ArrayList<>(candidates));
+    }
+
+    /**
+     * VIP同時可見面向已登錄用戶的公告；未知受眾回退到公開快照
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "all,     1",
+            "users,   1 2",
+            "vip,     1 2 3",
+            "' VIP ', 1 2 3",
+            "admins,  1 4",
+            "guests,  1"
+    })
+    void buildsSnapshotPerAudience(String audience, String expectedIds) throws IOException {
+        AnnouncementFeedService.FeedSnapshot snapshot = feedService.getFeed(audience);
+
+        assertEquals(expectedIds, ids(snapshot.getFeedBody()));
+    }
+
+    @Test
+    void popupBodyContainsOnlyPopups() throws IOException {
+        assertEquals("1 3", ids(feedService.getFeed(AnnouncementFeedService.AUDIENCE_VIP).getPopupBody()));
+        assertEquals("1", ids(feedService.getFeed(AnnouncementFeedService.AUDIENCE_USERS).getPopupBody()));
+    }
+
+    @Test
+    void loadsOnceAndServesFromMemory() {
+        for (int i = 0; i < 100; i++) {
+            feedService.getFeed(AnnouncementFeedService.AUDIENCE_USERS);
+        }
+
+        verify(announcementMapper, times(1)).selectFeedCandidates(anyInt());
+        assertEquals(100L, feedService.getStatus().get("served"));
+    }
+
+    @Test
+    void publishesScheduledAnnouncementAtBoundaryWithoutReloading() throws Exception {
+        candidates.add(announcement(6L, "all", "新幣種上線", false, LocalDateTime.now().plusNanos(300_000_000L), null));
+
+        assertEquals("1", ids(feedService.getFeed(AnnouncementFeedService.AUDIENCE_ALL).getFeedBody()));
+        feedService.checkBoundary();
+        assertEquals("1", ids(feedService.getFeed(AnnouncementFeedService.AUDIENCE_ALL).getFeedBody()));
+
+        Thread.sleep(400);
+        feedService.checkBoundary();
+
+        assertEquals("1 6", ids(feedService.getFeed(AnnouncementFeedService.AUDIENCE_ALL).getFeedBody()));
+        verify(announcementMapper, times(1)).selectFeedCandidates(anyInt());
+        assertEquals(2L, feedService.getStatus().get("rematerializations"));
+    }
+
+    @Test
+    void keepsEtagWhenContentIsUnchanged() {
+        String usersEtag = feedService.getFeed(AnnouncementFeedService.AUDIENCE_USERS).getFeedEtag();
+        String allEtag = feedService.getFeed(AnnouncementFeedService.AUDIENCE_ALL).getFeedEtag();
+
+        feedService.periodicReload();
+        assertEquals(usersEtag, feedService.getFeed(AnnouncementFeedService.AUDIENCE_USERS).getFeedEtag());
+
+        candidates.get(1).setContent("手續費下調至1 USDT");
+        feedService.periodicReload();
+        assertNotEquals(usersEtag, feedService.getFeed(AnnouncementFeedService.AUDIENCE_USERS).getFeedEtag());
+        // 公開快照不含該公告，ETag不變
+        assertEquals(allEtag, feedService.getFeed(AnnouncementFeedService.AUDIENCE_ALL).getFeedEtag());
+    }
+
+    @Test
+    void limitsFeedSize() throws IOException {
+        ReflectionTestUtils.setField(feedService, "feedSize", 2);
+
+        assertEquals("1 2", ids(feedService.getFeed(AnnouncementFeedService.AUDIENCE_VIP).getFeedBody()));
+        // 彈窗不受列表長度限制
+        assertEquals("1 3", ids(feedService.getFeed(AnnouncementFeedService.AUDIENCE_VIP).getPopupBody()));
+    }
+
+    @Test
+    void refreshNotifiesOtherNodesAndIgnoresOwnEcho() {
+        feedService.refresh();
+        String nodeId = (String) ReflectionTestUtils.getField(feedService, "nodeId");
+        verify(stringRedisTemplate).convertAndSend(eq("announcement:refresh"), eq(nodeId));
+
+        feedService.onMessage(message(nodeId), null);
+        verify(announcementMapper, times(1)).selectFeedCandidates(anyInt());
+
+        feedService.onMessage(message("other-node"), null);
+        verify(announcementMapper, times(2)).selectFeedCandidates(anyInt());
+    }
+
+    private String ids(byte[] body) throws IOException {
+        StringBuilder ids = new StringBuilder();
+        for (JsonNode item : objectMapper.readTree(body).get("data")) {
+            if (ids.length() > 0) {
+                ids.append(' ');
+            }
+            ids.append(item.get("id").asText());
+        }
+        return ids.toString();
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("announcement:refresh".getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Announcement announcement(Long id, String audience, String title, boolean popup,
+                                             LocalDateTime publishAt, LocalDateTime expireAt) {
+        Announcement announcement = new Announcement();
+        announcement.setId(id);
+        announcement.setTitle(title);
+        announcement.setContent(title + "，詳見公告內容");
+        announcement.setType("info");
+        announcement.setPriority("normal");
+        announcement.setTargetAudience(audience);
+        announcement.setIsActive(true);
+        announcement.setIsPopup(popup);
+        announcement.setPublishAt(publishAt);
+        announcement.setExpireAt(expireAt);
+        return announcement;
+    }
+}
@@ -0,0 +1,182 @@
+package com.usdttrading.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 歸檔分段存儲測試（列式行組寫入、清單統計、校驗讀取及原子改名）
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class ArchiveSegmentStoreTest {
+
+    private static final List<String> COLUMNS = List.of("id", "symbol", "price");
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2025, 5, 1, 0, 0);
+
+    @TempDir
+    Path archiveDir;
+
+    private ArchiveSegmentStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new ArchiveSegmentStore(new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(store, "archiveDir", archiveDir.toString());
+    }
+
+    @Test
+    void writesSegmentAndRecordsManifest() throws IOException {
+        ArchiveSegmentStore.Manifest manifest = write("price_history", 101, 105);
+
+        assertEquals("price_history-101-105", manifest.getSegment());
+        assertEquals(ArchiveSegmentStore.STATUS_WRITTEN, manifest.getStatus());
+        assertEquals(5, manifest.getRows());
+        assertEquals(101 + 102 + 103 + 104 + 105, manifest.getIdSum());
+        assertEquals(CUTOFF.minusDays(30).plusMinutes(101), manifest.getMinTime());
+        assertEquals(CUTOFF.minusDays(30).plusMinutes(105), manifest.getMaxTime());
+        assertEquals(Files.size(archiveDir.resolve("price_history/price_history-101-105.seg.gz")), manifest.getBytes());
+        assertTrue(Files.exists(archiveDir.resolve("price_history/price_history-101-105.manifest.json")));
+        // 改名後不留臨時文件
+        assertEquals(2, files("price_history").size());
+    }
+
+    @Test
+    void scanMatchesManifestChecksums() throws IOException {
+        ArchiveSegmentStore.Manifest manifest = write("price_history", 1, 250);
+
+        ArchiveSegmentStore.ScanResult result = store.scan(manifest, null);
+
+        assertEquals(manifest.getRows(), result.getRows());
+        assertEquals(manifest.getIdSum(), result.getIdSum());
+        assertEquals(manifest.getSha256(), result.getSha256());
+    }
+
+    @Test
+    void restoresRowsFromColumnarGroups() throws IOException {
+        ArchiveSegmentStore.Manifest manifest = write("price_history", 1, 5);
+        List<Map<String, Object>> rows = new ArrayList<>();
+
+        store.scan(manifest, rows::add);
+
+        assertEquals(5, rows.size());
+        assertEquals(List.of("id", "symbol", "price"), new ArrayList<>(rows.get(2).keySet()));
+        assertEquals(3, ((Number) rows.get(2).get("id")).intValue());
+        assertEquals("USDT/TWD", rows.get(2).get("symbol"));
+        assertEquals("32.03", rows.get(2).get("price"));
+    }
+
+    @Test
+    void stopsScanWhenConsumerDeclines() throws IOException {
+        ArchiveSegmentStore.Manifest manifest = write("price_history", 1, 10);
+
+        ArchiveSegmentStore.ScanResult result = store.scan(manifest, row -> ((Number) row.get("id")).intValue() < 4);
+
+        assertEquals(4, result.getRows());
+    }
+
+    @Test
+    void detectsModifiedSegment() throws IOException {
+        ArchiveSegmentStore.Manifest manifest = write("price_history", 1, 5);
+        Path segment = archiveDir.resolve("price_history/price_history-1-5.seg.gz");
+        // gzip流之後附加的字節不影響解壓，內容照常讀出，但摘要不同
+        Files.write(segment, new byte[16], StandardOpenOption.APPEND);
+
+        ArchiveSegmentStore.ScanResult result = store.scan(manifest, null);
+
+        assertEquals(manifest.getRows(), result.getRows());
+        assertNotEquals(manifest.getSha256(), result.getSha256());
+    }
+
+    @Test
+    void abortsUnfinishedSegmentOnClose() throws IOException {
+        try (ArchiveSegmentStore.SegmentWriter writer = store.open("audit_logs", "created_at", CUTOFF)) {
+            writer.writeRowGroup(COLUMNS, List.<Object[]>of(new Object[]{1L, "USDT/TWD", "32.00"}),
+                    new long[]{1L}, new LocalDateTime[]{CUTOFF.minusDays(1)});
+        }
+
+        assertEquals(0, files("audit_logs").size());
+        assertTrue(store.list("audit_logs").isEmpty());
+    }
+
+    @Test
+    void listsManifestsByIdAndPersistsStatusChanges() throws IOException {
+        write("price_history", 501, 600);
+        ArchiveSegmentStore.Manifest first = write("price_history", 1, 100);
+        first.setStatus(ArchiveSegmentStore.STATUS_VERIFIED);
+        first.setVerifiedAt(CUTOFF);
+        store.save(first);
+        Files.writeString(archiveDir.resolve("price_history/broken.manifest.json"), "{not json");
+
+        List<ArchiveSegmentStore.Manifest> manifests = store.list("price_history");
+
+        assertEquals(2, manifests.size());
+        assertEquals(1L, manifests.get(0).getMinId());
+        assertEquals(ArchiveSegmentStore.STATUS_VERIFIED, manifests.get(0).getStatus());
+        assertEquals(CUTOFF, manifests.get(0).getVerifiedAt());
+        assertEquals(501L, manifests.get(1).getMinId());
+    }
+
+    @Test
+    void deletesSegmentAndManifest() throws IOException {
+        ArchiveSegmentStore.Manifest manifest = write("price_history", 1, 5);
+
+        store.delete(manifest);
+
+        assertFalse(Files.exists(archiveDir.resolve("price_history/price_history-1-5.seg.gz")));
+        assertTrue(store.list("price_history").isEmpty());
+        assertTrue(store.list("never_archived").isEmpty());
+    }
+
+    /**
+     * 寫入ID連續的分段，每100行一個行組
+     */
+    private ArchiveSegmentStore.Manifest write(String table, long fromId, long toId) throws IOException {
+        try (ArchiveSegmentStore.SegmentWriter writer = store.open(table, "created_at", CUTOFF)) {
+            for (long start = fromId; start <= toId; start += 100) {
+                long end = Math.min(toId, start + 99);
+                int size = (int) (end - start + 1);
+                List<Object[]> rows = new ArrayList<>(size);
+                long[] ids = new long[size];
+                LocalDateTime[] times = new LocalDateTime[size];
+                for (int i = 0; i < size; i++) {
+                    long id = start + i;
+                    rows.add(new Object[]{id, "USDT/TWD", String.format("32.%02d", id % 100)});
+                    ids[i] = id;
+                    times[i] = CUTOFF.minusDays(30).plusMinutes(id);
+                }
+                writer.writeRowGroup(COLUMNS, rows, ids, times);
+            }
+            return writer.finish();
+        }
+    }
+
+    private List<Path> files(String table) throws IOException {
+        Path dir = archiveDir.resolve(table);
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.toList();
+        }
+    }
+}
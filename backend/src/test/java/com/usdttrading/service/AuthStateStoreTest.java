@@ -0,0 +1,186 @@
+package com.usdttrading.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 認證狀態存儲測試（批量讀取、管道寫入及驗證碼原子消費）
+ * 管道回調在模擬的RedisOperations上執行，驗證每個流程的命令組合
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@ExtendWith(MockitoExtension.class)
+class AuthStateStoreTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+    @Mock
+    private RedisOperations<String, Object> operations;
+
+    @InjectMocks
+    private AuthStateStore store;
+
+    @Test
+    void readsAllKeysInOneRoundTrip() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(List.of("rate:login:ip", "rate:login:user", "login_code:alice")))
+                .thenReturn(Arrays.asList(3, null, "123456"));
+
+        List<Object> values = store.read("rate:login:ip", "rate:login:user", "login_code:alice");
+
+        assertEquals(Arrays.asList(3, null, "123456"), values);
+        verify(valueOperations, never()).get(anyString());
+    }
+
+    @Test
+    void readReturnsNullsWhenMultiGetYieldsNothing() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(List.of("a", "b"))).thenReturn(null);
+
+        assertEquals(Arrays.asList(null, null), store.read("a", "b"));
+    }
+
+    @Test
+    void convertsCounterValuesToAttempts() {
+        assertEquals(3, AuthStateStore.toAttempts(3));
+        assertEquals(5, AuthStateStore.toAttempts(5L));
+        assertEquals(0, AuthStateStore.toAttempts(null));
+        // 非數值一律按0次處理
+        assertEquals(0, AuthStateStore.toAttempts("3"));
+    }
+
+    @Test
+    void recordsAttemptWithIncrementAndExpireInOnePipeline() {
+        store.recordAttempt("rate:login:ip", 15, TimeUnit.MINUTES);
+
+        runPipeline();
+        InOrder order = inOrder(valueOperations, operations);
+        order.verify(valueOperations).increment("rate:login:ip");
+        order.verify(operations).expire("rate:login:ip", 15, TimeUnit.MINUTES);
+    }
+
+    @Test
+    void storesCodeAndCountsSendInOnePipeline() {
+        store.storeCode("email_code:a@b.com", "482913", 5, TimeUnit.MINUTES, "rate:email:a@b.com", 1, TimeUnit.HOURS);
+
+        runPipeline();
+        verify(valueOperations).set("email_code:a@b.com", "482913", 5, TimeUnit.MINUTES);
+        verify(valueOperations).increment("rate:email:a@b.com");
+        verify(operations).expire("rate:email:a@b.com", 1, TimeUnit.HOURS);
+    }
+
+    @Test
+    void completesLoginWithTokenDeviceAndCounterReset() {
+        Map<String, Object> deviceInfo = Map.of("ip", "10.0.0.1", "userAgent", "Mozilla/5.0");
+
+        store.completeLogin(42L, "refresh-abc", "fp-1", deviceInfo, "rate:login:alice");
+
+        runPipeline();
+        verify(valueOperations).set("refresh_token:42", "refresh-abc", 7, TimeUnit.DAYS);
+        verify(valueOperations).set("user_device:42:fp-1", deviceInfo, 30, TimeUnit.DAYS);
+        verify(operations).delete("rate:login:alice");
+    }
+
+    @Test
+    void completesRegistrationInOnePipeline() {
+        store.completeRegistration(42L, "refresh-abc", "register_code:a@b.com", "rate:register:ip", 1, TimeUnit.DAYS);
+
+        runPipeline();
+        verify(operations).delete("register_code:a@b.com");
+        verify(valueOperations).set("refresh_token:42", "refresh-abc", 7, TimeUnit.DAYS);
+        verify(valueOperations).increment("rate:register:ip");
+        verify(operations).expire("rate:register:ip", 1, TimeUnit.DAYS);
+    }
+
+    @Test
+    void revokesAccessAndRefreshTokens() {
+        store.revoke(42L, "access-xyz", 3_600_000L);
+
+        runPipeline();
+        verify(valueOperations).set("jwt_blacklist:access-xyz", "logout", 3_600_000L, TimeUnit.MILLISECONDS);
+        verify(operations).delete("refresh_token:42");
+    }
+
+    @Test
+    void revokeWithoutAccessTokenOnlyDeletesRefreshToken() {
+        store.revoke(42L, "", 3_600_000L);
+
+        runPipeline();
+        verify(operations).delete("refresh_token:42");
+        verifyNoMoreInteractions(valueOperations);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void consumesCodeAtomically() {
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of("email_code:a@b.com")), eq("482913")))
+                .thenReturn(AuthStateStore.CODE_CONSUMED);
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of("email_code:a@b.com")), eq("000000")))
+                .thenReturn(AuthStateStore.CODE_MISMATCH);
+
+        assertEquals(AuthStateStore.CODE_MISMATCH, store.consume("email_code:a@b.com", "000000"));
+        assertEquals(AuthStateStore.CODE_CONSUMED, store.consume("email_code:a@b.com", "482913"));
+    }
+
+    @Test
+    void treatsEmptyScriptResultAsMissing() {
+        assertEquals(AuthStateStore.CODE_MISSING, store.consume("reset_token:gone", "t"));
+    }
+
+    @Test
+    void readsRefreshTokenAsString() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("refresh_token:42")).thenReturn("refresh-abc");
+
+        assertEquals("refresh-abc", store.getRefreshToken(42L));
+    }
+
+    @Test
+    void returnsNullWhenRefreshTokenIsAbsent() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+
+        assertNull(store.getRefreshToken(7L));
+    }
+
+    /**
+     * 取出提交給executePipelined的回調，在模擬的連接操作上執行
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void runPipeline() {
+        ArgumentCaptor<SessionCallback> callback = ArgumentCaptor.forClass(SessionCallback.class);
+        verify(redisTemplate).executePipelined(callback.capture());
+        lenient().when(operations.opsForValue()).thenReturn(valueOperations);
+        callback.getValue().execute(operations);
+    }
+}
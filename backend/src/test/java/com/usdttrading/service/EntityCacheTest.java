@@ -0,0 +1,278 @@
+package com.usdttrading.service;
+
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import com.usdttrading.entity.User;
+import com.usdttrading.entity.UserKyc;
+import com.usdttrading.entity.Wallet;
+import com.usdttrading.repository.UserKycMapper;
+import com.usdttrading.repository.UserMapper;
+import com.usdttrading.repository.WalletMapper;
+import org.apache.ibatis.binding.MapperMethod;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 實體二級緩存測試（本地及Redis命中、脫敏副本、寫後失效及跨節點通知）
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@ExtendWith(MockitoExtension.class)
+class EntityCacheTest {
+
+    @Mock
+    private UserMapper userMapper;
+    @Mock
+    private UserKycMapper userKycMapper;
+    @Mock
+    private WalletMapper walletMapper;
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+    @Mock
+    private ValueOperations<String, String> stringValueOperations;
+
+    private EntityCache entityCache;
+
+    @BeforeEach
+    void setUp() {
+        entityCache = new EntityCache(userMapper, userKycMapper, walletMapper, redisTemplate, stringRedisTemplate,
+                listenerContainer);
+        ReflectionTestUtils.setField(entityCache, "enabled", true);
+        ReflectionTestUtils.setField(entityCache, "localSize", 1600);
+        ReflectionTestUtils.setField(entityCache, "localTtlSeconds", 60L);
+        ReflectionTestUtils.setField(entityCache, "redisTtlSeconds", 600L);
+        entityCache.init();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void loadsSanitizedCopyOnceAndServesLocally() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(userMapper.selectById(42L)).thenReturn(user(42L));
+
+        User first = entityCache.getUser(42L);
+        User second = entityCache.getUser(42L);
+
+        assertSame(first, second);
+        assertEquals("alice", first.getUsername());
+        assertNull(first.getPasswordHash());
+        assertNull(first.getSalt());
+        assertNull(first.getGoogleAuthKey());
+        verify(userMapper, times(1)).selectById(42L);
+        verify(valueOperations, times(1)).get("entity:user:0:42");
+        // 回填腳本同時檢查墓碑
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of("entity:user:0:42", "entity:user:tomb:42")),
+                eq(first), eq(600_000L));
+        assertEquals(1L, regionStatus("user").get("localHits"));
+        assertEquals(1L, regionStatus("user").get("loads"));
+    }
+
+    @Test
+    void servesRedisHitWithoutDatabase() {
+        Wallet cached = new Wallet();
+        cached.setUserId(42L);
+        cached.setBalance(new BigDecimal("1250.00"));
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get("entity:wallet:0:42")).thenReturn(cached);
+
+        assertSame(cached, entityCache.getWallet(42L));
+
+        verifyNoInteractions(walletMapper);
+        assertEquals(1L, regionStatus("wallet").get("redisHits"));
+    }
+
+    @Test
+    void keepsOnlyEligibilityFieldsOfKyc() {
+        UserKyc kyc = new UserKyc();
+        kyc.setId(5L);
+        kyc.setUserId(42L);
+        kyc.setRealName("王小明");
+        kyc.setIdNumber("A123456789");
+        kyc.setBankAccount("812-1234567890");
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(userKycMapper.selectByUserId(42L)).thenReturn(kyc);
+
+        UserKyc view = entityCache.getUserKyc(42L);
+
+        assertEquals(42L, view.getUserId());
+        assertNull(view.getRealName());
+        assertNull(view.getIdNumber());
+        assertNull(view.getBankAccount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void invalidatesKeyAndNotifiesOtherNodesAfterUpdate() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(userMapper.selectById(42L)).thenReturn(user(42L));
+        entityCache.getUser(42L);
+
+        entityCache.onMapperUpdate("com.usdttrading.repository.UserMapper.updateById", paramMap(user(42L), false));
+        entityCache.getUser(42L);
+
+        verify(stringRedisTemplate).executePipelined(any(SessionCallback.class));
+        verify(stringRedisTemplate).convertAndSend(eq("entity-cache:invalidate"), endsWith("|user|42|0"));
+        verify(userMapper, times(2)).selectById(42L);
+        assertEquals(1L, regionStatus("user").get("invalidations"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void defersInvalidationUntilTransactionCompletes() {
+        Wallet wallet = new Wallet();
+        wallet.setUserId(42L);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            entityCache.onMapperUpdate("com.usdttrading.repository.WalletMapper.insert", wallet);
+            verify(stringRedisTemplate, never()).executePipelined(any(SessionCallback.class));
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // 回滾同樣失效
+        verify(stringRedisTemplate).executePipelined(any(SessionCallback.class));
+        verify(stringRedisTemplate).convertAndSend(eq("entity-cache:invalidate"), endsWith("|wallet|42|0"));
+    }
+
+    @Test
+    void bumpsGenerationForWrapperUpdates() {
+        when(stringRedisTemplate.opsForValue()).thenReturn(stringValueOperations);
+        when(stringValueOperations.increment("entity:user:gen")).thenReturn(3L);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+
+        entityCache.onMapperUpdate("com.usdttrading.repository.UserMapper.update", paramMap(user(42L), true));
+        entityCache.getUser(42L);
+
+        verify(valueOperations).get("entity:user:3:42");
+        verify(stringRedisTemplate).convertAndSend(eq("entity-cache:invalidate"), endsWith("|user||3"));
+        assertEquals(1L, regionStatus("user").get("regionInvalidations"));
+    }
+
+    /**
+     * 其他表（含名稱前綴相同的Mapper）的寫入不影響緩存
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "com.usdttrading.repository.OrderMapper.updateById",
+            "com.usdttrading.repository.WalletSweepMapper.insert",
+            "com.usdttrading.repository.UserSessionMapper.batchTouchSessions"
+    })
+    void ignoresStatementsOfOtherMappers(String statementId) {
+        entityCache.onMapperUpdate(statementId, Map.of("userId", 42L));
+
+        verify(stringRedisTemplate, never()).convertAndSend(anyString(), anyString());
+        assertEquals(0L, regionStatus("user").get("invalidations"));
+        assertEquals(0L, regionStatus("wallet").get("invalidations"));
+    }
+
+    @Test
+    void evictsOnRemoteNotificationButIgnoresOwnEcho() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(userMapper.selectById(42L)).thenReturn(user(42L));
+        entityCache.getUser(42L);
+        String nodeId = (String) ReflectionTestUtils.getField(entityCache, "nodeId");
+
+        entityCache.onMessage(message(nodeId + "|user|42|0"), null);
+        entityCache.getUser(42L);
+        verify(userMapper, times(1)).selectById(42L);
+
+        entityCache.onMessage(message("other-node|user|42|0"), null);
+        entityCache.getUser(42L);
+        verify(userMapper, times(2)).selectById(42L);
+    }
+
+    @Test
+    void adoptsRemoteRegionGeneration() {
+        entityCache.onMessage(message("other-node|kyc||7"), null);
+
+        assertEquals(7L, regionStatus("kyc").get("generation"));
+        assertEquals(0L, regionStatus("user").get("generation"));
+    }
+
+    @Test
+    void bypassesCachesWhenDisabled() {
+        ReflectionTestUtils.setField(entityCache, "enabled", false);
+        when(userMapper.selectById(42L)).thenReturn(user(42L));
+
+        entityCache.getUser(42L);
+        entityCache.getUser(42L);
+
+        verify(userMapper, times(2)).selectById(42L);
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> regionStatus(String region) {
+        return (Map<String, Object>) entityCache.getStatus().get(region);
+    }
+
+    private static MapperMethod.ParamMap<Object> paramMap(Object entity, boolean withWrapper) {
+        MapperMethod.ParamMap<Object> params = new MapperMethod.ParamMap<>();
+        params.put(Constants.ENTITY, entity);
+        if (withWrapper) {
+            params.put(Constants.WRAPPER, new UpdateWrapper<User>().eq("status", "ACTIVE"));
+        }
+        return params;
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("entity-cache:invalidate".getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("alice");
+        user.setEmail("alice@example.com");
+        user.setPasswordHash("$2a$10$7EqJtq98hPqEX7fNZaFWoO");
+        user.setSalt("c2FsdA==");
+        user.setGoogleAuthKey("JBSWY3DPEHPK3PXP");
+        return user;
+    }
+}
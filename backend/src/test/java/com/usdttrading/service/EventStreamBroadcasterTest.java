@@ -0,0 +1,199 @@
+package com.usdttrading.service;
+
+import cn.hutool.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * SSE推送廣播測試（按用戶投遞、行情合併、隊列溢出及跨節點轉發）
+ * 推送連接未綁定HTTP響應，已發送的事件保存在SseEmitter的早期發送緩衝中；
+ * 測試持有SseEmitter的監視器即可阻塞發送線程，模擬慢客戶端
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class EventStreamBroadcasterTest {
+
+    private StringRedisTemplate stringRedisTemplate;
+    private RedisMessageListenerContainer listenerContainer;
+    private EventStreamBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        listenerContainer = mock(RedisMessageListenerContainer.class);
+        broadcaster = new EventStreamBroadcaster(stringRedisTemplate, listenerContainer);
+        ReflectionTestUtils.setField(broadcaster, "enabled", true);
+        ReflectionTestUtils.setField(broadcaster, "timeoutMs", 60_000L);
+        ReflectionTestUtils.setField(broadcaster, "bufferSize", 2);
+        ReflectionTestUtils.setField(broadcaster, "maxConnections", 3);
+        ReflectionTestUtils.setField(broadcaster, "maxConnectionsPerUser", 2);
+        broadcaster.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.destroy();
+    }
+
+    @Test
+    void subscribesToRelayChannel() {
+        verify(listenerContainer).addMessageListener(eq(broadcaster), eq(new ChannelTopic("stream:events")));
+    }
+
+    @Test
+    void sendsPriceSnapshotToNewSubscriber() {
+        SseEmitter emitter = broadcaster.subscribe(1L, Map.of("buyPrice", "32.15"));
+
+        awaitUntil(() -> sent(emitter).contains("event:price"));
+        assertTrue(sent(emitter).contains("\"buyPrice\":\"32.15\""));
+    }
+
+    @Test
+    void deliversUserEventsOnlyToOwnerAndRelaysThem() {
+        SseEmitter owner = broadcaster.subscribe(1L, null);
+        SseEmitter other = broadcaster.subscribe(2L, null);
+
+        broadcaster.publishToUser(1L, EventStreamBroadcaster.EVENT_NOTIFICATION, Map.of("title", "提現已到賬"));
+
+        awaitUntil(() -> sent(owner).contains("event:notification"));
+        assertTrue(sent(owner).contains("提現已到賬"));
+        assertEquals("", sent(other));
+        verify(stringRedisTemplate, timeout(2000)).convertAndSend(eq("stream:events"),
+                argThat(body -> new JSONObject(body).getLong("userId") == 1L));
+    }
+
+    @Test
+    void rejectsConnectionsBeyondLimits() {
+        assertNotNull(broadcaster.subscribe(1L, null));
+        assertNotNull(broadcaster.subscribe(1L, null));
+        // 單用戶上限
+        assertNull(broadcaster.subscribe(1L, null));
+        assertNotNull(broadcaster.subscribe(2L, null));
+        // 全局上限
+        assertNull(broadcaster.subscribe(3L, null));
+
+        assertEquals(3, broadcaster.getStatus().get("connections"));
+        assertEquals(2L, broadcaster.getStatus().get("rejected"));
+    }
+
+    @Test
+    void keepsOnlyLatestPriceForSlowConnection() {
+        SseEmitter emitter = broadcaster.subscribe(1L, null);
+
+        synchronized (emitter) {
+            for (int i = 1; i <= 20; i++) {
+                broadcaster.publishPrice(Map.of("seq", i));
+            }
+        }
+
+        // 每條行情要麼發出，要麼被後一條覆蓋
+        awaitUntil(() -> (Long) broadcaster.getStatus().get("delivered") + (Long) broadcaster.getStatus().get("coalesced") == 20);
+        assertTrue(sent(emitter).contains("\"seq\":20"));
+        int sentPrices = sent(emitter).split("event:price", -1).length - 1;
+        assertTrue(sentPrices < 20, "sent " + sentPrices + " prices");
+    }
+
+    @Test
+    void asksOverflowedClientToResyncAndCloses() {
+        SseEmitter emitter = broadcaster.subscribe(1L, null);
+
+        synchronized (emitter) {
+            // 緩衝2條，發送線程最多再取走1條
+            for (int i = 1; i <= 5; i++) {
+                broadcaster.publishToUser(1L, EventStreamBroadcaster.EVENT_ORDER, Map.of("seq", i));
+            }
+        }
+
+        awaitUntil(() -> sent(emitter).contains("event:resync"));
+        awaitUntil(() -> (Integer) broadcaster.getStatus().get("connections") == 0);
+        assertEquals(1L, broadcaster.getStatus().get("overflowed"));
+        assertFalse(sent(emitter).contains("\"seq\":5"));
+        assertEquals(0, broadcaster.getStatus().get("users"));
+    }
+
+    @Test
+    void deliversRelayedEventsFromOtherNodesOnly() {
+        SseEmitter emitter = broadcaster.subscribe(7L, null);
+        String ownNode = (String) ReflectionTestUtils.getField(broadcaster, "nodeId");
+
+        broadcaster.onMessage(relayed(ownNode, 7L, "{\"seq\":1}"), null);
+        broadcaster.onMessage(relayed("other-node", 7L, "{\"seq\":2}"), null);
+
+        awaitUntil(() -> sent(emitter).contains("\"seq\":2"));
+        assertFalse(sent(emitter).contains("\"seq\":1"));
+        assertEquals(1L, broadcaster.getStatus().get("relayedIn"));
+    }
+
+    @Test
+    void sendsHeartbeatComment() {
+        SseEmitter emitter = broadcaster.subscribe(1L, null);
+
+        broadcaster.heartbeat();
+
+        awaitUntil(() -> sent(emitter).contains(":ping"));
+    }
+
+    private static DefaultMessage relayed(String node, Long userId, String data) {
+        JSONObject body = new JSONObject();
+        body.set("node", node);
+        body.set("event", EventStreamBroadcaster.EVENT_ORDER);
+        body.set("userId", userId);
+        body.set("data", data);
+        return new DefaultMessage("stream:events".getBytes(StandardCharsets.UTF_8),
+                body.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String sent(SseEmitter emitter) {
+        StringBuilder text = new StringBuilder();
+        synchronized (emitter) {
+            Set<ResponseBodyEmitter.DataWithMediaType> early =
+                    (Set<ResponseBodyEmitter.DataWithMediaType>) ReflectionTestUtils.getField(emitter, "earlySendAttempts");
+            for (ResponseBodyEmitter.DataWithMediaType item : early) {
+                text.append(item.getData());
+            }
+        }
+        return text.toString();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("condition not met within 2s");
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
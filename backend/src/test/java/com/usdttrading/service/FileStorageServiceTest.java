@@ -0,0 +1,117 @@
+package com.usdttrading.service;
+
+import com.usdttrading.dto.ApiResponse;
+import com.usdttrading.entity.KycDocument;
+import com.usdttrading.repository.KycDocumentMapper;
+import com.usdttrading.utils.FileProcessingUtil;
+import com.usdttrading.utils.StreamingFileCipher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * KYC文件簽名URL測試
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@ExtendWith(MockitoExtension.class)
+class FileStorageServiceTest {
+
+    @Mock
+    private KycDocumentMapper kycDocumentMapper;
+    @Mock
+    private FileProcessingUtil fileProcessingUtil;
+    @Mock
+    private StreamingFileCipher streamingFileCipher;
+
+    @InjectMocks
+    private FileStorageService fileStorageService;
+
+    @BeforeEach
+    void setUp() {
+        byte[] key = new byte[32];
+        Arrays.fill(key, (byte) 7);
+        ReflectionTestUtils.setField(fileStorageService, "urlSigningKeyBase64", Base64.getEncoder().encodeToString(key));
+        fileStorageService.init();
+    }
+
+    @Test
+    void signedUrlVerifiesOnlyForItsDocumentAndOwner() {
+        KycDocument document = new KycDocument();
+        document.setId(5L);
+        document.setUserId(42L);
+        when(kycDocumentMapper.selectById(5L)).thenReturn(document);
+
+        ApiResponse<String> response = fileStorageService.getSignedFileUrl(5L, 42L);
+
+        assertTrue(response.isSuccess());
+        UriComponents url = UriComponentsBuilder.fromUriString(response.getData()).build();
+        assertEquals("/api/kyc/file/5/content", url.getPath());
+        MultiValueMap<String, String> query = url.getQueryParams();
+        long expires = Long.parseLong(query.getFirst("expires"));
+        String signature = query.getFirst("signature");
+
+        assertTrue(fileStorageService.verifySignedUrl(5L, 42L, expires, signature));
+        assertFalse(fileStorageService.verifySignedUrl(6L, 42L, expires, signature));
+        assertFalse(fileStorageService.verifySignedUrl(5L, 43L, expires, signature));
+        assertFalse(fileStorageService.verifySignedUrl(5L, 42L, expires + 60_000, signature));
+        assertFalse(fileStorageService.verifySignedUrl(5L, 42L, expires, signature.substring(1) + "A"));
+        assertFalse(fileStorageService.verifySignedUrl(5L, 42L, null, signature));
+        // 簽發URL不計入訪問次數
+        verify(kycDocumentMapper, never()).incrementAccessCount(anyLong(), any());
+    }
+
+    @Test
+    void rejectsExpiredSignature() {
+        long expired = System.currentTimeMillis() - 1000;
+        String signature = ReflectionTestUtils.invokeMethod(fileStorageService, "sign", 5L, 42L, expired);
+
+        assertFalse(fileStorageService.verifySignedUrl(5L, 42L, expired, signature));
+    }
+
+    @Test
+    void refusesSignedUrlForOtherUsersDocument() {
+        KycDocument document = new KycDocument();
+        document.setId(5L);
+        document.setUserId(42L);
+        when(kycDocumentMapper.selectById(5L)).thenReturn(document);
+
+        assertFalse(fileStorageService.getSignedFileUrl(5L, 7L).isSuccess());
+    }
+
+    /**
+     * 未配置或長度不足32字節的密鑰拒絕啟動
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"", "c2hvcnQta2V5"})
+    void refusesToStartWithoutUsableSigningKey(String key) {
+        FileStorageService unconfigured = new FileStorageService(kycDocumentMapper, fileProcessingUtil, streamingFileCipher);
+        ReflectionTestUtils.setField(unconfigured, "urlSigningKeyBase64", key);
+
+        assertThrows(IllegalStateException.class, unconfigured::init);
+    }
+}
@@ -0,0 +1,194 @@
+package com.usdttrading.service;
+
+import com.usdttrading.entity.KycDocument;
+import com.usdttrading.repository.KycDocumentMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * KYC文件下發服務測試（區間請求、條件請求及訪問計數）
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@ExtendWith(MockitoExtension.class)
+class KycFileServingServiceTest {
+
+    private static final byte[] CONTENT = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    @Mock
+    private KycDocumentMapper kycDocumentMapper;
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @InjectMocks
+    private KycFileServingService servingService;
+
+    @TempDir
+    Path uploadDir;
+
+    private Path file;
+    private KycDocument document;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.write(uploadDir.resolve("id-front.png"), CONTENT);
+        document = new KycDocument();
+        document.setId(5L);
+        document.setUserId(42L);
+        document.setMimeType("image/png");
+        document.setOriginalFileName("id-front.png");
+        document.setFileMd5("9e107d9d372bb6826bd81d3542a419d6");
+        request = new MockHttpServletRequest("GET", "/api/kyc/file/5/content");
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    void servesWholeFileAndCountsAccess() throws IOException {
+        givenStoredFile(false);
+
+        servingService.serveDocument(5L, 42L, false, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(16, response.getContentLength());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertArrayEquals(CONTENT, response.getContentAsByteArray());
+        verify(kycDocumentMapper).incrementAccessCount(eq(5L), any());
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "bytes=4-7,   4,  7,  4567",
+            "bytes=-4,    12, 15, cdef",
+            "bytes=10-,   10, 15, abcdef",
+            "bytes=14-99, 14, 15, ef"
+    })
+    void servesRequestedRangeWithoutCountingAccess(String range, long start, long end, String body) throws IOException {
+        givenStoredFile(false);
+        request.addHeader(HttpHeaders.RANGE, range);
+
+        servingService.serveDocument(5L, 42L, false, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes " + start + "-" + end + "/16", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(body, response.getContentAsString());
+        verify(kycDocumentMapper, never()).incrementAccessCount(anyLong(), any());
+    }
+
+    @Test
+    void rejectsRangeBeyondEndOfFile() throws IOException {
+        givenStoredFile(false);
+        request.addHeader(HttpHeaders.RANGE, "bytes=16-");
+
+        servingService.serveDocument(5L, 42L, false, request, response);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */16", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void answersNotModifiedWhenETagMatches() throws IOException {
+        givenStoredFile(false);
+        servingService.serveDocument(5L, 42L, false, request, response);
+        String etag = response.getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest revalidate = new MockHttpServletRequest("GET", "/api/kyc/file/5/content");
+        revalidate.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        servingService.serveDocument(5L, 42L, false, revalidate, notModified);
+
+        assertEquals(304, notModified.getStatus());
+        assertEquals(0, notModified.getContentAsByteArray().length);
+        verify(kycDocumentMapper, times(1)).incrementAccessCount(eq(5L), any());
+    }
+
+    @Test
+    void headRequestSendsHeadersOnly() throws IOException {
+        givenStoredFile(false);
+        request.setMethod("HEAD");
+
+        servingService.serveDocument(5L, 42L, false, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(16, response.getContentLength());
+        assertEquals(0, response.getContentAsByteArray().length);
+        verify(kycDocumentMapper, never()).incrementAccessCount(anyLong(), any());
+    }
+
+    @Test
+    void handsPlainFileToContainerSendfile() throws IOException {
+        givenStoredFile(false);
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-9");
+
+        servingService.serveDocument(5L, 42L, false, request, response);
+
+        assertEquals(file.toAbsolutePath().toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(2L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(10L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void decryptsPlaintextRangeOfEncryptedFile() throws IOException {
+        givenStoredFile(true);
+        when(fileStorageService.getDecryptedLength(file)).thenReturn(100L);
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=50-59");
+
+        servingService.serveDocument(5L, 42L, false, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 50-59/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(10, response.getContentLength());
+        verify(fileStorageService).copyDecryptedRange(eq(file), eq(50L), eq(10L), any());
+        // 密文不能交給容器直接發送
+        assertNull(request.getAttribute("org.apache.tomcat.sendfile.filename"));
+    }
+
+    @Test
+    void rejectsOtherUsersDocument() throws IOException {
+        when(kycDocumentMapper.selectById(5L)).thenReturn(document);
+
+        servingService.serveDocument(5L, 7L, false, request, response);
+
+        assertEquals(403, response.getStatus());
+        verify(fileStorageService, never()).resolveDocumentPath(any());
+    }
+
+    private void givenStoredFile(boolean encrypted) throws IOException {
+        when(kycDocumentMapper.selectById(5L)).thenReturn(document);
+        when(fileStorageService.resolveDocumentPath(document)).thenReturn(file);
+        when(fileStorageService.isEncryptedFile(file)).thenReturn(encrypted);
+    }
+}
@@ -0,0 +1,122 @@
+package com.usdttrading.service;
+
+import com.usdttrading.entity.KycRiskAssessment;
+import com.usdttrading.entity.UserKyc;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * KYC風險檢查流水線測試（併發執行、超時及失敗降級）
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class KycRiskCheckPipelineTest {
+
+    private KycRiskCheckPipeline pipeline;
+    private UserKyc kyc;
+    private KycRiskAssessment assessment;
+
+    @BeforeEach
+    void setUp() {
+        pipeline = new KycRiskCheckPipeline();
+        kyc = new UserKyc();
+        kyc.setId(11L);
+        kyc.setUserId(42L);
+        assessment = new KycRiskAssessment();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.destroy();
+    }
+
+    @Test
+    void runsChecksConcurrently() {
+        // 三項檢查互相等待，順序執行時必然超時
+        CountDownLatch allStarted = new CountDownLatch(3);
+        KycRiskCheck blacklist = rendezvous("blacklist", allStarted, a -> a.setBlacklistCheck(true));
+        KycRiskCheck duplicate = rendezvous("duplicate", allStarted, a -> a.setDuplicateCheck(false));
+        KycRiskCheck aml = rendezvous("aml", allStarted, a -> a.setAmlCheck(true));
+
+        Map<String, KycRiskCheckPipeline.CheckRecord> records = pipeline.run(kyc, List.of(blacklist, duplicate, aml), assessment);
+
+        assertIterableEquals(List.of("blacklist", "duplicate", "aml"), records.keySet());
+        records.values().forEach(record -> assertEquals(KycRiskCheckPipeline.STATUS_OK, record.getStatus()));
+        assertEquals(Boolean.TRUE, assessment.getBlacklistCheck());
+        assertEquals(Boolean.FALSE, assessment.getDuplicateCheck());
+        assertEquals(Boolean.TRUE, assessment.getAmlCheck());
+    }
+
+    @Test
+    void appliesFallbackWhenCheckTimesOut() {
+        KycRiskCheck slow = KycRiskCheck.of("sanctions", 100, k -> {
+            Thread.sleep(10_000);
+            return a -> a.setBlacklistCheck(true);
+        }, a -> a.setRequiresManualReview(true));
+        KycRiskCheck fast = KycRiskCheck.of("duplicate", 1000, k -> a -> a.setDuplicateCheck(true), a -> { });
+
+        long start = System.nanoTime();
+        Map<String, KycRiskCheckPipeline.CheckRecord> records = pipeline.run(kyc, List.of(slow, fast), assessment);
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+        assertEquals(KycRiskCheckPipeline.STATUS_TIMEOUT, records.get("sanctions").getStatus());
+        assertEquals(KycRiskCheckPipeline.STATUS_OK, records.get("duplicate").getStatus());
+        assertNull(assessment.getBlacklistCheck());
+        assertEquals(Boolean.TRUE, assessment.getRequiresManualReview());
+        assertEquals(Boolean.TRUE, assessment.getDuplicateCheck());
+    }
+
+    @Test
+    void appliesFallbackWhenCheckFails() {
+        KycRiskCheck failing = KycRiskCheck.of("aml", 1000, k -> {
+            throw new IllegalStateException("AML provider unavailable");
+        }, a -> a.setAmlCheck(false));
+
+        Map<String, KycRiskCheckPipeline.CheckRecord> records = pipeline.run(kyc, List.of(failing), assessment);
+
+        assertEquals(KycRiskCheckPipeline.STATUS_ERROR, records.get("aml").getStatus());
+        assertEquals(Boolean.FALSE, assessment.getAmlCheck());
+    }
+
+    @Test
+    void writesResultsOnCallingThread() {
+        AtomicReference<Thread> checkThread = new AtomicReference<>();
+        AtomicReference<Thread> applyThread = new AtomicReference<>();
+        KycRiskCheck check = KycRiskCheck.of("identity", 1000, k -> {
+            checkThread.set(Thread.currentThread());
+            return a -> applyThread.set(Thread.currentThread());
+        }, a -> { });
+
+        pipeline.run(kyc, List.of(check), assessment);
+
+        assertTrue(checkThread.get().isVirtual());
+        assertSame(Thread.currentThread(), applyThread.get());
+    }
+
+    private static KycRiskCheck rendezvous(String name, CountDownLatch allStarted,
+                                           Consumer<KycRiskAssessment> result) {
+        return KycRiskCheck.of(name, 5000, k -> {
+            allStarted.countDown();
+            if (!allStarted.await(3, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("checks did not overlap");
+            }
+            return result;
+        }, a -> { });
+    }
+}
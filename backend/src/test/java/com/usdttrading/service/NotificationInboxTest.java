@@ -0,0 +1,211 @@
+package com.usdttrading.service;
+
+import cn.hutool.json.JSONUtil;
+import com.usdttrading.entity.Notification;
+import com.usdttrading.enums.NotificationCategory;
+import com.usdttrading.enums.NotificationPriority;
+import com.usdttrading.enums.NotificationStatus;
+import com.usdttrading.enums.NotificationType;
+import com.usdttrading.repository.NotificationMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 站內信收件箱緩存測試（提交後更新、從庫重建及對賬）
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@ExtendWith(MockitoExtension.class)
+class NotificationInboxTest {
+
+    private static final List<String> USER_KEYS = List.of("notify:{42}:unread", "notify:{42}:inbox");
+    private static final String TTL_SECONDS = "604800";
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+    @Mock
+    private NotificationMapper notificationMapper;
+    @Mock
+    private LeaderElectionService leaderElectionService;
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @InjectMocks
+    private NotificationInbox inbox;
+
+    private Notification notification;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(inbox, "inboxSize", 50);
+        ReflectionTestUtils.setField(inbox, "ttlHours", 168L);
+        notification = new Notification();
+        notification.setId(1822334455667788990L);
+        notification.setUserId(42L);
+        notification.setType(NotificationType.ORDER_COMPLETED);
+        notification.setCategory(NotificationCategory.ORDER);
+        notification.setPriority(NotificationPriority.NORMAL);
+        notification.setTitle("訂單完成");
+        notification.setContent("您的訂單已完成");
+        notification.setCreatedAt(LocalDateTime.of(2025, 8, 19, 10, 30));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void pushesNewNotificationOutsideTransaction() {
+        inbox.onCreated(notification);
+
+        ArgumentCaptor<String> item = ArgumentCaptor.forClass(String.class);
+        verify(stringRedisTemplate).execute(any(RedisScript.class), eq(USER_KEYS), eq("ORDER"), item.capture(),
+                eq("50"), eq(TTL_SECONDS));
+        Map<String, Object> view = NotificationInbox.toView(notification);
+        assertEquals(view, JSONUtil.parseObj(item.getValue()));
+        // 雪花ID以字符串保存，Lua cjson解析不丟精度
+        assertEquals("1822334455667788990", view.get("id"));
+        assertEquals("UNREAD", view.get("status"));
+        assertEquals("2025-08-19 10:30:00", view.get("createdAt"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void defersCacheUpdateUntilCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            inbox.onRead(42L, 7L, NotificationCategory.SECURITY);
+            verifyNoInteractions(stringRedisTemplate);
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(stringRedisTemplate).execute(any(RedisScript.class), eq(USER_KEYS), eq("SECURITY"), eq("7"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void swallowsRedisFailures() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), eq(USER_KEYS), eq("")))
+                .thenThrow(new IllegalStateException("READONLY"));
+
+        assertDoesNotThrow(() -> inbox.onReadAll(42L, null));
+    }
+
+    @Test
+    void readsCountsFromCacheWithoutDatabase() {
+        when(stringRedisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        Map<Object, Object> cached = new LinkedHashMap<>();
+        cached.put("_v", "12");
+        cached.put("_inbox", "1");
+        cached.put("ORDER", "3");
+        cached.put("SECURITY", "-1");
+        cached.put("SYSTEM", "2");
+        when(hashOperations.entries("notify:{42}:unread")).thenReturn(cached);
+
+        Map<String, Long> counts = inbox.getUnreadCounts(42L);
+
+        assertEquals(Map.of("ORDER", 3L, "SECURITY", 0L, "SYSTEM", 2L, "total", 5L), counts);
+        verifyNoInteractions(notificationMapper);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rebuildsCountsOnFirstRead() {
+        when(stringRedisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.entries("notify:{42}:unread"))
+                .thenReturn(Map.of())
+                .thenReturn(Map.of("_v", "1", "ORDER", "4"));
+        when(notificationMapper.countUnreadByCategory(42L)).thenReturn(List.of(Map.of("category", "ORDER", "cnt", 4L)));
+
+        Map<String, Long> counts = inbox.getUnreadCounts(42L);
+
+        // 期望版本為空串：只在其他線程未搶先初始化時寫入
+        verify(stringRedisTemplate).execute(any(RedisScript.class), eq(List.of("notify:{42}:unread")),
+                eq(""), eq(TTL_SECONDS), eq("ORDER"), eq("4"));
+        assertEquals(4L, counts.get("total"));
+        assertEquals(1L, inbox.getStatus().get("rebuilds"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rebuildsInboxListAgainstCurrentVersion() {
+        when(stringRedisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.get("notify:{42}:unread", "_v")).thenReturn("9");
+        when(hashOperations.hasKey("notify:{42}:unread", "_inbox")).thenReturn(false);
+        notification.setStatus(NotificationStatus.READ);
+        when(notificationMapper.selectLatestByUserId(42L, 50)).thenReturn(List.of(notification));
+
+        List<Map<String, Object>> latest = inbox.getLatest(42L);
+
+        assertEquals(1, latest.size());
+        assertEquals("READ", latest.get(0).get("status"));
+        verify(stringRedisTemplate).execute(any(RedisScript.class), eq(USER_KEYS), eq("9"), eq(TTL_SECONDS), any());
+        verify(notificationMapper, never()).countUnreadByCategory(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcilerCorrectsOnlyDriftedCounts() {
+        when(leaderElectionService.isLeader("notification-inbox-reconciler")).thenReturn(true);
+        Cursor<String> cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenReturn(true, true, false);
+        when(cursor.next()).thenReturn("notify:{1}:unread", "notify:{2}:unread");
+        when(stringRedisTemplate.scan(any(ScanOptions.class))).thenReturn(cursor);
+        when(stringRedisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.entries("notify:{1}:unread")).thenReturn(Map.of("_v", "5", "ORDER", "2"));
+        when(hashOperations.entries("notify:{2}:unread")).thenReturn(Map.of("_v", "3", "ORDER", "1", "KYC", "0"));
+        when(notificationMapper.countUnreadByUsers(anyList())).thenReturn(List.of(
+                Map.of("userId", 1L, "category", "ORDER", "cnt", 2L),
+                Map.of("userId", 2L, "category", "ORDER", "cnt", 4L)));
+        when(stringRedisTemplate.execute(any(RedisScript.class), eq(List.of("notify:{2}:unread")),
+                eq("3"), eq(TTL_SECONDS), eq("ORDER"), eq("4"))).thenReturn(1L);
+
+        inbox.reconcile();
+
+        verify(stringRedisTemplate, never()).execute(any(RedisScript.class), eq(List.of("notify:{1}:unread")), any());
+        verify(cursor).close();
+        assertEquals(1L, inbox.getStatus().get("corrections"));
+    }
+
+    @Test
+    void skipsUnknownOrUncategorizedNotifications() {
+        notification.setCategory(null);
+
+        inbox.onCreated(notification);
+
+        verifyNoInteractions(stringRedisTemplate);
+    }
+}
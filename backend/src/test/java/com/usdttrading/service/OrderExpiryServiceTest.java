@@ -0,0 +1,199 @@
+package com.usdttrading.service;
+
+import com.usdttrading.entity.Order;
+import com.usdttrading.enums.OrderStatus;
+import com.usdttrading.enums.OrderType;
+import com.usdttrading.repository.OrderMapper;
+import com.usdttrading.repository.WalletMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 訂單過期服務批量處理測試
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@ExtendWith(MockitoExtension.class)
+class OrderExpiryServiceTest {
+
+    @Mock
+    private OrderMapper orderMapper;
+    @Mock
+    private WalletMapper walletMapper;
+    @Mock
+    private NotificationService notificationService;
+    @Mock
+    private EventStreamBroadcaster eventStreamBroadcaster;
+    @Mock
+    private LeaderElectionService leaderElectionService;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private OrderExpiryService orderExpiryService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(orderExpiryService, "leader", true);
+        ReflectionTestUtils.setField(orderExpiryService, "batchSize", 200);
+    }
+
+    @Test
+    void releasesFrozenUsdtOncePerUserAndExpiresBatch() {
+        Order first = order(1L, 7L, OrderType.SELL, "10");
+        Order second = order(2L, 7L, OrderType.SELL, "15");
+        Order buy = order(3L, 8L, OrderType.BUY, "20");
+        runInTransaction();
+        when(orderMapper.lockExpiredOrders(Set.of(1L, 2L, 3L))).thenReturn(List.of(first, second, buy));
+        when(walletMapper.releaseFrozenUsdt(7L, new BigDecimal("25"))).thenReturn(1);
+
+        enqueue(1L, 2L, 3L);
+        orderExpiryService.drainExpired();
+
+        verify(walletMapper).releaseFrozenUsdt(7L, new BigDecimal("25"));
+        verify(orderMapper).markExpired(eq(List.of(1L, 2L, 3L)), anyString(), any());
+        assertEquals(OrderStatus.EXPIRED, first.getOrderStatus());
+        assertEquals(OrderStatus.EXPIRED, buy.getOrderStatus());
+        verify(eventStreamBroadcaster).publishOrderStatus(first);
+        verify(eventStreamBroadcaster).publishOrderStatus(second);
+        verify(eventStreamBroadcaster).publishOrderStatus(buy);
+    }
+
+    @Test
+    void keepsSellOrdersPendingWhenReleaseFails() {
+        Order failed = order(1L, 7L, OrderType.SELL, "10");
+        Order released = order(2L, 8L, OrderType.SELL, "15");
+        Order buy = order(3L, 7L, OrderType.BUY, "20");
+        runInTransaction();
+        when(orderMapper.lockExpiredOrders(Set.of(1L, 2L, 3L))).thenReturn(List.of(failed, released, buy));
+        when(walletMapper.releaseFrozenUsdt(7L, new BigDecimal("10"))).thenReturn(0);
+        when(walletMapper.releaseFrozenUsdt(8L, new BigDecimal("15"))).thenReturn(1);
+
+        enqueue(1L, 2L, 3L);
+        orderExpiryService.drainExpired();
+
+        verify(orderMapper).markExpired(eq(List.of(2L, 3L)), anyString(), any());
+        assertEquals(OrderStatus.PENDING, failed.getOrderStatus());
+        assertEquals(OrderStatus.EXPIRED, released.getOrderStatus());
+        verify(eventStreamBroadcaster, never()).publishOrderStatus(failed);
+        verify(eventStreamBroadcaster).publishOrderStatus(released);
+    }
+
+    @Test
+    void skipsOrdersNoLongerPending() {
+        runInTransaction();
+        when(orderMapper.lockExpiredOrders(Set.of(1L))).thenReturn(Collections.emptyList());
+
+        enqueue(1L);
+        orderExpiryService.drainExpired();
+
+        verify(walletMapper, never()).releaseFrozenUsdt(anyLong(), any());
+        verify(orderMapper, never()).markExpired(anyCollection(), anyString(), any());
+        verify(eventStreamBroadcaster, never()).publishOrderStatus(any());
+    }
+
+    @Test
+    void followerDoesNotDrain() {
+        ReflectionTestUtils.setField(orderExpiryService, "leader", false);
+
+        enqueue(1L);
+        orderExpiryService.drainExpired();
+
+        verify(orderMapper, never()).lockExpiredOrders(anyCollection());
+    }
+
+    @Test
+    void rebuildsTimersOnceWhileLeaseIsRenewed() {
+        Order pending = order(1L, 7L, OrderType.BUY, "10");
+        pending.setPaymentDeadline(LocalDateTime.now().plusMinutes(30));
+        becomeCandidate();
+        when(leaderElectionService.isLeader("order-expiry")).thenReturn(true);
+        when(orderMapper.findPendingDeadlines(any(), eq(0L), eq(200))).thenReturn(List.of(pending));
+
+        orderExpiryService.renewLeadership();
+        orderExpiryService.renewLeadership();
+
+        verify(orderMapper, times(1)).findPendingDeadlines(any(), anyLong(), anyInt());
+        assertEquals(true, orderExpiryService.getStatus().get("leader"));
+        assertEquals(1, orderExpiryService.getStatus().get("scheduled"));
+    }
+
+    @Test
+    void clearsTimersWhenLeaseIsLost() {
+        Order pending = order(1L, 7L, OrderType.BUY, "10");
+        pending.setPaymentDeadline(LocalDateTime.now().plusMinutes(30));
+        becomeCandidate();
+        when(leaderElectionService.isLeader("order-expiry")).thenReturn(true, false);
+        when(orderMapper.findPendingDeadlines(any(), eq(0L), eq(200))).thenReturn(List.of(pending));
+
+        orderExpiryService.renewLeadership();
+        enqueue(1L);
+        orderExpiryService.renewLeadership();
+        orderExpiryService.drainExpired();
+
+        assertFalse((Boolean) orderExpiryService.getStatus().get("leader"));
+        assertEquals(0, orderExpiryService.getStatus().get("scheduled"));
+        assertEquals(0, orderExpiryService.getStatus().get("queued"));
+        verify(orderMapper, never()).lockExpiredOrders(anyCollection());
+    }
+
+    /**
+     * 時間輪不啟動刻度線程，只驗證登記及清空
+     */
+    private void becomeCandidate() {
+        ReflectionTestUtils.setField(orderExpiryService, "leader", false);
+        orderExpiryService.init();
+        ReflectionTestUtils.setField(orderExpiryService, "enabled", true);
+    }
+
+    private void runInTransaction() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void enqueue(Long... ids) {
+        Queue<Long> queue = (Queue<Long>) ReflectionTestUtils.getField(orderExpiryService, "expiredQueue");
+        Collections.addAll(queue, ids);
+    }
+
+    private static Order order(Long id, Long userId, OrderType type, String amount) {
+        Order order = new Order();
+        order.setId(id);
+        order.setUserId(userId);
+        order.setOrderNumber("ORD" + id);
+        order.setOrderType(type);
+        order.setOrderStatus(OrderStatus.PENDING);
+        order.setUsdtAmount(new BigDecimal(amount));
+        return order;
+    }
+}
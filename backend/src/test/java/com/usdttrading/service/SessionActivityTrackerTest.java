@@ -0,0 +1,211 @@
+package com.usdttrading.service;
+
+import com.usdttrading.entity.UserSession;
+import com.usdttrading.repository.UserSessionMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 會話活動寫後追蹤測試（合併刷新、回庫校驗及超時清理）
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@ExtendWith(MockitoExtension.class)
+class SessionActivityTrackerTest {
+
+    @Mock
+    private UserSessionMapper userSessionMapper;
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    private SessionActivityTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new SessionActivityTracker(userSessionMapper, redisTemplate);
+        ReflectionTestUtils.setField(tracker, "enabled", true);
+        ReflectionTestUtils.setField(tracker, "idleTimeoutMinutes", 30L);
+        ReflectionTestUtils.setField(tracker, "absoluteTimeoutMinutes", 1440L);
+        ReflectionTestUtils.setField(tracker, "flushIntervalMs", 5000L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void coalescesTouchesIntoOneBatchedUpdate() throws InterruptedException {
+        tracker.openSession(42L, "token-a", "10.0.0.1", "Mozilla/5.0", false);
+        ArgumentCaptor<UserSession> inserted = ArgumentCaptor.forClass(UserSession.class);
+        verify(userSessionMapper).insert(inserted.capture());
+        when(userSessionMapper.batchTouchSessions(anyList())).thenReturn(1);
+
+        Thread.sleep(5);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(tracker.touch("token-a"));
+        }
+        tracker.flush();
+        tracker.flush();
+
+        ArgumentCaptor<List<UserSession>> batch = ArgumentCaptor.forClass(List.class);
+        verify(userSessionMapper, times(1)).batchTouchSessions(batch.capture());
+        assertEquals(1, batch.getValue().size());
+        assertEquals(inserted.getValue().getSessionId(), batch.getValue().get(0).getSessionId());
+        assertTrue(batch.getValue().get(0).getLastActivity().isAfter(inserted.getValue().getLastActivity()));
+        verify(userSessionMapper, never()).selectAnyByToken(any());
+        assertEquals(100L, tracker.getStatus().get("touches"));
+        assertEquals(1L, tracker.getStatus().get("flushedRows"));
+    }
+
+    @Test
+    void retriesFailedFlushOnNextCycle() throws InterruptedException {
+        tracker.openSession(42L, "token-a", "10.0.0.1", "Mozilla/5.0", true);
+        when(userSessionMapper.batchTouchSessions(anyList()))
+                .thenThrow(new IllegalStateException("connection reset"))
+                .thenReturn(1);
+
+        Thread.sleep(5);
+        tracker.touch("token-a");
+        tracker.flush();
+        tracker.flush();
+
+        verify(userSessionMapper, times(2)).batchTouchSessions(anyList());
+        assertEquals(1L, tracker.getStatus().get("flushedRows"));
+    }
+
+    @Test
+    void cachesUnregisteredTokensWithoutCountingThem() {
+        assertTrue(tracker.touch("admin-token"));
+        assertTrue(tracker.touch("admin-token"));
+
+        verify(userSessionMapper, times(1)).selectAnyByToken("admin-token");
+        assertEquals(0, tracker.getActiveSessionCount());
+        assertEquals(1, tracker.getStatus().get("trackedTokens"));
+    }
+
+    @Test
+    void adoptsSessionOpenedOnAnotherNode() {
+        LocalDateTime now = LocalDateTime.now();
+        when(userSessionMapper.selectAnyByToken("token-b")).thenReturn(row(7L, now.minusMinutes(2), now.minusMinutes(10), true));
+        when(userSessionMapper.selectAnyByToken("token-c")).thenReturn(row(7L, now.minusMinutes(1), now.minusMinutes(5), true));
+
+        assertTrue(tracker.touch("token-b"));
+        assertTrue(tracker.touch("token-c"));
+        assertTrue(tracker.touch("token-b"));
+
+        assertEquals(2, tracker.getActiveSessionCount());
+        assertEquals(1, tracker.getActiveUserCount());
+        assertEquals(2L, tracker.getStatus().get("loads"));
+    }
+
+    /**
+     * 回庫校驗：已禁用、空閒超時（30分鐘）或超過絕對時限（1440分鐘）的會話一律拒絕
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "1,  10,   true,  true",
+            "29, 60,   true,  true",
+            "31, 60,   true,  false",
+            "1,  1441, true,  false",
+            "1,  10,   false, false"
+    })
+    void validatesSessionLoadedFromDatabase(long idleMinutes, long ageMinutes, boolean active, boolean expected) {
+        LocalDateTime now = LocalDateTime.now();
+        when(userSessionMapper.selectAnyByToken("token-d"))
+                .thenReturn(row(9L, now.minusMinutes(idleMinutes), now.minusMinutes(ageMinutes), active));
+
+        assertEquals(expected, tracker.touch("token-d"));
+        assertEquals(expected ? 1 : 0, tracker.getActiveSessionCount());
+    }
+
+    @Test
+    void disablesIdleSessionsConditionally() {
+        tracker.openSession(42L, "token-a", "10.0.0.1", "Mozilla/5.0", false);
+        ReflectionTestUtils.setField(tracker, "idleTimeoutMinutes", 0L);
+
+        tracker.flush();
+
+        // 其他節點可能仍有活動，按最後活動時間條件禁用
+        verify(userSessionMapper).disableIdleSessions(eq(List.of(sessionIdOf("token-a"))), any(LocalDateTime.class));
+        verify(userSessionMapper, never()).batchDisableSessions(anyList());
+        assertEquals(0, tracker.getStatus().get("trackedTokens"));
+    }
+
+    @Test
+    void disablesSessionsPastAbsoluteDeadline() {
+        ReflectionTestUtils.setField(tracker, "absoluteTimeoutMinutes", 0L);
+        tracker.openSession(42L, "token-a", "10.0.0.1", "Mozilla/5.0", false);
+        String sessionId = sessionIdOf("token-a");
+        when(userSessionMapper.batchDisableSessions(List.of(sessionId))).thenReturn(1);
+
+        tracker.flush();
+
+        verify(userSessionMapper).batchDisableSessions(List.of(sessionId));
+        verify(userSessionMapper, never()).disableIdleSessions(anyList(), any());
+        assertEquals(1L, tracker.getStatus().get("expired"));
+    }
+
+    @Test
+    void closesSessionKnownOnlyToDatabase() {
+        UserSession row = row(7L, LocalDateTime.now(), LocalDateTime.now(), true);
+        when(userSessionMapper.selectAnyByToken("token-b")).thenReturn(row);
+
+        tracker.closeSession("token-b");
+
+        verify(userSessionMapper).disableSession(row.getSessionId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sumsFreshNodeCountsForClusterTotal() {
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        long now = System.currentTimeMillis();
+        when(hashOperations.values("session:active:nodes"))
+                .thenReturn(List.of("3:" + now, "5:" + (now - 1000), "8:" + (now - 60_000), "garbage"));
+
+        assertEquals(8L, tracker.getClusterActiveSessionCount());
+    }
+
+    private String sessionIdOf(String token) {
+        ArgumentCaptor<UserSession> inserted = ArgumentCaptor.forClass(UserSession.class);
+        verify(userSessionMapper).insert(inserted.capture());
+        assertEquals(token, inserted.getValue().getToken());
+        assertFalse(inserted.getValue().getSessionId().isEmpty());
+        return inserted.getValue().getSessionId();
+    }
+
+    private static UserSession row(Long userId, LocalDateTime lastActivity, LocalDateTime createdAt, boolean active) {
+        UserSession session = new UserSession();
+        session.setUserId(userId);
+        session.setSessionId("s-" + userId + "-" + createdAt.toLocalTime().toSecondOfDay());
+        session.setIsActive(active);
+        session.setLastActivity(lastActivity);
+        session.setCreatedAt(createdAt);
+        session.setExpiresAt(lastActivity.plusMinutes(30));
+        return session;
+    }
+}
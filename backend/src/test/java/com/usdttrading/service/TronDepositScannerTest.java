@@ -0,0 +1,316 @@
+package com.usdttrading.service;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import com.usdttrading.config.BlockchainConfig;
+import com.usdttrading.entity.ChainScanBlock;
+import com.usdttrading.entity.Transaction;
+import com.usdttrading.entity.Wallet;
+import com.usdttrading.repository.ChainScanBlockMapper;
+import com.usdttrading.repository.OrderTransactionMapper;
+import com.usdttrading.repository.TransactionMapper;
+import com.usdttrading.repository.WalletMapper;
+import com.usdttrading.utils.TronAddressUtil;
+import com.usdttrading.utils.TronMockNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * TRON充值掃描測試
+ * 區塊數據由本地回放節點（TronMockNode）經HTTP提供，掃描記錄保存在內存中
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class TronDepositScannerTest {
+
+    private static final Long USER_ID = 42L;
+    private static final String USDT_HEX = "41a614f803b6fd780986a42c78ec9c7f77e6ded13c";
+    private static final String DEPOSIT_EVM_HEX = "1111111111111111111111111111111111111111";
+    private static final String SENDER_EVM_HEX = "2222222222222222222222222222222222222222";
+    private static final String DEPOSIT_ADDRESS = TronAddressUtil.fromHex(DEPOSIT_EVM_HEX);
+
+    @TempDir
+    Path tempDir;
+
+    private final NavigableMap<Long, ChainScanBlock> saved = new TreeMap<>();
+    private final List<JSONObject> recording = new ArrayList<>();
+
+    private ChainScanBlockMapper chainScanBlockMapper;
+    private TransactionMapper transactionMapper;
+    private OrderTransactionMapper orderTransactionMapper;
+    private WalletMapper walletMapper;
+    private NotificationService notificationService;
+    private AuditLogService auditLogService;
+    private int port;
+    private TronMockNode node;
+    private TronDepositScanner scanner;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        chainScanBlockMapper = mock(ChainScanBlockMapper.class);
+        transactionMapper = mock(TransactionMapper.class);
+        orderTransactionMapper = mock(OrderTransactionMapper.class);
+        walletMapper = mock(WalletMapper.class);
+        notificationService = mock(NotificationService.class);
+        auditLogService = mock(AuditLogService.class);
+        LeaderElectionService leaderElectionService = mock(LeaderElectionService.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+        when(leaderElectionService.isLeader("tron-deposit-scanner")).thenReturn(true);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        Wallet wallet = new Wallet();
+        wallet.setId(1L);
+        wallet.setUserId(USER_ID);
+        wallet.setAddress(DEPOSIT_ADDRESS);
+        when(walletMapper.findAddressesAfter(anyLong(), anyInt())).thenReturn(List.of(wallet));
+
+        // 按真實SQL語義維護的掃描記錄表
+        when(chainScanBlockMapper.selectCursor(TronDepositScanner.CHAIN))
+                .thenAnswer(invocation -> saved.isEmpty() ? null : saved.lastEntry().getValue());
+        when(chainScanBlockMapper.selectRecent(eq(TronDepositScanner.CHAIN), anyLong()))
+                .thenAnswer(invocation -> new ArrayList<>(
+                        saved.tailMap(invocation.<Long>getArgument(1), true).descendingMap().values()));
+        when(chainScanBlockMapper.upsertBatch(anyList())).thenAnswer(invocation -> {
+            List<ChainScanBlock> blocks = invocation.getArgument(0);
+            blocks.forEach(block -> saved.put(block.getBlockNumber(), block));
+            return blocks.size();
+        });
+        when(chainScanBlockMapper.deleteAbove(eq(TronDepositScanner.CHAIN), anyLong())).thenAnswer(invocation -> {
+            saved.tailMap(invocation.<Long>getArgument(1), false).clear();
+            return 0;
+        });
+        when(chainScanBlockMapper.deleteBelow(eq(TronDepositScanner.CHAIN), anyLong())).thenAnswer(invocation -> {
+            saved.headMap(invocation.<Long>getArgument(1), false).clear();
+            return 0;
+        });
+
+        port = freePort();
+        BlockchainConfig blockchainConfig = new BlockchainConfig();
+        TronNodeClient tronNodeClient = new TronNodeClient(blockchainConfig);
+        ReflectionTestUtils.setField(tronNodeClient, "nodeUrlOverride", "http://127.0.0.1:" + port);
+        ReflectionTestUtils.setField(tronNodeClient, "requestTimeoutMs", 5000);
+
+        scanner = new TronDepositScanner(tronNodeClient, blockchainConfig, chainScanBlockMapper, transactionMapper,
+                orderTransactionMapper, walletMapper, notificationService, auditLogService, leaderElectionService,
+                mock(DepositAddressPool.class), new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(scanner, "enabled", true);
+        ReflectionTestUtils.setField(scanner, "startBlock", 100L);
+        ReflectionTestUtils.setField(scanner, "maxBlocksPerCycle", 300);
+        ReflectionTestUtils.setField(scanner, "parallelism", 4);
+        ReflectionTestUtils.setField(scanner, "reorgWindow", 60);
+        ReflectionTestUtils.setField(scanner, "tokenDecimals", 6);
+        ReflectionTestUtils.setField(scanner, "creditBatchSize", 100);
+        scanner.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (node != null) {
+            node.stop();
+        }
+        scanner.destroy();
+    }
+
+    @Test
+    void detectsDepositsAndAdvancesConfirmationsWithHead() throws IOException {
+        mainChain(100, 107, 102);
+        startNode(6);
+
+        scanner.scan();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Transaction>> deposits = ArgumentCaptor.forClass(List.class);
+        verify(transactionMapper).upsertChainDeposits(deposits.capture(), anyString());
+        Transaction deposit = deposits.getValue().get(0);
+        assertEquals(1, deposits.getValue().size());
+        assertEquals(USER_ID, deposit.getUserId());
+        assertEquals(new BigDecimal("25.000000"), deposit.getAmount());
+        assertEquals("tx-102", deposit.getTransactionHash());
+        assertEquals(DEPOSIT_ADDRESS, deposit.getToAddress());
+        assertEquals(102L, deposit.getBlockNumber());
+        assertEquals(105L, saved.lastKey());
+        verify(transactionMapper).advanceDepositConfirmations("TRC20", 105L);
+        verify(orderTransactionMapper).advanceConfirmations(105L, 19);
+
+        node.produce(2);
+        scanner.scan();
+
+        assertEquals(107L, saved.lastKey());
+        verify(transactionMapper).advanceDepositConfirmations("TRC20", 107L);
+        verify(transactionMapper, times(1)).upsertChainDeposits(anyList(), anyString());
+    }
+
+    @Test
+    void creditsConfirmedDepositOnlyOnce() throws IOException {
+        mainChain(100, 105, -1);
+        startNode(6);
+        Transaction confirmed = new Transaction();
+        confirmed.setId(9L);
+        confirmed.setUserId(USER_ID);
+        confirmed.setAmount(new BigDecimal("25.000000"));
+        when(transactionMapper.selectConfirmedDeposits("TRC20", 19, 100)).thenReturn(List.of(confirmed));
+        when(transactionMapper.completeDeposit(eq(9L), any())).thenReturn(1, 0);
+        when(walletMapper.creditUsdt(USER_ID, new BigDecimal("25.000000"))).thenReturn(1);
+
+        scanner.scan();
+        scanner.scan();
+
+        verify(walletMapper, times(1)).creditUsdt(USER_ID, new BigDecimal("25.000000"));
+        verify(notificationService, times(1))
+                .sendTransactionNotification(eq(USER_ID), eq(USER_ID), eq("DEPOSIT"), anyString());
+    }
+
+    @Test
+    void rollsBackToForkPointWithinWindow() throws IOException {
+        mainChain(100, 105, 104);
+        fork(104, 106, "b103");
+        startNode(6);
+
+        scanner.scan();
+        node.produce(3);
+        scanner.scan();
+
+        verify(transactionMapper).orphanDepositsAbove(eq("TRC20"), eq(103L), anyString());
+        verify(orderTransactionMapper).resetAbove(103L);
+        assertEquals(103L, saved.lastKey());
+
+        scanner.scan();
+
+        assertEquals(106L, saved.lastKey());
+        assertEquals("f104", saved.get(104L).getBlockHash());
+        assertEquals("f106", saved.get(106L).getBlockHash());
+        assertEquals(1L, scanner.getStatus().get("reorgs"));
+        assertFalse((Boolean) scanner.getStatus().get("halted"));
+    }
+
+    @Test
+    void haltsAndAlertsWhenForkIsDeeperThanWindow() throws IOException {
+        ReflectionTestUtils.setField(scanner, "reorgWindow", 3);
+        mainChain(100, 105, -1);
+        fork(101, 106, "b100");
+        startNode(6);
+
+        scanner.scan();
+        node.produce(6);
+        scanner.scan();
+
+        // 游標及窗口內記錄保持不變，不回滾任何充值
+        assertEquals(List.of(102L, 103L, 104L, 105L), new ArrayList<>(saved.keySet()));
+        verify(transactionMapper, never()).orphanDepositsAbove(anyString(), anyLong(), anyString());
+        verify(chainScanBlockMapper, never()).deleteAbove(anyString(), anyLong());
+        verify(transactionMapper, times(1)).selectConfirmedDeposits(anyString(), anyInt(), anyInt());
+        verify(auditLogService).logSecurityAlert(isNull(), eq("CHAIN_REORG_BEYOND_WINDOW"), eq("critical"),
+                anyString(), anyString(), isNull(), isNull());
+        assertTrue((Boolean) scanner.getStatus().get("halted"));
+
+        clearInvocations(chainScanBlockMapper, transactionMapper, orderTransactionMapper);
+        scanner.scan();
+
+        verifyNoInteractions(chainScanBlockMapper, transactionMapper, orderTransactionMapper);
+    }
+
+    /**
+     * 主鏈區塊，哈希為b{高度}
+     *
+     * @param depositBlock 含一筆25 USDT充值的區塊，-1表示無充值
+     */
+    private void mainChain(long from, long to, long depositBlock) {
+        for (long number = from; number <= to; number++) {
+            recording.add(entry(number, "b" + number, "b" + (number - 1), number == depositBlock));
+        }
+    }
+
+    /**
+     * 分叉鏈區塊，哈希為f{高度}，從指定父哈希接出
+     */
+    private void fork(long from, long to, String parentHash) {
+        String parent = parentHash;
+        for (long number = from; number <= to; number++) {
+            recording.add(entry(number, "f" + number, parent, false));
+            parent = "f" + number;
+        }
+    }
+
+    private void startNode(int initialBlocks) throws IOException {
+        JSONObject file = new JSONObject();
+        file.set("blocks", new JSONArray(recording));
+        Path path = tempDir.resolve("recorded-blocks.json");
+        Files.writeString(path, file.toString(), StandardCharsets.UTF_8);
+        node = new TronMockNode(port, path, 0, initialBlocks);
+        node.start();
+    }
+
+    private static JSONObject entry(long number, String hash, String parentHash, boolean withDeposit) {
+        JSONObject raw = new JSONObject();
+        raw.set("number", number);
+        raw.set("parentHash", parentHash);
+        raw.set("timestamp", 1_755_590_400_000L + number * 3000);
+        JSONObject block = new JSONObject();
+        block.set("blockID", hash);
+        block.set("block_header", new JSONObject().set("raw_data", raw));
+
+        JSONObject entry = new JSONObject();
+        entry.set("block", block);
+        if (withDeposit) {
+            JSONObject log = new JSONObject();
+            log.set("address", USDT_HEX);
+            log.set("topics", new JSONArray(List.of(TronNodeClient.TRANSFER_TOPIC, topic(SENDER_EVM_HEX), topic(DEPOSIT_EVM_HEX))));
+            log.set("data", String.format("%064x", BigInteger.valueOf(25_000_000L)));
+            JSONObject info = new JSONObject();
+            info.set("id", "tx-" + number);
+            info.set("receipt", new JSONObject().set("result", "SUCCESS"));
+            info.set("log", new JSONArray(List.of(log)));
+            entry.set("transactionInfo", new JSONArray(List.of(info)));
+        }
+        return entry;
+    }
+
+    private static String topic(String evmHex) {
+        return "000000000000000000000000" + evmHex;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.usdttrading.service;
+
+import com.usdttrading.config.BlockchainConfig;
+import com.usdttrading.entity.PlatformWallet;
+import com.usdttrading.entity.Wallet;
+import com.usdttrading.entity.WalletSweep;
+import com.usdttrading.repository.PlatformWalletMapper;
+import com.usdttrading.repository.TransactionMapper;
+import com.usdttrading.repository.WalletMapper;
+import com.usdttrading.repository.WalletSweepMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 資金歸集計劃及執行測試
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class WalletSweeperTest {
+
+    private static final String NETWORK = "TRC20";
+    private static final BigDecimal LOW_WATER = new BigDecimal("10000");
+
+    private PlatformWalletMapper platformWalletMapper;
+    private WalletMapper walletMapper;
+    private TransactionMapper transactionMapper;
+    private WalletSweepMapper walletSweepMapper;
+    private ChainClient client;
+    private WalletSweeper sweeper;
+
+    @BeforeEach
+    void setUp() {
+        platformWalletMapper = mock(PlatformWalletMapper.class);
+        walletMapper = mock(WalletMapper.class);
+        transactionMapper = mock(TransactionMapper.class);
+        walletSweepMapper = mock(WalletSweepMapper.class);
+        client = mock(ChainClient.class);
+        @SuppressWarnings("unchecked")
+        ObjectProvider<ChainClient> provider = mock(ObjectProvider.class);
+        LeaderElectionService leaderElectionService = mock(LeaderElectionService.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+        when(client.getNetwork()).thenReturn(NETWORK);
+        when(client.acceptsAddress(anyString())).thenReturn(true);
+        when(provider.orderedStream()).thenAnswer(invocation -> Stream.of(client));
+        when(leaderElectionService.isLeader("wallet-sweeper")).thenReturn(true);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+
+        sweeper = new WalletSweeper(provider, platformWalletMapper, walletMapper, transactionMapper, walletSweepMapper,
+                new BlockchainConfig(), leaderElectionService, new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(sweeper, "enabled", true);
+        ReflectionTestUtils.setField(sweeper, "dryRun", true);
+        ReflectionTestUtils.setField(sweeper, "parallelism", 4);
+        ReflectionTestUtils.setField(sweeper, "minSweepAmount", new BigDecimal("100"));
+        ReflectionTestUtils.setField(sweeper, "maxSweepsPerCycle", 200);
+        ReflectionTestUtils.setField(sweeper, "hotRetainRatio", new BigDecimal("0.5"));
+        ReflectionTestUtils.setField(sweeper, "hotLowWater", LOW_WATER);
+        ReflectionTestUtils.setField(sweeper, "hotAlertThreshold", new BigDecimal("1000000"));
+        ReflectionTestUtils.setField(sweeper, "maxNetworkFee", new BigDecimal("30"));
+        ReflectionTestUtils.setField(sweeper, "rebroadcastAfterSeconds", 120L);
+        sweeper.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        sweeper.destroy();
+    }
+
+    @Test
+    void assignsEachDepositSweepToLowestProjectedHotWallet() {
+        hotWallets(platformWallet(1L, "hot", "THotA", "5000"), platformWallet(2L, "hot", "THotB", "8000"));
+        when(transactionMapper.selectSweepCandidates(NETWORK, new BigDecimal("100"), 200)).thenReturn(List.of(
+                candidate("TDeposit1", "4000", 3, 101L),
+                candidate("TUnknown", "900", 1, 102L),
+                candidate("TDeposit2", "2000", 1, 103L),
+                candidate("TDeposit3", "500", 2, 104L)));
+        depositWallet(11L, "TDeposit1");
+        depositWallet(12L, "TDeposit2");
+        depositWallet(13L, "TDeposit3");
+
+        List<WalletSweeper.SweepOperation> operations = operations(sweeper.previewPlan());
+
+        // A: 5000 -> 9000；B: 8000 -> 10000；A 仍最低 -> 9500；不屬於平台的地址跳過
+        assertEquals(List.of(1L, 2L, 1L), operations.stream()
+                .map(WalletSweeper.SweepOperation::getToWalletId).collect(Collectors.toList()));
+        WalletSweeper.SweepOperation first = operations.get(0);
+        assertEquals(WalletSweeper.OP_DEPOSIT_SWEEP, first.getType());
+        assertEquals(11L, first.getFromWalletId());
+        assertEquals("THotA", first.getToAddress());
+        assertEquals(3, first.getDepositCount());
+        assertEquals(101L, first.getMaxDepositId());
+        assertTrue(first.isExecutable());
+    }
+
+    /**
+     * 超出保留水位（歸集閾值 × 保留比例）且扣除預留後的餘額轉入冷錢包
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "60000, 0,     50000, 35000",
+            "60000, 10000, 50000, 25000",
+            "30000, 0,     50000, 5000",
+            "20000, 0,     50000,",
+            "40000, 15000, 50000,"
+    })
+    void movesExcessAboveRetainedLevelToCold(String balance, String reserved, String threshold, String expected) {
+        PlatformWallet hot = platformWallet(1L, "hot", "THotA", balance);
+        hot.setReservedBalance(new BigDecimal(reserved));
+        hot.setCollectThreshold(new BigDecimal(threshold));
+        hot.setAutoCollect(true);
+        hotWallets(hot);
+        coldWallets(platformWallet(9L, "cold", "TCold", "0"));
+        when(platformWalletMapper.selectWalletsNeedingCollection()).thenReturn(List.of(hot));
+
+        List<WalletSweeper.SweepOperation> operations = operations(sweeper.previewPlan());
+
+        if (expected == null) {
+            assertTrue(operations.isEmpty());
+            return;
+        }
+        assertEquals(1, operations.size());
+        WalletSweeper.SweepOperation operation = operations.get(0);
+        assertEquals(WalletSweeper.OP_HOT_TO_COLD, operation.getType());
+        assertEquals(0, new BigDecimal(expected).compareTo(operation.getAmount()));
+        assertEquals(9L, operation.getToWalletId());
+        assertTrue(operation.isExecutable());
+    }
+
+    @Test
+    void hotToColdIsNotExecutableWithoutColdWallet() {
+        PlatformWallet hot = platformWallet(1L, "hot", "THotA", "60000");
+        hot.setCollectThreshold(new BigDecimal("50000"));
+        hotWallets(hot);
+        when(platformWalletMapper.selectWalletsNeedingCollection()).thenReturn(List.of(hot));
+
+        WalletSweeper.SweepOperation operation = operations(sweeper.previewPlan()).get(0);
+
+        assertFalse(operation.isExecutable());
+        assertNull(operation.getToAddress());
+        assertEquals("沒有可用的冷錢包", operation.getNote());
+    }
+
+    @Test
+    void requestsRefillOnlyWhenProjectedBalanceStaysBelowLowWater() {
+        PlatformWallet hotA = platformWallet(1L, "hot", "THotA", "3000");
+        PlatformWallet hotB = platformWallet(2L, "hot", "THotB", "9000");
+        hotWallets(hotA, hotB);
+        coldWallets(platformWallet(9L, "cold", "TCold", "0"));
+        when(transactionMapper.selectSweepCandidates(NETWORK, new BigDecimal("100"), 200))
+                .thenReturn(List.of(candidate("TDeposit1", "8000", 1, 101L)));
+        depositWallet(11L, "TDeposit1");
+        when(platformWalletMapper.selectLowBalanceWallets(LOW_WATER)).thenReturn(List.of(hotA, hotB));
+
+        List<WalletSweeper.SweepOperation> refills = operations(sweeper.previewPlan()).stream()
+                .filter(operation -> WalletSweeper.OP_COLD_REFILL_REQUEST.equals(operation.getType()))
+                .collect(Collectors.toList());
+
+        // A 收到 8000 歸集後預計 11000，已高於低水位
+        assertEquals(1, refills.size());
+        assertEquals(2L, refills.get(0).getToWalletId());
+        assertEquals(9L, refills.get(0).getFromWalletId());
+        assertEquals(0, new BigDecimal("1000").compareTo(refills.get(0).getAmount()));
+        assertFalse(refills.get(0).isExecutable());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void alertsOnHighBalanceOnlyWithoutAutoCollect() {
+        hotWallets(platformWallet(1L, "hot", "THotA", "0"));
+        PlatformWallet manual = platformWallet(1L, "hot", "THotA", "1500000");
+        PlatformWallet automatic = platformWallet(2L, "hot", "THotB", "2000000");
+        automatic.setAutoCollect(true);
+        PlatformWallet cold = platformWallet(9L, "cold", "TCold", "9000000");
+        when(platformWalletMapper.selectHighBalanceWallets(new BigDecimal("1000000")))
+                .thenReturn(List.of(manual, automatic, cold));
+
+        Map<String, Object> plan = sweeper.previewPlan();
+
+        assertEquals(Boolean.TRUE, plan.get("dryRun"));
+        List<WalletSweeper.SweepOperation> operations = operations(plan);
+        assertEquals(1, operations.size());
+        assertEquals(WalletSweeper.OP_HIGH_BALANCE_ALERT, operations.get(0).getType());
+        assertEquals(1L, operations.get(0).getFromWalletId());
+        Map<String, Map<String, Object>> totals = (Map<String, Map<String, Object>>) plan.get("totals");
+        assertEquals(1, totals.get(WalletSweeper.OP_HIGH_BALANCE_ALERT).get("count"));
+        assertEquals(0, new BigDecimal("1500000").compareTo((BigDecimal) totals.get(WalletSweeper.OP_HIGH_BALANCE_ALERT).get("amount")));
+    }
+
+    @Test
+    void abandonsDepositSweepWhenDepositsChangedSincePlanning() {
+        ReflectionTestUtils.setField(sweeper, "dryRun", false);
+        hotWallets(platformWallet(1L, "hot", "THotA", "0"));
+        when(transactionMapper.selectSweepCandidates(NETWORK, new BigDecimal("100"), 200)).thenReturn(List.of(
+                candidate("TDeposit1", "4000", 2, 101L),
+                candidate("TDeposit2", "3000", 1, 102L)));
+        Wallet changed = depositWallet(11L, "TDeposit1");
+        Wallet unchanged = depositWallet(12L, "TDeposit2");
+        when(walletMapper.selectById(11L)).thenReturn(changed);
+        when(walletMapper.selectById(12L)).thenReturn(unchanged);
+        when(client.signSweep(eq(changed), eq("THotA"), any(), any())).thenReturn(new ChainClient.SignedTransfer("tx-1", "payload-1"));
+        when(client.signSweep(eq(unchanged), eq("THotA"), any(), any())).thenReturn(new ChainClient.SignedTransfer("tx-2", "payload-2"));
+        // 計劃後又到賬一筆充值，標記數與計劃不符
+        when(transactionMapper.markSwept(eq(NETWORK), eq("TDeposit1"), eq(101L), any())).thenReturn(3);
+        when(transactionMapper.markSwept(eq(NETWORK), eq("TDeposit2"), eq(102L), any())).thenReturn(1);
+        when(client.broadcast("tx-2", "payload-2")).thenReturn(ChainClient.BroadcastResult.ACCEPTED);
+
+        sweeper.run();
+
+        verify(walletSweepMapper).insert(argThat(sweep -> "tx-2".equals(sweep.getTransactionHash())));
+        verify(walletSweepMapper, never()).insert(argThat(sweep -> "tx-1".equals(sweep.getTransactionHash())));
+        verify(client, never()).broadcast(eq("tx-1"), anyString());
+        verify(walletSweepMapper).markBroadcast(any(), any());
+        assertEquals(1L, sweeper.getStatus().get("executed"));
+    }
+
+    @Test
+    void settlesConfirmedSweepsAndReleasesFailedOnes() {
+        WalletSweep toCold = sweep(21L, WalletSweep.TYPE_HOT_TO_COLD, "tx-cold", 1L, 9L, "35000");
+        WalletSweep deposit = sweep(22L, WalletSweep.TYPE_DEPOSIT_SWEEP, "tx-deposit", 11L, 1L, "4000");
+        when(walletSweepMapper.selectByStatus(NETWORK, WalletSweep.STATUS_BROADCAST, 200)).thenReturn(List.of(toCold, deposit));
+        when(client.getStatus("tx-cold")).thenReturn(
+                new ChainClient.TransferStatus(ChainClient.TransferState.INCLUDED, 5000L, 19, new BigDecimal("1.1")));
+        when(client.getStatus("tx-deposit")).thenReturn(
+                new ChainClient.TransferStatus(ChainClient.TransferState.FAILED, 5001L, 0, null));
+        when(walletSweepMapper.markConfirmed(eq(21L), eq(5000L), eq(new BigDecimal("1.1")), any())).thenReturn(1);
+        when(walletSweepMapper.markFailed(eq(22L), anyString())).thenReturn(1);
+        when(platformWalletMapper.decreaseBalance(1L, new BigDecimal("35000"))).thenReturn(1);
+
+        sweeper.trackConfirmations();
+
+        verify(platformWalletMapper).decreaseReservedBalance(1L, new BigDecimal("35000"));
+        verify(platformWalletMapper).decreaseBalance(1L, new BigDecimal("35000"));
+        verify(platformWalletMapper).increaseBalance(9L, new BigDecimal("35000"));
+        verify(transactionMapper).unmarkSwept(22L);
+        verify(platformWalletMapper, never()).increaseBalance(eq(1L), any());
+        assertEquals(1L, sweeper.getStatus().get("confirmed"));
+        assertEquals(1L, sweeper.getStatus().get("failed"));
+    }
+
+    private void hotWallets(PlatformWallet... wallets) {
+        when(platformWalletMapper.selectActiveByType("USDT", "hot")).thenReturn(List.of(wallets));
+    }
+
+    private void coldWallets(PlatformWallet... wallets) {
+        when(platformWalletMapper.selectActiveByType("USDT", "cold")).thenReturn(List.of(wallets));
+    }
+
+    private Wallet depositWallet(Long id, String address) {
+        Wallet wallet = new Wallet();
+        wallet.setId(id);
+        wallet.setAddress(address);
+        when(walletMapper.findByAddress(address)).thenReturn(wallet);
+        return wallet;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<WalletSweeper.SweepOperation> operations(Map<String, Object> plan) {
+        return (List<WalletSweeper.SweepOperation>) plan.get("operations");
+    }
+
+    private static Map<String, Object> candidate(String address, String amount, int depositCount, long maxId) {
+        return Map.of("address", address, "amount", new BigDecimal(amount), "depositCount", depositCount, "maxId", maxId);
+    }
+
+    private static PlatformWallet platformWallet(Long id, String type, String address, String balance) {
+        PlatformWallet wallet = new PlatformWallet();
+        wallet.setId(id);
+        wallet.setCurrency("USDT");
+        wallet.setWalletType(type);
+        wallet.setAddress(address);
+        wallet.setBalance(new BigDecimal(balance));
+        wallet.setIsActive(true);
+        return wallet;
+    }
+
+    private static WalletSweep sweep(Long id, String type, String txHash, Long fromWalletId, Long toWalletId, String amount) {
+        WalletSweep sweep = new WalletSweep();
+        sweep.setId(id);
+        sweep.setSweepType(type);
+        sweep.setNetwork(NETWORK);
+        sweep.setTransactionHash(txHash);
+        sweep.setFromWalletId(fromWalletId);
+        sweep.setToWalletId(toWalletId);
+        sweep.setAmount(new BigDecimal(amount));
+        sweep.setStatus(WalletSweep.STATUS_BROADCAST);
+        return sweep;
+    }
+}
@@ -0,0 +1,168 @@
+package com.usdttrading.service.impl;
+
+import com.usdttrading.dto.ApiResponse;
+import com.usdttrading.entity.Order;
+import com.usdttrading.enums.OrderStatus;
+import com.usdttrading.enums.OrderType;
+import com.usdttrading.repository.OrderMapper;
+import com.usdttrading.repository.PriceHistoryMapper;
+import com.usdttrading.repository.SystemConfigMapper;
+import com.usdttrading.repository.WalletMapper;
+import com.usdttrading.service.AuditLogService;
+import com.usdttrading.service.EntityCache;
+import com.usdttrading.service.EventStreamBroadcaster;
+import com.usdttrading.service.NotificationService;
+import com.usdttrading.service.OrderExpiryService;
+import com.usdttrading.utils.ValidationUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 交易服務訂單狀態條件更新測試
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@ExtendWith(MockitoExtension.class)
+class TradingServiceImplTest {
+
+    private static final Long ORDER_ID = 1001L;
+    private static final Long USER_ID = 42L;
+
+    @Mock
+    private OrderMapper orderMapper;
+    @Mock
+    private WalletMapper walletMapper;
+    @Mock
+    private PriceHistoryMapper priceHistoryMapper;
+    @Mock
+    private SystemConfigMapper systemConfigMapper;
+    @Mock
+    private AuditLogService auditLogService;
+    @Mock
+    private EntityCache entityCache;
+    @Mock
+    private NotificationService notificationService;
+    @Mock
+    private OrderExpiryService orderExpiryService;
+    @Mock
+    private EventStreamBroadcaster eventStreamBroadcaster;
+    @Mock
+    private ValidationUtils validationUtils;
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @InjectMocks
+    private TradingServiceImpl tradingService;
+
+    @Test
+    void cancelLosingRaceLeavesFrozenFundsAlone() {
+        when(orderMapper.selectById(ORDER_ID)).thenReturn(order(OrderType.SELL, OrderStatus.PENDING));
+        when(orderMapper.cancelOrder(eq(ORDER_ID), eq(USER_ID), eq("不想要了"), any())).thenReturn(0);
+
+        ApiResponse<String> response = tradingService.cancelOrder(ORDER_ID, USER_ID, "不想要了", "127.0.0.1");
+
+        assertFalse(response.isSuccess());
+        assertEquals("訂單狀態已變更，請刷新後重試", response.getMessage());
+        verify(walletMapper, never()).releaseFrozenUsdt(anyLong(), any());
+        verify(orderExpiryService, never()).cancel(anyLong());
+        verify(eventStreamBroadcaster, never()).publishOrderStatus(any());
+    }
+
+    @Test
+    void cancelSellOrderReleasesFrozenUsdtWithGuardedUpdate() {
+        Order order = order(OrderType.SELL, OrderStatus.PENDING);
+        when(orderMapper.selectById(ORDER_ID)).thenReturn(order);
+        when(orderMapper.cancelOrder(eq(ORDER_ID), eq(USER_ID), eq("不想要了"), any())).thenReturn(1);
+        when(walletMapper.releaseFrozenUsdt(USER_ID, new BigDecimal("100.000000"))).thenReturn(1);
+
+        ApiResponse<String> response = tradingService.cancelOrder(ORDER_ID, USER_ID, "不想要了", "127.0.0.1");
+
+        assertTrue(response.isSuccess());
+        assertEquals(OrderStatus.CANCELLED, order.getOrderStatus());
+        verify(walletMapper).releaseFrozenUsdt(USER_ID, new BigDecimal("100.000000"));
+        verify(walletMapper, never()).updateById(any());
+        verify(orderMapper, never()).updateById(any());
+        verify(orderExpiryService).cancel(ORDER_ID);
+        verify(eventStreamBroadcaster).publishOrderStatus(order);
+    }
+
+    @Test
+    void cancelBuyOrderDoesNotTouchWallet() {
+        when(orderMapper.selectById(ORDER_ID)).thenReturn(order(OrderType.BUY, OrderStatus.PENDING));
+        when(orderMapper.cancelOrder(eq(ORDER_ID), eq(USER_ID), eq("超時"), any())).thenReturn(1);
+
+        ApiResponse<String> response = tradingService.cancelOrder(ORDER_ID, USER_ID, "超時", "127.0.0.1");
+
+        assertTrue(response.isSuccess());
+        verify(walletMapper, never()).releaseFrozenUsdt(anyLong(), any());
+        verify(orderExpiryService).cancel(ORDER_ID);
+    }
+
+    @Test
+    void cancelRejectsFinishedOrderWithoutUpdate() {
+        when(orderMapper.selectById(ORDER_ID)).thenReturn(order(OrderType.SELL, OrderStatus.COMPLETED));
+
+        ApiResponse<String> response = tradingService.cancelOrder(ORDER_ID, USER_ID, "不想要了", "127.0.0.1");
+
+        assertFalse(response.isSuccess());
+        verify(orderMapper, never()).cancelOrder(anyLong(), anyLong(), any(), any());
+    }
+
+    @Test
+    void confirmPaymentLosingRaceDoesNotPublish() {
+        when(orderMapper.selectById(ORDER_ID)).thenReturn(order(OrderType.BUY, OrderStatus.PENDING));
+        when(orderMapper.confirmPayment(eq(ORDER_ID), eq(USER_ID), any(), any())).thenReturn(0);
+
+        ApiResponse<String> response = tradingService.confirmPayment(ORDER_ID, USER_ID,
+                Map.of("ref", "TX123"), "127.0.0.1");
+
+        assertFalse(response.isSuccess());
+        assertEquals("訂單狀態已變更，請刷新後重試", response.getMessage());
+        verify(eventStreamBroadcaster, never()).publishOrderStatus(any());
+        verify(orderMapper, never()).updateById(any());
+    }
+
+    @Test
+    void confirmPaymentMovesOrderToProcessing() {
+        Order order = order(OrderType.BUY, OrderStatus.PENDING);
+        when(orderMapper.selectById(ORDER_ID)).thenReturn(order);
+        when(orderMapper.confirmPayment(eq(ORDER_ID), eq(USER_ID), any(), any())).thenReturn(1);
+
+        ApiResponse<String> response = tradingService.confirmPayment(ORDER_ID, USER_ID,
+                Map.of("ref", "TX123"), "127.0.0.1");
+
+        assertTrue(response.isSuccess());
+        assertEquals(OrderStatus.PROCESSING, order.getOrderStatus());
+        verify(eventStreamBroadcaster).publishOrderStatus(order);
+    }
+
+    private static Order order(OrderType type, OrderStatus status) {
+        Order order = new Order();
+        order.setId(ORDER_ID);
+        order.setUserId(USER_ID);
+        order.setOrderNumber("ORD" + ORDER_ID);
+        order.setOrderType(type);
+        order.setOrderStatus(status);
+        order.setUsdtAmount(new BigDecimal("100.000000"));
+        return order;
+    }
+}
@@ -0,0 +1,226 @@
+package com.usdttrading.service.impl;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.usdttrading.dto.ApiResponse;
+import com.usdttrading.entity.Transaction;
+import com.usdttrading.entity.User;
+import com.usdttrading.entity.UserKyc;
+import com.usdttrading.entity.Wallet;
+import com.usdttrading.entity.Withdrawal;
+import com.usdttrading.enums.KycStatus;
+import com.usdttrading.enums.UserStatus;
+import com.usdttrading.enums.WithdrawalStatus;
+import com.usdttrading.repository.SystemConfigMapper;
+import com.usdttrading.repository.TransactionMapper;
+import com.usdttrading.repository.WalletMapper;
+import com.usdttrading.repository.WithdrawalMapper;
+import com.usdttrading.service.AddressValidationService;
+import com.usdttrading.service.AuditLogService;
+import com.usdttrading.service.DepositAddressPool;
+import com.usdttrading.service.EntityCache;
+import com.usdttrading.service.NotificationService;
+import com.usdttrading.service.SanctionsScreeningService;
+import com.usdttrading.service.SecurityCorrelationEngine;
+import com.usdttrading.service.WalletService;
+import com.usdttrading.service.WithdrawalProcessor;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 錢包服務提現凍結及事務回滾測試
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@ExtendWith(MockitoExtension.class)
+class WalletServiceImplTest {
+
+    private static final Long USER_ID = 42L;
+    private static final String TO_ADDRESS = "TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t";
+    private static final BigDecimal AMOUNT = new BigDecimal("100");
+
+    @Mock
+    private WalletMapper walletMapper;
+    @Mock
+    private TransactionMapper transactionMapper;
+    @Mock
+    private WithdrawalMapper withdrawalMapper;
+    @Mock
+    private SystemConfigMapper systemConfigMapper;
+    @Mock
+    private AuditLogService auditLogService;
+    @Mock
+    private EntityCache entityCache;
+    @Mock
+    private NotificationService notificationService;
+    @Mock
+    private SanctionsScreeningService sanctionsScreeningService;
+    @Mock
+    private WithdrawalProcessor withdrawalProcessor;
+    @Mock
+    private DepositAddressPool depositAddressPool;
+    @Mock
+    private SecurityCorrelationEngine securityCorrelationEngine;
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+    @Mock
+    private ValueOperations<String, Object> valueOperations;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private WalletServiceImpl walletService;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // LambdaQueryWrapper按實體元數據解析列名
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Transaction.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        AddressValidationService addressValidationService = new AddressValidationService();
+        addressValidationService.init();
+        walletService = new WalletServiceImpl(walletMapper, transactionMapper, withdrawalMapper, systemConfigMapper,
+                auditLogService, entityCache, notificationService, sanctionsScreeningService, withdrawalProcessor,
+                depositAddressPool, addressValidationService, securityCorrelationEngine, redisTemplate);
+    }
+
+    /**
+     * 已完成KYC、餘額充足的正常用戶
+     */
+    private void givenEligibleUser() {
+        User user = new User();
+        user.setId(USER_ID);
+        user.setStatus(UserStatus.ACTIVE);
+        UserKyc kyc = new UserKyc();
+        kyc.setUserId(USER_ID);
+        kyc.setStatus(KycStatus.APPROVED);
+        kyc.setLevel(1);
+        Wallet wallet = new Wallet();
+        wallet.setId(7L);
+        wallet.setUserId(USER_ID);
+        wallet.setUsdtBalance(new BigDecimal("150"));
+
+        when(entityCache.getUser(USER_ID)).thenReturn(user);
+        when(entityCache.getUserKyc(USER_ID)).thenReturn(kyc);
+        when(sanctionsScreeningService.screenAddress(TO_ADDRESS)).thenReturn(new SanctionsScreeningService.ScreeningResult());
+        when(walletMapper.selectByUserId(USER_ID)).thenReturn(wallet);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    @Test
+    void rejectsWithdrawalWhenGuardedFreezeLosesRace() {
+        givenEligibleUser();
+        // 餘額快照足夠，但並發提現已扣減，條件凍結未命中
+        when(walletMapper.freezeUsdt(USER_ID, AMOUNT)).thenReturn(0);
+
+        ApiResponse<Map<String, Object>> response = createWithdrawal();
+
+        assertFalse(response.isSuccess());
+        assertEquals("USDT餘額不足", response.getMessage());
+        verify(transactionMapper, never()).insert(any(Transaction.class));
+        verify(withdrawalMapper, never()).insert(any(Withdrawal.class));
+        verify(walletMapper, never()).updateById(any());
+        verify(securityCorrelationEngine, never()).onWithdrawal(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void freezesBalanceBeforeCreatingWithdrawal() {
+        givenEligibleUser();
+        when(walletMapper.freezeUsdt(USER_ID, AMOUNT)).thenReturn(1);
+
+        ApiResponse<Map<String, Object>> response = createWithdrawal();
+
+        assertTrue(response.isSuccess());
+        InOrder order = inOrder(walletMapper, transactionMapper, withdrawalMapper);
+        order.verify(walletMapper).freezeUsdt(USER_ID, AMOUNT);
+        order.verify(transactionMapper).insert(any(Transaction.class));
+        ArgumentCaptor<Withdrawal> withdrawal = ArgumentCaptor.forClass(Withdrawal.class);
+        order.verify(withdrawalMapper).insert(withdrawal.capture());
+        assertEquals(WithdrawalStatus.PENDING, withdrawal.getValue().getStatus());
+        assertEquals(new BigDecimal("99"), withdrawal.getValue().getActualAmount());
+        verify(walletMapper, never()).updateById(any());
+    }
+
+    @Test
+    void rollsBackFreezeWhenWithdrawalInsertFails() {
+        givenEligibleUser();
+        SimpleTransactionStatus status = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(status);
+        when(walletMapper.freezeUsdt(USER_ID, AMOUNT)).thenReturn(1);
+        when(withdrawalMapper.insert(any(Withdrawal.class)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry for key 'uk_withdrawal_no'"));
+
+        ApiResponse<Map<String, Object>> response = transactional()
+                .createWithdrawal(USER_ID, AMOUNT, TO_ADDRESS, "TRC20", null, "127.0.0.1", "JUnit");
+
+        assertFalse(response.isSuccess());
+        assertTrue(status.isRollbackOnly());
+    }
+
+    @Test
+    void rollsBackApprovalWhenLedgerUpdateFails() {
+        Withdrawal withdrawal = new Withdrawal();
+        withdrawal.setId(9L);
+        withdrawal.setWithdrawalNo("TXN202508190001");
+        withdrawal.setUserId(USER_ID);
+        withdrawal.setAmount(AMOUNT);
+        withdrawal.setStatus(WithdrawalStatus.PENDING);
+        SimpleTransactionStatus status = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(status);
+        when(withdrawalMapper.selectById(9L)).thenReturn(withdrawal);
+        when(withdrawalMapper.approve(eq(9L), eq(1L), anyString(), any())).thenReturn(1);
+        when(transactionMapper.updateWithdrawalLedger(eq("TXN202508190001"), eq("PROCESSING"), any(), any(), any()))
+                .thenThrow(new IllegalStateException("Lock wait timeout exceeded"));
+
+        ApiResponse<String> response = transactional().reviewWithdrawal(9L, 1L, true, "通過", "127.0.0.1");
+
+        assertFalse(response.isSuccess());
+        assertTrue(status.isRollbackOnly());
+    }
+
+    private ApiResponse<Map<String, Object>> createWithdrawal() {
+        return walletService.createWithdrawal(USER_ID, AMOUNT, TO_ADDRESS, "TRC20", null, "127.0.0.1", "JUnit");
+    }
+
+    /**
+     * 經事務攔截器代理的服務，事務管理器為模擬對象，只檢查回滾標記
+     */
+    private WalletService transactional() {
+        ProxyFactory factory = new ProxyFactory(walletService);
+        factory.addAdvice(new TransactionInterceptor(transactionManager, new AnnotationTransactionAttributeSource()));
+        return (WalletService) factory.getProxy();
+    }
+}
@@ -0,0 +1,105 @@
+package com.usdttrading.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 盲索引計算及規範化測試
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class BlindIndexUtilTest {
+
+    private static final byte[] KEY = "blind-index-test-key-0123456789ab".getBytes(StandardCharsets.US_ASCII);
+
+    private BlindIndexUtil blindIndexUtil;
+
+    @BeforeEach
+    void setUp() {
+        blindIndexUtil = configured(KEY);
+    }
+
+    @Test
+    void matchesKeyedHmacWithFieldDomain() throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(KEY, "HmacSHA256"));
+        String expected = HexFormat.of().formatHex(mac.doFinal("id\0A123456789".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(expected, blindIndexUtil.idNumber("A123456789"));
+        assertEquals(64, expected.length());
+    }
+
+    /**
+     * 同一標識的不同書寫格式得到相同索引
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "ID_NUMBER,    A123456789,       'a123-456 789'",
+            "ID_NUMBER,    F223344556,       ' f 223344556 '",
+            "BANK_ACCOUNT, 012345678901,     0123-4567-8901",
+            "BANK_ACCOUNT, 8220001234567,    '822 000 1234567'",
+            "PHONE_NUMBER, 0912345678,       0912-345-678",
+            "PHONE_NUMBER, 886912345678,     '+886 912 345 678'"
+    })
+    void normalizesFormattingDifferences(BlindIndexUtil.Field field, String canonical, String formatted) {
+        assertEquals(blindIndexUtil.compute(field, canonical), blindIndexUtil.compute(field, formatted));
+    }
+
+    @Test
+    void separatesFieldsWithSameDigits() {
+        String digits = "0912345678";
+
+        assertNotEquals(blindIndexUtil.bankAccount(digits), blindIndexUtil.phoneNumber(digits));
+        assertNotEquals(blindIndexUtil.idNumber(digits), blindIndexUtil.phoneNumber(digits));
+    }
+
+    @Test
+    void dependsOnConfiguredKey() {
+        byte[] otherKey = Arrays.copyOf(KEY, KEY.length);
+        otherKey[0] ^= 0x01;
+
+        assertNotEquals(blindIndexUtil.idNumber("A123456789"), configured(otherKey).idNumber("A123456789"));
+        assertEquals(blindIndexUtil.idNumber("A123456789"), configured(KEY).idNumber("A123456789"));
+    }
+
+    @Test
+    void returnsNullForMissingValues() {
+        assertNull(blindIndexUtil.idNumber(null));
+        assertNull(blindIndexUtil.idNumber(" - "));
+        assertNull(blindIndexUtil.phoneNumber("N/A"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "dG9vLXNob3J0"})
+    void refusesToStartWithoutUsableKey(String key) {
+        BlindIndexUtil unconfigured = new BlindIndexUtil();
+        ReflectionTestUtils.setField(unconfigured, "blindIndexKeyBase64", key);
+
+        assertThrows(IllegalStateException.class, unconfigured::init);
+    }
+
+    private static BlindIndexUtil configured(byte[] key) {
+        BlindIndexUtil util = new BlindIndexUtil();
+        ReflectionTestUtils.setField(util, "blindIndexKeyBase64", Base64.getEncoder().encodeToString(key));
+        util.init();
+        return util;
+    }
+}
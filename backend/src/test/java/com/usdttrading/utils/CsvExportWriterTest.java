@@ -0,0 +1,93 @@
+package com.usdttrading.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CSV流式寫入器測試
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class CsvExportWriterTest {
+
+    @Test
+    void writesBomHeaderAndCrlfRows() throws IOException {
+        String csv = write(List.of("訂單號", "金額"),
+                Arrays.asList("ORD001", new BigDecimal("100.50")),
+                Arrays.asList("ORD002", null));
+
+        assertEquals("\uFEFF訂單號,金額\r\nORD001,100.50\r\nORD002,\r\n", csv);
+    }
+
+    @Test
+    void quotesFieldsPerRfc4180() throws IOException {
+        String csv = write(List.of("備註"),
+                Arrays.asList("a,b"),
+                Arrays.asList("say \"hi\""),
+                Arrays.asList("line1\nline2"));
+
+        assertEquals("\uFEFF備註\r\n\"a,b\"\r\n\"say \"\"hi\"\"\"\r\n\"line1\nline2\"\r\n", csv);
+    }
+
+    @Test
+    void guardsFormulaInjectionInText() throws IOException {
+        String csv = write(List.of("值"),
+                Arrays.asList("=HYPERLINK(\"http://evil\")"),
+                Arrays.asList("+1"),
+                Arrays.asList("-2"),
+                Arrays.asList("@SUM(A1)"),
+                Arrays.asList(new BigDecimal("-2.5")));
+
+        String[] lines = csv.split("\r\n");
+        assertEquals("\"'=HYPERLINK(\"\"http://evil\"\")\"", lines[1]);
+        assertEquals("'+1", lines[2]);
+        assertEquals("'-2", lines[3]);
+        assertEquals("'@SUM(A1)", lines[4]);
+        // 數值不是文本，負數保持原樣
+        assertEquals("-2.5", lines[5]);
+    }
+
+    @Test
+    void formatsValuesForExport() throws IOException {
+        LocalDateTime time = LocalDateTime.of(2025, 8, 19, 9, 5, 3);
+        String csv = write(List.of("時間", "時間戳", "數量", "通過"),
+                Arrays.asList(time, Timestamp.valueOf(time), new BigDecimal("1E+3"), Boolean.TRUE));
+
+        assertTrue(csv.endsWith("2025-08-19 09:05:03,2025-08-19 09:05:03,1000,是\r\n"), csv);
+    }
+
+    @Test
+    void parsesFormatNames() {
+        assertEquals(ExportWriter.Format.CSV, ExportWriter.Format.of(" CSV "));
+        assertEquals(ExportWriter.Format.XLSX, ExportWriter.Format.of("xlsx"));
+        assertEquals(ExportWriter.Format.XLSX, ExportWriter.Format.of("excel"));
+        assertThrows(IllegalArgumentException.class, () -> ExportWriter.Format.of("pdf"));
+        assertThrows(IllegalArgumentException.class, () -> ExportWriter.Format.of(null));
+    }
+
+    @SafeVarargs
+    private static String write(List<String> header, List<Object>... rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportWriter writer = ExportWriter.Format.CSV.open(out, "ignored");
+        writer.writeHeader(header);
+        for (List<Object> row : rows) {
+            writer.writeRow(row);
+        }
+        writer.finish();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
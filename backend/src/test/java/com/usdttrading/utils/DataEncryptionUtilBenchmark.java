@@ -0,0 +1,91 @@
+package com.usdttrading.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 字段加解密吞吐基準（JMH）
+ * 不屬於單元測試，手動運行：編譯測試類後執行main，或在IDE中直接運行
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class DataEncryptionUtilBenchmark {
+
+    /**
+     * 一條KYC記錄的加密字段數
+     */
+    @Param({"1", "8"})
+    public int fields;
+
+    private DataEncryptionUtil encryptionUtil;
+    private List<String> plaintexts;
+    private List<String> ciphertexts;
+
+    @Setup
+    public void setUp() {
+        encryptionUtil = new DataEncryptionUtil();
+        ReflectionTestUtils.setField(encryptionUtil, "encryptionEnabled", true);
+        ReflectionTestUtils.setField(encryptionUtil, "masterKeyId", "bench");
+        ReflectionTestUtils.setField(encryptionUtil, "decryptCacheTtlSeconds", 300L);
+        ReflectionTestUtils.setField(encryptionUtil, "decryptCacheMaxEntries", 2048);
+
+        plaintexts = new ArrayList<>(fields);
+        for (int i = 0; i < fields; i++) {
+            plaintexts.add("A12345678" + i);
+        }
+        ciphertexts = encryptionUtil.encryptAll(plaintexts);
+    }
+
+    @Benchmark
+    public List<String> encrypt() {
+        return encryptionUtil.encryptAll(plaintexts);
+    }
+
+    @Benchmark
+    public List<String> decrypt() {
+        return encryptionUtil.decryptAll(ciphertexts);
+    }
+
+    /**
+     * 管理端重複查看同一記錄，命中解密緩存
+     */
+    @Benchmark
+    public String decryptCachedHit() {
+        String last = null;
+        for (String ciphertext : ciphertexts) {
+            last = encryptionUtil.decryptCached(ciphertext);
+        }
+        return last;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DataEncryptionUtilBenchmark.class.getSimpleName()).build()).run();
+    }
+}
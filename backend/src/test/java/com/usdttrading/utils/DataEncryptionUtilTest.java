@@ -0,0 +1,167 @@
+package com.usdttrading.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 字段加解密及解密緩存測試
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class DataEncryptionUtilTest {
+
+    private static final String MASTER_KEY = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+
+    private DataEncryptionUtil encryptionUtil;
+
+    @BeforeEach
+    void setUp() {
+        encryptionUtil = configured(MASTER_KEY);
+    }
+
+    @Test
+    void bulkListKeepsOrderAndBlankValues() {
+        List<String> plaintexts = Arrays.asList("A123456789", null, "", "王小明", "0912345678");
+
+        List<String> ciphertexts = encryptionUtil.encryptAll(plaintexts);
+
+        assertEquals(5, ciphertexts.size());
+        assertNull(ciphertexts.get(1));
+        assertEquals("", ciphertexts.get(2));
+        assertNotEquals("王小明", ciphertexts.get(3));
+        assertIterableEquals(plaintexts, encryptionUtil.decryptAll(ciphertexts));
+    }
+
+    @Test
+    void bulkMapKeepsFieldOrder() {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("realName", "王小明");
+        fields.put("idNumber", "A123456789");
+        fields.put("address", "台北市信義區市府路1號");
+
+        Map<String, String> encrypted = encryptionUtil.encryptAll(fields);
+
+        assertIterableEquals(fields.keySet(), encrypted.keySet());
+        assertEquals(fields, encryptionUtil.decryptAll(encrypted));
+        assertEquals(fields, encryptionUtil.decryptAllCached(encrypted));
+    }
+
+    @Test
+    void reusedCipherStillUsesFreshIvPerValue() {
+        String first = encryptionUtil.encrypt("A123456789");
+        String second = encryptionUtil.encrypt("A123456789");
+
+        assertNotEquals(first, second);
+        assertNotEquals(Arrays.toString(Arrays.copyOf(Base64.getDecoder().decode(first), 12)),
+                Arrays.toString(Arrays.copyOf(Base64.getDecoder().decode(second), 12)));
+        assertEquals("A123456789", encryptionUtil.decrypt(first));
+        assertEquals("A123456789", encryptionUtil.decrypt(second));
+    }
+
+    @Test
+    void threadLocalCiphersAreSafeUnderConcurrency() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                String plaintext = "A" + (100000000 + i);
+                results.add(executor.submit(() -> encryptionUtil.decrypt(encryptionUtil.encrypt(plaintext))));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals("A" + (100000000 + i), results.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void decryptsAcrossInstancesSharingMasterKey() {
+        String ciphertext = encryptionUtil.encrypt("0912345678");
+
+        assertEquals("0912345678", configured(MASTER_KEY).decrypt(ciphertext));
+    }
+
+    @Test
+    void rejectsTamperedCiphertext() {
+        byte[] bytes = Base64.getDecoder().decode(encryptionUtil.encrypt("A123456789"));
+        bytes[bytes.length - 1] ^= 0x01;
+        String tampered = Base64.getEncoder().encodeToString(bytes);
+
+        assertThrows(RuntimeException.class, () -> encryptionUtil.decrypt(tampered));
+    }
+
+    @Test
+    void cachesDecryptedValuesUntilCleared() {
+        String ciphertext = encryptionUtil.encrypt("A123456789");
+
+        assertEquals("A123456789", encryptionUtil.decryptCached(ciphertext));
+        assertEquals("A123456789", encryptionUtil.decryptCached(ciphertext));
+        assertEquals(1, decryptCache().size());
+
+        encryptionUtil.clearDecryptCache();
+        assertEquals(0, decryptCache().size());
+    }
+
+    @Test
+    void clearsCacheWhenCapacityIsReached() {
+        ReflectionTestUtils.setField(encryptionUtil, "decryptCacheMaxEntries", 2);
+        List<String> ciphertexts = encryptionUtil.encryptAll(List.of("A1", "A2", "A3"));
+
+        encryptionUtil.decryptCached(ciphertexts.get(0));
+        encryptionUtil.decryptCached(ciphertexts.get(1));
+        assertEquals(2, decryptCache().size());
+
+        assertEquals("A3", encryptionUtil.decryptCached(ciphertexts.get(2)));
+        assertEquals(1, decryptCache().size());
+    }
+
+    @Test
+    void skipsCacheWhenTtlIsZero() {
+        ReflectionTestUtils.setField(encryptionUtil, "decryptCacheTtlSeconds", 0L);
+
+        assertEquals("A123456789", encryptionUtil.decryptCached(encryptionUtil.encrypt("A123456789")));
+        assertEquals(0, decryptCache().size());
+    }
+
+    @Test
+    void passesValuesThroughWhenDisabled() {
+        ReflectionTestUtils.setField(encryptionUtil, "encryptionEnabled", false);
+
+        assertIterableEquals(List.of("A123456789"), encryptionUtil.encryptAll(List.of("A123456789")));
+        assertEquals("A123456789", encryptionUtil.decryptCached("A123456789"));
+    }
+
+    private Map<?, ?> decryptCache() {
+        return (Map<?, ?>) ReflectionTestUtils.getField(encryptionUtil, "decryptCache");
+    }
+
+    private static DataEncryptionUtil configured(String masterKey) {
+        DataEncryptionUtil util = new DataEncryptionUtil();
+        ReflectionTestUtils.setField(util, "encryptionEnabled", true);
+        ReflectionTestUtils.setField(util, "masterKeyId", "k1");
+        ReflectionTestUtils.setField(util, "masterKeyBase64", masterKey);
+        ReflectionTestUtils.setField(util, "decryptCacheTtlSeconds", 300L);
+        ReflectionTestUtils.setField(util, "decryptCacheMaxEntries", 2048);
+        return util;
+    }
+}
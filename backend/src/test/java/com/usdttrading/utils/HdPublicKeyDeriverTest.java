@@ -0,0 +1,69 @@
+package com.usdttrading.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * BIP32擴展公鑰推導測試
+ * 向量取自BIP32 Test vector 1、2中可由父節點xpub非硬化推導（CKDpub）的節點
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class HdPublicKeyDeriverTest {
+
+    private static final String VECTOR1_M_0H_1_2H_2 =
+            "xpub6FHa3pjLCk84BayeJxFW2SP4XRrFd1JYnxeLeU8EqN3vDfZmbqBqaGJAyiLjTAwm6ZLRQUMv1ZACTj37sR62cfN7fe5JnJ7dh8zL4fiyLHV";
+
+    @ParameterizedTest(name = "{1}")
+    @CsvSource({
+            // Test vector 1: m/0H -> m/0H/1
+            "xpub68Gmy5EdvgibQVfPdqkBBCHxA5htiqg55crXYuXoQRKfDBFA1WEjWgP6LHhwBZeNK1VTsfTFUHCdrfp1bgwQ9xv5ski8PX9rL2dZXvgGDnw, 1, "
+                    + "xpub6ASuArnXKPbfEwhqN6e3mwBcDTgzisQN1wXN9BJcM47sSikHjJf3UFHKkNAWbWMiGj7Wf5uMash7SyYq527Hqck2AxYysAA7xmALppuCkwQ",
+            // Test vector 1: m/0H/1/2H -> m/0H/1/2H/2
+            "xpub6D4BDPcP2GT577Vvch3R8wDkScZWzQzMMUm3PWbmWvVJrZwQY4VUNgqFJPMM3No2dFDFGTsxxpG5uJh7n7epu4trkrX7x7DogT5Uv6fcLW5, 2, "
+                    + VECTOR1_M_0H_1_2H_2,
+            // Test vector 1: m/0H/1/2H/2 -> m/0H/1/2H/2/1000000000
+            VECTOR1_M_0H_1_2H_2 + ", 1000000000, "
+                    + "xpub6H1LXWLaKsWFhvm6RVpEL9P4KfRZSW7abD2ttkWP3SSQvnyA8FSVqNTEcYFgJS2UaFcxupHiYkro49S8yGasTvXEYBVPamhGW6cFJodrTHy",
+            // Test vector 2: m -> m/0
+            "xpub661MyMwAqRbcFW31YEwpkMuc5THy2PSt5bDMsktWQcFF8syAmRUapSCGu8ED9W6oDMSgv6Zz8idoc4a6mr8BDzTJY47LJhkJ8UB7WEGuduB, 0, "
+                    + "xpub69H7F5d8KSRgmmdJg2KhpAK8SR3DjMwAdkxj3ZuxV27CprR9LgpeyGmXUbC6wb7ERfvrnKZjXoUmmDznezpbZb7ap6r1D3tgFxHmwMkQTPH",
+            // Test vector 2: m/0/2147483647H/1/2147483646H -> m/0/2147483647H/1/2147483646H/2
+            "xpub6ERApfZwUNrhLCkDtcHTcxd75RbzS1ed54G1LkBUHQVHQKqhMkhgbmJbZRkrgZw4koxb5JaHWkY4ALHY2grBGRjaDMzQLcgJvLJuZZvRcEL, 2, "
+                    + "xpub6FnCn6nSzZAw5Tw7cgR9bi15UV96gLZhjDstkXXxvCLsUXBGXPdSnLFbdpq8p9HmGsApME5hQTZ3emM2rnY5agb9rXpVGyy3bdW6EEgAtqt"
+    })
+    void derivesChildPublicKeyFromBip32Vectors(String parentXpub, int index, String childXpub) {
+        byte[] derived = HdPublicKeyDeriver.fromExtendedKey(parentXpub).derive(index).getCompressedPublicKey();
+
+        assertArrayEquals(publicKeyOf(childXpub), derived);
+    }
+
+    @Test
+    void refusesHardenedIndex() {
+        HdPublicKeyDeriver node = HdPublicKeyDeriver.fromExtendedKey(VECTOR1_M_0H_1_2H_2);
+
+        assertThrows(IllegalArgumentException.class, () -> node.derive(0x80000000));
+    }
+
+    @Test
+    void rejectsCorruptedExtendedKey() {
+        String corrupted = VECTOR1_M_0H_1_2H_2.substring(0, 40) + "z" + VECTOR1_M_0H_1_2H_2.substring(41);
+
+        assertThrows(IllegalArgumentException.class, () -> HdPublicKeyDeriver.fromExtendedKey(corrupted));
+    }
+
+    /**
+     * 擴展公鑰序列化格式中第45~78字節為壓縮公鑰
+     */
+    private static byte[] publicKeyOf(String xpub) {
+        return Arrays.copyOfRange(TronAddressUtil.decodeCheckPayload(xpub), 45, 78);
+    }
+}
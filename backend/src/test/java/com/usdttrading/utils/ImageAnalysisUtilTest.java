@@ -0,0 +1,114 @@
+package com.usdttrading.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 圖片分析引擎測試
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class ImageAnalysisUtilTest {
+
+    private final ImageAnalysisUtil analyzer = new ImageAnalysisUtil();
+
+    /**
+     * 不同像素格式解碼後分別走字節、整數及逐行getRGB分支，統計結果應一致
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+            BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_BYTE_BINARY})
+    void checkerboardStatisticsMatchAcrossPixelFormats(int imageType) {
+        BufferedImage image = new BufferedImage(8, 8, imageType);
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                image.setRGB(x, y, (x + y) % 2 == 0 ? 0xFF000000 : 0xFFFFFFFF);
+            }
+        }
+
+        ImageAnalysisUtil.ImageMetrics metrics = analyzer.analyze(png(image));
+
+        assertNotNull(metrics);
+        assertEquals(127.5, metrics.getMeanBrightness(), 1e-9);
+        assertEquals(127.5, metrics.getContrast(), 1e-9);
+        assertEquals(0.5, metrics.getDarkRatio(), 1e-9);
+        assertEquals(0.5, metrics.getBrightRatio(), 1e-9);
+        assertEquals(0, metrics.getMedianBrightness());
+        // 內部6x6像素的響應均為±1020，正負各半
+        assertEquals(1020.0 * 1020.0, metrics.getLaplacianVariance(), 1e-6);
+        assertEquals(32, metrics.getHistogram()[0]);
+        assertEquals(32, metrics.getHistogram()[255]);
+    }
+
+    @Test
+    void uniformImageHasNoContrastOrSharpness() {
+        BufferedImage image = new BufferedImage(16, 12, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 12; y++) {
+            for (int x = 0; x < 16; x++) {
+                image.setRGB(x, y, 0x808080);
+            }
+        }
+
+        ImageAnalysisUtil.ImageMetrics metrics = analyzer.analyze(png(image));
+
+        assertEquals(128.0, metrics.getMeanBrightness(), 1e-9);
+        assertEquals(0.0, metrics.getContrast(), 1e-9);
+        assertEquals(0.0, metrics.getLaplacianVariance(), 1e-9);
+        assertEquals(128, metrics.getMedianBrightness());
+        assertEquals(0.0, metrics.getDarkRatio(), 1e-9);
+        assertEquals(0.0, metrics.getBrightRatio(), 1e-9);
+    }
+
+    @Test
+    void subsamplesLargeImagesButReportsOriginalSize() {
+        BufferedImage image = new BufferedImage(2000, 1000, BufferedImage.TYPE_BYTE_GRAY);
+
+        ImageAnalysisUtil.ImageMetrics metrics = analyzer.analyze(png(image), 500);
+
+        assertEquals(2000, metrics.getWidth());
+        assertEquals(1000, metrics.getHeight());
+        assertEquals(500, metrics.getSampleWidth());
+        assertEquals(250, metrics.getSampleHeight());
+        assertTrue(metrics.getDarkRatio() > 0.99);
+    }
+
+    @Test
+    void keepsSmallImagesAtFullResolution() {
+        BufferedImage image = new BufferedImage(300, 200, BufferedImage.TYPE_INT_RGB);
+
+        ImageAnalysisUtil.ImageMetrics metrics = analyzer.analyze(png(image));
+
+        assertEquals(300, metrics.getSampleWidth());
+        assertEquals(200, metrics.getSampleHeight());
+    }
+
+    @Test
+    void returnsNullForUndecodableBytes() {
+        assertNull(analyzer.analyze("not an image".getBytes()));
+        assertNull(analyzer.analyze(new byte[0]));
+    }
+
+    private static byte[] png(BufferedImage image) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,91 @@
+package com.usdttrading.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 滑動窗口Count-Min Sketch測試
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class SlidingWindowSketchTest {
+
+    @Test
+    void addReturnsRunningEstimate() {
+        SlidingWindowSketch sketch = new SlidingWindowSketch(60_000, 10, 4, 1 << 12);
+
+        assertEquals(1, sketch.add("alice@example.com", 1, 1_000));
+        assertEquals(2, sketch.add("alice@example.com", 1, 1_500));
+        assertEquals(7, sketch.add("alice@example.com", 5, 2_000));
+        assertEquals(7, sketch.estimate("alice@example.com", 2_000));
+        assertEquals(0, sketch.estimate("bob@example.com", 2_000));
+    }
+
+    @Test
+    void neverUnderestimates() {
+        // 寬度遠小於鍵數，必然發生碰撞
+        SlidingWindowSketch sketch = new SlidingWindowSketch(60_000, 6, 3, 64);
+        Map<String, Integer> exact = new HashMap<>();
+        for (int i = 0; i < 2_000; i++) {
+            String key = "203.0.113." + (i % 500);
+            sketch.add(key, 1, 10_000 + i);
+            exact.merge(key, 1, Integer::sum);
+        }
+
+        exact.forEach((key, count) -> assertTrue(sketch.estimate(key, 12_000) >= count, key));
+    }
+
+    @Test
+    void expiredBucketsLeaveTheWindow() {
+        // 窗口1秒，每桶100毫秒
+        SlidingWindowSketch sketch = new SlidingWindowSketch(1_000, 10, 4, 1 << 10);
+        sketch.add("key", 3, 0);
+        sketch.add("key", 2, 500);
+
+        assertEquals(5, sketch.estimate("key", 999));
+        assertEquals(2, sketch.estimate("key", 1_000));
+        assertEquals(2, sketch.estimate("key", 1_499));
+        assertEquals(0, sketch.estimate("key", 1_500));
+    }
+
+    @Test
+    void reusedBucketIsClearedBeforeCounting() {
+        SlidingWindowSketch sketch = new SlidingWindowSketch(1_000, 10, 4, 1 << 10);
+        sketch.add("key", 4, 50);
+
+        // 1050毫秒落在同一個桶位，舊數據應先清零
+        assertEquals(1, sketch.add("key", 1, 1_050));
+    }
+
+    @Test
+    void countsSaturateInsteadOfOverflowing() {
+        SlidingWindowSketch sketch = new SlidingWindowSketch(1_000, 1, 2, 16);
+        sketch.add("key", Integer.MAX_VALUE, 0);
+        sketch.add("key", Integer.MAX_VALUE, 0);
+
+        assertEquals(Integer.MAX_VALUE, sketch.estimate("key", 0));
+    }
+
+    @Test
+    void sizeIsFixedByDimensions() {
+        SlidingWindowSketch sketch = new SlidingWindowSketch(600_000, 10, 4, 4096);
+
+        assertEquals(10L * 4 * 4096 * Integer.BYTES, sketch.sizeInBytes());
+    }
+
+    @Test
+    void rejectsNonPositiveDimensions() {
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowSketch(0, 10, 4, 64));
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowSketch(1_000, 0, 4, 64));
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowSketch(1_000, 10, 0, 64));
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowSketch(1_000, 10, 4, 0));
+    }
+}
@@ -0,0 +1,177 @@
+package com.usdttrading.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分段加密文件格式測試
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class StreamingFileCipherTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+    private static final String OLD_KEY = Base64.getEncoder().encodeToString(filled(32, 1));
+    private static final String NEW_KEY = Base64.getEncoder().encodeToString(filled(32, 2));
+
+    @TempDir
+    Path dir;
+
+    private StreamingFileCipher cipher;
+    private byte[] plaintext;
+    private Path encrypted;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        cipher = cipher(encryptionUtil("k1", OLD_KEY, ""));
+        // 兩個整段加一個末段
+        plaintext = new byte[2 * SEGMENT_SIZE + 1808];
+        new Random(20250819L).nextBytes(plaintext);
+        encrypted = dir.resolve("passport.enc");
+        try (OutputStream out = cipher.newEncryptingStream(Files.newOutputStream(encrypted))) {
+            out.write(plaintext);
+        }
+    }
+
+    @Test
+    void roundTripsThroughStreamingDecryption() throws IOException {
+        assertTrue(cipher.isEncryptedFormat(encrypted));
+        assertEquals(StreamingFileCipher.HEADER_LENGTH + plaintext.length + 3 * 16, Files.size(encrypted));
+        assertEquals(plaintext.length, cipher.plaintextLength(encrypted));
+        assertEquals("k1", cipher.readKeyId(encrypted));
+
+        try (InputStream in = cipher.openDecryptingStream(encrypted)) {
+            assertArrayEquals(plaintext, in.readAllBytes());
+        }
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "0,    10",
+            "4090, 20",
+            "4096, 4096",
+            "8192, 1808",
+            "9999, 1",
+            "0,    10000"
+    })
+    void decryptsOnlyTheRequestedPlaintextRange(long offset, long length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        cipher.decryptRange(encrypted, offset, length, out);
+
+        assertArrayEquals(Arrays.copyOfRange(plaintext, (int) offset, (int) (offset + length)), out.toByteArray());
+    }
+
+    @Test
+    void rejectsRangeBeyondPlaintext() {
+        assertThrows(EOFException.class, () -> cipher.decryptRange(encrypted, 9990, 11, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void detectsTamperedSegment() throws IOException {
+        byte[] bytes = Files.readAllBytes(encrypted);
+        bytes[StreamingFileCipher.HEADER_LENGTH + SEGMENT_SIZE + 100] ^= 0x01;
+        Files.write(encrypted, bytes);
+
+        cipher.decryptRange(encrypted, 0, 10, new ByteArrayOutputStream());
+        assertThrows(IOException.class, () -> cipher.decryptRange(encrypted, SEGMENT_SIZE, 10, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void detectsTruncationAtSegmentBoundary() throws IOException {
+        byte[] bytes = Files.readAllBytes(encrypted);
+        int twoSegments = StreamingFileCipher.HEADER_LENGTH + 2 * (SEGMENT_SIZE + 16);
+        Files.write(encrypted, Arrays.copyOf(bytes, twoSegments));
+
+        // 截斷後的最後一段不帶末段標記，認證失敗
+        assertThrows(IOException.class, () -> cipher.decryptRange(encrypted, SEGMENT_SIZE, 10, new ByteArrayOutputStream()));
+    }
+
+    @Test
+    void treatsShortOrForeignFilesAsPlain() throws IOException {
+        Path png = Files.write(dir.resolve("legacy.png"), new byte[]{(byte) 0x89, 'P', 'N', 'G'});
+        Path large = Files.write(dir.resolve("legacy.pdf"), filled(StreamingFileCipher.HEADER_LENGTH + 10, '%'));
+
+        assertFalse(cipher.isEncryptedFormat(png));
+        assertFalse(cipher.isEncryptedFormat(large));
+    }
+
+    @Test
+    void rewrapsDataKeyUnderCurrentMasterKey() throws IOException {
+        byte[] segments = Arrays.copyOfRange(Files.readAllBytes(encrypted), StreamingFileCipher.HEADER_LENGTH,
+                (int) Files.size(encrypted));
+        StreamingFileCipher rotated = cipher(encryptionUtil("k2", NEW_KEY, "k1:" + OLD_KEY));
+
+        assertTrue(rotated.rewrapKey(encrypted));
+
+        assertEquals("k2", rotated.readKeyId(encrypted));
+        byte[] rewrapped = Files.readAllBytes(encrypted);
+        // 只替換文件頭，密文段原樣保留
+        assertArrayEquals(segments, Arrays.copyOfRange(rewrapped, StreamingFileCipher.HEADER_LENGTH, rewrapped.length));
+        try (InputStream in = rotated.openDecryptingStream(encrypted)) {
+            assertArrayEquals(plaintext, in.readAllBytes());
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+        assertFalse(rotated.rewrapKey(encrypted));
+    }
+
+    @Test
+    void leavesFileUntouchedWhenOldMasterKeyIsUnknown() throws IOException {
+        byte[] before = Files.readAllBytes(encrypted);
+        StreamingFileCipher rotated = cipher(encryptionUtil("k2", NEW_KEY, ""));
+
+        assertThrows(IllegalStateException.class, () -> rotated.rewrapKey(encrypted));
+
+        assertArrayEquals(before, Files.readAllBytes(encrypted));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    private static StreamingFileCipher cipher(DataEncryptionUtil encryptionUtil) {
+        StreamingFileCipher cipher = new StreamingFileCipher(encryptionUtil);
+        ReflectionTestUtils.setField(cipher, "segmentSize", SEGMENT_SIZE);
+        return cipher;
+    }
+
+    private static DataEncryptionUtil encryptionUtil(String keyId, String masterKey, String retiredKeys) {
+        DataEncryptionUtil encryptionUtil = new DataEncryptionUtil();
+        ReflectionTestUtils.setField(encryptionUtil, "encryptionEnabled", true);
+        ReflectionTestUtils.setField(encryptionUtil, "masterKeyId", keyId);
+        ReflectionTestUtils.setField(encryptionUtil, "masterKeyBase64", masterKey);
+        ReflectionTestUtils.setField(encryptionUtil, "retiredMasterKeys", retiredKeys);
+        return encryptionUtil;
+    }
+
+    private static byte[] filled(int length, int value) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+}
@@ -0,0 +1,135 @@
+package com.usdttrading.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 哈希時間輪測試
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class TimerWheelTest {
+
+    private static final long TICK_MILLIS = 10;
+
+    private final BlockingQueue<String> fired = new LinkedBlockingQueue<>();
+    private TimerWheel<String> wheel;
+
+    @AfterEach
+    void tearDown() {
+        if (wheel != null) {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    void firesAfterDeadline() throws InterruptedException {
+        start(64);
+        long deadline = System.currentTimeMillis() + 80;
+        wheel.schedule("order-1", deadline);
+
+        assertEquals("order-1", fired.poll(2, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() >= deadline - TICK_MILLIS);
+        assertFalse(wheel.isScheduled("order-1"));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void firesPastDeadlineOnNextTick() throws InterruptedException {
+        start(64);
+        wheel.schedule("overdue", System.currentTimeMillis() - 5_000);
+
+        assertEquals("overdue", fired.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void deadlineBeyondOneRoundWaitsForRemainingRounds() throws InterruptedException {
+        // 4個槽 × 10毫秒，200毫秒需要繞行多圈
+        start(4);
+        long deadline = System.currentTimeMillis() + 200;
+        wheel.schedule("step-1", deadline);
+
+        assertEquals("step-1", fired.poll(2, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() >= deadline - TICK_MILLIS);
+    }
+
+    @Test
+    void rescheduleReplacesPreviousDeadline() throws InterruptedException {
+        start(64);
+        long now = System.currentTimeMillis();
+        wheel.schedule("order-1", now + 5_000);
+        wheel.schedule("order-1", now + 50);
+
+        assertEquals(1, wheel.size());
+        assertEquals("order-1", fired.poll(2, TimeUnit.SECONDS));
+        assertTrue(System.currentTimeMillis() < now + 5_000);
+        assertNull(fired.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void schedulingSameDeadlineTwiceFiresOnce() throws InterruptedException {
+        start(64);
+        long deadline = System.currentTimeMillis() + 50;
+        wheel.schedule("order-1", deadline);
+        wheel.schedule("order-1", deadline);
+
+        assertEquals("order-1", fired.poll(2, TimeUnit.SECONDS));
+        assertNull(fired.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void cancelledTaskDoesNotFire() throws InterruptedException {
+        start(64);
+        wheel.schedule("order-1", System.currentTimeMillis() + 50);
+        wheel.cancel("order-1");
+
+        assertFalse(wheel.isScheduled("order-1"));
+        assertNull(fired.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void clearCancelsEverything() throws InterruptedException {
+        start(64);
+        long deadline = System.currentTimeMillis() + 50;
+        wheel.schedule("a", deadline);
+        wheel.schedule("b", deadline);
+        assertEquals(2, wheel.size());
+
+        wheel.clear();
+
+        assertEquals(0, wheel.size());
+        assertNull(fired.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void handlerFailureDoesNotStopTheWheel() throws InterruptedException {
+        wheel = new TimerWheel<>("test", TICK_MILLIS, 64, key -> {
+            if ("bad".equals(key)) {
+                throw new IllegalStateException("handler failure");
+            }
+            fired.add(key);
+        }, Runnable::run);
+        wheel.start();
+        long now = System.currentTimeMillis();
+        wheel.schedule("bad", now + 20);
+        wheel.schedule("good", now + 60);
+
+        assertEquals("good", fired.poll(2, TimeUnit.SECONDS));
+    }
+
+    private void start(int wheelSize) {
+        wheel = new TimerWheel<>("test", TICK_MILLIS, wheelSize, fired::add, Runnable::run);
+        wheel.start();
+    }
+}
@@ -0,0 +1,120 @@
+package com.usdttrading.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TRON地址工具類測試
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class TronAddressUtilTest {
+
+    /**
+     * 主網USDT合約
+     */
+    private static final String USDT_BASE58 = "TR7NHqjeKQxGTCi8q8ZY4pL8otSzgjLj6t";
+    private static final String USDT_HEX = "41a614f803b6fd780986a42c78ec9c7f77e6ded13c";
+    private static final String USDT_EVM_HEX = "a614f803b6fd780986a42c78ec9c7f77e6ded13c";
+
+    @Test
+    void convertsBetweenBase58AndHex() {
+        assertEquals(USDT_HEX, TronAddressUtil.toHex(USDT_BASE58));
+        assertEquals(USDT_BASE58, TronAddressUtil.fromHex(USDT_HEX));
+        assertEquals(USDT_BASE58, TronAddressUtil.fromHex("0x" + USDT_HEX));
+    }
+
+    @Test
+    void acceptsTwentyByteEvmHex() {
+        assertEquals(USDT_BASE58, TronAddressUtil.fromHex(USDT_EVM_HEX));
+        assertEquals(USDT_EVM_HEX, TronAddressUtil.toEvmHex(USDT_HEX.toUpperCase()));
+        assertEquals(USDT_EVM_HEX, TronAddressUtil.toEvmHex(USDT_EVM_HEX));
+    }
+
+    @Test
+    void parsesAddressFromEventTopic() {
+        String topic = "0x000000000000000000000000" + USDT_EVM_HEX;
+
+        assertEquals(USDT_BASE58, TronAddressUtil.fromTopic(topic));
+        assertThrows(IllegalArgumentException.class, () -> TronAddressUtil.fromTopic("0x1234"));
+    }
+
+    @Test
+    void rejectsHexWithoutTronPrefix() {
+        assertThrows(IllegalArgumentException.class,
+                () -> TronAddressUtil.fromHex("42" + USDT_EVM_HEX));
+        assertThrows(IllegalArgumentException.class,
+                () -> TronAddressUtil.fromHex(USDT_EVM_HEX.substring(2)));
+    }
+
+    @Test
+    void derivesAddressFromPublicKey() {
+        // 私鑰1、2對應的公鑰G、2G；地址主體與以太坊已知地址0x7E5F…5Bdf、0x2B5A…D6cF相同
+        byte[] g = publicKey("79be667ef9dcbbac55a06295ce870b07029bfcdb2dce28d959f2815b16f81798",
+                "483ada7726a3c4655da4fbfc0e1108a8fd17b448a68554199c47d08ffb10d4b8");
+        byte[] twoG = publicKey("c6047f9441ed7d6d3045406e95c07cd85c778e4b8cef3ca7abac09b95c709ee5",
+                "1ae168fea63dc339a3c58419466ceaeef7f632653266d0e1236431a950cfe52a");
+
+        assertEquals("TMVQGm1qAQYVdetCeGRRkTWYYrLXuHK2HC", TronAddressUtil.fromPublicKey(g));
+        assertEquals("417e5f4552091a69125d5dfcb7b8c2659029395bdf", TronAddressUtil.toHex(TronAddressUtil.fromPublicKey(g)));
+        assertEquals("TDvSsdrNM5eeXNL3czpa6AxLDHZA9nwe9K", TronAddressUtil.fromPublicKey(twoG));
+    }
+
+    @Test
+    void validatesChecksum() {
+        String tampered = USDT_BASE58.substring(0, 33) + "u";
+
+        assertTrue(TronAddressUtil.isValidAddress(USDT_BASE58));
+        assertFalse(TronAddressUtil.isValidAddress(tampered));
+        assertNull(TronAddressUtil.toHex(tampered));
+        assertNull(TronAddressUtil.decodeCheck(tampered));
+    }
+
+    @Test
+    void rejectsMalformedAddresses() {
+        assertFalse(TronAddressUtil.isValidAddress(null));
+        assertFalse(TronAddressUtil.isValidAddress(""));
+        assertFalse(TronAddressUtil.isValidAddress(USDT_BASE58.substring(1)));
+        assertFalse(TronAddressUtil.isValidAddress(USDT_BASE58 + "1"));
+        // 0、O、I、l不在Base58字母表中
+        assertFalse(TronAddressUtil.isValidAddress("T0" + USDT_BASE58.substring(2)));
+        assertFalse(TronAddressUtil.isValidAddress("1111111111111111111111111111111111"));
+    }
+
+    @Test
+    void fastValidationAgreesWithDecoder() {
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            byte[] payload = new byte[21];
+            random.nextBytes(payload);
+            payload[0] = 0x41;
+            String address = TronAddressUtil.encodeCheck(payload);
+            assertTrue(TronAddressUtil.isValidAddress(address), address);
+
+            char[] chars = address.toCharArray();
+            int position = 1 + random.nextInt(chars.length - 1);
+            chars[position] = chars[position] == 'z' ? 'y' : 'z';
+            String mutated = new String(chars);
+            assertEquals(TronAddressUtil.decodeCheck(mutated) != null, TronAddressUtil.isValidAddress(mutated), mutated);
+        }
+    }
+
+    private static byte[] publicKey(String x, String y) {
+        byte[] point = new byte[64];
+        byte[] xBytes = new BigInteger(x, 16).toByteArray();
+        byte[] yBytes = new BigInteger(y, 16).toByteArray();
+        System.arraycopy(xBytes, xBytes.length - 32, point, 0, 32);
+        System.arraycopy(yBytes, yBytes.length - 32, point, 32, 32);
+        return point;
+    }
+}
@@ -0,0 +1,161 @@
+package com.usdttrading.utils;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 制裁名單索引測試（精確匹配及姓名模糊匹配）
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class WatchlistIndexTest {
+
+    private List<WatchlistIndex.Entry> entries;
+    private WatchlistIndex index;
+
+    @BeforeEach
+    void setUp() {
+        entries = new ArrayList<>();
+        entries.add(new WatchlistIndex.Entry("OFAC-1", "OFAC", WatchlistIndex.EntryType.NAME, "PUTIN, Vladimir Vladimirovich"));
+        entries.add(new WatchlistIndex.Entry("OFAC-2", "OFAC", WatchlistIndex.EntryType.NAME, "Kim Jong Un"));
+        entries.add(new WatchlistIndex.Entry("OFAC-3", "OFAC", WatchlistIndex.EntryType.NAME, "金正恩"));
+        entries.add(new WatchlistIndex.Entry("OFAC-4", "OFAC", WatchlistIndex.EntryType.NAME, "Kim Jong Il"));
+        entries.add(new WatchlistIndex.Entry("UN-1", "UN", WatchlistIndex.EntryType.NAME, "Ali Hassan Mohammed"));
+        entries.add(new WatchlistIndex.Entry("UN-2", "UN", WatchlistIndex.EntryType.NAME, "Mohammed Ali"));
+        entries.add(new WatchlistIndex.Entry("UN-3", "UN", WatchlistIndex.EntryType.NAME, "Hassan Ali Mahmoud"));
+        entries.add(new WatchlistIndex.Entry("LOCAL-1", "LOCAL", WatchlistIndex.EntryType.ID, "A123456789"));
+        entries.add(new WatchlistIndex.Entry("OFAC-5", "OFAC", WatchlistIndex.EntryType.ADDRESS, "TXjrnKqrnaPrAzkKqrGGDz5V9cr2ZkyqLN"));
+        entries.add(new WatchlistIndex.Entry("OFAC-6", "OFAC", WatchlistIndex.EntryType.ADDRESS, "0x8589427373D6D84E98730D7795D8f6f8731FDA16"));
+        index = WatchlistIndex.build(entries);
+    }
+
+    @Test
+    void matchesIdentifiersAfterNormalization() {
+        assertEquals("LOCAL-1", index.matchExact(WatchlistIndex.EntryType.ID, "a123-456 789").getEntryId());
+        assertNull(index.matchExact(WatchlistIndex.EntryType.ID, "A123456780"));
+        // 證件號與姓名分屬不同類型
+        assertNull(index.matchExact(WatchlistIndex.EntryType.NAME, "A123456789"));
+    }
+
+    @Test
+    void comparesEvmAddressesCaseInsensitivelyButTronExactly() {
+        assertEquals("OFAC-6", index.matchExact(WatchlistIndex.EntryType.ADDRESS,
+                "0x8589427373d6d84e98730d7795d8f6f8731fda16").getEntryId());
+        assertEquals("OFAC-5", index.matchExact(WatchlistIndex.EntryType.ADDRESS,
+                " TXjrnKqrnaPrAzkKqrGGDz5V9cr2ZkyqLN ").getEntryId());
+        assertNull(index.matchExact(WatchlistIndex.EntryType.ADDRESS, "txjrnkqrnaprazkkqrggdz5v9cr2zkyqln"));
+    }
+
+    @Test
+    void exactNameMatchIgnoresOrderAndPunctuation() {
+        List<WatchlistIndex.Match> matches = index.matchName("Vladimir Vladimirovich Putin", 0.8, 5);
+
+        assertEquals(1, matches.size());
+        assertEquals("OFAC-1", matches.get(0).getEntryId());
+        assertTrue(matches.get(0).isExact());
+        assertEquals(1.0, matches.get(0).getScore(), 1e-9);
+    }
+
+    @Test
+    void findsMisspelledNamesAboveThreshold() {
+        List<WatchlistIndex.Match> matches = index.matchName("Vladimir Vladimirovic Putn", 0.7, 5);
+
+        assertEquals(1, matches.size());
+        assertEquals("OFAC-1", matches.get(0).getEntryId());
+        assertFalse(matches.get(0).isExact());
+        assertTrue(matches.get(0).getScore() >= 0.7 && matches.get(0).getScore() < 1.0);
+    }
+
+    @Test
+    void matchesCjkNamesByBigrams() {
+        assertTrue(index.matchName("金正恩", 0.9, 5).get(0).isExact());
+
+        // 金正/正日 與 金正/正恩 共享一個二元組，Dice = 0.5
+        List<WatchlistIndex.Match> similar = index.matchName("金正日", 0.5, 5);
+        assertEquals(1, similar.size());
+        assertEquals(0.5, similar.get(0).getScore(), 1e-9);
+        assertTrue(index.matchName("金正日", 0.6, 5).isEmpty());
+    }
+
+    @Test
+    void ordersByScoreAndAppliesLimit() {
+        List<WatchlistIndex.Match> matches = index.matchName("Kim Jong Un", 0.4, 2);
+
+        assertEquals(2, matches.size());
+        assertEquals("OFAC-2", matches.get(0).getEntryId());
+        assertEquals("OFAC-4", matches.get(1).getEntryId());
+        assertTrue(matches.get(0).getScore() > matches.get(1).getScore());
+    }
+
+    /**
+     * 前綴過濾只是剪枝，結果必須與逐條計算Dice係數一致
+     */
+    @ParameterizedTest
+    @CsvSource({
+            "Ali Hassan,          0.5",
+            "Mohamed Ali Hasan,   0.6",
+            "Kim Jong,            0.5",
+            "Hassan Mahmoud,      0.7",
+            "Vladmir Putin,       0.4"
+    })
+    void prefixFilterFindsSameCandidatesAsFullScan(String query, double threshold) {
+        Set<String> expected = new TreeSet<>();
+        List<String> queryGrams = WatchlistIndex.grams(WatchlistIndex.normalizeName(query));
+        for (WatchlistIndex.Entry entry : entries) {
+            if (entry.getType() != WatchlistIndex.EntryType.NAME) {
+                continue;
+            }
+            List<String> nameGrams = WatchlistIndex.grams(WatchlistIndex.normalizeName(entry.getValue()));
+            Set<String> shared = new HashSet<>(queryGrams);
+            shared.retainAll(nameGrams);
+            if (2.0 * shared.size() / (queryGrams.size() + nameGrams.size()) >= threshold) {
+                expected.add(entry.getEntryId());
+            }
+        }
+
+        Set<String> actual = index.matchName(query, threshold, 100).stream()
+                .map(WatchlistIndex.Match::getEntryId)
+                .collect(Collectors.toCollection(TreeSet::new));
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "'Smith, John',        john smith",
+            "'ＪＯＨＮ　SMITH',      john smith",
+            "'  john-smith ',      john smith",
+            "'王 小明',             王小明"
+    })
+    void normalizesNames(String raw, String normalized) {
+        assertEquals(normalized, WatchlistIndex.normalizeName(raw));
+    }
+
+    @Test
+    void emptyIndexMatchesNothing() {
+        WatchlistIndex empty = WatchlistIndex.empty();
+
+        assertEquals(0, empty.size());
+        assertNull(empty.matchExact(WatchlistIndex.EntryType.ID, "A123456789"));
+        assertTrue(empty.matchName("Kim Jong Un", 0.5, 5).isEmpty());
+        assertEquals(7, index.nameCount());
+        assertEquals(10, index.size());
+    }
+}
@@ -0,0 +1,114 @@
+package com.usdttrading.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * XLSX流式寫入器測試
+ *
+ * @author BackendAgent
+ * @version 1.0.0
+ * @since 2025-08-19
+ */
+class XlsxExportWriterTest {
+
+    @Test
+    void writesMinimalWorkbookPackage() throws IOException {
+        Map<String, String> entries = write("訂單", List.of("訂單號", "金額"),
+                Arrays.asList("ORD001", new BigDecimal("100.50")));
+
+        assertEquals(List.of("xl/worksheets/sheet1.xml", "[Content_Types].xml", "_rels/.rels",
+                "xl/workbook.xml", "xl/_rels/workbook.xml.rels"), List.copyOf(entries.keySet()));
+        assertTrue(entries.get("[Content_Types].xml").contains("PartName=\"/xl/worksheets/sheet1.xml\""));
+        assertTrue(entries.get("xl/workbook.xml").contains("<sheet name=\"訂單\" sheetId=\"1\" r:id=\"rId1\"/>"));
+        assertTrue(entries.get("xl/_rels/workbook.xml.rels").contains("Target=\"worksheets/sheet1.xml\""));
+    }
+
+    @Test
+    void writesHeaderAndTypedCells() throws IOException {
+        String sheet = write("Sheet", List.of("編號", "數量", "備註"),
+                Arrays.asList(7L, new BigDecimal("12.3400"), null)).get("xl/worksheets/sheet1.xml");
+
+        assertTrue(sheet.contains("<row><c t=\"inlineStr\"><is><t xml:space=\"preserve\">編號</t></is></c>"), sheet);
+        assertTrue(sheet.contains("<row><c><v>7</v></c><c><v>12.3400</v></c><c/></row>"), sheet);
+        assertTrue(sheet.endsWith("</sheetData></worksheet>"), sheet);
+    }
+
+    @Test
+    void writesImpreciseNumbersAsText() throws IOException {
+        String sheet = write("Sheet", List.of("值"),
+                Arrays.asList(new BigDecimal("12345678901234567.89"))).get("xl/worksheets/sheet1.xml");
+
+        assertTrue(sheet.contains("<t xml:space=\"preserve\">12345678901234567.89</t>"), sheet);
+    }
+
+    @Test
+    void escapesXmlAndDropsControlCharacters() throws IOException {
+        String sheet = write("Sheet", List.of("備註"),
+                Arrays.asList("<a href=\"x\">&\u0001</a>")).get("xl/worksheets/sheet1.xml");
+
+        assertTrue(sheet.contains("&lt;a href=&quot;x&quot;&gt;&amp;&lt;/a&gt;"), sheet);
+        assertFalse(sheet.contains("\u0001"));
+    }
+
+    @Test
+    void sanitizesSheetName() throws IOException {
+        String workbook = write("審核/報表[2025]:一月?*\\abcdefghijklmnopqrstuvwxyz", List.of("a"))
+                .get("xl/workbook.xml");
+
+        assertTrue(workbook.contains("<sheet name=\"審核_報表_2025__一月___abcdefghijklmn\""), workbook);
+    }
+
+    @Test
+    void emptyExportStillProducesOneSheet() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportWriter writer = ExportWriter.Format.XLSX.open(out, null);
+        writer.finish();
+        writer.finish();
+
+        Map<String, String> entries = unzip(out.toByteArray());
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+                + "</sheetData></worksheet>", entries.get("xl/worksheets/sheet1.xml"));
+        assertTrue(entries.get("xl/workbook.xml").contains("<sheet name=\"Sheet\""));
+    }
+
+    @SafeVarargs
+    private static Map<String, String> write(String sheetName, List<String> header, List<Object>... rows)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportWriter writer = ExportWriter.Format.XLSX.open(out, sheetName);
+        writer.writeHeader(header);
+        for (List<Object> row : rows) {
+            writer.writeRow(row);
+        }
+        writer.finish();
+        return unzip(out.toByteArray());
+    }
+
+    private static Map<String, String> unzip(byte[] bytes) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,44 @@
+-- ============================================================================
+-- USDT Trading Platform - Deposit Address Pool Migration
+-- ============================================================================
+-- 新增充值地址池表：地址由賬戶級擴展公鑰（xpub）按 external/index 路徑預先推導，
+-- 用戶申請充值地址時以 FOR UPDATE SKIP LOCKED 原子領取一個未分配地址。
+-- 補充服務為 DepositAddressPool，僅在集群主節點運行；私鑰不進入服務端。
+-- 創建日期: 2025-08-19
+-- ============================================================================
+
+USE usdt_trading_platform;
+
+-- ============================================================================
+-- 1. 充值地址池表
+-- ============================================================================
+
+CREATE TABLE IF NOT EXISTS deposit_addresses (
+    id BIGINT UNSIGNED PRIMARY KEY,
+    network VARCHAR(16) NOT NULL COMMENT '網絡類型',
+    address VARCHAR(100) NOT NULL COMMENT '地址',
+    derivation_index INT UNSIGNED NOT NULL COMMENT '推導索引',
+    status VARCHAR(16) NOT NULL DEFAULT 'AVAILABLE' COMMENT '狀態',
+    user_id BIGINT UNSIGNED DEFAULT NULL COMMENT '分配的用戶ID',
+    assigned_at DATETIME DEFAULT NULL COMMENT '分配時間',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '創建時間',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新時間',
+    deleted TINYINT DEFAULT 0 COMMENT '邏輯刪除標記',
+    version INT DEFAULT 0 COMMENT '樂觀鎖版本號',
+
+    UNIQUE KEY uk_deposit_addresses_index (network, derivation_index),
+    UNIQUE KEY uk_deposit_addresses_address (address),
+    -- 每個用戶每個網絡只能領取一個地址，併發領取由唯一鍵兜底
+    UNIQUE KEY uk_deposit_addresses_user (network, user_id),
+    INDEX idx_deposit_addresses_status (network, status, derivation_index),
+    INDEX idx_deposit_addresses_assigned (status, assigned_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='充值地址池表';
+
+-- ============================================================================
+-- 2. 驗證
+-- ============================================================================
+
+SELECT network, status, COUNT(*) AS addresses, MAX(derivation_index) AS max_index
+FROM deposit_addresses
+WHERE deleted = 0
+GROUP BY network, status;
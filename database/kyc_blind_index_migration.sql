@@ -0,0 +1,43 @@
+-- ============================================================================
+-- USDT Trading Platform - KYC Blind Index Migration
+-- ============================================================================
+-- 為加密存儲的證件號、銀行賬號、手機號增加HMAC-SHA256盲索引列及B-tree索引，
+-- 重複申請及欺詐檢查改為單次索引等值查詢。
+-- 存量數據由應用啟動後的回填任務（KycBlindIndexService）分批補齊，
+-- 亦可由超級管理員調用 POST /api/admin/kyc/blind-index/backfill 手動觸發。
+-- 索引密鑰由 app.encryption.blind-index-key 獨立配置，不隨主密鑰輪換；更換該密鑰後須重新回填。
+-- 創建日期: 2025-08-19
+-- ============================================================================
+
+USE usdt_trading_platform;
+
+-- ============================================================================
+-- 1. 增加盲索引列（64位十六進制）
+-- ============================================================================
+
+ALTER TABLE user_kyc
+    ADD COLUMN id_number_bidx CHAR(64) DEFAULT NULL COMMENT '證件號碼盲索引(HMAC-SHA256)' AFTER id_number,
+    ADD COLUMN bank_account_bidx CHAR(64) DEFAULT NULL COMMENT '銀行賬號盲索引(HMAC-SHA256)' AFTER bank_account,
+    ADD COLUMN phone_number_bidx CHAR(64) DEFAULT NULL COMMENT '聯繫電話盲索引(HMAC-SHA256)' AFTER phone_number,
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- ============================================================================
+-- 2. 建立索引
+-- ============================================================================
+
+-- 重複檢查按 (id_number_bidx, status) 過濾
+CREATE INDEX idx_user_kyc_id_number_bidx ON user_kyc (id_number_bidx, status) ALGORITHM = INPLACE LOCK = NONE;
+CREATE INDEX idx_user_kyc_bank_account_bidx ON user_kyc (bank_account_bidx) ALGORITHM = INPLACE LOCK = NONE;
+CREATE INDEX idx_user_kyc_phone_number_bidx ON user_kyc (phone_number_bidx) ALGORITHM = INPLACE LOCK = NONE;
+
+-- ============================================================================
+-- 3. 驗證
+-- ============================================================================
+
+SELECT
+    COUNT(*) AS total,
+    SUM(id_number IS NOT NULL AND id_number_bidx IS NULL) AS pending_id_number,
+    SUM(bank_account IS NOT NULL AND bank_account_bidx IS NULL) AS pending_bank_account,
+    SUM(phone_number IS NOT NULL AND phone_number_bidx IS NULL) AS pending_phone_number
+FROM user_kyc
+WHERE deleted = 0;
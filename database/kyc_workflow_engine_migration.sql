@@ -0,0 +1,56 @@
+-- ============================================================================
+-- USDT Trading Platform - KYC Workflow Engine Migration
+-- ============================================================================
+-- 為kyc_workflow_steps增加執行器認領（租約）及SLA計時字段。
+-- 自動步驟以 SELECT ... FOR UPDATE SKIP LOCKED 認領，需MySQL 8.0及以上版本。
+-- 存量進行中的自動預審步驟重置為READY，由工作流引擎（KycWorkflowEngine）重新執行。
+-- 創建日期: 2025-08-19
+-- ============================================================================
+
+USE usdt_trading_platform;
+
+-- ============================================================================
+-- 1. 增加認領及SLA字段
+-- ============================================================================
+
+ALTER TABLE kyc_workflow_steps
+    ADD COLUMN next_run_at DATETIME DEFAULT NULL COMMENT '下次可執行時間',
+    ADD COLUMN claimed_by VARCHAR(128) DEFAULT NULL COMMENT '認領節點',
+    ADD COLUMN claim_expires_at DATETIME DEFAULT NULL COMMENT '認領租約到期時間',
+    ADD COLUMN attempts INT NOT NULL DEFAULT 0 COMMENT '執行嘗試次數',
+    ADD COLUMN sla_deadline DATETIME DEFAULT NULL COMMENT 'SLA截止時間',
+    ADD COLUMN escalated TINYINT(1) NOT NULL DEFAULT 0 COMMENT '是否已因SLA超時升級',
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- ============================================================================
+-- 2. 建立索引
+-- ============================================================================
+
+-- 執行器按 (status, next_run_at) 認領
+CREATE INDEX idx_kyc_workflow_steps_ready ON kyc_workflow_steps (status, next_run_at) ALGORITHM = INPLACE LOCK = NONE;
+-- 租約回收按 (status, claim_expires_at) 掃描
+CREATE INDEX idx_kyc_workflow_steps_claim ON kyc_workflow_steps (status, claim_expires_at) ALGORITHM = INPLACE LOCK = NONE;
+-- SLA掃描按 (escalated, sla_deadline) 過濾
+CREATE INDEX idx_kyc_workflow_steps_sla ON kyc_workflow_steps (escalated, sla_deadline) ALGORITHM = INPLACE LOCK = NONE;
+
+-- ============================================================================
+-- 3. 存量數據
+-- ============================================================================
+
+-- 尚未完成的自動預審交由引擎重新執行
+UPDATE kyc_workflow_steps s
+    JOIN user_kyc k ON k.id = s.kyc_id
+SET s.status = 'READY', s.next_run_at = NOW(), s.version = s.version + 1
+WHERE s.step_number = 1
+  AND s.status IN ('PENDING', 'IN_PROGRESS')
+  AND s.deleted = 0
+  AND k.status = 'under_review';
+
+-- ============================================================================
+-- 4. 驗證
+-- ============================================================================
+
+SELECT status, COUNT(*) AS total, SUM(sla_deadline IS NOT NULL) AS with_sla
+FROM kyc_workflow_steps
+WHERE deleted = 0
+GROUP BY status;
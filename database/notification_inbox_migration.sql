@@ -0,0 +1,28 @@
+-- ============================================================================
+-- USDT Trading Platform - Notification Inbox Migration
+-- ============================================================================
+-- 未讀數及最近通知改由Redis收件箱緩存（NotificationInbox）提供，
+-- 緩存缺失重建及定時校準按 (user_id, status, category) 分組統計未讀數，
+-- 最近通知按 (user_id, created_at) 倒序讀取。
+-- 創建日期: 2025-08-19
+-- ============================================================================
+
+USE usdt_trading_platform;
+
+-- ============================================================================
+-- 1. 建立索引
+-- ============================================================================
+
+CREATE INDEX idx_notifications_user_status_category ON notifications (user_id, status, category) ALGORITHM = INPLACE LOCK = NONE;
+CREATE INDEX idx_notifications_user_created ON notifications (user_id, created_at) ALGORITHM = INPLACE LOCK = NONE;
+
+-- ============================================================================
+-- 2. 驗證
+-- ============================================================================
+
+SELECT
+    COUNT(*) AS unread_total,
+    COUNT(DISTINCT user_id) AS users_with_unread
+FROM notifications
+WHERE status = 'UNREAD'
+  AND deleted = 0;
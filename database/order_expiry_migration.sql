@@ -0,0 +1,28 @@
+-- ============================================================================
+-- USDT Trading Platform - Order Expiry Migration
+-- ============================================================================
+-- 訂單過期改由主節點內存時間輪觸發（OrderExpiryService），
+-- 重建及增量同步按 (order_status, payment_deadline) 範圍查詢待支付訂單。
+-- 存量無截止時間的待支付訂單不會自動過期，需人工處理。
+-- 創建日期: 2025-08-19
+-- ============================================================================
+
+USE usdt_trading_platform;
+
+-- ============================================================================
+-- 1. 建立索引
+-- ============================================================================
+
+CREATE INDEX idx_orders_status_deadline ON orders (order_status, payment_deadline) ALGORITHM = INPLACE LOCK = NONE;
+
+-- ============================================================================
+-- 2. 驗證
+-- ============================================================================
+
+SELECT
+    COUNT(*) AS pending_total,
+    SUM(payment_deadline IS NULL) AS pending_without_deadline,
+    SUM(payment_deadline < NOW()) AS pending_overdue
+FROM orders
+WHERE order_status = 'PENDING'
+  AND deleted = 0;
@@ -0,0 +1,52 @@
+-- ============================================================================
+-- USDT Trading Platform - TRON Deposit Scanner Migration
+-- ============================================================================
+-- 新增區塊掃描記錄表（掃描游標及重組檢測用的最近區塊哈希），
+-- 並為鏈上充值增加去重唯一鍵及確認數批量推進所需索引。
+-- 掃描服務為 TronDepositScanner，僅在集群主節點運行。
+-- 創建日期: 2025-08-19
+-- ============================================================================
+
+USE usdt_trading_platform;
+
+-- ============================================================================
+-- 1. 區塊掃描記錄表
+-- ============================================================================
+
+CREATE TABLE IF NOT EXISTS chain_scan_blocks (
+    id BIGINT UNSIGNED PRIMARY KEY,
+    chain VARCHAR(16) NOT NULL COMMENT '鏈標識',
+    block_number BIGINT UNSIGNED NOT NULL COMMENT '區塊高度',
+    block_hash VARCHAR(64) NOT NULL COMMENT '區塊哈希',
+    parent_hash VARCHAR(64) NOT NULL COMMENT '父區塊哈希',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '創建時間',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新時間',
+    deleted TINYINT DEFAULT 0 COMMENT '邏輯刪除標記',
+    version INT DEFAULT 0 COMMENT '樂觀鎖版本號',
+
+    UNIQUE KEY uk_chain_block (chain, block_number)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='區塊掃描記錄表';
+
+-- ============================================================================
+-- 2. 鏈上充值索引
+-- ============================================================================
+
+-- 同一交易內的多筆代幣轉賬以事件序號區分（批量轉賬合約可在一筆交易內向同一地址轉賬多次）
+ALTER TABLE transactions
+    ADD COLUMN log_index INT NOT NULL DEFAULT 0 COMMENT '轉賬事件在交易內的序號',
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- 同一筆鏈上轉賬只記錄一次，重掃時冪等
+CREATE UNIQUE INDEX uk_transactions_chain_deposit ON transactions (network, transaction_hash, to_address, log_index) ALGORITHM = INPLACE LOCK = NONE;
+-- 確認數推進及待入賬查詢
+CREATE INDEX idx_transactions_chain_pending ON transactions (network, type, status, block_number) ALGORITHM = INPLACE LOCK = NONE;
+-- 訂單鏈上交易確認數推進
+CREATE INDEX idx_order_transactions_pending ON order_transactions (status, block_number) ALGORITHM = INPLACE LOCK = NONE;
+
+-- ============================================================================
+-- 3. 驗證
+-- ============================================================================
+
+SELECT chain, MIN(block_number) AS window_start, MAX(block_number) AS cursor_block, COUNT(*) AS blocks
+FROM chain_scan_blocks
+GROUP BY chain;
@@ -0,0 +1,64 @@
+-- ============================================================================
+-- USDT Trading Platform - Wallet Sweeper Migration
+-- ============================================================================
+-- 新增資金歸集記錄表（充值地址歸集到熱錢包、熱錢包轉入冷錢包），
+-- 並為鏈上充值增加歸集標記，按地址匯總未歸集充值。
+-- 歸集服務為 WalletSweeper，僅在集群主節點運行，默認演練模式只輸出計劃。
+-- 創建日期: 2025-08-19
+-- ============================================================================
+
+USE usdt_trading_platform;
+
+-- ============================================================================
+-- 1. 資金歸集記錄表
+-- ============================================================================
+
+CREATE TABLE IF NOT EXISTS wallet_sweeps (
+    id BIGINT UNSIGNED PRIMARY KEY,
+    sweep_type VARCHAR(32) NOT NULL COMMENT '歸集類型',
+    network VARCHAR(16) NOT NULL COMMENT '網絡類型',
+    from_address VARCHAR(100) NOT NULL COMMENT '轉出地址',
+    from_wallet_id BIGINT UNSIGNED NOT NULL COMMENT '轉出錢包ID',
+    to_address VARCHAR(100) NOT NULL COMMENT '轉入地址',
+    to_wallet_id BIGINT UNSIGNED NOT NULL COMMENT '轉入平台錢包ID',
+    amount DECIMAL(20,8) NOT NULL COMMENT '金額',
+    deposit_count INT NOT NULL DEFAULT 0 COMMENT '歸集的充值筆數',
+    transaction_hash VARCHAR(100) NOT NULL COMMENT '鏈上交易哈希',
+    signed_payload TEXT DEFAULT NULL COMMENT '已簽名交易',
+    status VARCHAR(16) NOT NULL COMMENT '狀態',
+    block_number BIGINT UNSIGNED DEFAULT NULL COMMENT '區塊號',
+    network_fee DECIMAL(20,8) DEFAULT NULL COMMENT '鏈上網絡手續費',
+    failure_reason VARCHAR(255) DEFAULT NULL COMMENT '失敗原因',
+    broadcast_at DATETIME DEFAULT NULL COMMENT '廣播時間',
+    confirmed_at DATETIME DEFAULT NULL COMMENT '確認時間',
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '創建時間',
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新時間',
+    deleted TINYINT DEFAULT 0 COMMENT '邏輯刪除標記',
+    version INT DEFAULT 0 COMMENT '樂觀鎖版本號',
+
+    UNIQUE KEY uk_wallet_sweeps_tx (network, transaction_hash),
+    INDEX idx_wallet_sweeps_status (network, status)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='資金歸集記錄表';
+
+-- ============================================================================
+-- 2. 充值歸集標記
+-- ============================================================================
+
+ALTER TABLE transactions
+    ADD COLUMN sweep_id BIGINT UNSIGNED DEFAULT NULL COMMENT '歸集記錄ID',
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- 按 (network, type, status, sweep_id) 過濾未歸集充值後按地址匯總
+CREATE INDEX idx_transactions_unswept ON transactions (network, type, status, sweep_id, to_address) ALGORITHM = INPLACE LOCK = NONE;
+
+-- ============================================================================
+-- 3. 驗證
+-- ============================================================================
+
+SELECT network, COUNT(DISTINCT to_address) AS addresses, COUNT(*) AS deposits, SUM(amount) AS unswept_amount
+FROM transactions
+WHERE type = 'DEPOSIT'
+  AND status = 'COMPLETED'
+  AND sweep_id IS NULL
+  AND deleted = 0
+GROUP BY network;
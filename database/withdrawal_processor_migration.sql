@@ -0,0 +1,63 @@
+-- ============================================================================
+-- USDT Trading Platform - Withdrawal Processor Migration
+-- ============================================================================
+-- 鏈上出款改由主節點出款引擎（WithdrawalProcessor）批量處理：
+-- withdrawals 增加出款熱錢包、出款序號、已簽名交易及確認進度字段，
+-- platform_wallets 增加按熱錢包遞增的出款序號。
+-- 已批准的提款以 SELECT ... FOR UPDATE SKIP LOCKED 認領，需MySQL 8.0及以上版本。
+-- 創建日期: 2025-08-19
+-- ============================================================================
+
+USE usdt_trading_platform;
+
+-- ============================================================================
+-- 1. 增加出款字段
+-- ============================================================================
+
+ALTER TABLE withdrawals
+    MODIFY COLUMN status ENUM('pending', 'reviewing', 'approved', 'processing', 'completed', 'rejected', 'cancelled', 'failed')
+        DEFAULT 'pending' COMMENT '提款狀態',
+    ADD COLUMN source_wallet_id BIGINT UNSIGNED DEFAULT NULL COMMENT '出款熱錢包ID',
+    ADD COLUMN chain_nonce BIGINT UNSIGNED DEFAULT NULL COMMENT '出款序號',
+    ADD COLUMN signed_payload TEXT DEFAULT NULL COMMENT '已簽名交易',
+    ADD COLUMN broadcast_at DATETIME DEFAULT NULL COMMENT '廣播時間',
+    ADD COLUMN broadcast_attempts INT NOT NULL DEFAULT 0 COMMENT '廣播嘗試次數',
+    ADD COLUMN confirmations INT NOT NULL DEFAULT 0 COMMENT '確認數',
+    ADD COLUMN network_fee DECIMAL(20,8) DEFAULT NULL COMMENT '鏈上網絡手續費',
+    ADD COLUMN failure_reason VARCHAR(255) DEFAULT NULL COMMENT '失敗原因';
+
+ALTER TABLE platform_wallets
+    ADD COLUMN next_nonce BIGINT UNSIGNED NOT NULL DEFAULT 0 COMMENT '下一個出款序號',
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- ============================================================================
+-- 2. 建立索引
+-- ============================================================================
+
+-- 認領、待廣播及確認跟蹤均按 (status, network) 過濾
+CREATE INDEX idx_withdrawals_status_network ON withdrawals (status, network, broadcast_at) ALGORITHM = INPLACE LOCK = NONE;
+
+-- ============================================================================
+-- 3. 存量數據
+-- ============================================================================
+
+-- 此前提現只寫入交易記錄，為待審核的提現補建出款單（無手續費）
+INSERT INTO withdrawals (withdrawal_no, user_id, wallet_id, amount, fee, actual_amount, to_address, network,
+                         status, review_level, ip_address, user_agent, created_at)
+SELECT t.transaction_number, t.user_id,
+       (SELECT MIN(w.id) FROM wallets w WHERE w.user_id = t.user_id AND w.deleted = 0), t.amount, 0, t.amount, t.to_address, UPPER(t.network),
+       'PENDING', 'manual', t.client_ip, t.user_agent, t.created_at
+FROM transactions t
+WHERE t.type = 'WITHDRAWAL'
+  AND t.status = 'PENDING'
+  AND t.deleted = 0
+  AND NOT EXISTS (SELECT 1 FROM withdrawals d WHERE d.withdrawal_no = t.transaction_number);
+
+-- ============================================================================
+-- 4. 驗證
+-- ============================================================================
+
+SELECT status, COUNT(*) AS total, SUM(transaction_hash IS NOT NULL) AS with_tx_hash
+FROM withdrawals
+WHERE deleted = 0
+GROUP BY status;